@@ -4,10 +4,12 @@ import com.google.cloud.bigquery.BigQueryException;
 import com.google.cloud.bigquery.BigQueryOptions;
 import com.google.cloud.bigquery.utils.queryfixer.entity.FixResult;
 import com.google.cloud.bigquery.utils.queryfixer.errors.BigQuerySqlError;
+import com.google.cloud.bigquery.utils.queryfixer.errors.BigQuerySyntaxError;
 import com.google.cloud.bigquery.utils.queryfixer.errors.SqlErrorFactory;
 import com.google.cloud.bigquery.utils.queryfixer.fixer.FixerFactory;
 import com.google.cloud.bigquery.utils.queryfixer.fixer.IFixer;
 import com.google.cloud.bigquery.utils.queryfixer.service.BigQueryService;
+import com.google.cloud.bigquery.utils.queryfixer.service.LocalSyntaxValidator;
 import com.google.cloud.bigquery.utils.queryfixer.tokenizer.CalciteTokenizer;
 import com.google.cloud.bigquery.utils.queryfixer.tokenizer.QueryTokenProcessor;
 import com.google.cloud.bigquery.utils.queryfixer.tokenizer.Tokenizer;
@@ -20,22 +22,36 @@ import java.util.Set;
 /**
  * The entity to perform fixing logic. It uses dry-run to identify an error, extracts a fixer based
  * on the error, fix the error, and return the fix result.
+ *
+ * <p>With the local syntax check, syntax errors are first searched by a local parser, and a query
+ * is only dry-run if the local parser cannot find any syntax error in it. Fixing several syntax
+ * errors then takes a single dry run, but the local parser may report errors in queries with
+ * BigQuery syntax it does not support.
  */
 public class AutomaticQueryFixer {
 
   private final BigQueryService service;
   private final SqlErrorFactory errorFactory;
   private final FixerFactory fixerFactory;
+  // It is null if the local syntax check is disabled.
+  private final LocalSyntaxValidator syntaxValidator;
 
   public AutomaticQueryFixer(BigQueryOptions options) {
+    this(options, /*localSyntaxCheck=*/ false);
+  }
+
+  public AutomaticQueryFixer(BigQueryOptions options, boolean localSyntaxCheck) {
     service = new BigQueryService(options);
     errorFactory = new SqlErrorFactory();
-    QueryTokenProcessor tokenProcessor = buildQueryTokenProcessor();
+    BigQueryParserFactory parserFactory = new BigQueryParserFactory();
+    QueryTokenProcessor tokenProcessor = buildQueryTokenProcessor(parserFactory);
     fixerFactory = new FixerFactory(tokenProcessor, service);
+    syntaxValidator =
+        localSyntaxCheck ? new LocalSyntaxValidator(parserFactory, tokenProcessor) : null;
   }
 
   public FixResult fix(String query) {
-    BigQueryException exception = service.catchExceptionFromDryRun(query);
+    BigQueryException exception = catchException(query);
     if (exception == null) {
       return FixResult.noError(query);
     }
@@ -113,8 +129,21 @@ public class AutomaticQueryFixer {
     return results;
   }
 
-  private QueryTokenProcessor buildQueryTokenProcessor() {
-    BigQueryParserFactory parserFactory = new BigQueryParserFactory();
+  /**
+   * Find the error of a query. If the local syntax check is enabled and the local parser finds a
+   * syntax error that can be fixed, the query will not be dry-run.
+   */
+  private BigQueryException catchException(String query) {
+    if (syntaxValidator != null) {
+      BigQueryException exception = syntaxValidator.catchSyntaxException(query);
+      if (exception != null && errorFactory.getError(exception) instanceof BigQuerySyntaxError) {
+        return exception;
+      }
+    }
+    return service.catchExceptionFromDryRun(query);
+  }
+
+  private QueryTokenProcessor buildQueryTokenProcessor(BigQueryParserFactory parserFactory) {
     Tokenizer tokenizer = new CalciteTokenizer(parserFactory);
     return new QueryTokenProcessor(tokenizer);
   }
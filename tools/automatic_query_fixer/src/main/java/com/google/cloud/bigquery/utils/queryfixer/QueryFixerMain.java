@@ -35,8 +35,9 @@ public class QueryFixerMain {
     }
     String mode = queryFixerOptions.getOptionValue(MODE);
     String outputFormat = queryFixerOptions.getOptionValue(OUTPUT);
+    boolean localSyntaxCheck = queryFixerOptions.hasOption(LOCAL_SYNTAX_CHECK);
     CommandLineInteraction interaction =
-        CommandLineInteraction.create(mode, outputFormat, bigQueryOptions);
+        CommandLineInteraction.create(mode, outputFormat, bigQueryOptions, localSyntaxCheck);
     interaction.interact(query);
   }
 
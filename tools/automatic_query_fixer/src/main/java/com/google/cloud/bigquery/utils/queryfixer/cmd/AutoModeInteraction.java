@@ -21,8 +21,9 @@ public class AutoModeInteraction extends CommandLineInteraction {
   private static final int PREVIEW_SIZE = 10;
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
 
-  AutoModeInteraction(String outputFormat, BigQueryOptions bigQueryOptions) {
-    super(outputFormat, bigQueryOptions);
+  AutoModeInteraction(
+      String outputFormat, BigQueryOptions bigQueryOptions, boolean localSyntaxCheck) {
+    super(outputFormat, bigQueryOptions, localSyntaxCheck);
   }
 
   /**
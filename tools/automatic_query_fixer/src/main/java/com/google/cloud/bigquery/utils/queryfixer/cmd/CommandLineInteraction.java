@@ -21,10 +21,11 @@ public abstract class CommandLineInteraction {
   final BigQueryOptions bigQueryOptions;
   final AutomaticQueryFixer queryFixer;
 
-  CommandLineInteraction(@NonNull String outputFormat, BigQueryOptions bigQueryOptions) {
+  CommandLineInteraction(
+      @NonNull String outputFormat, BigQueryOptions bigQueryOptions, boolean localSyntaxCheck) {
     this.outputFormat = outputFormat;
     this.bigQueryOptions = bigQueryOptions;
-    this.queryFixer = new AutomaticQueryFixer(bigQueryOptions);
+    this.queryFixer = new AutomaticQueryFixer(bigQueryOptions, localSyntaxCheck);
   }
 
   /**
@@ -33,10 +34,14 @@ public abstract class CommandLineInteraction {
    * @param mode The mode of the Query Fixer.
    * @param outputFormat the output format: either natural or json.
    * @param bigQueryOptions options to connect BigQuery server.
+   * @param localSyntaxCheck whether syntax errors are searched by a local parser first.
    * @return an instance of CommandLineInteraction.
    */
   public static CommandLineInteraction create(
-      String mode, String outputFormat, @NonNull BigQueryOptions bigQueryOptions) {
+      String mode,
+      String outputFormat,
+      @NonNull BigQueryOptions bigQueryOptions,
+      boolean localSyntaxCheck) {
     if (outputFormat == null) {
       outputFormat = NATURAL_OUTPUT;
     }
@@ -49,13 +54,13 @@ public abstract class CommandLineInteraction {
 
     switch (mode) {
       case AUTO_MODE:
-        return new AutoModeInteraction(outputFormat, bigQueryOptions);
+        return new AutoModeInteraction(outputFormat, bigQueryOptions, localSyntaxCheck);
       case USER_ASSISTED_MODE:
       case UA_MODE:
-        return new UserAssistedModeInteraction(outputFormat, bigQueryOptions);
+        return new UserAssistedModeInteraction(outputFormat, bigQueryOptions, localSyntaxCheck);
       case SUGGESTION_MODE:
       case SG_MODE:
-        return new SuggestionModeInteraction(outputFormat, bigQueryOptions);
+        return new SuggestionModeInteraction(outputFormat, bigQueryOptions, localSyntaxCheck);
       default:
         System.out.println("Mode (-m) is incorrect. Use --help for usage.");
         System.exit(1);
@@ -24,6 +24,9 @@ public class QueryFixerOptions {
   public static final String QUERY_FILE_SHORTCUT = "q";
   public static final String QUERY_FILE = "query-file";
 
+  public static final String LOCAL_SYNTAX_CHECK_SHORTCUT = "l";
+  public static final String LOCAL_SYNTAX_CHECK = "local-syntax-check";
+
   public static final String MODE_SHORTCUT = "m";
   public static final String MODE = "mode";
   public static final String AUTO_MODE = "auto";
@@ -95,6 +98,13 @@ public class QueryFixerOptions {
             /*hasArg=*/ true,
             /*description=*/ "The directory of the query file. If query has been provided as an argument, this will be ignored.");
     options.addOption(option);
+    option =
+        new Option(
+            /*opt=*/ LOCAL_SYNTAX_CHECK_SHORTCUT,
+            /*long-opt=*/ LOCAL_SYNTAX_CHECK,
+            /*hasArg=*/ false,
+            /*description=*/ "Find syntax errors with a local parser before dry-running queries, so fixing several syntax errors takes a single dry run. The local parser may not support all the BigQuery syntax.");
+    options.addOption(option);
     return options;
   }
 
@@ -123,6 +133,16 @@ public class QueryFixerOptions {
     return commandLine.getOptionValue(option);
   }
 
+  /**
+   * Check whether a flag option is set.
+   *
+   * @param option the name of a flag.
+   * @return whether the flag is set.
+   */
+  public boolean hasOption(String option) {
+    return commandLine.hasOption(option);
+  }
+
   /** A static function to print the help menu. */
   public static void printHelpAndExit() {
     HelpFormatter formatter = new HelpFormatter();
@@ -15,8 +15,9 @@ import static com.google.cloud.bigquery.utils.queryfixer.cmd.QueryFixerOptions.N
  * <p>This mode can also be integrated with frontend to provide fix suggestion in a UI.
  */
 public class SuggestionModeInteraction extends CommandLineInteraction {
-  SuggestionModeInteraction(String outputFormat, BigQueryOptions bigQueryOptions) {
-    super(outputFormat, bigQueryOptions);
+  SuggestionModeInteraction(
+      String outputFormat, BigQueryOptions bigQueryOptions, boolean localSyntaxCheck) {
+    super(outputFormat, bigQueryOptions, localSyntaxCheck);
   }
 
   /**
@@ -14,8 +14,9 @@ import java.util.Scanner;
  */
 public class UserAssistedModeInteraction extends CommandLineInteraction {
 
-  UserAssistedModeInteraction(String outputFormat, BigQueryOptions bigQueryOptions) {
-    super(outputFormat, bigQueryOptions);
+  UserAssistedModeInteraction(
+      String outputFormat, BigQueryOptions bigQueryOptions, boolean localSyntaxCheck) {
+    super(outputFormat, bigQueryOptions, localSyntaxCheck);
   }
 
   /**
@@ -10,12 +10,16 @@ import com.google.cloud.bigquery.utils.queryfixer.errors.ExpectKeywordButGotOthe
 import com.google.cloud.bigquery.utils.queryfixer.service.BigQueryService;
 import com.google.cloud.bigquery.utils.queryfixer.tokenizer.QueryTokenProcessor;
 import com.google.cloud.bigquery.utils.queryfixer.util.PatternMatcher;
-import com.google.cloud.bigquery.utils.queryfixer.util.StringUtil;
+import com.google.cloud.bigquery.utils.queryfixer.util.SimilarityIndex;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.Value;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.*;
 
 /**
  * A class to fix general syntax errors. Usually, a general syntax error looks like {@link
@@ -37,6 +41,9 @@ import java.util.List;
  * <pre>
  *     SELECT status FROM `bigquery-public-data.austin_311.311_request` LIMIT 10
  * </pre>
+ *
+ * <p>The queries with similar keywords are dry-run concurrently, but the options keep the order of
+ * the keywords, starting with the keywords replacing the right token.
  */
 public class NearbyTokenFixer implements IFixer {
 
@@ -44,25 +51,58 @@ public class NearbyTokenFixer implements IFixer {
   private final ExpectKeywordButGotOthersError err;
   private final QueryTokenProcessor queryTokenProcessor;
   private final BigQueryService bigQueryService;
+  // Maximum number of fix options to find, or ALL_OPTIONS to dry-run every similar keyword.
+  private final int maxOptions;
 
-  private static List<String> KEYWORDS;
+  private static SimilarityIndex KEYWORD_INDEX;
 
   // TODO: it could be configured by users in future.
   private static final double SIMILARITY_THRESHOLD = 0.5;
 
+  public static final int ALL_OPTIONS = 0;
+
+  // A token may be similar to dozens of keywords, and each of them needs a blocking dry run, so the
+  // dry runs are sent concurrently by a bounded pool shared by all the fixers.
+  private static final int MAX_CONCURRENT_DRY_RUNS = 8;
+  private static final long DRY_RUN_TIMEOUT_SECONDS = 10;
+  private static final ExecutorService DRY_RUN_EXECUTOR =
+      Executors.newFixedThreadPool(
+          MAX_CONCURRENT_DRY_RUNS,
+          new ThreadFactoryBuilder()
+              .setDaemon(true)
+              .setNameFormat("nearby-token-dry-run-%d")
+              .build());
+
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
   public NearbyTokenFixer(
       String query,
       ExpectKeywordButGotOthersError err,
       QueryTokenProcessor queryTokenProcessor,
       BigQueryService bigQueryService) {
+    this(query, err, queryTokenProcessor, bigQueryService, ALL_OPTIONS);
+  }
+
+  /**
+   * Create a fixer that stops dry-running similar keywords once it finds the first few options.
+   *
+   * @param maxOptions maximum number of fix options to find, or {@link #ALL_OPTIONS}.
+   */
+  public NearbyTokenFixer(
+      String query,
+      ExpectKeywordButGotOthersError err,
+      QueryTokenProcessor queryTokenProcessor,
+      BigQueryService bigQueryService,
+      int maxOptions) {
     this.query = query;
     this.err = err;
     this.queryTokenProcessor = queryTokenProcessor;
     this.bigQueryService = bigQueryService;
+    this.maxOptions = maxOptions;
 
-    // lazy initialization of KEYWORDS
-    if (KEYWORDS == null) {
-      KEYWORDS = getAllKeywords();
+    // lazy initialization of KEYWORD_INDEX
+    if (KEYWORD_INDEX == null) {
+      KEYWORD_INDEX = new SimilarityIndex(getAllKeywords(), /*caseSensitive=*/ false);
     }
   }
 
@@ -74,19 +114,16 @@ public class NearbyTokenFixer implements IFixer {
         queryTokenProcessor.getNearbyTokens(
             query, errorPosition.getRow(), errorPosition.getColumn());
 
-    // Find the similar keywords that can replace the right token.
+    // Find the similar keywords that can replace the right token, and then the left token.
+    List<Candidate> candidates = new ArrayList<>();
     List<String> rightTokenKeywords = findSimilarKeywords(tokens.getRight());
-    List<FixOption> options =
-        filterKeywordsAndToFixOptions(
-            tokens.getRight(), rightTokenKeywords, /*offsetErrorPosition=*/ false);
-
-    // Find the similar keywords that can replace the left token.
+    candidates.addAll(
+        toCandidates(tokens.getRight(), rightTokenKeywords, /*offsetErrorPosition=*/ false));
     List<String> leftTokenKeywords = findSimilarKeywords(tokens.getLeft());
-    List<FixOption> leftTokenOptions =
-        filterKeywordsAndToFixOptions(
-            tokens.getLeft(), leftTokenKeywords, /*offsetErrorPosition=*/ true);
+    candidates.addAll(
+        toCandidates(tokens.getLeft(), leftTokenKeywords, /*offsetErrorPosition=*/ true));
 
-    options.addAll(leftTokenOptions);
+    List<FixOption> options = filterCandidatesAndToFixOptions(candidates);
 
     if (options.isEmpty()) {
       return FixResult.failure(query, err);
@@ -107,8 +144,7 @@ public class NearbyTokenFixer implements IFixer {
 
     int tokenSize = token.getImage().length();
     int maxEditDistance = (int) Math.ceil(SIMILARITY_THRESHOLD * tokenSize);
-    return StringUtil.findSimilarWords(
-        KEYWORDS, token.getImage(), maxEditDistance, /*caseSensitive=*/ false);
+    return KEYWORD_INDEX.findSimilarWords(token.getImage(), maxEditDistance);
   }
 
   private FixOption toFixOption(IToken token, String keyword, String fixedQuery) {
@@ -149,22 +185,75 @@ public class NearbyTokenFixer implements IFixer {
     return position.getColumn() > err.getErrorPosition().getColumn() + columnOffset;
   }
 
-  /**
-   * Filter similar keywords by checking if replacing to a similar keyword can eliminate the error
-   * or at least make the error position move forward.
-   */
-  private List<FixOption> filterKeywordsAndToFixOptions(
+  private List<Candidate> toCandidates(
       IToken token, List<String> keywords, boolean offsetErrorPosition) {
-    List<FixOption> fixOptions = new ArrayList<>();
+    List<Candidate> candidates = new ArrayList<>();
     for (String keyword : keywords) {
       String modifiedQuery = queryTokenProcessor.replaceToken(query, token, keyword);
       int offset = offsetErrorPosition ? keyword.length() - token.getImage().length() : 0;
+      candidates.add(new Candidate(token, keyword, modifiedQuery, offset));
+    }
+    return candidates;
+  }
+
+  /**
+   * Filter similar keywords by checking if replacing to a similar keyword can eliminate the error
+   * or at least make the error position move forward. All the candidates are dry-run concurrently,
+   * and their results are collected in order, so the options are the same as dry-running them one
+   * by one. A dry run that does not finish within its deadline is not an option. Once maxOptions
+   * options are found, the remaining dry runs are cancelled.
+   */
+  private List<FixOption> filterCandidatesAndToFixOptions(List<Candidate> candidates) {
+    List<Future<Boolean>> results = new ArrayList<>();
+    for (Candidate candidate : candidates) {
+      results.add(
+          DRY_RUN_EXECUTOR.submit(
+              () -> isErrorMovedForward(candidate.getFixedQuery(), candidate.getColumnOffset())));
+    }
 
-      if (isErrorMovedForward(modifiedQuery, offset)) {
-        fixOptions.add(toFixOption(token, keyword, modifiedQuery));
+    List<FixOption> fixOptions = new ArrayList<>();
+    try {
+      for (int i = 0; i < candidates.size(); i++) {
+        if (maxOptions != ALL_OPTIONS && fixOptions.size() >= maxOptions) {
+          break;
+        }
+
+        Candidate candidate = candidates.get(i);
+        if (isErrorMovedForward(candidate, results.get(i))) {
+          fixOptions.add(
+              toFixOption(candidate.getToken(), candidate.getKeyword(), candidate.getFixedQuery()));
+        }
       }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      results.forEach(result -> result.cancel(/*mayInterruptIfRunning=*/ true));
     }
 
     return fixOptions;
   }
+
+  private boolean isErrorMovedForward(Candidate candidate, Future<Boolean> result)
+      throws InterruptedException {
+    try {
+      return result.get(DRY_RUN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (TimeoutException e) {
+      logger.atWarning().log(
+          "Dry run of the keyword %s timed out after %d seconds.",
+          candidate.getKeyword(), DRY_RUN_TIMEOUT_SECONDS);
+    } catch (ExecutionException e) {
+      logger.atWarning().withCause(e.getCause()).log(
+          "Unable to dry run the keyword %s.", candidate.getKeyword());
+    }
+    return false;
+  }
+
+  /** A query where a nearby token is replaced by a similar keyword. */
+  @Value
+  private static class Candidate {
+    IToken token;
+    String keyword;
+    String fixedQuery;
+    int columnOffset;
+  }
 }
@@ -11,6 +11,7 @@ import com.google.cloud.bigquery.utils.queryfixer.entity.StringView;
 import com.google.cloud.bigquery.utils.queryfixer.errors.TableNotFoundError;
 import com.google.cloud.bigquery.utils.queryfixer.service.BigQueryService;
 import com.google.cloud.bigquery.utils.queryfixer.util.PatternMatcher;
+import com.google.cloud.bigquery.utils.queryfixer.util.SimilarityIndex;
 import com.google.cloud.bigquery.utils.queryfixer.util.StringUtil;
 
 import java.util.List;
@@ -47,13 +48,13 @@ public class TableNotFoundFixer implements IFixer {
   @Override
   public FixResult fix() {
     TableId incorrectTableId = constructTableId(err.getTableName());
-    List<String> tableNames =
-        bigQueryService.listTableNames(
+    // The index is cached with the tables of the dataset, so repeated typos of tables in the same
+    // dataset do not compare the incorrect table with every table.
+    SimilarityIndex tableIndex =
+        bigQueryService.getTableNameIndex(
             incorrectTableId.getProject(), incorrectTableId.getDataset());
-
     StringUtil.SimilarStrings similarTables =
-        StringUtil.findMostSimilarWords(
-            tableNames, incorrectTableId.getTable(), /*caseSensitive=*/ false);
+        tableIndex.findMostSimilarWords(incorrectTableId.getTable());
 
     // This is an arbitrary standard. It requires the candidate table should share at least 50%
     // similarity as the incorrect table typo.
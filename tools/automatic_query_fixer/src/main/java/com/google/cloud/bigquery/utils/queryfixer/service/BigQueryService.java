@@ -2,9 +2,19 @@ package com.google.cloud.bigquery.utils.queryfixer.service;
 
 import com.google.api.gax.paging.Page;
 import com.google.cloud.bigquery.*;
+import com.google.cloud.bigquery.utils.queryfixer.util.SimilarityIndex;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import lombok.NonNull;
+import lombok.Value;
 
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -16,7 +26,30 @@ public class BigQueryService {
 
   private static final int TABLE_FETCH_SIZE = 1000;
 
+  // The fixer dry-runs the same queries several times while fixing a query, e.g. the input query
+  // in every iteration of the auto mode and the candidate queries of each fixer.
+  private static final int DRY_RUN_CACHE_SIZE = 1000;
+  private static final long DRY_RUN_CACHE_TTL_MINUTES = 10;
+
+  // Errors of the query itself. Other errors, like transport failures of cancelled dry runs, are
+  // not cached.
+  private static final int QUERY_ERROR_CODE = 400;
+  private static final Set<String> QUERY_ERROR_REASONS =
+      ImmutableSet.of("invalidQuery", "notFound");
+
   private final BigQuery bigQuery;
+  private final String projectId;
+
+  // Dry-run results keyed by the query and its job configuration. Concurrent dry runs of the same
+  // query wait for the single request in flight instead of sending their own.
+  private final LoadingCache<DryRunRequest, DryRunResult> dryRunCache =
+      CacheBuilder.newBuilder()
+          .maximumSize(DRY_RUN_CACHE_SIZE)
+          .expireAfterWrite(DRY_RUN_CACHE_TTL_MINUTES, TimeUnit.MINUTES)
+          .recordStats()
+          .build(CacheLoader.from(this::sendDryRun));
+
+  private final TableCatalog tableCatalog = new TableCatalog(this::fetchTableNames);
 
   /**
    * Initialize a connection to BigQuery server with the customized options.
@@ -25,6 +58,7 @@ public class BigQueryService {
    */
   public BigQueryService(@NonNull BigQueryOptions options) {
     this.bigQuery = new BigQueryOptions.DefaultBigQueryFactory().create(options);
+    this.projectId = options.getProjectId();
   }
 
   /**
@@ -36,12 +70,17 @@ public class BigQueryService {
   public BigQueryService(@NonNull String projectId) {
     BigQueryOptions options = BigQueryOptions.newBuilder().setProjectId(projectId).build();
     this.bigQuery = options.getService();
+    this.projectId = projectId;
   }
 
   /**
    * Dry run a BigQuery query and return the job instance. If a BigQuery Exception is generated, it
    * will be thrown.
    *
+   * <p>The job or the exception of a dry run is cached for 10 minutes, so dry-running the same
+   * query again does not send a request to the server. Only errors of the query itself are cached,
+   * while other exceptions, like rate limits or the I/O errors of interrupted dry runs, are not.
+   *
    * @param query the dry-run query
    * @return the job representing this dry run
    * @throws BigQueryException the error from the BigQuery Server.
@@ -49,7 +88,58 @@ public class BigQueryService {
   public Job dryRun(String query) throws BigQueryException {
     QueryJobConfiguration queryConfig =
         QueryJobConfiguration.newBuilder(query).setDryRun(true).build();
-    return bigQuery.create(JobInfo.of(queryConfig));
+    DryRunResult result;
+    try {
+      result = dryRunCache.getUnchecked(new DryRunRequest(projectId, queryConfig));
+    } catch (UncheckedExecutionException e) {
+      if (e.getCause() instanceof BigQueryException) {
+        throw (BigQueryException) e.getCause();
+      }
+      throw e;
+    }
+
+    if (result.getException() != null) {
+      throw result.getException();
+    }
+    return result.getJob();
+  }
+
+  /**
+   * Send a dry run to the BigQuery server. Errors of the query are returned so they can be cached,
+   * while other errors are thrown.
+   */
+  private DryRunResult sendDryRun(DryRunRequest request) {
+    try {
+      return new DryRunResult(bigQuery.create(JobInfo.of(request.getQueryConfig())), null);
+    } catch (BigQueryException exception) {
+      if (!isQueryError(exception)) {
+        throw exception;
+      }
+      return new DryRunResult(null, exception);
+    }
+  }
+
+  /**
+   * Return whether an exception is caused by the query, like a syntax error or a missing table,
+   * rather than by the connection or the state of the server.
+   */
+  private static boolean isQueryError(BigQueryException exception) {
+    if (exception.isRetryable()) {
+      return false;
+    }
+    BigQueryError error = exception.getError();
+    return exception.getCode() == QUERY_ERROR_CODE
+        || (error != null && QUERY_ERROR_REASONS.contains(error.getReason()));
+  }
+
+  /**
+   * Return the statistics of the dry-run cache, like its hit rate and the number of dry runs sent
+   * to the server.
+   *
+   * @return statistics of the dry-run cache
+   */
+  public CacheStats getDryRunCacheStats() {
+    return dryRunCache.stats();
   }
 
   /**
@@ -74,15 +164,45 @@ public class BigQueryService {
    * and/or dataset do not exist or not visible to the provided service account, {@link
    * com.google.cloud.bigquery.BigQueryException} will be thrown.
    *
-   * <p>It is possible that a dataset contains a large amount of tables, so this method will only
-   * fetch maximum 1000 of them.
+   * <p>The names are served from a {@link TableCatalog}, so the tables of a dataset are only
+   * listed again by the server once the catalog refreshes them.
    *
    * @param projectId project to fetch tables
    * @param datasetId dataset to fetch tables
-   * @return list of table names belonging to the given project and dataset
+   * @return list of table names belonging to the given project and dataset, in lexicographic order
    */
   public List<String> listTableNames(String projectId, String datasetId) throws BigQueryException {
-    DatasetId projectDatasetId = DatasetId.of(projectId, datasetId);
+    return tableCatalog.getTableNames(DatasetId.of(projectId, datasetId));
+  }
+
+  /**
+   * Return a case-insensitive index of the table names in a dataset, to find the tables similar to
+   * a missing one. The index is kept in the {@link TableCatalog} along with the names.
+   *
+   * @param projectId project to fetch tables
+   * @param datasetId dataset to fetch tables
+   * @return index of the table names belonging to the given project and dataset
+   */
+  public SimilarityIndex getTableNameIndex(String projectId, String datasetId)
+      throws BigQueryException {
+    return tableCatalog.getTableNameIndex(DatasetId.of(projectId, datasetId));
+  }
+
+  /**
+   * Return the statistics of the table catalog, like its hit rate and the number of datasets
+   * listed by the server.
+   *
+   * @return statistics of the table catalog
+   */
+  public CacheStats getTableCatalogStats() {
+    return tableCatalog.getStats();
+  }
+
+  /**
+   * List the names of all tables in a dataset, fetching them from the server page by page, 1000
+   * tables per page.
+   */
+  private List<String> fetchTableNames(DatasetId projectDatasetId) throws BigQueryException {
     Page<Table> tables =
         bigQuery.listTables(projectDatasetId, BigQuery.TableListOption.pageSize(TABLE_FETCH_SIZE));
 
@@ -97,6 +217,18 @@ public class BigQueryService {
     return bigQuery.getOptions();
   }
 
+  @Value
+  private static class DryRunRequest {
+    String projectId;
+    QueryJobConfiguration queryConfig;
+  }
+
+  @Value
+  private static class DryRunResult {
+    Job job;
+    BigQueryException exception;
+  }
+
   //TODO: Add a validate function to check if the BigQueryOption is valid.
   // It can be verified by sending a "select 1" to server.
 }
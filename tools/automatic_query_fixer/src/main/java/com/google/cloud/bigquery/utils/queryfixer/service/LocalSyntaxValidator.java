@@ -0,0 +1,144 @@
+package com.google.cloud.bigquery.utils.queryfixer.service;
+
+import com.google.cloud.bigquery.BigQueryError;
+import com.google.cloud.bigquery.BigQueryException;
+import com.google.cloud.bigquery.utils.queryfixer.BigQueryParserFactory;
+import com.google.cloud.bigquery.utils.queryfixer.entity.IToken;
+import com.google.cloud.bigquery.utils.queryfixer.errors.ExpectKeywordButGotOthersError;
+import com.google.cloud.bigquery.utils.queryfixer.tokenizer.QueryTokenProcessor;
+import com.google.cloud.bigquery.utils.queryfixer.util.PatternMatcher;
+import lombok.NonNull;
+import org.apache.calcite.sql.parser.SqlAbstractParserImpl;
+import org.apache.calcite.sql.parser.SqlParseException;
+import org.apache.calcite.sql.parser.SqlParserPos;
+import org.apache.calcite.sql.parser.babel.TokenMgrError;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A service to find the syntax errors of a query offline with the Babel parser, before the query is
+ * dry-run by the BigQuery server. A syntax error is returned as a {@link BigQueryException} with the
+ * same message the BigQuery server would send, so it can be resolved by {@link
+ * com.google.cloud.bigquery.utils.queryfixer.errors.SqlErrorFactory} like the error of a dry run.
+ *
+ * <p>The Babel parser supports most but not all of the BigQuery syntax, so a query it rejects is
+ * not necessarily incorrect. Queries it accepts still need a dry run to find semantic errors.
+ */
+public class LocalSyntaxValidator {
+
+  // The message of a lexical error, e.g. Lexical error at line 1, column 78. Encountered: "$" (36)
+  private static final String ILLEGAL_CHARACTER_REGEX = "Encountered: \"(.*?)\" \\(";
+  private static final String KEYWORD_IMAGE_REGEX = "^\"([A-Z_]+)\"$";
+  private static final String END_OF_INPUT_IMAGE = "<EOF>";
+
+  private final BigQueryParserFactory parserFactory;
+  private final QueryTokenProcessor queryTokenProcessor;
+  private final SqlAbstractParserImpl.Metadata metadata;
+
+  public LocalSyntaxValidator(
+      @NonNull BigQueryParserFactory parserFactory,
+      @NonNull QueryTokenProcessor queryTokenProcessor) {
+    this.parserFactory = parserFactory;
+    this.queryTokenProcessor = queryTokenProcessor;
+    this.metadata = parserFactory.getBabelParserImpl("").getMetadata();
+  }
+
+  /**
+   * Return the BigQuery Exception of the first syntax error the local parser finds in a query. If
+   * the query can be parsed, or the error cannot be expressed as a BigQuery syntax error, null will
+   * be returned.
+   *
+   * @param query the query to parse
+   * @return the BigQueryException related with this query
+   */
+  public BigQueryException catchSyntaxException(String query) {
+    try {
+      parserFactory.getParser(query).parseStmtList();
+    } catch (SqlParseException exception) {
+      String message = toBigQueryMessage(query, exception);
+      if (message == null) {
+        return null;
+      }
+      BigQueryError error = new BigQueryError("invalidQuery", "query", message);
+      return new BigQueryException(400, message, error);
+    }
+
+    return null;
+  }
+
+  private String toBigQueryMessage(String query, SqlParseException exception) {
+    SqlParserPos pos = exception.getPos();
+    if (pos == null) {
+      return null;
+    }
+    String position = String.format("[%d:%d]", pos.getLineNum(), pos.getColumnNum());
+
+    if (exception.getCause() instanceof TokenMgrError) {
+      List<String> contents =
+          PatternMatcher.extract(exception.getCause().getMessage(), ILLEGAL_CHARACTER_REGEX);
+      if (contents == null) {
+        return null;
+      }
+      return String.format(
+          "Syntax error: Illegal input character \"%s\" at %s", contents.get(0), position);
+    }
+
+    IToken token = queryTokenProcessor.getTokenAt(query, pos.getLineNum(), pos.getColumnNum());
+    String expectedImage = getExpectedImage(exception);
+    String expected = toExpectedDescription(expectedImage);
+    if (expected == null) {
+      if (expectedImage == null
+          && token != null
+          && metadata.isReservedWord(token.getImage().toUpperCase())) {
+        return String.format(
+            "Syntax error: Unexpected keyword %s at %s", token.getImage().toUpperCase(), position);
+      }
+      // The parser expected something BigQuery would describe differently, e.g. one of several
+      // tokens after an operator. Leave it to the dry run rather than guessing the message.
+      return null;
+    }
+
+    String actual =
+        token == null
+            ? ExpectKeywordButGotOthersError.END_OF_INPUT
+            : String.format("\"%s\"", token.getImage());
+    return String.format("Syntax error: Expected %s but got %s at %s", expected, actual, position);
+  }
+
+  /**
+   * Describe the token the parser expected the way BigQuery does, like "keyword BY" or "end of
+   * input". Null is returned if there is no such token or it isn't a keyword or the end of input.
+   */
+  private String toExpectedDescription(String expectedImage) {
+    if (expectedImage == null) {
+      return null;
+    }
+    if (expectedImage.equals(END_OF_INPUT_IMAGE)) {
+      return ExpectKeywordButGotOthersError.END_OF_INPUT;
+    }
+    List<String> contents = PatternMatcher.extract(expectedImage, KEYWORD_IMAGE_REGEX);
+    return contents == null ? null : "keyword " + contents.get(0);
+  }
+
+  /**
+   * Return the image of the token the parser expected if every way to continue the query starts
+   * with the same token, like "BY" after GROUP. Otherwise, null is returned.
+   */
+  private String getExpectedImage(SqlParseException exception) {
+    int[][] sequences = exception.getExpectedTokenSequences();
+    String[] images = exception.getTokenImages();
+    if (sequences == null || images == null) {
+      return null;
+    }
+
+    Set<String> firstImages = new HashSet<>();
+    for (int[] sequence : sequences) {
+      if (sequence.length > 0) {
+        firstImages.add(images[sequence[0]]);
+      }
+    }
+    return firstImages.size() == 1 ? firstImages.iterator().next() : null;
+  }
+}
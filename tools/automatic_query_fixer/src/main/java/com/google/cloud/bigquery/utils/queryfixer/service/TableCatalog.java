@@ -0,0 +1,134 @@
+package com.google.cloud.bigquery.utils.queryfixer.service;
+
+import com.google.cloud.bigquery.BigQueryException;
+import com.google.cloud.bigquery.DatasetId;
+import com.google.cloud.bigquery.utils.queryfixer.util.SimilarityIndex;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * A catalog of the table names in each dataset, shared by all the fixes of a {@link
+ * BigQueryService}. The tables of a dataset are listed once and kept for an hour. After five
+ * minutes, the next lookup of a dataset still returns the cached names but lists the tables again
+ * in the background, so typos of tables in the same dataset do not wait for the server.
+ *
+ * <p>The names of a dataset are stored as a sorted array, which is compact enough for datasets with
+ * tens of thousands of tables. A {@link SimilarityIndex} of the names is built on the first lookup
+ * of similar names and kept with them until they are listed again, so repeated typos in the same
+ * dataset do not scan every name.
+ */
+public class TableCatalog {
+
+  private static final long EXPIRE_MINUTES = 60;
+  private static final long REFRESH_MINUTES = 5;
+  private static final int MAX_DATASETS = 100;
+
+  private static final ExecutorService REFRESH_EXECUTOR =
+      Executors.newSingleThreadExecutor(
+          new ThreadFactoryBuilder()
+              .setDaemon(true)
+              .setNameFormat("table-catalog-refresh-%d")
+              .build());
+
+  private final LoadingCache<DatasetId, Listing> listings;
+
+  /**
+   * Create a catalog that lists the tables of a dataset with the given function.
+   *
+   * @param tableLister function to list the names of all tables in a dataset
+   */
+  public TableCatalog(@NonNull Function<DatasetId, List<String>> tableLister) {
+    CacheLoader<DatasetId, Listing> loader =
+        CacheLoader.from(
+            datasetId -> {
+              String[] names = tableLister.apply(datasetId).toArray(new String[0]);
+              Arrays.sort(names);
+              return new Listing(names);
+            });
+    listings =
+        CacheBuilder.newBuilder()
+            .maximumSize(MAX_DATASETS)
+            .expireAfterWrite(EXPIRE_MINUTES, TimeUnit.MINUTES)
+            .refreshAfterWrite(REFRESH_MINUTES, TimeUnit.MINUTES)
+            .recordStats()
+            .build(CacheLoader.asyncReloading(loader, REFRESH_EXECUTOR));
+  }
+
+  /**
+   * Return the names of all tables in a dataset in lexicographic order.
+   *
+   * @param datasetId dataset to fetch tables
+   * @return unmodifiable list of table names
+   * @throws BigQueryException if the tables of the dataset cannot be listed
+   */
+  public List<String> getTableNames(DatasetId datasetId) throws BigQueryException {
+    return getListing(datasetId).getNames();
+  }
+
+  /**
+   * Return a case-insensitive index of the table names in a dataset, to find the tables similar to
+   * a missing one. The words of the index are in lexicographic order.
+   *
+   * @param datasetId dataset to fetch tables
+   * @return index of the table names
+   * @throws BigQueryException if the tables of the dataset cannot be listed
+   */
+  public SimilarityIndex getTableNameIndex(DatasetId datasetId) throws BigQueryException {
+    return getListing(datasetId).getIndex();
+  }
+
+  /**
+   * Return the statistics of the catalog, like its hit rate and the number of datasets listed.
+   *
+   * @return statistics of the catalog
+   */
+  public CacheStats getStats() {
+    return listings.stats();
+  }
+
+  private Listing getListing(DatasetId datasetId) {
+    try {
+      return listings.getUnchecked(datasetId);
+    } catch (UncheckedExecutionException e) {
+      if (e.getCause() instanceof BigQueryException) {
+        throw (BigQueryException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /** The sorted table names of a dataset and their index, which is only built when needed. */
+  private static class Listing {
+    private final String[] names;
+    private final Supplier<SimilarityIndex> index;
+
+    Listing(String[] names) {
+      this.names = names;
+      this.index =
+          Suppliers.memoize(() -> new SimilarityIndex(getNames(), /*caseSensitive=*/ false));
+    }
+
+    List<String> getNames() {
+      return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    SimilarityIndex getIndex() {
+      return index.get();
+    }
+  }
+}
@@ -0,0 +1,238 @@
+package com.google.cloud.bigquery.utils.queryfixer.util;
+
+import lombok.NonNull;
+
+import java.util.*;
+
+/**
+ * A prebuilt index to find the words of a dictionary that are similar to a target word. The
+ * similarity is measured by edit distance like {@link StringUtil#findSimilarWords}, but the words
+ * are stored in a BK-tree, so a lookup only compares the target with a small part of the
+ * dictionary.
+ *
+ * <p>In a BK-tree, each child of a node is labelled by its edit distance to the node. When the
+ * target is at distance d from a node, the triangle inequality guarantees that the words within
+ * distance k of the target can only be found under the children labelled from d - k to d + k.
+ *
+ * <p>The results keep the order of the dictionary, so they are the same as the ones of {@link
+ * StringUtil}.
+ */
+public class SimilarityIndex {
+
+  private final boolean caseSensitive;
+  private final List<String> words;
+  private Node root;
+
+  /**
+   * Build the index of a dictionary.
+   *
+   * @param dict dictionary of words
+   * @param caseSensitive whether considering case sensitive.
+   */
+  public SimilarityIndex(@NonNull Collection<String> dict, boolean caseSensitive) {
+    this.caseSensitive = caseSensitive;
+    this.words = new ArrayList<>(dict);
+    for (int i = 0; i < words.size(); i++) {
+      add(i);
+    }
+  }
+
+  private void add(int wordIndex) {
+    String key = toKey(words.get(wordIndex));
+    if (root == null) {
+      root = new Node(key, wordIndex);
+      return;
+    }
+
+    Node node = root;
+    while (true) {
+      int distance = StringUtil.editDistance(node.key, key, /*caseSensitive=*/ true);
+      if (distance == 0) {
+        node.addWord(wordIndex);
+        return;
+      }
+
+      Node child = node.getChild(distance);
+      if (child == null) {
+        node.addChild(distance, new Node(key, wordIndex));
+        return;
+      }
+      node = child;
+    }
+  }
+
+  /**
+   * Find all the words that are within a certain edit distance from the target string.
+   *
+   * @param target target string to compare with
+   * @param maxEditDistance max edit distance to consider similarity
+   * @return a list of similar strings in the order of the dictionary
+   */
+  public List<String> findSimilarWords(@NonNull String target, int maxEditDistance) {
+    if (root == null) {
+      return Collections.emptyList();
+    }
+
+    String key = toKey(target);
+    List<Integer> wordIndexes = new ArrayList<>();
+    Deque<Node> nodes = new ArrayDeque<>();
+    Deque<Integer> lowerBounds = new ArrayDeque<>();
+    nodes.push(root);
+    lowerBounds.push(0);
+    while (!nodes.isEmpty()) {
+      Node node = nodes.pop();
+      lowerBounds.pop();
+      int distance = node.distanceTo(key, maxEditDistance);
+      if (distance <= maxEditDistance) {
+        node.collectWords(wordIndexes);
+      }
+      node.pushChildren(nodes, lowerBounds, distance, maxEditDistance);
+    }
+
+    return toWords(wordIndexes);
+  }
+
+  /**
+   * Find word(s) that are most similar to a target word.
+   *
+   * @param target target word
+   * @return a list of Strings in the order of the dictionary and their edit distance to the target.
+   */
+  public StringUtil.SimilarStrings findMostSimilarWords(@NonNull String target) {
+    if (root == null) {
+      return StringUtil.SimilarStrings.empty();
+    }
+
+    String key = toKey(target);
+    int minDistance = Integer.MAX_VALUE;
+    List<Integer> wordIndexes = new ArrayList<>();
+    // Each node is pushed with a lower bound of its distance to the target, which is the
+    // difference between the distance of its parent and its label.
+    Deque<Node> nodes = new ArrayDeque<>();
+    Deque<Integer> lowerBounds = new ArrayDeque<>();
+    nodes.push(root);
+    lowerBounds.push(0);
+    while (!nodes.isEmpty()) {
+      Node node = nodes.pop();
+      // The search radius shrinks as closer words are found, so the node may be out of it now.
+      if (lowerBounds.pop() > minDistance) {
+        continue;
+      }
+
+      int distance = node.distanceTo(key, minDistance);
+      if (distance < minDistance) {
+        minDistance = distance;
+        wordIndexes.clear();
+      }
+      if (distance == minDistance) {
+        node.collectWords(wordIndexes);
+      }
+      node.pushChildren(nodes, lowerBounds, distance, minDistance);
+    }
+
+    return new StringUtil.SimilarStrings(toWords(wordIndexes), minDistance);
+  }
+
+  /** @return the number of words in the dictionary. */
+  public int size() {
+    return words.size();
+  }
+
+  private String toKey(String word) {
+    return caseSensitive ? word : word.toLowerCase();
+  }
+
+  private List<String> toWords(List<Integer> wordIndexes) {
+    Collections.sort(wordIndexes);
+    List<String> similarWords = new ArrayList<>(wordIndexes.size());
+    for (int wordIndex : wordIndexes) {
+      similarWords.add(words.get(wordIndex));
+    }
+    return similarWords;
+  }
+
+  /**
+   * A node of the BK-tree. It holds every word with the same key, and its children sorted by their
+   * distance to the key.
+   */
+  private static class Node {
+    private final String key;
+    private int[] wordIndexes;
+    private int wordCount;
+    private int[] childDistances = new int[0];
+    private Node[] children = new Node[0];
+
+    Node(String key, int wordIndex) {
+      this.key = key;
+      this.wordIndexes = new int[] {wordIndex};
+      this.wordCount = 1;
+    }
+
+    void addWord(int wordIndex) {
+      if (wordCount == wordIndexes.length) {
+        wordIndexes = Arrays.copyOf(wordIndexes, wordCount * 2);
+      }
+      wordIndexes[wordCount++] = wordIndex;
+    }
+
+    void collectWords(List<Integer> output) {
+      for (int i = 0; i < wordCount; i++) {
+        output.add(wordIndexes[i]);
+      }
+    }
+
+    Node getChild(int distance) {
+      int position = Arrays.binarySearch(childDistances, distance);
+      return position >= 0 ? children[position] : null;
+    }
+
+    void addChild(int distance, Node child) {
+      int position = -Arrays.binarySearch(childDistances, distance) - 1;
+      int[] distances = new int[childDistances.length + 1];
+      Node[] nodes = new Node[children.length + 1];
+      System.arraycopy(childDistances, 0, distances, 0, position);
+      System.arraycopy(children, 0, nodes, 0, position);
+      distances[position] = distance;
+      nodes[position] = child;
+      System.arraycopy(
+          childDistances, position, distances, position + 1, childDistances.length - position);
+      System.arraycopy(children, position, nodes, position + 1, children.length - position);
+      childDistances = distances;
+      children = nodes;
+    }
+
+    /**
+     * Compute the distance of the key to a target, which only needs to be exact if it is within a
+     * radius of the distance of a child or the radius itself. Otherwise, the computation stops
+     * early and the returned distance is only known to exceed them.
+     */
+    int distanceTo(String target, int radius) {
+      int maxChildDistance = children.length == 0 ? 0 : childDistances[children.length - 1];
+      int limit = (int) Math.min((long) maxChildDistance + radius, Integer.MAX_VALUE);
+      return StringUtil.editDistance(key, target, /*caseSensitive=*/ true, limit);
+    }
+
+    /**
+     * Push the children labelled by a distance within a radius of the given distance, along with
+     * the lower bounds of their distance to the target. The children are pushed from the farthest
+     * label to the closest one, so the most promising child is searched first.
+     */
+    void pushChildren(Deque<Node> nodes, Deque<Integer> lowerBounds, int distance, int radius) {
+      int low = 0;
+      while (low < children.length && childDistances[low] < distance - radius) {
+        low++;
+      }
+      int high = children.length - 1;
+      while (high >= low && childDistances[high] > distance + radius) {
+        high--;
+      }
+
+      while (low <= high) {
+        int position =
+            distance - childDistances[low] > childDistances[high] - distance ? low++ : high--;
+        nodes.push(children[position]);
+        lowerBounds.push(Math.abs(distance - childDistances[position]));
+      }
+    }
+  }
+}
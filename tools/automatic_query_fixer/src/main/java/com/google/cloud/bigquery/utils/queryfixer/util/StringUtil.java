@@ -2,7 +2,6 @@ package com.google.cloud.bigquery.utils.queryfixer.util;
 
 import lombok.NonNull;
 import lombok.Value;
-import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -10,6 +9,9 @@ import java.util.stream.Collectors;
 /** A utility class to provide static helper methods regarding String. */
 public class StringUtil {
 
+  private static final ThreadLocal<int[]> EDIT_DISTANCE_ROW =
+      ThreadLocal.withInitial(() -> new int[64]);
+
   /**
    * Find word(s) from a dictionary that are most similar to a target word. The similarity is
    * measured by edit distance between two words.
@@ -21,23 +23,24 @@ public class StringUtil {
    */
   public static SimilarStrings findMostSimilarWords(
       Collection<String> dict, String target, boolean caseSensitive) {
-    List<Pair<Integer, String>> distanceWordPairs =
-        dict.stream()
-            .map(word -> Pair.of(editDistance(word, target, caseSensitive), word))
-            .collect(Collectors.toList());
-
-    if (distanceWordPairs.isEmpty()) {
+    if (dict.isEmpty()) {
       return SimilarStrings.empty();
     }
 
-    Integer minDistance =
-        distanceWordPairs.stream().min(Comparator.comparingInt(Pair::getLeft)).get().getLeft();
-
-    List<String> words =
-        distanceWordPairs.stream()
-            .filter(pair -> (pair.getLeft().equals(minDistance)))
-            .map(Pair::getRight)
-            .collect(Collectors.toList());
+    // The distance of each word is bounded by the closest distance found so far, so the words that
+    // cannot be the most similar are skipped early.
+    int minDistance = Integer.MAX_VALUE;
+    List<String> words = new ArrayList<>();
+    for (String word : dict) {
+      int distance = editDistance(word, target, caseSensitive, minDistance);
+      if (distance < minDistance) {
+        minDistance = distance;
+        words.clear();
+      }
+      if (distance == minDistance) {
+        words.add(word);
+      }
+    }
     return new SimilarStrings(words, minDistance);
   }
 
@@ -55,17 +58,10 @@ public class StringUtil {
       @NonNull String target,
       int maxEditDistance,
       boolean caseSensitive) {
-    List<Pair<Integer, String>> distanceWordPairs =
-        dict.stream()
-            .map(word -> Pair.of(editDistance(word, target, caseSensitive), word))
-            .filter(pair -> pair.getLeft() <= maxEditDistance)
-            .collect(Collectors.toList());
-
-    if (distanceWordPairs.isEmpty()) {
-      return Collections.emptyList();
-    }
-
-    return distanceWordPairs.stream().map(Pair::getRight).collect(Collectors.toList());
+    return dict.stream()
+        .filter(
+            word -> editDistance(word, target, caseSensitive, maxEditDistance) <= maxEditDistance)
+        .collect(Collectors.toList());
   }
 
   /**
@@ -77,44 +73,91 @@ public class StringUtil {
    * @return the edit distance between word1 and word2.
    */
   public static int editDistance(String word1, String word2, boolean caseSensitive) {
-    if (!caseSensitive) {
-      word1 = word1.toLowerCase();
-      word2 = word2.toLowerCase();
+    return editDistance(word1, word2, caseSensitive, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Compute the edit distance between two strings, but stop as soon as it is known to exceed a
+   * limit. Only the cells of the dynamic programming table within maxEditDistance of its diagonal
+   * can lead to a distance under the limit, so each row is computed only in this band (Ukkonen's
+   * cut-off), and the computation ends once a whole row of the band exceeds the limit.
+   *
+   * <p>The table is computed in a single row reused by each thread, and the characters are compared
+   * case-insensitively one by one, so no object is allocated.
+   *
+   * @param word1 a string.
+   * @param word2 another string.
+   * @param caseSensitive whether considering case sensitive.
+   * @param maxEditDistance the limit of the edit distance, which should be non-negative.
+   * @return the edit distance between word1 and word2 if it is not greater than maxEditDistance,
+   *     otherwise maxEditDistance + 1.
+   */
+  public static int editDistance(
+      String word1, String word2, boolean caseSensitive, int maxEditDistance) {
+    if (maxEditDistance < 0) {
+      throw new IllegalArgumentException("maxEditDistance should be non-negative");
     }
 
     int len1 = word1.length();
     int len2 = word2.length();
-
-    // len1+1, len2+1, because finally return dp[len1][len2]
-    int[][] dp = new int[len1 + 1][len2 + 1];
-
-    for (int i = 0; i <= len1; i++) {
-      dp[i][0] = i;
+    // The edit distance never exceeds the length of the longer word.
+    int limit = Math.min(maxEditDistance, Math.max(len1, len2));
+    if (Math.abs(len1 - len2) > limit) {
+      return maxEditDistance + 1;
     }
+    // Any distance beyond the limit is stored as limit + 1.
+    int exceeded = limit + 1;
 
+    // row[j] holds the distance between the first i chars of word1 and the first j chars of word2.
+    int[] row = getEditDistanceRow(len2 + 1);
     for (int j = 0; j <= len2; j++) {
-      dp[0][j] = j;
+      row[j] = j <= limit ? j : exceeded;
     }
 
-    // iterate though, and check last char
-    for (int i = 0; i < len1; i++) {
-      char c1 = word1.charAt(i);
-      for (int j = 0; j < len2; j++) {
-        char c2 = word2.charAt(j);
-
-        // if last two chars equal
-        if (c1 == c2) {
-          // update dp value for +1 length
-          dp[i + 1][j + 1] = dp[i][j];
+    for (int i = 1; i <= len1; i++) {
+      int low = Math.max(1, i - limit);
+      int high = Math.min(len2, i + limit);
+
+      // The distance of the previous row at column j - 1
+      int diagonal = row[low - 1];
+      row[low - 1] = low == 1 && i <= limit ? i : exceeded;
+      int rowMin = row[low - 1];
+
+      char c1 = word1.charAt(i - 1);
+      for (int j = low; j <= high; j++) {
+        int above = row[j];
+        int distance;
+        if (charEquals(c1, word2.charAt(j - 1), caseSensitive)) {
+          distance = diagonal;
         } else {
-          int replace = dp[i][j] + 1;
-          int insert = Math.min(dp[i][j + 1], dp[i + 1][j]) + 1;
-          dp[i + 1][j + 1] = Math.min(replace, insert);
+          int replace = diagonal + 1;
+          int insert = Math.min(above, row[j - 1]) + 1;
+          distance = Math.min(Math.min(replace, insert), exceeded);
         }
+        diagonal = above;
+        row[j] = distance;
+        rowMin = Math.min(rowMin, distance);
+      }
+
+      if (rowMin > limit) {
+        return maxEditDistance + 1;
       }
     }
 
-    return dp[len1][len2];
+    return row[len2] > limit ? maxEditDistance + 1 : row[len2];
+  }
+
+  private static boolean charEquals(char c1, char c2, boolean caseSensitive) {
+    return c1 == c2 || (!caseSensitive && Character.toLowerCase(c1) == Character.toLowerCase(c2));
+  }
+
+  private static int[] getEditDistanceRow(int length) {
+    int[] row = EDIT_DISTANCE_ROW.get();
+    if (row.length < length) {
+      row = new int[Math.max(length, row.length * 2)];
+      EDIT_DISTANCE_ROW.set(row);
+    }
+    return row;
   }
 
   /**
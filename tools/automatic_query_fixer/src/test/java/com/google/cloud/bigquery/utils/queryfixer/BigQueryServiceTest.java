@@ -3,6 +3,7 @@ package com.google.cloud.bigquery.utils.queryfixer;
 import com.google.api.gax.paging.Page;
 import com.google.cloud.bigquery.*;
 import com.google.cloud.bigquery.utils.queryfixer.service.BigQueryService;
+import com.google.cloud.bigquery.utils.queryfixer.util.SimilarityIndex;
 import com.google.common.collect.ImmutableList;
 import org.apache.commons.lang3.reflect.FieldUtils;
 import org.junit.Before;
@@ -10,13 +11,22 @@ import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class BigQueryServiceTest {
@@ -63,6 +73,58 @@ public class BigQueryServiceTest {
     assertEquals(TABLE_NOT_FOUND, exception.getMessage());
   }
 
+  @Test
+  public void dryRun_cached() {
+    setupBigQueryMock_throwException();
+    String query = "SELECT corpus FROM `bigquery-public-data.samples.shakespearex`";
+    BigQueryException exception = service.catchExceptionFromDryRun(query);
+    assertSame(exception, service.catchExceptionFromDryRun(query));
+
+    verify(bigQueryMock, times(1)).create(any(JobInfo.class));
+    assertEquals(1, service.getDryRunCacheStats().hitCount());
+    assertEquals(1, service.getDryRunCacheStats().missCount());
+  }
+
+  @Test
+  public void dryRun_transportErrorNotCached() {
+    String query = "SELECT 1";
+    BigQueryException transportError =
+        new BigQueryException(new IOException("Connection closed by interrupt"));
+    when(bigQueryMock.create(any(JobInfo.class))).thenThrow(transportError).thenReturn(jobMock);
+
+    assertSame(transportError, service.catchExceptionFromDryRun(query));
+    assertNull(service.catchExceptionFromDryRun(query));
+
+    verify(bigQueryMock, times(2)).create(any(JobInfo.class));
+  }
+
+  @Test
+  public void dryRun_coalesced() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    when(bigQueryMock.create(any(JobInfo.class)))
+        .thenAnswer(
+            invocation -> {
+              release.await();
+              return jobMock;
+            });
+
+    String query = "SELECT 1";
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<Job> first = executor.submit(() -> service.dryRun(query));
+      Future<Job> second = executor.submit(() -> service.dryRun(query));
+      // Give both dry runs time to reach the cache before the request in flight completes.
+      Thread.sleep(100);
+      release.countDown();
+
+      assertSame(jobMock, first.get());
+      assertSame(jobMock, second.get());
+    } finally {
+      executor.shutdownNow();
+    }
+    verify(bigQueryMock, times(1)).create(any(JobInfo.class));
+  }
+
   @Test
   public void listTables() {
     setupBigQueryMock_returnTablePageMock();
@@ -73,6 +135,30 @@ public class BigQueryServiceTest {
     assertThat(tables, contains(TABLE_1, TABLE_2));
   }
 
+  @Test
+  public void listTables_cached() {
+    setupBigQueryMock_returnTablePageMock();
+    String project = "bigquery-public-data";
+    List<String> tables = service.listTableNames(project, "austin_311");
+    assertEquals(tables, service.listTableNames(project, "austin_311"));
+    service.listTableNames(project, "austin_crime");
+
+    // Each dataset is only listed once.
+    verify(bigQueryMock, times(2)).listTables(any(DatasetId.class), any());
+    assertEquals(1, service.getTableCatalogStats().hitCount());
+  }
+
+  @Test
+  public void getTableNameIndex_cached() {
+    setupBigQueryMock_returnTablePageMock();
+    String project = "bigquery-public-data";
+    SimilarityIndex index = service.getTableNameIndex(project, "austin_311");
+    assertSame(index, service.getTableNameIndex(project, "austin_311"));
+    assertThat(index.findMostSimilarWords("311_requests").getStrings(), contains(TABLE_1));
+
+    verify(bigQueryMock, times(1)).listTables(any(DatasetId.class), any());
+  }
+
   /**
    * Mock the connection to the BigQuery server. Use reflection to inject the fake connection into
    * the {@link BigQueryService}.
@@ -6,11 +6,13 @@ import com.google.cloud.bigquery.BigQueryOptions;
 import com.google.cloud.bigquery.utils.queryfixer.entity.FixOption;
 import com.google.cloud.bigquery.utils.queryfixer.entity.FixResult;
 import com.google.cloud.bigquery.utils.queryfixer.errors.BigQuerySqlError;
+import com.google.cloud.bigquery.utils.queryfixer.errors.ExpectKeywordButGotOthersError;
 import com.google.cloud.bigquery.utils.queryfixer.errors.SqlErrorFactory;
 import com.google.cloud.bigquery.utils.queryfixer.fixer.*;
 import com.google.cloud.bigquery.utils.queryfixer.service.BigQueryService;
 import com.google.cloud.bigquery.utils.queryfixer.tokenizer.CalciteTokenizer;
 import com.google.cloud.bigquery.utils.queryfixer.tokenizer.QueryTokenProcessor;
+import com.google.cloud.bigquery.utils.queryfixer.util.SimilarityIndex;
 import com.google.common.collect.ImmutableList;
 import org.junit.Before;
 import org.junit.Test;
@@ -253,6 +255,27 @@ public class FixerTest {
     assertEquals(73, result.getErrorPosition().getColumn());
   }
 
+  @Test
+  public void fixExpectKeywordButGotOthers_useNearbyTokenFixer_firstOptions() {
+    String query = "SELECT status FORM `bigquery-public-data.austin_311.311_request` LIMIT 10";
+    String message =
+        "Syntax error: Expected end of input but got identifier `bigquery-public-data.austin_311.311_request` at [1:20]";
+    ExpectKeywordButGotOthersError error = (ExpectKeywordButGotOthersError) buildError(message);
+    QueryTokenProcessor tokenProcessor =
+        new QueryTokenProcessor(new CalciteTokenizer(new BigQueryParserFactory()));
+
+    // Every similar keyword moves the error forward, so the options are in the order of keywords.
+    when(bigQueryServiceMock.catchExceptionFromDryRun(any(String.class))).thenReturn(null);
+    List<FixOption> allOptions =
+        new NearbyTokenFixer(query, error, tokenProcessor, bigQueryServiceMock).fix().getOptions();
+    assertTrue(allOptions.size() > 2);
+
+    FixResult result =
+        new NearbyTokenFixer(query, error, tokenProcessor, bigQueryServiceMock, /*maxOptions=*/ 2)
+            .fix();
+    assertEquals(allOptions.subList(0, 2), result.getOptions());
+  }
+
   @Test
   public void fixExpectKeywordButGotOthers_useExpectKeywordFixer_insertKeyword() {
     String query = "SELECT status From `bigquery-public-data.austin_311.311_request` Group status";
@@ -527,6 +550,8 @@ public class FixerTest {
       List<String> tables, String projectId) {
     when(bigQueryServiceMock.listTableNames(any(String.class), any(String.class)))
         .thenReturn(tables);
+    when(bigQueryServiceMock.getTableNameIndex(any(String.class), any(String.class)))
+        .thenReturn(new SimilarityIndex(tables, /*caseSensitive=*/ false));
 
     BigQueryOptions options = BigQueryOptions.newBuilder().setProjectId(projectId).build();
     when(bigQueryServiceMock.getBigQueryOptions()).thenReturn(options);
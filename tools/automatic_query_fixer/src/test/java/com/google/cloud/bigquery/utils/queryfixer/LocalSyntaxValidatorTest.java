@@ -0,0 +1,76 @@
+package com.google.cloud.bigquery.utils.queryfixer;
+
+import com.google.cloud.bigquery.BigQueryException;
+import com.google.cloud.bigquery.utils.queryfixer.errors.BigQuerySqlError;
+import com.google.cloud.bigquery.utils.queryfixer.errors.ExpectKeywordButGotOthersError;
+import com.google.cloud.bigquery.utils.queryfixer.errors.IllegalInputCharacterError;
+import com.google.cloud.bigquery.utils.queryfixer.errors.SqlErrorFactory;
+import com.google.cloud.bigquery.utils.queryfixer.errors.UnexpectedKeywordError;
+import com.google.cloud.bigquery.utils.queryfixer.service.LocalSyntaxValidator;
+import com.google.cloud.bigquery.utils.queryfixer.tokenizer.CalciteTokenizer;
+import com.google.cloud.bigquery.utils.queryfixer.tokenizer.QueryTokenProcessor;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LocalSyntaxValidatorTest {
+
+  private LocalSyntaxValidator validator;
+
+  @Before
+  public void setup() {
+    BigQueryParserFactory parserFactory = new BigQueryParserFactory();
+    QueryTokenProcessor tokenProcessor =
+        new QueryTokenProcessor(new CalciteTokenizer(parserFactory));
+    validator = new LocalSyntaxValidator(parserFactory, tokenProcessor);
+  }
+
+  @Test
+  public void catchSyntaxException_correctQuery() {
+    assertNull(validator.catchSyntaxException("SELECT status FROM t GROUP BY status"));
+  }
+
+  @Test
+  public void catchSyntaxException_expectKeyword() {
+    BigQueryException exception =
+        validator.catchSyntaxException("SELECT status FROM t GROUP status");
+    assertNotNull(exception);
+    assertEquals(
+        "Syntax error: Expected keyword BY but got \"status\" at [1:28]", exception.getMessage());
+
+    BigQuerySqlError error = new SqlErrorFactory().getError(exception);
+    assertTrue(error instanceof ExpectKeywordButGotOthersError);
+    assertEquals("BY", ((ExpectKeywordButGotOthersError) error).getExpectedKeyword());
+    assertEquals(1, error.getErrorPosition().getRow());
+    assertEquals(28, error.getErrorPosition().getColumn());
+  }
+
+  @Test
+  public void catchSyntaxException_unexpectedKeyword() {
+    BigQueryException exception = validator.catchSyntaxException("SELECT a FROM t WHERE FROM");
+    assertNotNull(exception);
+    assertEquals("Syntax error: Unexpected keyword FROM at [1:23]", exception.getMessage());
+
+    BigQuerySqlError error = new SqlErrorFactory().getError(exception);
+    assertTrue(error instanceof UnexpectedKeywordError);
+    assertEquals("FROM", ((UnexpectedKeywordError) error).getKeyword());
+  }
+
+  @Test
+  public void catchSyntaxException_illegalCharacter() {
+    BigQueryException exception = validator.catchSyntaxException("SELECT a\\b FROM t");
+    assertNotNull(exception);
+    assertTrue(exception.getMessage().startsWith("Syntax error: Illegal input character"));
+
+    BigQuerySqlError error = new SqlErrorFactory().getError(exception);
+    assertTrue(error instanceof IllegalInputCharacterError);
+    assertEquals(1, error.getErrorPosition().getRow());
+    assertEquals(9, error.getErrorPosition().getColumn());
+  }
+
+  @Test
+  public void catchSyntaxException_ambiguousExpectation() {
+    assertNull(validator.catchSyntaxException("SELECT a FROM t WHERE (b = )"));
+  }
+}
@@ -0,0 +1,93 @@
+package com.google.cloud.bigquery.utils.queryfixer;
+
+import com.google.cloud.bigquery.utils.queryfixer.util.SimilarityIndex;
+import com.google.cloud.bigquery.utils.queryfixer.util.StringUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark comparing the lookups of {@link SimilarityIndex} to the linear scans of {@link
+ * StringUtil} over a dictionary of 100k table-like names. Run with: ./gradlew benchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimilarityIndexBenchmark {
+
+  private static final int DICTIONARY_SIZE = 100000;
+  private static final int TARGETS = 64;
+  private static final int MAX_EDIT_DISTANCE = 2;
+
+  private List<String> dict;
+  private SimilarityIndex index;
+  private String[] targets;
+  private int next = 0;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(42);
+    dict = new ArrayList<>(DICTIONARY_SIZE);
+    for (int i = 0; i < DICTIONARY_SIZE; i++) {
+      dict.add(randomName(random));
+    }
+    index = new SimilarityIndex(dict, /*caseSensitive=*/ false);
+
+    // Half of the targets are typos of names in the dictionary.
+    targets = new String[TARGETS];
+    for (int i = 0; i < TARGETS; i++) {
+      String name = dict.get(random.nextInt(DICTIONARY_SIZE));
+      targets[i] = i % 2 == 0 ? name.substring(1) : randomName(random);
+    }
+  }
+
+  private static String randomName(Random random) {
+    StringBuilder name = new StringBuilder();
+    int length = 6 + random.nextInt(10);
+    for (int i = 0; i < length; i++) {
+      name.append("abcdefghijklmnopqrstuvwxyz_0123456789".charAt(random.nextInt(37)));
+    }
+    return name.toString();
+  }
+
+  private String nextTarget() {
+    next = (next + 1) % TARGETS;
+    return targets[next];
+  }
+
+  @Benchmark
+  public List<String> findSimilarWords_linearScan() {
+    return StringUtil.findSimilarWords(
+        dict, nextTarget(), MAX_EDIT_DISTANCE, /*caseSensitive=*/ false);
+  }
+
+  @Benchmark
+  public List<String> findSimilarWords_index() {
+    return index.findSimilarWords(nextTarget(), MAX_EDIT_DISTANCE);
+  }
+
+  @Benchmark
+  public StringUtil.SimilarStrings findMostSimilarWords_linearScan() {
+    return StringUtil.findMostSimilarWords(dict, nextTarget(), /*caseSensitive=*/ false);
+  }
+
+  @Benchmark
+  public StringUtil.SimilarStrings findMostSimilarWords_index() {
+    return index.findMostSimilarWords(nextTarget());
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder().include(SimilarityIndexBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+}
@@ -0,0 +1,74 @@
+package com.google.cloud.bigquery.utils.queryfixer;
+
+import com.google.cloud.bigquery.utils.queryfixer.util.SimilarityIndex;
+import com.google.cloud.bigquery.utils.queryfixer.util.StringUtil;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SimilarityIndexTest {
+
+  @Test
+  public void findMostSimilarWords() {
+    List<String> dict =
+        ImmutableList.of(
+            "google", "GooGle", "oogle", "Googe", "Gooogle", "Gogle", "Happy", "gogle", "oGogle");
+
+    SimilarityIndex index = new SimilarityIndex(dict, /*caseSensitive=*/ true);
+    StringUtil.SimilarStrings similarStrings = index.findMostSimilarWords("Google");
+    assertEquals(1, similarStrings.getDistance());
+    assertThat(
+        similarStrings.getStrings(),
+        contains("google", "GooGle", "oogle", "Googe", "Gooogle", "Gogle"));
+
+    index = new SimilarityIndex(dict, /*caseSensitive=*/ false);
+    assertThat(index.findSimilarWords("GOOGLE", 0), contains("google", "GooGle"));
+  }
+
+  @Test
+  public void sameResultsAsLinearScan() {
+    Random random = new Random(42);
+    List<String> dict = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      dict.add(randomWord(random));
+    }
+    SimilarityIndex index = new SimilarityIndex(dict, /*caseSensitive=*/ false);
+
+    for (int i = 0; i < 100; i++) {
+      String target = randomWord(random);
+      for (int maxEditDistance = 0; maxEditDistance <= 3; maxEditDistance++) {
+        assertEquals(
+            StringUtil.findSimilarWords(dict, target, maxEditDistance, /*caseSensitive=*/ false),
+            index.findSimilarWords(target, maxEditDistance));
+      }
+      assertEquals(
+          StringUtil.findMostSimilarWords(dict, target, /*caseSensitive=*/ false),
+          index.findMostSimilarWords(target));
+    }
+  }
+
+  @Test
+  public void emptyDictionary() {
+    SimilarityIndex index = new SimilarityIndex(Collections.emptyList(), /*caseSensitive=*/ false);
+    assertTrue(index.findSimilarWords("word", 2).isEmpty());
+    assertTrue(index.findMostSimilarWords("word").isEmpty());
+  }
+
+  private static String randomWord(Random random) {
+    StringBuilder word = new StringBuilder();
+    int length = 3 + random.nextInt(6);
+    for (int i = 0; i < length; i++) {
+      word.append("abcdeABCDE_".charAt(random.nextInt(11)));
+    }
+    return word.toString();
+  }
+}
@@ -28,6 +28,26 @@ public class StringUtilTest {
         contains("google", "GooGle", "oogle", "Googe", "Gooogle", "Gogle"));
   }
 
+  @Test
+  public void testBoundedEditDistance() {
+    assertEquals(3, StringUtil.editDistance("kitten", "sitting", /*caseSensitive=*/ true));
+    assertEquals(3, StringUtil.editDistance("kitten", "sitting", /*caseSensitive=*/ true, 3));
+    assertEquals(3, StringUtil.editDistance("kitten", "sitting", /*caseSensitive=*/ true, 2));
+    assertEquals(1, StringUtil.editDistance("kitten", "sitting", /*caseSensitive=*/ true, 0));
+    assertEquals(6, StringUtil.editDistance("", "Google", /*caseSensitive=*/ true));
+    assertEquals(3, StringUtil.editDistance("", "Google", /*caseSensitive=*/ true, 2));
+    assertEquals(0, StringUtil.editDistance("GOOGLE", "google", /*caseSensitive=*/ false, 0));
+    assertEquals(6, StringUtil.editDistance("GOOGLE", "google", /*caseSensitive=*/ true));
+
+    List<String> dict = ImmutableList.of("google", "GooGle", "oogle", "Gooogle", "Happy", "Goo");
+    assertThat(
+        StringUtil.findSimilarWords(dict, "GOOGLE", 1, /*caseSensitive=*/ false),
+        contains("google", "GooGle", "oogle", "Gooogle"));
+    assertThat(
+        StringUtil.findSimilarWords(dict, "Google", 1, /*caseSensitive=*/ true),
+        contains("google", "GooGle", "oogle", "Gooogle"));
+  }
+
   @Test
   public void testReplacingString() {
     String string = "Hello World!";
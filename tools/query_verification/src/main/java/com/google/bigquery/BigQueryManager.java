@@ -3,13 +3,13 @@ package com.google.bigquery;
 import com.google.cloud.bigquery.*;
 import com.google.gson.*;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.nio.ByteBuffer;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.nio.channels.FileChannel;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -18,13 +18,25 @@ import java.util.stream.Collectors;
 public class BigQueryManager implements DataWarehouseManager {
 
     private final BigQuery bigQuery;
+    private final ResultReader resultReader;
 
     private final QueryVerificationQuery query;
     private final QueryVerificationSchema schema;
     private final List<QueryVerificationData> data;
 
+    // Tables are added as soon as they are created, so tables created before a failure are still cleaned up
+    private final List<Table> tables = Collections.synchronizedList(new ArrayList<Table>());
+
+    // Statistics of the jobs run for each statement
+    private final Map<String, StatementStatistics> statistics = new ConcurrentHashMap<String, StatementStatistics>();
+    private final PhaseTimer phaseTimer = new PhaseTimer();
+
+    // Numbers are rounded to a multiple of the tolerance before rows are hashed
+    private volatile BigDecimal checksumTolerance = QueryVerifier.DEFAULT_TOLERANCE;
+
     public BigQueryManager(QueryVerificationQuery query, QueryVerificationSchema schema, List<QueryVerificationData> data) {
         bigQuery = BigQueryOptions.getDefaultInstance().getService();
+        resultReader = new PagedResultReader();
 
         this.query = query;
         this.schema = schema;
@@ -32,7 +44,15 @@ public class BigQueryManager implements DataWarehouseManager {
     }
 
     public BigQueryManager(QueryVerificationQuery query, QueryVerificationSchema schema, List<QueryVerificationData> data, BigQuery bigQuery) {
+        this(query, schema, data, bigQuery, new PagedResultReader());
+    }
+
+    /**
+     * @param resultReader reading the results of query jobs, e.g. {@link StreamingResultReader}
+     */
+    public BigQueryManager(QueryVerificationQuery query, QueryVerificationSchema schema, List<QueryVerificationData> data, BigQuery bigQuery, ResultReader resultReader) {
         this.bigQuery = bigQuery;
+        this.resultReader = resultReader;
 
         this.query = query;
         this.schema = schema;
@@ -44,60 +64,239 @@ public class BigQueryManager implements DataWarehouseManager {
         return "BigQuery";
     }
 
+    @Override
+    public void setupTables() throws Exception {
+        phaseTimer.time("create tables", this::getBigQueryTablesFromSchema);
+        phaseTimer.time("load tables", this::populateBigQueryTablesFromData);
+    }
+
     /**
-     * Sends query jobs to BQ
-     * @return List of query results
+     * Deletes the created tables concurrently. Tables which fail to be deleted don't stop the others from being deleted.
+     */
+    @Override
+    public void cleanupTables() {
+        List<Table> tablesToDelete;
+        synchronized (tables) {
+            tablesToDelete = new ArrayList<Table>(tables);
+            tables.clear();
+        }
+
+        try {
+            phaseTimer.time("delete tables", () -> ParallelTasks.runAll(tablesToDelete, ParallelTasks.DEFAULT_PARALLELISM, table -> {
+                try {
+                    bigQuery.delete(table.getTableId());
+                } catch (BigQueryException e) {
+                    System.err.println("Failed to delete " + table.getTableId().getTable() + ": " + e.getMessage());
+                }
+            }));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public boolean reuseTables() throws Exception {
+        if (schema == null) {
+            return false;
+        }
+
+        List<TableId> tableIds;
+        if (schema.isInJsonFormat()) {
+            tableIds = getTableInfoFromJsonSchema().stream().map(TableInfo::getTableId).collect(Collectors.toList());
+        } else {
+            tableIds = getTableIdsFromDdlSchema();
+        }
+
+        List<Table> existingTables = Collections.synchronizedList(new ArrayList<Table>());
+        ParallelTasks.runAll(tableIds, ParallelTasks.DEFAULT_PARALLELISM, tableId -> {
+            Table table = bigQuery.getTable(tableId);
+            if (table != null) {
+                existingTables.add(table);
+            }
+        });
+
+        tables.addAll(existingTables);
+        if (tableIds.isEmpty() || existingTables.size() < tableIds.size()) {
+            // Tables are created from scratch
+            cleanupTables();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Sends a query job to BQ
+     * @param statement to run
+     * @param consumer of the result rows
+     * @return Query results
      * @throws InterruptedException
      */
     @Override
-    public List<QueryJobResults> runQueries() throws IllegalArgumentException, InterruptedException {
-        List<Table> tables = getBigQueryTablesFromSchema();
-        populateBigQueryTablesFromData();
-
-        // Create query jobs
-        List<JobInfo> jobInfos = getJobInfosFromQuery(false);
-
-        // Store results from every job
-        List<QueryJobResults> jobResults = new ArrayList<QueryJobResults>();
-
-        for (int i = 0; i < jobInfos.size(); i++) {
-            JobInfo jobInfo = jobInfos.get(i);
-
-            // Retrieve query
-            QueryJobConfiguration queryJobConfiguration = jobInfo.getConfiguration();
-            String statement = queryJobConfiguration.getQuery();
-
-            QueryJobResults jobResult;
-            try {
-                // Run query job
-                Job queryJob = bigQuery.create(jobInfo);
-                queryJob.waitFor();
-
-                // Parse and store query results
-                List<List<String>> rawResults = new ArrayList<List<String>>();
-                Set<List<Object>> results = new HashSet<List<Object>>();
-                TableResult queryResults = queryJob.getQueryResults();
-                FieldList fields = queryResults.getSchema().getFields();
-
-                queryResults.iterateAll().forEach(values -> {
-                    rawResults.add(values.stream().map(value -> value.getStringValue()).collect(Collectors.toList()));
-                    results.add(parseResults(values, fields));
-                });
+    public QueryJobResults runQuery(String statement, ResultRowConsumer consumer) throws InterruptedException {
+        return runQuery(statement, statement, consumer);
+    }
+
+    /**
+     * Sends a query job to BQ
+     * @param statement the results are stored for
+     * @param queryToRun query which is actually sent to BQ
+     * @param consumer of the result rows
+     * @return Query results
+     * @throws InterruptedException
+     */
+    private QueryJobResults runQuery(String statement, String queryToRun, ResultRowConsumer consumer) throws InterruptedException {
+        JobInfo jobInfo = configureJob(queryToRun, false);
+
+        QueryJobResults jobResult;
+        try {
+            // Run query job
+            long start = System.nanoTime();
+            Job queryJob = bigQuery.create(jobInfo);
+            Job completedJob = queryJob.waitFor();
+            long fetchStart = System.nanoTime();
+
+            long rows = resultReader.read(completedJob == null ? queryJob : completedJob, QueryVerifier.isOrdered(queryToRun), consumer);
 
-                jobResult = QueryJobResults.create(statement, query, null, results, rawResults);
-            } catch (BigQueryException e) {
-                // Print out syntax/semantic errors returned from BQ
-                jobResult = QueryJobResults.create(statement, query, e.getMessage(), null, null);
+            recordStatistics(statement, completedJob, fetchStart - start, System.nanoTime() - fetchStart, rows);
+
+            jobResult = QueryJobResults.create(statement, query, null, null, null);
+        } catch (BigQueryException e) {
+            // Print out syntax/semantic errors returned from BQ
+            jobResult = QueryJobResults.create(statement, query, e.getMessage(), null, null);
+        }
+
+        return jobResult;
+    }
+
+    /**
+     * Dry-runs the statement to find the schema of its results, then sends a checksum query job to BQ
+     * @param statement to checksum
+     * @return Checksum of the query results
+     * @throws InterruptedException
+     */
+    @Override
+    public QueryChecksum runChecksumQuery(String statement) throws InterruptedException {
+        try {
+            FieldList fields = getResultFields(statement);
+
+            TableResult checksumResults = runJob(statement, getChecksumQuery(statement, fields));
+            FieldValueList values = checksumResults.iterateAll().iterator().next();
+
+            return QueryChecksum.create(statement, null, values.get(0).getLongValue(), values.get(1).getNumericValue());
+        } catch (BigQueryException | IllegalArgumentException e) {
+            return QueryChecksum.create(statement, e.getMessage(), 0, null);
+        }
+    }
+
+    @Override
+    public List<BucketChecksum> runBucketChecksumQuery(String statement, long parentModulus, Collection<Long> parentRemainders, long modulus) throws InterruptedException {
+        FieldList fields = getResultFields(statement);
+        TableResult checksumResults = runJob(statement, getBucketChecksumQuery(statement, fields, parentModulus, parentRemainders, modulus));
+
+        List<BucketChecksum> checksums = new ArrayList<BucketChecksum>();
+        checksumResults.iterateAll().forEach(values -> checksums.add(BucketChecksum.create(values.get(0).getLongValue(), values.get(1).getLongValue(), values.get(2).getNumericValue())));
+        return checksums;
+    }
+
+    @Override
+    public QueryJobResults runBucketQuery(String statement, long modulus, Collection<Long> remainders, ResultRowConsumer consumer) throws InterruptedException {
+        FieldList fields = getResultFields(statement);
+        return runQuery(statement, getBucketQuery(statement, fields, modulus, remainders), consumer);
+    }
+
+    /**
+     * Runs a query job and waits for its results
+     * @param statement the statistics are recorded for
+     * @param queryToRun query which is actually sent to BQ
+     * @return Query results
+     * @throws InterruptedException
+     */
+    private TableResult runJob(String statement, String queryToRun) throws InterruptedException {
+        long start = System.nanoTime();
+        Job job = bigQuery.create(configureJob(queryToRun, false));
+        Job completedJob = job.waitFor();
+        long fetchStart = System.nanoTime();
+
+        TableResult results = job.getQueryResults();
+        recordStatistics(statement, completedJob, fetchStart - start, System.nanoTime() - fetchStart, results.getTotalRows());
+        return results;
+    }
+
+    /**
+     * Adds the statistics of a completed job to the statistics of its statement. The elapsed time, bytes processed
+     * and slot time are taken from the job statistics when BQ reports them.
+     * @param statement the job was run for
+     * @param job Completed job, or null if it no longer exists
+     * @param waitNanos Time spent waiting for the job to complete
+     * @param fetchNanos Time spent reading the job's results
+     * @param rows Number of result rows read
+     */
+    private void recordStatistics(String statement, @Nullable Job job, long waitNanos, long fetchNanos, long rows) {
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(waitNanos);
+        Long jobBytesProcessed = null;
+        Long jobSlotMillis = null;
+
+        if (job != null && job.getStatistics() instanceof JobStatistics.QueryStatistics) {
+            JobStatistics.QueryStatistics jobStatistics = job.getStatistics();
+            if (jobStatistics.getStartTime() != null && jobStatistics.getEndTime() != null) {
+                elapsedMillis = jobStatistics.getEndTime() - jobStatistics.getStartTime();
             }
+            jobBytesProcessed = jobStatistics.getTotalBytesProcessed();
+            jobSlotMillis = jobStatistics.getTotalSlotMs();
+        }
+
+        StatementStatistics jobStatistics = StatementStatistics.create(1, elapsedMillis, TimeUnit.NANOSECONDS.toMillis(fetchNanos), rows, jobBytesProcessed, jobSlotMillis);
+        statistics.merge(statement, jobStatistics, StatementStatistics::plus);
+    }
 
-            // Store results
-            jobResults.add(jobResult);
+    /**
+     * Dry-runs the statement to find how many bytes it would process
+     * @param statement to dry-run
+     * @return Estimated bytes processed, or null if the statement is invalid
+     */
+    @Override
+    public Long estimateBytesProcessed(String statement) {
+        try {
+            Job dryRunJob = bigQuery.create(configureJob(statement, true));
+            JobStatistics.QueryStatistics statistics = dryRunJob.getStatistics();
+            return statistics.getTotalBytesProcessed();
+        } catch (BigQueryException e) {
+            return null;
         }
+    }
+
+    @Override
+    public void setChecksumTolerance(BigDecimal tolerance) {
+        checksumTolerance = tolerance;
+    }
 
-        // Clear tables created
-        tables.forEach(table -> bigQuery.delete(table.getTableId()));
+    @Override
+    public StatementStatistics getStatementStatistics(String statement) {
+        return statistics.get(statement);
+    }
 
-        return jobResults;
+    @Override
+    public Map<String, Long> getPhaseMillis() {
+        return phaseTimer.getMillis();
+    }
+
+    /**
+     * Dry-runs the statement to find the schema of its results
+     * @param statement to dry-run
+     * @return Fields of the statement's results
+     * @throws IllegalArgumentException if the statement has no results
+     */
+    private FieldList getResultFields(String statement) throws IllegalArgumentException {
+        Job dryRunJob = bigQuery.create(configureJob(statement, true));
+        JobStatistics.QueryStatistics statistics = dryRunJob.getStatistics();
+        Schema resultSchema = statistics.getSchema();
+
+        // Statements without results (e.g. DDL or DML) cannot be checksummed
+        if (resultSchema == null || resultSchema.getFields().isEmpty()) {
+            throw new IllegalArgumentException("Statement has no results to checksum.");
+        }
+
+        return resultSchema.getFields();
     }
 
     /**
@@ -105,41 +304,74 @@ public class BigQueryManager implements DataWarehouseManager {
      * @return Results from dry-runs
      * @throws InterruptedException if any job get interrupted before returning results
      */
-    public List<QueryJobResults> dryRunQueries() throws IllegalArgumentException, InterruptedException {
-        List<Table> tables = getBigQueryTablesFromSchema();
+    public List<QueryJobResults> dryRunQueries() throws Exception {
+        return dryRunQueries(null);
+    }
 
-        // Create dry-run jobs
-        List<JobInfo> jobInfos = getJobInfosFromQuery(true);
+    /**
+     * Sends dry-run query jobs to BQ for the statements without an unexpired entry in the cache. Tables are only
+     * created if at least one statement needs to be dry-run.
+     * @param cache of previous dry runs, or null to dry-run every statement
+     * @return Results from dry-runs
+     * @throws InterruptedException if any job get interrupted before returning results
+     */
+    public List<QueryJobResults> dryRunQueries(@Nullable DryRunCache cache) throws Exception {
+        try {
+            // Create dry-run jobs
+            List<JobInfo> jobInfos = getJobInfosFromQuery(true);
+
+            // Store results for every successful dry-run
+            List<QueryJobResults> jobResults = new ArrayList<QueryJobResults>();
+
+            boolean tablesCreated = false;
+            for (int i = 0; i < jobInfos.size(); i++) {
+                JobInfo jobInfo = jobInfos.get(i);
+
+                // Retrieve query
+                QueryJobConfiguration queryJobConfiguration = jobInfo.getConfiguration();
+                String statement = queryJobConfiguration.getQuery();
+
+                String cacheKey = null;
+                if (cache != null) {
+                    cacheKey = DryRunCache.getKey(bigQuery.getOptions().getProjectId(), schema == null ? null : schema.schema(), statement);
+                    if (cache.contains(cacheKey)) {
+                        jobResults.add(QueryJobResults.create(statement, query, cache.getError(cacheKey), null, null));
+                        continue;
+                    }
+                }
 
-        // Store results for every successful dry-run
-        List<QueryJobResults> jobResults = new ArrayList<QueryJobResults>();
+                if (!tablesCreated) {
+                    getBigQueryTablesFromSchema();
+                    tablesCreated = true;
+                }
 
-        for (int i = 0; i < jobInfos.size(); i++) {
-            JobInfo jobInfo = jobInfos.get(i);
+                QueryJobResults jobResult;
+                boolean cacheable = true;
+                try {
+                    // Run dry-run
+                    bigQuery.create(jobInfo);
 
-            // Retrieve query
-            QueryJobConfiguration queryJobConfiguration = jobInfo.getConfiguration();
-            String statement = queryJobConfiguration.getQuery();
+                    // Store results from dry-run
+                    jobResult = QueryJobResults.create(statement, query, null, null, null);
+                } catch (BigQueryException e) {
+                    // Print out syntax/semantic errors returned from BQ
+                    jobResult = QueryJobResults.create(statement, query, e.getMessage(), null, null);
 
-            QueryJobResults jobResult;
-            try {
-                // Run dry-run
-                bigQuery.create(jobInfo);
+                    // Only invalid statements are cached, not transient errors such as rate limits
+                    cacheable = e.getCode() == 400;
+                }
 
-                // Store results from dry-run
-                jobResult = QueryJobResults.create(statement, query, null, null, null);
-            } catch (BigQueryException e) {
-                // Print out syntax/semantic errors returned from BQ
-                jobResult = QueryJobResults.create(statement, query, e.getMessage(), null, null);
+                if (cache != null && cacheable) {
+                    cache.put(cacheKey, jobResult.error());
+                }
+                jobResults.add(jobResult);
             }
 
-            jobResults.add(jobResult);
+            return jobResults;
+        } finally {
+            // Clear tables created
+            cleanupTables();
         }
-
-        // Clear tables created
-        tables.forEach(table -> bigQuery.delete(table.getTableId()));
-
-        return jobResults;
     }
 
     /**
@@ -150,11 +382,7 @@ public class BigQueryManager implements DataWarehouseManager {
     public List<JobInfo> getJobInfosFromQuery(boolean dryRun) {
         List<JobInfo> jobInfos = new ArrayList<JobInfo>();
 
-        // Separate query into individual statements
-        // TODO Account for edge case where semicolon could be inside statement
-        List<String> statements = Arrays.stream(query.query().split(";")).map(String::trim).filter(statement -> !statement.isEmpty()).collect(Collectors.toList());
-
-        for (String statement : statements) {
+        for (String statement : getStatementsFromQuery()) {
             JobInfo jobInfo = configureJob(statement, dryRun);
             jobInfos.add(jobInfo);
         }
@@ -162,20 +390,27 @@ public class BigQueryManager implements DataWarehouseManager {
         return jobInfos;
     }
 
+    @Override
+    public StatementSplitter.Dialect getDialect() {
+        return StatementSplitter.Dialect.BIGQUERY;
+    }
+
+    @Override
+    public List<String> getStatementsFromQuery() {
+        // Separate query into individual statements
+        return StatementSplitter.splitToText(query.query(), getDialect());
+    }
+
     /**
-     * Creates BQ tables based on the provided schema
+     * Creates BQ tables based on the provided schema, creating several tables concurrently
      * @return List of newly created tables
      */
-    public List<Table> getBigQueryTablesFromSchema() throws IllegalArgumentException, InterruptedException {
-        List<Table> tables = new ArrayList<Table>();
-
+    public List<Table> getBigQueryTablesFromSchema() throws Exception {
         if (schema != null) {
             if (schema.isInJsonFormat()) {
                 // Schema is JSON
                 List<TableInfo> tableInfos = getTableInfoFromJsonSchema();
-                if (tableInfos != null) {
-                    tableInfos.forEach(tableInfo -> tables.add(bigQuery.create(tableInfo)));
-                }
+                ParallelTasks.runAll(tableInfos, ParallelTasks.DEFAULT_PARALLELISM, tableInfo -> tables.add(bigQuery.create(tableInfo)));
             } else {
                 // Schema is DDL
                 JobInfo jobInfo = configureJob(schema.schema(), false);
@@ -187,7 +422,12 @@ public class BigQueryManager implements DataWarehouseManager {
                 }
 
                 List<TableId> tableIds = getTableIdsFromDdlSchema();
-                tableIds.forEach(tableId -> tables.add(bigQuery.getTable(tableId)));
+                ParallelTasks.runAll(tableIds, ParallelTasks.DEFAULT_PARALLELISM, tableId -> {
+                    Table table = bigQuery.getTable(tableId);
+                    if (table != null) {
+                        tables.add(table);
+                    }
+                });
             }
 
             if (tables.isEmpty()) {
@@ -195,7 +435,9 @@ public class BigQueryManager implements DataWarehouseManager {
             }
         }
 
-        return tables;
+        synchronized (tables) {
+            return new ArrayList<Table>(tables);
+        }
     }
 
     /**
@@ -250,11 +492,10 @@ public class BigQueryManager implements DataWarehouseManager {
         List<TableId> tableIds = new ArrayList<TableId>();
 
         // Separate DDL schema into statements
-        // TODO Account for edge case where semicolon could be inside statement
-        String[] statements = schema.schema().split(";");
+        List<String> statements = StatementSplitter.splitToText(schema.schema(), StatementSplitter.Dialect.BIGQUERY);
 
         for (String statement : statements) {
-            statement = statement.trim().replaceAll("\\s+", " ");
+            statement = statement.replaceAll("\\s+", " ");
 
             // Basic validation for DDL
             if (statement.toUpperCase().startsWith("CREATE TABLE")) {
@@ -280,61 +521,128 @@ public class BigQueryManager implements DataWarehouseManager {
      * @return List of objects parsed from query results
      */
     public List<Object> parseResults(FieldValueList values, FieldList fields) {
-        List<Object> results = new ArrayList<Object>();
-        for (int i = 0; i < values.size(); i++) {
-            FieldValue value = values.get(i);
-
-            // Identify type of the value
-            StandardSQLTypeName type = fields.get(i).getType().getStandardType();
-
-            Object result;
-            try {
-                switch (type) {
-                    case BOOL:
-                        result = value.getBooleanValue();
-                        break;
-                    case FLOAT64:
-                        result = BigDecimal.valueOf(value.getDoubleValue()).setScale(QueryVerifier.DECIMAL_PRECISION, RoundingMode.FLOOR);
-                        break;
-                    case INT64:
-                        result = value.getLongValue();
-                        break;
-                    case NUMERIC:
-                        result = value.getNumericValue().setScale(QueryVerifier.DECIMAL_PRECISION, RoundingMode.FLOOR);
-                        break;
-                    case STRUCT:
-                        FieldList subFields = fields.get(i).getSubFields();
-                        FieldValueList subValues = value.getRecordValue();
-                        result = parseResults(subValues, subFields);
-                        break;
-                    case DATE:
-                        result = new SimpleDateFormat("yyyy-MM-dd").parse(value.getStringValue());
-                        break;
-                    case DATETIME:
-                        result = new SimpleDateFormat("yyyy-MM-dd'T'hh:mm:ss.SSSSSS").parse(value.getStringValue());
-                        break;
-                    case TIME:
-                        result = new SimpleDateFormat("hh:mm:ss.SSSSSS").parse(value.getStringValue());
-                        break;
-                    case TIMESTAMP:
-                        result = new SimpleDateFormat("yyyy-MM-dd hh:mm:ss.SSSSSS zzz").parse(value.getStringValue());
-                        break;
-                    case STRING:
-                        result = value.getStringValue();
-                        break;
-                    default:
-                        // Handle unknown/unsupported types as String
-                        System.err.println("Warning: Unsupported type: " + type.name());
-                        result = value.getStringValue();
-                }
-            } catch (ParseException e) {
-                result = Optional.empty();
-            }
+        return BigQueryRowDecoder.compile(fields).decode(values);
+    }
+
+    /**
+     * Wraps a statement in a query that returns the row count and the sum of the row hashes of its results.
+     * Values are canonicalized the same way as {@link TeradataManager#getChecksumQuery(String, List)} so the
+     * checksums of both data warehouse services can be compared.
+     * @param statement to checksum
+     * @param fields from the schema of the statement's results
+     * @return Checksum query
+     */
+    public String getChecksumQuery(String statement, FieldList fields) {
+        return String.format("SELECT COUNT(*) AS row_count, COALESCE(SUM(CAST(%s AS NUMERIC)), 0) AS checksum FROM (SELECT %s AS row_columns FROM (%s) AS t)", getRowHash(fields), getPositionalRow(fields), statement);
+    }
+
+    /**
+     * Wraps a statement in a query that returns the row count and the sum of the row hashes of each bucket
+     * @param statement to checksum
+     * @param fields from the schema of the statement's results
+     * @param parentModulus of the buckets being split
+     * @param parentRemainders of the buckets being split
+     * @param modulus of the new buckets
+     * @return Bucket checksum query
+     */
+    public String getBucketChecksumQuery(String statement, FieldList fields, long parentModulus, Collection<Long> parentRemainders, long modulus) {
+        return String.format("SELECT MOD(row_hash, %d) AS bucket, COUNT(*) AS row_count, SUM(CAST(row_hash AS NUMERIC)) AS checksum FROM (SELECT %s AS row_hash FROM (SELECT %s AS row_columns FROM (%s) AS t)) WHERE MOD(row_hash, %d) IN (%s) GROUP BY bucket", modulus, getRowHash(fields), getPositionalRow(fields), statement, parentModulus, joinRemainders(parentRemainders));
+    }
+
+    /**
+     * Wraps a statement in a query that only returns the rows in the given buckets
+     * @param statement to run
+     * @param fields from the schema of the statement's results
+     * @param modulus of the buckets
+     * @param remainders of the buckets to return
+     * @return Bucket query
+     */
+    public String getBucketQuery(String statement, FieldList fields, long modulus, Collection<Long> remainders) {
+        return String.format("SELECT * EXCEPT (row_columns, row_hash) FROM (SELECT *, %s AS row_hash FROM (SELECT t.*, %s AS row_columns FROM (%s) AS t)) WHERE MOD(row_hash, %d) IN (%s)", getRowHash(fields), getPositionalRow(fields), statement, modulus, joinRemainders(remainders));
+    }
 
-            results.add(result);
+    private static String joinRemainders(Collection<Long> remainders) {
+        return remainders.stream().sorted().map(String::valueOf).collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Casts the row of the statement's results to a struct with positional field names c0, c1, ..., since unnamed
+     * result columns can't be referenced from outside of the subquery
+     * @param fields from the schema of the statement's results
+     * @return Expression of the row struct
+     */
+    private static String getPositionalRow(FieldList fields) {
+        List<String> columns = new ArrayList<String>();
+        for (int i = 0; i < fields.size(); i++) {
+            columns.add("c" + i + " " + getTypeName(fields.get(i)));
         }
+        return String.format("CAST(t AS STRUCT<%s>)", String.join(", ", columns));
+    }
 
-        return results;
+    /**
+     * @param field from the schema of the statement's results
+     * @return Standard SQL type of the field
+     */
+    private static String getTypeName(Field field) {
+        String type = field.getType().getStandardType().name();
+        if (field.getSubFields() != null) {
+            type = field.getSubFields().stream()
+                    .map(subField -> subField.getName().isEmpty() ? getTypeName(subField) : "`" + subField.getName() + "` " + getTypeName(subField))
+                    .collect(Collectors.joining(", ", "STRUCT<", ">"));
+        }
+        return field.getMode() == Field.Mode.REPEATED ? "ARRAY<" + type + ">" : type;
+    }
+
+    /**
+     * Hashes the canonicalized columns of a row into a 32-bit integer
+     * @param fields from the schema of the statement's results
+     * @return Expression computing the row hash of the positional row struct row_columns
+     */
+    private String getRowHash(FieldList fields) {
+        // Backslashes have to be escaped in BQ string literals
+        String nullValue = QueryVerifier.CHECKSUM_NULL_VALUE.replace("\\", "\\\\");
+
+        List<String> columns = new ArrayList<String>();
+        for (int i = 0; i < fields.size(); i++) {
+            columns.add(String.format("COALESCE(%s, '%s')", getCanonicalColumn("row_columns.c" + i, fields.get(i).getType().getStandardType()), nullValue));
+        }
+        String row = columns.size() == 1 ? columns.get(0) : "CONCAT(" + String.join(", '" + QueryVerifier.CHECKSUM_SEPARATOR + "', ", columns) + ")";
+
+        // First 8 hex digits of the MD5 hash
+        return String.format("CAST(CONCAT('0x', SUBSTR(TO_HEX(MD5(%s)), 1, 8)) AS INT64)", row);
+    }
+
+    /**
+     * Converts a column to a string which is formatted identically on every data warehouse service
+     * @param column to canonicalize
+     * @param type of the column
+     * @return Expression canonicalizing the column
+     */
+    private String getCanonicalColumn(String column, StandardSQLTypeName type) {
+        switch (type) {
+            case BOOL:
+                return String.format("CAST(CAST(%s AS INT64) AS STRING)", column);
+            case FLOAT64:
+            case INT64:
+            case NUMERIC:
+                // Numbers are compared as their nearest multiple of the tolerance, rounded half away from zero like
+                // the rows. BIGNUMERIC keeps more decimal places than the tolerance.
+                BigDecimal tolerance = QueryVerifier.getChecksumTolerance(checksumTolerance);
+                return String.format("CAST(ROUND(ROUND(CAST(%s AS BIGNUMERIC), %d) / BIGNUMERIC '%s') AS STRING)", column, QueryVerifier.getChecksumScale(tolerance), tolerance.toPlainString());
+            case DATE:
+                return String.format("FORMAT_DATE('%%Y-%%m-%%d', %s)", column);
+            case DATETIME:
+                return String.format("FORMAT_DATETIME('%%Y-%%m-%%d %%H:%%M:%%S', %s)", column);
+            case TIME:
+                return String.format("FORMAT_TIME('%%H:%%M:%%S', %s)", column);
+            case TIMESTAMP:
+                return String.format("FORMAT_TIMESTAMP('%%Y-%%m-%%d %%H:%%M:%%S', %s)", column);
+            case STRING:
+                return column;
+            default:
+                // Handle structs, arrays and other types as JSON
+                return String.format("TO_JSON_STRING(%s)", column);
+        }
     }
 
     /**
@@ -355,39 +663,46 @@ public class BigQueryManager implements DataWarehouseManager {
     }
 
     /**
-     * Populates BQ tables based on the provided table data
+     * Populates BQ tables based on the provided table data, loading several tables concurrently
      */
-    private void populateBigQueryTablesFromData() throws IllegalArgumentException, InterruptedException {
-        for (QueryVerificationData queryVerificationData : data) {
-            Table table = bigQuery.getTable(queryVerificationData.datasetName(), queryVerificationData.tableName());
+    private void populateBigQueryTablesFromData() throws Exception {
+        new TableDataLoader(getName(), TableDataLoader.DEFAULT_PARALLELISM).loadTables(data, this::populateBigQueryTableFromData);
+    }
 
-            // Check if no schema was provided for this table
-            if (table == null) {
-                throw new IllegalArgumentException(queryVerificationData.tableName() + " has no provided schema.");
-            }
+    /**
+     * Streams the data file of a single table into its BQ table one chunk at a time
+     * @param queryVerificationData of the table
+     */
+    private void populateBigQueryTableFromData(QueryVerificationData queryVerificationData) throws IllegalArgumentException, InterruptedException {
+        Table table = bigQuery.getTable(queryVerificationData.datasetName(), queryVerificationData.tableName());
 
-            TableId tableId = table.getTableId();
-
-            // Copy contents of CSV file
-            WriteChannelConfiguration writeChannelConfiguration = WriteChannelConfiguration.newBuilder(tableId).setFormatOptions(FormatOptions.csv()).build();
-            TableDataWriteChannel writer = bigQuery.writer(writeChannelConfiguration);
-            try {
-                writer.write(ByteBuffer.wrap(queryVerificationData.contents().getBytes()));
-                writer.close();
-            } catch (IOException e) {
-                // Try to continue verification
-                continue;
-            }
+        // Check if no schema was provided for this table
+        if (table == null) {
+            throw new IllegalArgumentException(queryVerificationData.tableName() + " has no provided schema.");
+        }
 
-            // Run table data writing job
-            Job writeJob = writer.getJob();
-            writeJob = writeJob.waitFor();
+        TableId tableId = table.getTableId();
+
+        // Copy contents of CSV file
+        WriteChannelConfiguration writeChannelConfiguration = WriteChannelConfiguration.newBuilder(tableId).setFormatOptions(FormatOptions.csv()).build();
+        TableDataWriteChannel writer = bigQuery.writer(writeChannelConfiguration);
+        try (FileChannel reader = queryVerificationData.openChannel()) {
+            TableDataLoader.copyInChunks(reader, writer);
+            writer.close();
+        } catch (IOException e) {
+            // Try to continue verification
+            System.err.println("Failed to load " + queryVerificationData.path() + ": " + e.getMessage());
+            return;
+        }
 
-            // Check for errors in writing table data
-            if (writeJob.getStatus().getError() != null) {
-                BigQueryError error = writeJob.getStatus().getError();
-                throw new IllegalArgumentException(String.format("%s is not correctly formatted.\n%s\n", queryVerificationData.path(), error.getMessage()));
-            }
+        // Run table data writing job
+        Job writeJob = writer.getJob();
+        writeJob = writeJob.waitFor();
+
+        // Check for errors in writing table data
+        if (writeJob.getStatus().getError() != null) {
+            BigQueryError error = writeJob.getStatus().getError();
+            throw new IllegalArgumentException(String.format("%s is not correctly formatted.\n%s\n", queryVerificationData.path(), error.getMessage()));
         }
     }
 }
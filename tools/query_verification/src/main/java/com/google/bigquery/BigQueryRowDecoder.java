@@ -0,0 +1,145 @@
+package com.google.bigquery;
+
+import com.google.cloud.bigquery.*;
+
+import java.math.BigDecimal;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Class to convert rows of BQ query results to Java objects. The conversion of each column is chosen once per query
+ * from the schema of the results, instead of for every value.
+ */
+public class BigQueryRowDecoder {
+
+    // Formatters are immutable and thread-safe, so they are shared by every decoder
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS zzz");
+
+    /**
+     * Interface for converting a single non-null value of a column.
+     */
+    @FunctionalInterface
+    private interface ColumnDecoder {
+
+        Object decode(FieldValue value);
+
+    }
+
+    private final ColumnDecoder[] decoders;
+
+    private BigQueryRowDecoder(ColumnDecoder[] decoders) {
+        this.decoders = decoders;
+    }
+
+    /**
+     * Chooses the conversion of every column based on the field's type
+     * @param fields from the schema of the results
+     * @return Decoder for rows with the given fields
+     */
+    public static BigQueryRowDecoder compile(FieldList fields) {
+        ZoneId zoneId = ZoneId.systemDefault();
+
+        ColumnDecoder[] decoders = new ColumnDecoder[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            decoders[i] = compileColumn(fields.get(i), zoneId);
+        }
+        return new BigQueryRowDecoder(decoders);
+    }
+
+    private static ColumnDecoder compileColumn(Field field, ZoneId zoneId) {
+        StandardSQLTypeName type = field.getType().getStandardType();
+
+        switch (type) {
+            case BOOL:
+                return FieldValue::getBooleanValue;
+            case FLOAT64:
+                return value -> BigDecimal.valueOf(value.getDoubleValue());
+            case INT64:
+                return FieldValue::getLongValue;
+            case NUMERIC:
+                return FieldValue::getNumericValue;
+            case STRUCT:
+                BigQueryRowDecoder subDecoder = compile(field.getSubFields());
+                return value -> subDecoder.decode(value.getRecordValue());
+            case DATE:
+                return value -> toDate(LocalDate.parse(value.getStringValue()).atStartOfDay(), zoneId);
+            case DATETIME:
+                return value -> toDate(LocalDateTime.parse(value.getStringValue()), zoneId);
+            case TIME:
+                return value -> toDate(LocalTime.parse(value.getStringValue()).atDate(LocalDate.ofEpochDay(0)), zoneId);
+            case TIMESTAMP:
+                return BigQueryRowDecoder::decodeTimestamp;
+            case STRING:
+                return FieldValue::getStringValue;
+            default:
+                // Handle unknown/unsupported types as String
+                System.err.println("Warning: Unsupported type: " + type.name());
+                return FieldValue::getStringValue;
+        }
+    }
+
+    /**
+     * Converts each value of a row to Java objects
+     * @param values from query results
+     * @return List of objects parsed from query results
+     */
+    public List<Object> decode(FieldValueList values) {
+        List<Object> results = new ArrayList<Object>(decoders.length);
+        for (int i = 0; i < decoders.length; i++) {
+            FieldValue value = values.get(i);
+
+            Object result;
+            if (value.isNull()) {
+                result = null;
+            } else {
+                try {
+                    result = decoders[i].decode(value);
+                } catch (DateTimeParseException e) {
+                    result = Optional.empty();
+                }
+            }
+
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Converts each value of a row to the string returned by BQ
+     * @param values from query results
+     * @return List of raw values
+     */
+    public List<String> decodeRaw(FieldValueList values) {
+        List<String> rawResults = new ArrayList<String>(decoders.length);
+        for (int i = 0; i < decoders.length; i++) {
+            FieldValue value = values.get(i);
+
+            if (value.isNull()) {
+                rawResults.add(null);
+            } else if (value.getAttribute() == FieldValue.Attribute.PRIMITIVE) {
+                rawResults.add(value.getStringValue());
+            } else {
+                rawResults.add(value.getValue().toString());
+            }
+        }
+        return rawResults;
+    }
+
+    /**
+     * BQ returns timestamps as seconds since the epoch, but formatted timestamps are accepted as well
+     */
+    private static Object decodeTimestamp(FieldValue value) {
+        String timestamp = value.getStringValue();
+        if (timestamp.indexOf(' ') == -1) {
+            return new Date(value.getTimestampValue() / 1000);
+        }
+        return Date.from(ZonedDateTime.parse(timestamp, TIMESTAMP_FORMATTER).toInstant());
+    }
+
+    private static Date toDate(LocalDateTime dateTime, ZoneId zoneId) {
+        return Date.from(dateTime.atZone(zoneId).toInstant());
+    }
+
+}
@@ -0,0 +1,203 @@
+package com.google.bigquery;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Class to write result rows in a compact binary format and read them back. Every value starts with a one byte type
+ * tag, integers are written as variable-length integers and strings as UTF-8.
+ */
+public class BinaryRowFormat {
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_FALSE = 1;
+    private static final byte TAG_TRUE = 2;
+    private static final byte TAG_LONG = 3;
+    private static final byte TAG_DECIMAL = 4;
+    private static final byte TAG_STRING = 5;
+    private static final byte TAG_DATE = 6;
+    private static final byte TAG_EMPTY = 7;
+    private static final byte TAG_LIST = 8;
+
+    private BinaryRowFormat() {
+    }
+
+    /**
+     * Writes the raw and parsed values of a row
+     * @param output to write to
+     * @param rawRow Values as returned by the data warehouse
+     * @param row Values parsed to Java objects
+     * @throws IOException
+     * @throws IllegalArgumentException if a value has a type which can't be written
+     */
+    public static void writeRow(DataOutput output, List<String> rawRow, List<Object> row) throws IOException {
+        writeVarLong(output, rawRow.size());
+        for (String rawValue : rawRow) {
+            writeNullableString(output, rawValue);
+        }
+        writeValue(output, row);
+    }
+
+    /**
+     * Reads a row written by {@link #writeRow(DataOutput, List, List)} and hands it to the consumer
+     * @param input to read from
+     * @param consumer of the row
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    @SuppressWarnings("unchecked")
+    public static void readRow(DataInput input, ResultRowConsumer consumer) throws IOException, InterruptedException {
+        int rawSize = (int) readVarLong(input);
+        List<String> rawRow = new ArrayList<String>(rawSize);
+        for (int i = 0; i < rawSize; i++) {
+            rawRow.add(readNullableString(input));
+        }
+        consumer.accept(rawRow, (List<Object>) readValue(input));
+    }
+
+    /**
+     * Writes a value produced by the row decoders
+     * @param output to write to
+     * @param value to write
+     * @throws IOException
+     * @throws IllegalArgumentException if the value has a type which can't be written
+     */
+    public static void writeValue(DataOutput output, Object value) throws IOException {
+        if (value == null) {
+            output.writeByte(TAG_NULL);
+        } else if (value instanceof Boolean) {
+            output.writeByte((Boolean) value ? TAG_TRUE : TAG_FALSE);
+        } else if (value instanceof Long) {
+            output.writeByte(TAG_LONG);
+            writeVarLong(output, zigZag((Long) value));
+        } else if (value instanceof BigDecimal) {
+            BigDecimal decimal = (BigDecimal) value;
+            byte[] unscaledValue = decimal.unscaledValue().toByteArray();
+            output.writeByte(TAG_DECIMAL);
+            writeVarLong(output, zigZag(decimal.scale()));
+            writeVarLong(output, unscaledValue.length);
+            output.write(unscaledValue);
+        } else if (value instanceof String) {
+            output.writeByte(TAG_STRING);
+            writeString(output, (String) value);
+        } else if (value instanceof Date) {
+            output.writeByte(TAG_DATE);
+            writeVarLong(output, zigZag(((Date) value).getTime()));
+        } else if (value instanceof Optional && !((Optional<?>) value).isPresent()) {
+            // Values which couldn't be parsed
+            output.writeByte(TAG_EMPTY);
+        } else if (value instanceof List) {
+            List<?> values = (List<?>) value;
+            output.writeByte(TAG_LIST);
+            writeVarLong(output, values.size());
+            for (Object element : values) {
+                writeValue(output, element);
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported value type: " + value.getClass().getName());
+        }
+    }
+
+    /**
+     * Reads a value written by {@link #writeValue(DataOutput, Object)}
+     * @param input to read from
+     * @return Value
+     * @throws IOException if the input is not in the binary row format
+     */
+    public static Object readValue(DataInput input) throws IOException {
+        byte tag = input.readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_FALSE:
+                return false;
+            case TAG_TRUE:
+                return true;
+            case TAG_LONG:
+                return unZigZag(readVarLong(input));
+            case TAG_DECIMAL:
+                int scale = (int) unZigZag(readVarLong(input));
+                byte[] unscaledValue = new byte[(int) readVarLong(input)];
+                input.readFully(unscaledValue);
+                return new BigDecimal(new BigInteger(unscaledValue), scale);
+            case TAG_STRING:
+                return readString(input);
+            case TAG_DATE:
+                return new Date(unZigZag(readVarLong(input)));
+            case TAG_EMPTY:
+                return Optional.empty();
+            case TAG_LIST:
+                int size = (int) readVarLong(input);
+                List<Object> values = new ArrayList<Object>(size);
+                for (int i = 0; i < size; i++) {
+                    values.add(readValue(input));
+                }
+                return values;
+            default:
+                throw new IOException("Unknown value type tag: " + tag);
+        }
+    }
+
+    public static void writeNullableString(DataOutput output, String value) throws IOException {
+        if (value == null) {
+            output.writeByte(TAG_NULL);
+        } else {
+            output.writeByte(TAG_STRING);
+            writeString(output, value);
+        }
+    }
+
+    public static String readNullableString(DataInput input) throws IOException {
+        return input.readByte() == TAG_NULL ? null : readString(input);
+    }
+
+    private static void writeString(DataOutput output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(output, bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInput input) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(input)];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a non-negative value using 7 bits per byte, so small values take a single byte
+     */
+    public static void writeVarLong(DataOutput output, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    public static long readVarLong(DataInput input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = input.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer.");
+    }
+
+    // Maps signed values to unsigned ones, so values close to 0 stay small
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+}
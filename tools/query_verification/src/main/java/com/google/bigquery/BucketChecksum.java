@@ -0,0 +1,30 @@
+package com.google.bigquery;
+
+import com.google.auto.value.AutoValue;
+
+import java.math.BigDecimal;
+
+/**
+ * Value class for the checksum of a bucket of query results. Rows belong to the bucket when their row hash modulo
+ * the bucket count equals the bucket's remainder.
+ */
+@AutoValue
+public abstract class BucketChecksum {
+
+    public abstract long remainder();
+    public abstract long rowCount();
+    public abstract BigDecimal checksum();
+
+    public static BucketChecksum create(long remainder, long rowCount, BigDecimal checksum) {
+        return new AutoValue_BucketChecksum(remainder, rowCount, checksum);
+    }
+
+    /**
+     * @param other Checksum of the same bucket from the other data warehouse service
+     * @return Whether both buckets have the same row count and checksum
+     */
+    public boolean matches(BucketChecksum other) {
+        return rowCount() == other.rowCount() && checksum().compareTo(other.checksum()) == 0;
+    }
+
+}
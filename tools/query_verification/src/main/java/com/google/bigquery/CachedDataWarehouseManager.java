@@ -0,0 +1,330 @@
+package com.google.bigquery;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Class to cache the results of another data warehouse on disk, so unchanged statements are replayed from disk on
+ * later runs. Results are keyed by a hash of the warehouse name, schema, data files, statement and every statement
+ * modifying the tables before it. Only read-only statements are cached, statements modifying the tables always run so
+ * the statements after them see their effects. Tables are only set up once a statement has to run. Statements which
+ * fail aren't cached, since the warehouse reports lost connections, timeouts and quota errors like any other error.
+ */
+public class CachedDataWarehouseManager implements DataWarehouseManager {
+
+    public static final String CACHE_FOLDER = "cache";
+
+    private static final int MAGIC = 0x51564331; // QVC1
+    private static final byte ROW = 1;
+    private static final byte END_OF_ROWS = 0;
+
+    /**
+     * Interface for writing a cache entry.
+     */
+    @FunctionalInterface
+    private interface CacheWriter<T> {
+
+        T write(DataOutputStream output) throws Exception;
+
+    }
+
+    /**
+     * Interface for reading a cache entry.
+     */
+    @FunctionalInterface
+    private interface CacheReader<T> {
+
+        T read(DataInputStream input) throws IOException, InterruptedException;
+
+    }
+
+    /**
+     * Interface for running a statement against the other data warehouse.
+     */
+    @FunctionalInterface
+    private interface StatementRunner<T> {
+
+        T run() throws Exception;
+
+    }
+
+    private final DataWarehouseManager delegate;
+    private final QueryVerificationQuery query;
+    private final Path cacheFolder;
+
+    // Hash of everything besides the statement which the results depend on, including the statements which modified
+    // the tables so far
+    private volatile String fingerprint;
+
+    // Checksums and row hashes depend on the tolerance numbers are rounded to
+    private volatile BigDecimal checksumTolerance = QueryVerifier.DEFAULT_TOLERANCE;
+
+    private boolean isSetup = false;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    public CachedDataWarehouseManager(DataWarehouseManager delegate, QueryVerificationQuery query, QueryVerificationSchema schema, List<QueryVerificationData> data) throws IOException {
+        this(delegate, query, schema, data, CsvResultWriter.getOutputDirectory().resolve(CACHE_FOLDER));
+    }
+
+    public CachedDataWarehouseManager(DataWarehouseManager delegate, QueryVerificationQuery query, QueryVerificationSchema schema, List<QueryVerificationData> data, Path cacheFolder) throws IOException {
+        this.delegate = delegate;
+        this.query = query;
+        this.cacheFolder = cacheFolder;
+        this.fingerprint = getFingerprint(delegate.getName(), schema, data);
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public StatementSplitter.Dialect getDialect() {
+        return delegate.getDialect();
+    }
+
+    @Override
+    public void setChecksumTolerance(BigDecimal tolerance) {
+        checksumTolerance = tolerance;
+        delegate.setChecksumTolerance(tolerance);
+    }
+
+    @Override
+    public StatementStatistics getStatementStatistics(String statement) {
+        return delegate.getStatementStatistics(statement);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseMillis() {
+        return delegate.getPhaseMillis();
+    }
+
+    /**
+     * Tables are set up once the first statement isn't found in the cache
+     */
+    @Override
+    public void setupTables() {
+    }
+
+    /**
+     * Reuses the tables of the other data warehouse if they still exist, so they don't collide with the tables created
+     * once a statement isn't cached
+     */
+    @Override
+    public synchronized boolean reuseTables() throws Exception {
+        isSetup = delegate.reuseTables();
+        return isSetup;
+    }
+
+    @Override
+    public synchronized void cleanupTables() {
+        if (isSetup) {
+            delegate.cleanupTables();
+            isSetup = false;
+        }
+
+        System.out.printf("%s results cache: %d statements replayed from disk, %d statements run\n", getName(), hits.get(), misses.get());
+    }
+
+    @Override
+    public List<String> getStatementsFromQuery() {
+        return delegate.getStatementsFromQuery();
+    }
+
+    @Override
+    public QueryJobResults runQuery(String statement, ResultRowConsumer consumer) throws Exception {
+        if (!QueryVerifier.isReadOnly(statement)) {
+            return runModifyingStatement(statement, () -> delegate.runQuery(statement, consumer));
+        }
+        return getOrRunRows(getKey("query", statement), statement, consumer, cachingConsumer -> delegate.runQuery(statement, cachingConsumer));
+    }
+
+    @Override
+    public QueryJobResults runBucketQuery(String statement, long modulus, Collection<Long> remainders, ResultRowConsumer consumer) throws Exception {
+        if (!QueryVerifier.isReadOnly(statement)) {
+            return runModifyingStatement(statement, () -> delegate.runBucketQuery(statement, modulus, remainders, consumer));
+        }
+        return getOrRunRows(getKey("bucketQuery " + checksumTolerance.toPlainString() + " " + modulus + " " + new TreeSet<Long>(remainders), statement), statement, consumer, cachingConsumer -> delegate.runBucketQuery(statement, modulus, remainders, cachingConsumer));
+    }
+
+    @Override
+    public QueryChecksum runChecksumQuery(String statement) throws Exception {
+        if (!QueryVerifier.isReadOnly(statement)) {
+            return runModifyingStatement(statement, () -> delegate.runChecksumQuery(statement));
+        }
+        return getOrRun(getKey("checksum " + checksumTolerance.toPlainString(), statement), input -> {
+            String error = BinaryRowFormat.readNullableString(input);
+            long rowCount = input.readLong();
+            BigDecimal checksum = (BigDecimal) BinaryRowFormat.readValue(input);
+            return QueryChecksum.create(statement, error, rowCount, checksum);
+        }, checksum -> checksum.error() == null, output -> {
+            QueryChecksum checksum = delegate.runChecksumQuery(statement);
+            BinaryRowFormat.writeNullableString(output, checksum.error());
+            output.writeLong(checksum.rowCount());
+            BinaryRowFormat.writeValue(output, checksum.checksum());
+            return checksum;
+        });
+    }
+
+    @Override
+    public List<BucketChecksum> runBucketChecksumQuery(String statement, long parentModulus, Collection<Long> parentRemainders, long modulus) throws Exception {
+        if (!QueryVerifier.isReadOnly(statement)) {
+            return runModifyingStatement(statement, () -> delegate.runBucketChecksumQuery(statement, parentModulus, parentRemainders, modulus));
+        }
+        return getOrRun(getKey("bucketChecksum " + checksumTolerance.toPlainString() + " " + parentModulus + " " + new TreeSet<Long>(parentRemainders) + " " + modulus, statement), input -> {
+            int size = input.readInt();
+            List<BucketChecksum> checksums = new ArrayList<BucketChecksum>(size);
+            for (int i = 0; i < size; i++) {
+                checksums.add(BucketChecksum.create(input.readLong(), input.readLong(), (BigDecimal) BinaryRowFormat.readValue(input)));
+            }
+            return checksums;
+        }, checksums -> true, output -> {
+            List<BucketChecksum> checksums = delegate.runBucketChecksumQuery(statement, parentModulus, parentRemainders, modulus);
+            output.writeInt(checksums.size());
+            for (BucketChecksum checksum : checksums) {
+                output.writeLong(checksum.remainder());
+                output.writeLong(checksum.rowCount());
+                BinaryRowFormat.writeValue(output, checksum.checksum());
+            }
+            return checksums;
+        });
+    }
+
+    /**
+     * @return Number of statements replayed from the cache
+     */
+    public int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return Number of statements run against the data warehouse
+     */
+    public int getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Runs a statement which may modify the tables without caching it, and chains it into the keys of the statements
+     * after it, so their cached results are only replayed if the same statements modified the tables before
+     */
+    private <T> T runModifyingStatement(String statement, StatementRunner<T> runner) throws Exception {
+        misses.incrementAndGet();
+        ensureSetup();
+        try {
+            return runner.run();
+        } finally {
+            // Failed statements are chained as well, since they may have modified the tables partially
+            synchronized (this) {
+                fingerprint = Fingerprints.hash(fingerprint, "modify", statement);
+            }
+        }
+    }
+
+    /**
+     * Replays the rows of a cached statement, or runs the statement and writes its rows to the cache while they are
+     * handed to the consumer
+     */
+    private QueryJobResults getOrRunRows(String key, String statement, ResultRowConsumer consumer, QueryResultPipeline.ResultSource run) throws Exception {
+        return getOrRun(key, input -> {
+            String error = BinaryRowFormat.readNullableString(input);
+            while (input.readByte() == ROW) {
+                BinaryRowFormat.readRow(input, consumer);
+            }
+            return QueryJobResults.create(statement, query, error, null, null);
+        }, jobResults -> jobResults.error() == null, output -> {
+            // Error comes first in the file, so rows are buffered in a separate file until the statement completes
+            Path rowsFile = Files.createTempFile(cacheFolder, "rows", ".tmp");
+            try {
+                QueryJobResults jobResults;
+                try (DataOutputStream rowsOutput = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(rowsFile), CsvResultWriter.BUFFER_SIZE))) {
+                    jobResults = run.run((rawRow, row) -> {
+                        try {
+                            rowsOutput.writeByte(ROW);
+                            BinaryRowFormat.writeRow(rowsOutput, rawRow, row);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        consumer.accept(rawRow, row);
+                    });
+                    rowsOutput.writeByte(END_OF_ROWS);
+                }
+
+                BinaryRowFormat.writeNullableString(output, jobResults.error());
+                Files.copy(rowsFile, output);
+                return jobResults;
+            } finally {
+                Files.deleteIfExists(rowsFile);
+            }
+        });
+    }
+
+    /**
+     * Reads a cache entry if it exists, or runs the statement and writes the cache entry atomically once it succeeds
+     * @param isCacheable Whether the outcome of the statement is kept, the entry is discarded otherwise
+     */
+    private <T> T getOrRun(String key, CacheReader<T> reader, Predicate<T> isCacheable, CacheWriter<T> writer) throws Exception {
+        Path cacheFile = cacheFolder.resolve(key + ".bin");
+
+        if (Files.isRegularFile(cacheFile)) {
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile), CsvResultWriter.BUFFER_SIZE))) {
+                if (input.readInt() == MAGIC) {
+                    hits.incrementAndGet();
+                    return reader.read(input);
+                }
+            }
+        }
+
+        misses.incrementAndGet();
+        ensureSetup();
+        Files.createDirectories(cacheFolder);
+
+        Path tempFile = Files.createTempFile(cacheFolder, key, ".tmp");
+        try {
+            T result;
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile), CsvResultWriter.BUFFER_SIZE))) {
+                output.writeInt(MAGIC);
+                result = writer.write(output);
+            }
+            if (isCacheable.test(result)) {
+                Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return result;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private synchronized void ensureSetup() throws Exception {
+        if (!isSetup) {
+            // Tables are cleaned up even if setting them up fails midway
+            isSetup = true;
+            delegate.setupTables();
+        }
+    }
+
+    private String getKey(String operation, String statement) {
+        return Fingerprints.hash(fingerprint, operation, statement);
+    }
+
+    /**
+     * Hashes the warehouse name, schema and data files
+     */
+    private static String getFingerprint(String name, QueryVerificationSchema schema, List<QueryVerificationData> data) throws IOException {
+        List<String> parts = new ArrayList<String>();
+        parts.add(name);
+        parts.add(schema == null ? null : schema.schema());
+        parts.addAll(Fingerprints.describeDataFiles(data));
+        return Fingerprints.hash(parts.toArray(new String[0]));
+    }
+
+}
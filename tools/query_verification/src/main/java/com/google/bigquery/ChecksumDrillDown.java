@@ -0,0 +1,88 @@
+package com.google.bigquery;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Localizes the differences between the results of two statements by recursively comparing the checksums of buckets
+ * of rows, so only the rows in mismatching buckets have to be fetched.
+ */
+public class ChecksumDrillDown {
+
+    // Row hashes are 32-bit integers, so buckets can't be split any further once the modulus reaches 2^32
+    private static final long MAX_MODULUS = 1L << 32;
+
+    private final DataWarehouseManager migratedInstance;
+    private final DataWarehouseManager originalInstance;
+
+    private final int buckets;
+    private final long maxRows;
+
+    /**
+     * @param migratedInstance Data warehouse service running the migrated statements
+     * @param originalInstance Data warehouse service running the original statements
+     * @param buckets Number of buckets each mismatching bucket is split into
+     * @param maxRows Number of rows in mismatching buckets at which to stop splitting
+     */
+    public ChecksumDrillDown(DataWarehouseManager migratedInstance, DataWarehouseManager originalInstance, int buckets, long maxRows) {
+        this.migratedInstance = migratedInstance;
+        this.originalInstance = originalInstance;
+        this.buckets = buckets;
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * Splits the results into buckets and keeps splitting only the buckets whose checksums differ, until the
+     * mismatching buckets contain few enough rows to fetch.
+     * @param migratedStatement Statement run by BQ
+     * @param originalStatement Statement run by the original data warehouse service
+     * @return Buckets containing every difference, or null if most buckets differ and the differences can't be localized
+     * @throws Exception
+     */
+    @Nullable
+    public MismatchingBuckets findMismatchingBuckets(String migratedStatement, String originalStatement) throws Exception {
+        long modulus = 1;
+        Set<Long> remainders = Collections.singleton(0L);
+        long rowCount;
+
+        do {
+            long childModulus = modulus * buckets;
+
+            Map<Long, BucketChecksum> migratedChecksums = getChecksumsByRemainder(migratedInstance.runBucketChecksumQuery(migratedStatement, modulus, remainders, childModulus));
+            Map<Long, BucketChecksum> originalChecksums = getChecksumsByRemainder(originalInstance.runBucketChecksumQuery(originalStatement, modulus, remainders, childModulus));
+
+            // Empty buckets aren't returned, so a bucket missing on one side mismatches as well
+            Set<Long> childRemainders = new TreeSet<Long>(migratedChecksums.keySet());
+            childRemainders.addAll(originalChecksums.keySet());
+
+            Set<Long> mismatchingRemainders = new TreeSet<Long>();
+            rowCount = 0;
+            for (Long remainder : childRemainders) {
+                BucketChecksum migratedChecksum = migratedChecksums.get(remainder);
+                BucketChecksum originalChecksum = originalChecksums.get(remainder);
+
+                if (migratedChecksum == null || originalChecksum == null || !migratedChecksum.matches(originalChecksum)) {
+                    mismatchingRemainders.add(remainder);
+                    rowCount += Math.max(migratedChecksum == null ? 0 : migratedChecksum.rowCount(), originalChecksum == null ? 0 : originalChecksum.rowCount());
+                }
+            }
+
+            // Splitting further doesn't reduce the rows to fetch when most of the buckets differ
+            if (mismatchingRemainders.isEmpty() || mismatchingRemainders.size() > remainders.size() * buckets / 2) {
+                return null;
+            }
+
+            modulus = childModulus;
+            remainders = mismatchingRemainders;
+        } while (rowCount > maxRows && modulus * buckets <= MAX_MODULUS);
+
+        return MismatchingBuckets.create(modulus, remainders, rowCount);
+    }
+
+    private static Map<Long, BucketChecksum> getChecksumsByRemainder(List<BucketChecksum> checksums) {
+        Map<Long, BucketChecksum> checksumsByRemainder = new HashMap<Long, BucketChecksum>();
+        checksums.forEach(checksum -> checksumsByRemainder.put(checksum.remainder(), checksum));
+        return checksumsByRemainder;
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.google.bigquery;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Class to plan the order in which statements are verified based on the bytes they are estimated to process. Cheap
+ * statements are verified first and concurrently, heavier statements one at a time, and statements which would exceed
+ * the byte budget are only compared by the checksums of a sample of their results. Only read-only statements are
+ * reordered, and only between statements which may modify data, since later statements may depend on those changes.
+ */
+public class CostAwareScheduler {
+
+    // Statements estimated to process at most this many bytes are run concurrently
+    public static final long DEFAULT_CHEAP_BYTES = 1L << 30;
+
+    // Number of cheap statements verified at the same time
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    private static final String[] BYTE_UNITS = {"B", "KB", "MB", "GB", "TB", "PB"};
+
+    private final long budgetBytes;
+    private final long cheapBytes;
+
+    /**
+     * @param budgetBytes Total bytes the statements whose results are fetched may process
+     * @param cheapBytes Largest number of bytes a statement run concurrently may process
+     */
+    public CostAwareScheduler(long budgetBytes, long cheapBytes) {
+        this.budgetBytes = budgetBytes;
+        this.cheapBytes = cheapBytes;
+    }
+
+    /**
+     * Orders each run of consecutive read-only statements by their estimated bytes processed. Statements without an
+     * estimate (e.g. because they are invalid) are considered free, since they fail without processing any data.
+     * Statements which may modify data are verified one at a time in their original position, even if they exceed the
+     * byte budget, and their bytes count against the budget.
+     * @param estimatedBytes Estimated bytes processed of every statement, or null if unknown
+     * @param readOnly Whether every statement only reads data, see {@link QueryVerifier#isReadOnly(String)}
+     * @return Statements in the order they should be verified
+     */
+    public List<ScheduledStatement> plan(List<Long> estimatedBytes, List<Boolean> readOnly) {
+        List<ScheduledStatement> plan = new ArrayList<ScheduledStatement>();
+        List<Integer> readOnlyIndexes = new ArrayList<Integer>();
+        long plannedBytes = 0;
+        for (int i = 0; i <= estimatedBytes.size(); i++) {
+            if (i < estimatedBytes.size() && readOnly.get(i)) {
+                readOnlyIndexes.add(i);
+                continue;
+            }
+
+            readOnlyIndexes.sort(Comparator.comparingLong(index -> getBytes(estimatedBytes.get(index))));
+            for (int index : readOnlyIndexes) {
+                long bytes = getBytes(estimatedBytes.get(index));
+
+                ScheduledStatement.Mode mode;
+                if (plannedBytes + bytes > budgetBytes) {
+                    mode = ScheduledStatement.Mode.CHECKSUM;
+                } else {
+                    plannedBytes += bytes;
+                    mode = bytes <= cheapBytes ? ScheduledStatement.Mode.CONCURRENT : ScheduledStatement.Mode.SEQUENTIAL;
+                }
+                plan.add(ScheduledStatement.create(index, estimatedBytes.get(index), mode));
+            }
+            readOnlyIndexes.clear();
+
+            if (i < estimatedBytes.size()) {
+                plannedBytes += getBytes(estimatedBytes.get(i));
+                plan.add(ScheduledStatement.create(i, estimatedBytes.get(i), ScheduledStatement.Mode.SEQUENTIAL));
+            }
+        }
+        return plan;
+    }
+
+    private static long getBytes(Long estimatedBytes) {
+        return estimatedBytes == null ? 0 : estimatedBytes;
+    }
+
+    /**
+     * @param bytes to format
+     * @return Bytes in the largest unit in which they are at least 1, e.g. "1.50 GB"
+     */
+    public static String formatBytes(long bytes) {
+        double value = bytes;
+        int unit = 0;
+        while (value >= 1024 && unit < BYTE_UNITS.length - 1) {
+            value /= 1024;
+            unit++;
+        }
+        return unit == 0 ? bytes + " B" : String.format("%.2f %s", value, BYTE_UNITS[unit]);
+    }
+
+}
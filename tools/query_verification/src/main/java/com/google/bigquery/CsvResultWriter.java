@@ -0,0 +1,98 @@
+package com.google.bigquery;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Class to write rows of query results to a buffered, optionally gzipped, CSV file. The file is only created once
+ * the first row is written, so no file is created for empty results.
+ */
+public class CsvResultWriter implements Closeable {
+
+    public static final String OUTPUT_DIRECTORY = "query_verification_output";
+
+    // System property overriding the output directory, e.g. so tests don't overwrite the output of verifications
+    public static final String OUTPUT_DIRECTORY_PROPERTY = "query_verification.output";
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final boolean gzip;
+
+    private Writer writer;
+
+    /**
+     * @param folderName Folder in the output directory to write the file to
+     * @param index Index of the statement in the query file
+     * @param fileNameSuffix Suffix appended to the file name
+     * @param gzip Whether to compress the file
+     */
+    public CsvResultWriter(String folderName, int index, String fileNameSuffix, boolean gzip) {
+        // Filepath for each query is "output/[data_warehouse_name]/query[id].csv"
+        this.path = getOutputDirectory().resolve(folderName).resolve(String.format("query%d%s.csv%s", index + 1, fileNameSuffix, gzip ? ".gz" : ""));
+        this.gzip = gzip;
+    }
+
+    /**
+     * Converts the row to a CSV row and writes it to the file
+     * @param row Values of the row
+     * @throws IOException
+     */
+    public void write(List<String> row) throws IOException {
+        if (writer == null) {
+            OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE);
+            if (gzip) {
+                outputStream = new GZIPOutputStream(outputStream, BUFFER_SIZE);
+            }
+            writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        }
+
+        writer.write(String.join(",", row));
+        writer.write(System.lineSeparator());
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    /**
+     * @return Directory results, diffs, reports and caches are written to, which is {@link #OUTPUT_DIRECTORY} unless
+     * the {@link #OUTPUT_DIRECTORY_PROPERTY} system property is set
+     */
+    public static Path getOutputDirectory() {
+        return Paths.get(System.getProperty(OUTPUT_DIRECTORY_PROPERTY, OUTPUT_DIRECTORY));
+    }
+
+    /**
+     * Deletes CSV files previously generated by query verification and creates the folder if needed
+     * @param folderName Folder in the output directory
+     * @param fileNameSuffix Suffix of the file names to delete
+     * @throws IOException
+     */
+    public static void prepareOutputFolder(String folderName, String fileNameSuffix) throws IOException {
+        Path csvOutputDirectory = getOutputDirectory().resolve(folderName);
+
+        if (csvOutputDirectory.toFile().exists()) {
+            // Clear out old output files in the same path
+            try (Stream<Path> subPaths = Files.walk(csvOutputDirectory)) {
+                subPaths.forEach(subPath -> {
+                    // Delete files previously generated by query verification
+                    if (subPath.getFileName().toString().matches("query\\d+" + fileNameSuffix + "\\.csv(\\.gz)?")) {
+                        subPath.toFile().delete();
+                    }
+                });
+            }
+        }
+        Files.createDirectories(csvOutputDirectory);
+    }
+
+}
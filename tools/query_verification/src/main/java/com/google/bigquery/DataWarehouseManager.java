@@ -1,6 +1,14 @@
 package com.google.bigquery;
 
+import javax.annotation.Nullable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Interface for classes to communicate with their data warehouse service.
@@ -9,6 +17,155 @@ public interface DataWarehouseManager {
 
     String getName();
 
-    List<QueryJobResults> runQueries() throws Exception;
+    /**
+     * @return Dialect used to split the query file into statements
+     */
+    StatementSplitter.Dialect getDialect();
+
+    /**
+     * Creates the tables from the schema and populates them with the provided data
+     * @throws Exception
+     */
+    void setupTables() throws Exception;
+
+    /**
+     * Deletes the tables created by {@link #setupTables()}
+     */
+    void cleanupTables();
+
+    /**
+     * Looks up the tables of the schema left behind by a previous verification, so they don't have to be created and
+     * loaded again. Existing tables are only reused if every table exists, and are then deleted by
+     * {@link #cleanupTables()}. Otherwise, existing tables are deleted so {@link #setupTables()} can create them.
+     * @return Whether the existing tables are reused instead of calling {@link #setupTables()}
+     * @throws Exception
+     */
+    default boolean reuseTables() throws Exception {
+        return false;
+    }
+
+    /**
+     * Sets the tolerance which checksum and bucket queries round numbers to before hashing rows, so checksums match
+     * whenever the rows compared with the same tolerance would
+     * @param tolerance Numbers are rounded to its nearest multiple, or to the scale of BigQuery's NUMERIC type if it is 0
+     */
+    default void setChecksumTolerance(BigDecimal tolerance) {
+    }
+
+    /**
+     * @return Individual statements from the query file
+     */
+    List<String> getStatementsFromQuery();
+
+    /**
+     * Runs a single statement against tables created by {@link #setupTables()}, handing every row to the consumer
+     * while the results are read
+     * @param statement to run
+     * @param consumer of the result rows
+     * @return Statement with the error returned by the data warehouse service, if any. Rows are only passed to the consumer.
+     * @throws Exception
+     */
+    QueryJobResults runQuery(String statement, ResultRowConsumer consumer) throws Exception;
+
+    /**
+     * Runs a single statement wrapped in a checksum query, so only the row count and an order-independent hash
+     * aggregate of the results are returned by the data warehouse service
+     * @param statement to checksum
+     * @return Checksum of the statement's results, or the error returned by the data warehouse service
+     * @throws Exception
+     */
+    QueryChecksum runChecksumQuery(String statement) throws Exception;
+
+    /**
+     * Splits the results of a statement into buckets by their row hash and checksums each bucket. Only rows whose row
+     * hash modulo the parent modulus is one of the parent remainders are included.
+     * @param statement to checksum
+     * @param parentModulus of the buckets being split
+     * @param parentRemainders of the buckets being split
+     * @param modulus of the new buckets, a multiple of the parent modulus
+     * @return Checksums of the non-empty buckets
+     * @throws Exception
+     */
+    List<BucketChecksum> runBucketChecksumQuery(String statement, long parentModulus, Collection<Long> parentRemainders, long modulus) throws Exception;
+
+    /**
+     * Runs a statement, only handing the rows whose row hash modulo the modulus is one of the remainders to the consumer
+     * @param statement to run
+     * @param modulus of the buckets
+     * @param remainders of the buckets to fetch
+     * @param consumer of the result rows
+     * @return Statement with the error returned by the data warehouse service, if any. Rows are only passed to the consumer.
+     * @throws Exception
+     */
+    QueryJobResults runBucketQuery(String statement, long modulus, Collection<Long> remainders, ResultRowConsumer consumer) throws Exception;
+
+    /**
+     * Estimates the bytes a statement would process without running it, which requires the tables to be set up
+     * @param statement to estimate
+     * @return Estimated bytes processed, or null if the data warehouse service can't estimate them
+     * @throws Exception
+     */
+    @Nullable
+    default Long estimateBytesProcessed(String statement) throws Exception {
+        return null;
+    }
+
+    /**
+     * @param statement which was run
+     * @return Statistics of every job run for the statement so far, or null if none were recorded
+     */
+    @Nullable
+    default StatementStatistics getStatementStatistics(String statement) {
+        return null;
+    }
+
+    /**
+     * @param statement which was run
+     * @return Bytes processed by every job run for the statement so far, or null if the data warehouse service doesn't
+     * report them
+     */
+    @Nullable
+    default Long getBytesProcessed(String statement) {
+        StatementStatistics statistics = getStatementStatistics(statement);
+        return statistics == null ? null : statistics.bytesProcessed();
+    }
+
+    /**
+     * @return Milliseconds spent in each phase of setting up and cleaning up the tables
+     */
+    default Map<String, Long> getPhaseMillis() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Sets up tables, runs every statement from the query file and cleans up the tables
+     * @return List of query results
+     * @throws Exception
+     */
+    default List<QueryJobResults> runQueries() throws Exception {
+        setupTables();
+        try {
+            // Store results from every job
+            List<QueryJobResults> jobResults = new ArrayList<QueryJobResults>();
+            for (String statement : getStatementsFromQuery()) {
+                List<List<String>> rawResults = new ArrayList<List<String>>();
+                Set<List<Object>> results = new HashSet<List<Object>>();
+
+                QueryJobResults jobResult = runQuery(statement, (rawRow, row) -> {
+                    rawResults.add(rawRow);
+                    results.add(row);
+                });
+
+                if (jobResult.error() == null) {
+                    jobResult = QueryJobResults.create(statement, jobResult.query(), null, results, rawResults);
+                }
+                jobResults.add(jobResult);
+            }
+            return jobResults;
+        } finally {
+            // Clear tables created
+            cleanupTables();
+        }
+    }
 
 }
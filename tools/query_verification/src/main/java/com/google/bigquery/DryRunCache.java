@@ -0,0 +1,160 @@
+package com.google.bigquery;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class to persist the outcome of dry runs between runs, so unchanged statements don't have to be dry-run again
+ * until their entry expires. Entries are keyed by a hash of the project, schema and statement.
+ */
+public class DryRunCache {
+
+    public static final String CACHE_FILE_NAME = "dry_runs.json";
+
+    /**
+     * Outcome of a single dry run.
+     */
+    private static class Entry {
+
+        @Nullable String error;
+        long timestamp;
+
+        Entry(String error, long timestamp) {
+            this.error = error;
+            this.timestamp = timestamp;
+        }
+
+    }
+
+    private static final Gson GSON = new Gson();
+
+    private final Path file;
+    private final Duration ttl;
+    private final Clock clock;
+    private final Map<String, Entry> entries;
+
+    private int hits = 0;
+    private int misses = 0;
+
+    public DryRunCache(Duration ttl) {
+        this(CsvResultWriter.getOutputDirectory().resolve(CachedDataWarehouseManager.CACHE_FOLDER).resolve(CACHE_FILE_NAME), ttl, Clock.systemUTC());
+    }
+
+    /**
+     * @param file storing the entries
+     * @param ttl Duration entries stay valid after their dry run
+     * @param clock to determine whether entries have expired
+     */
+    public DryRunCache(Path file, Duration ttl, Clock clock) {
+        this.file = file;
+        this.ttl = ttl;
+        this.clock = clock;
+        this.entries = load(file);
+    }
+
+    /**
+     * Hashes what a dry run depends on besides the state of the project
+     * @param projectId of the BQ project the statement is dry-run in
+     * @param schema Contents of the schema file the tables are created from
+     * @param statement to dry-run
+     * @return Key of the statement's entry
+     */
+    public static String getKey(String projectId, @Nullable String schema, String statement) {
+        return Fingerprints.hash(projectId, schema, statement);
+    }
+
+    /**
+     * @param key of the statement
+     * @return Whether an unexpired entry exists for the statement
+     */
+    public boolean contains(String key) {
+        Entry entry = entries.get(key);
+        boolean found = entry != null && clock.millis() - entry.timestamp < ttl.toMillis();
+        if (found) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return found;
+    }
+
+    /**
+     * @param key of a statement for which {@link #contains(String)} is true
+     * @return Error returned by the dry run, or null if it succeeded
+     */
+    @Nullable
+    public String getError(String key) {
+        return entries.get(key).error;
+    }
+
+    /**
+     * Records the outcome of a dry run
+     * @param key of the statement
+     * @param error returned by the dry run, or null if it succeeded
+     */
+    public void put(String key, @Nullable String error) {
+        entries.put(key, new Entry(error, clock.millis()));
+    }
+
+    /**
+     * @return Number of dry runs avoided by unexpired entries
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * @return Number of statements which had to be dry-run
+     */
+    public int getMisses() {
+        return misses;
+    }
+
+    /**
+     * Writes the unexpired entries to the cache file
+     * @throws IOException
+     */
+    public void save() throws IOException {
+        long now = clock.millis();
+        entries.values().removeIf(entry -> now - entry.timestamp >= ttl.toMillis());
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tempFile = Files.createTempFile(file.toAbsolutePath().getParent(), CACHE_FILE_NAME, ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                GSON.toJson(entries, writer);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static Map<String, Entry> load(Path file) {
+        if (Files.isRegularFile(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                Map<String, Entry> entries = GSON.fromJson(reader, new TypeToken<HashMap<String, Entry>>() {}.getType());
+                if (entries != null) {
+                    return entries;
+                }
+            } catch (IOException | JsonParseException e) {
+                // Start over with an empty cache
+                System.err.println("Ignoring unreadable dry-run cache " + file + ": " + e.getMessage());
+            }
+        }
+        return new HashMap<String, Entry>();
+    }
+
+}
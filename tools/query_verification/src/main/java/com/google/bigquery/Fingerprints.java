@@ -0,0 +1,70 @@
+package com.google.bigquery;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class to hash the inputs of a verification, so caches and checkpoints can tell whether they are still valid.
+ */
+public class Fingerprints {
+
+    private Fingerprints() {
+    }
+
+    /**
+     * Hashes a sequence of strings with SHA-256. Every part is terminated by a null character, so moving characters
+     * between parts changes the hash.
+     * @param parts to hash, null parts are hashed like empty strings
+     * @return Hex-encoded hash
+     */
+    public static String hash(String... parts) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        for (String part : parts) {
+            if (part != null) {
+                digest.update(part.getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) 0);
+        }
+
+        byte[] bytes = digest.digest();
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Identifies data files by their table, path, size and last modification time, so large files don't have to be read
+     * @param data Table data, or null
+     * @return Parts to hash for the data files
+     * @throws IOException if a data file can't be accessed
+     */
+    public static List<String> describeDataFiles(@Nullable List<QueryVerificationData> data) throws IOException {
+        List<String> parts = new ArrayList<String>();
+        if (data != null) {
+            for (QueryVerificationData tableData : data) {
+                Path path = Paths.get(tableData.path());
+                parts.add(tableData.datasetName() + "." + tableData.tableName());
+                parts.add(path.toAbsolutePath().toString());
+                parts.add(Files.size(path) + " " + Files.getLastModifiedTime(path).toMillis());
+            }
+        }
+        return parts;
+    }
+
+}
@@ -0,0 +1,539 @@
+package com.google.bigquery;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Class to run queries against an embedded in-memory H2 database, so verification can be tested and benchmarked
+ * without access to a data warehouse service. Queries have to be written in SQL supported by H2.
+ */
+public class H2Manager implements DataWarehouseManager {
+
+    private final String name;
+    private final QueryVerificationQuery query;
+    private final QueryVerificationSchema schema;
+    private final List<QueryVerificationData> data;
+
+    public static final int DEFAULT_MAX_CONNECTIONS = 4;
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+
+    // The in-memory database is dropped once its last connection is closed
+    private final JdbcConnectionPool pool;
+
+    // Tables are added as soon as they are created, so tables created before a failure are still cleaned up
+    private final List<String> tables = Collections.synchronizedList(new ArrayList<String>());
+
+    // Statistics of the statements run, timed through JDBC
+    private final Map<String, StatementStatistics> statistics = new ConcurrentHashMap<String, StatementStatistics>();
+    private final PhaseTimer phaseTimer = new PhaseTimer();
+
+    // Numbers are rounded to a multiple of the tolerance before rows are hashed
+    private volatile BigDecimal checksumTolerance = QueryVerifier.DEFAULT_TOLERANCE;
+
+    /**
+     * @param name of the database, which is also used as the name of the output folder
+     */
+    public H2Manager(String name, QueryVerificationQuery query, QueryVerificationSchema schema, List<QueryVerificationData> data) {
+        this.name = name;
+        this.query = query;
+        this.schema = schema;
+        this.data = data;
+
+        // Every instance has its own database
+        pool = new JdbcConnectionPool("jdbc:h2:mem:" + UUID.randomUUID(), "sa", "", DEFAULT_MAX_CONNECTIONS, DEFAULT_FETCH_SIZE);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public StatementSplitter.Dialect getDialect() {
+        return StatementSplitter.Dialect.STANDARD;
+    }
+
+    @Override
+    public void setupTables() throws Exception {
+        phaseTimer.time("create tables", this::createTablesFromSchema);
+        phaseTimer.time("load tables", this::populateTablesFromData);
+    }
+
+    /**
+     * Deletes the created tables and closes the connections, which drops the database
+     */
+    @Override
+    public void cleanupTables() {
+        List<String> tablesToDelete;
+        synchronized (tables) {
+            tablesToDelete = new ArrayList<String>(tables);
+            tables.clear();
+        }
+
+        try {
+            phaseTimer.time("delete tables", () -> ParallelTasks.runAll(tablesToDelete, ParallelTasks.DEFAULT_PARALLELISM, this::deleteTable));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        pool.close();
+    }
+
+    @Override
+    public List<String> getStatementsFromQuery() {
+        return StatementSplitter.splitToText(query.query(), getDialect());
+    }
+
+    /**
+     * Runs a statement against the H2 database
+     * @param statement to run
+     * @param consumer of the result rows
+     * @return Query results
+     * @throws InterruptedException
+     */
+    @Override
+    public QueryJobResults runQuery(String statement, ResultRowConsumer consumer) throws InterruptedException {
+        return runQuery(statement, statement, consumer);
+    }
+
+    /**
+     * Runs a statement against the H2 database
+     * @param statement the results are stored for
+     * @param queryToRun query which is actually run
+     * @param consumer of the result rows
+     * @return Query results
+     * @throws InterruptedException
+     */
+    private QueryJobResults runQuery(String statement, String queryToRun, ResultRowConsumer consumer) throws InterruptedException {
+        QueryJobResults jobResult;
+        long start = System.nanoTime();
+        try (JdbcConnectionPool.PooledConnection connection = pool.acquire();
+             ResultSet resultSet = connection.executeQuery(queryToRun)) {
+            long fetchStart = System.nanoTime();
+
+            // H2 returns standard JDBC types, which are parsed the same way as TD results
+            TeradataRowDecoder decoder = TeradataRowDecoder.compile(resultSet.getMetaData());
+
+            long rows = 0;
+            while (resultSet.next()) {
+                consumer.accept(decoder.decodeRaw(resultSet), decoder.decode(resultSet));
+                rows++;
+            }
+            recordStatistics(statement, fetchStart - start, System.nanoTime() - fetchStart, rows);
+
+            jobResult = QueryJobResults.create(statement, query, null, null, null);
+        } catch (SQLException e) {
+            jobResult = QueryJobResults.create(statement, query, e.getMessage(), null, null);
+        }
+
+        return jobResult;
+    }
+
+    @Override
+    public QueryChecksum runChecksumQuery(String statement) {
+        try {
+            List<Integer> columnTypes = getResultColumnTypes(statement);
+
+            long start = System.nanoTime();
+            try (JdbcConnectionPool.PooledConnection connection = pool.acquire();
+                 ResultSet resultSet = connection.executeQuery(getChecksumQuery(statement, columnTypes))) {
+                recordStatistics(statement, System.nanoTime() - start, 0, 1);
+                resultSet.next();
+                return QueryChecksum.create(statement, null, resultSet.getLong(1), resultSet.getBigDecimal(2));
+            }
+        } catch (SQLException | IllegalArgumentException e) {
+            return QueryChecksum.create(statement, e.getMessage(), 0, null);
+        }
+    }
+
+    @Override
+    public List<BucketChecksum> runBucketChecksumQuery(String statement, long parentModulus, Collection<Long> parentRemainders, long modulus) throws SQLException {
+        List<Integer> columnTypes = getResultColumnTypes(statement);
+
+        List<BucketChecksum> checksums = new ArrayList<BucketChecksum>();
+        long start = System.nanoTime();
+        try (JdbcConnectionPool.PooledConnection connection = pool.acquire();
+             ResultSet resultSet = connection.executeQuery(getBucketChecksumQuery(statement, columnTypes, parentModulus, parentRemainders, modulus))) {
+            long fetchStart = System.nanoTime();
+            while (resultSet.next()) {
+                checksums.add(BucketChecksum.create(resultSet.getLong(1), resultSet.getLong(2), resultSet.getBigDecimal(3)));
+            }
+            recordStatistics(statement, fetchStart - start, System.nanoTime() - fetchStart, checksums.size());
+        }
+        return checksums;
+    }
+
+    @Override
+    public void setChecksumTolerance(BigDecimal tolerance) {
+        checksumTolerance = tolerance;
+    }
+
+    @Override
+    public StatementStatistics getStatementStatistics(String statement) {
+        return statistics.get(statement);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseMillis() {
+        return phaseTimer.getMillis();
+    }
+
+    /**
+     * Adds the JDBC timings of a statement run to the statistics of its statement
+     * @param statement which was run
+     * @param executeNanos Time until the first results were returned
+     * @param fetchNanos Time spent reading the results
+     * @param rows Number of result rows read
+     */
+    private void recordStatistics(String statement, long executeNanos, long fetchNanos, long rows) {
+        statistics.merge(statement, StatementStatistics.ofJob(TimeUnit.NANOSECONDS.toMillis(executeNanos), TimeUnit.NANOSECONDS.toMillis(fetchNanos), rows), StatementStatistics::plus);
+    }
+
+    @Override
+    public QueryJobResults runBucketQuery(String statement, long modulus, Collection<Long> remainders, ResultRowConsumer consumer) throws SQLException, InterruptedException {
+        List<Integer> columnTypes = getResultColumnTypes(statement);
+        return runQuery(statement, getBucketQuery(statement, columnTypes, modulus, remainders), consumer);
+    }
+
+    /**
+     * Prepares the statement to find the column types of its results
+     * @param statement to prepare
+     * @return JDBC types of the statement's result columns
+     * @throws IllegalArgumentException if the statement has no results
+     */
+    private List<Integer> getResultColumnTypes(String statement) throws SQLException, IllegalArgumentException {
+        List<Integer> columnTypes = new ArrayList<Integer>();
+        try (JdbcConnectionPool.PooledConnection connection = pool.acquire()) {
+            ResultSetMetaData metadata = connection.prepareStatement(statement).getMetaData();
+
+            // Statements without results (e.g. DDL or DML) cannot be checksummed
+            if (metadata == null || metadata.getColumnCount() == 0) {
+                throw new IllegalArgumentException("Statement has no results to checksum.");
+            }
+
+            // Result set columns start at 1 instead of 0
+            for (int i = 1; i <= metadata.getColumnCount(); i++) {
+                columnTypes.add(metadata.getColumnType(i));
+            }
+        }
+        return columnTypes;
+    }
+
+    /**
+     * Creates H2 tables based on the provided schema. Statements are run in order, since DDL statements may depend on
+     * each other.
+     * @return List of newly created tables
+     */
+    public List<String> createTablesFromSchema() throws SQLException {
+        if (schema != null) {
+            List<String> ddlStatements;
+            if (schema.isInJsonFormat()) {
+                ddlStatements = generateDdlStatementsFromJsonSchema();
+            } else {
+                ddlStatements = StatementSplitter.splitToText(schema.schema(), getDialect());
+            }
+
+            try (JdbcConnectionPool.PooledConnection connection = pool.acquire()) {
+                for (String ddlStatement : ddlStatements) {
+                    List<String> createdTables = getTablesFromDdlSchema(ddlStatement);
+
+                    // Datasets are created as H2 schemas
+                    for (String table : createdTables) {
+                        if (table.contains(".")) {
+                            connection.executeUpdate("CREATE SCHEMA IF NOT EXISTS " + table.substring(0, table.lastIndexOf('.')));
+                        }
+                    }
+
+                    try {
+                        connection.executeUpdate(ddlStatement);
+                    } catch (SQLException e) {
+                        throw new IllegalArgumentException(schema.path() + " is not correctly formatted. " + e.getMessage());
+                    }
+                    tables.addAll(createdTables);
+                }
+            }
+
+            if (tables.isEmpty()) {
+                throw new IllegalArgumentException(schema.path() + " is not correctly formatted.");
+            }
+        }
+
+        synchronized (tables) {
+            return new ArrayList<String>(tables);
+        }
+    }
+
+    /**
+     * Reads JSON schema to generate equivalent DDL statements, converting BQ types to H2 types
+     * @return List of DDL statements
+     */
+    public List<String> generateDdlStatementsFromJsonSchema() {
+        List<String> ddlStatements = new ArrayList<String>();
+        for (JsonElement schemaElement : schema.getJsonArray()) {
+            JsonObject schemaObject = schemaElement.getAsJsonObject();
+
+            if (schemaObject.has("tableReference")) {
+                JsonObject tableReference = schemaObject.get("tableReference").getAsJsonObject();
+
+                if (tableReference.has("datasetId") && tableReference.has("tableId")) {
+                    List<String> columns = new ArrayList<String>();
+                    for (JsonElement fieldElement : schemaObject.getAsJsonArray("fields")) {
+                        JsonObject field = fieldElement.getAsJsonObject();
+
+                        String column = quoteIdentifier(field.get("name").getAsString()) + " " + getColumnType(field.get("type").getAsString());
+                        if (field.has("mode") && field.get("mode").getAsString().equalsIgnoreCase("REQUIRED")) {
+                            column += " NOT NULL";
+                        }
+                        columns.add(column);
+                    }
+
+                    ddlStatements.add(String.format("CREATE TABLE %s.%s (%s)", quoteIdentifier(tableReference.get("datasetId").getAsString()), quoteIdentifier(tableReference.get("tableId").getAsString()), String.join(", ", columns)));
+                }
+            }
+        }
+        return ddlStatements;
+    }
+
+    /**
+     * @param type of a BQ column
+     * @return Equivalent H2 column type
+     */
+    private static String getColumnType(String type) {
+        switch (type.toUpperCase()) {
+            case "INTEGER":
+            case "INT64":
+                return "BIGINT";
+            case "FLOAT":
+            case "FLOAT64":
+                return "DOUBLE";
+            case "NUMERIC":
+                return "DECIMAL(38, 9)";
+            case "BOOLEAN":
+            case "BOOL":
+                return "BOOLEAN";
+            case "DATE":
+                return "DATE";
+            case "TIME":
+                return "TIME";
+            case "DATETIME":
+            case "TIMESTAMP":
+                return "TIMESTAMP";
+            case "BYTES":
+                return "VARBINARY";
+            case "STRING":
+                return "VARCHAR";
+            default:
+                throw new IllegalArgumentException("Unsupported column type: " + type);
+        }
+    }
+
+    /**
+     * Quotes names which may be reserved words in H2. Unquoted names are converted to upper case by H2, so quoted
+     * names are converted as well to keep them accessible without quotes.
+     */
+    private static String quoteIdentifier(String identifier) {
+        return "\"" + identifier.toUpperCase().replace("\"", "\"\"") + "\"";
+    }
+
+    private static String quoteString(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+
+    /**
+     * Read DDL schema to identify tables being created
+     * @return List of new tables
+     */
+    public List<String> getTablesFromDdlSchema(String schemaContents) {
+        List<String> tables = new ArrayList<String>();
+
+        for (String statement : StatementSplitter.splitToText(schemaContents, getDialect())) {
+            statement = statement.replaceAll("\\s+", " ");
+
+            // Obtain table name
+            if (statement.toUpperCase().startsWith("CREATE TABLE")) {
+                String[] schema = statement.split(" ");
+                if (schema.length >= 3) {
+                    // Column definitions may directly follow the table name
+                    tables.add(schema[2].split("\\(")[0]);
+                }
+            }
+        }
+
+        return tables;
+    }
+
+    /**
+     * Wraps a statement in a query that returns the row count and the sum of the row hashes of its results
+     * @param statement to checksum
+     * @param columnTypes JDBC types of the statement's result columns
+     * @return Checksum query
+     */
+    public String getChecksumQuery(String statement, List<Integer> columnTypes) {
+        List<String> columnNames = getColumnNames(columnTypes);
+
+        return String.format("SELECT COUNT(*) AS row_count, COALESCE(SUM(CAST(%s AS DECIMAL(38, 0))), 0) AS checksum FROM (%s) AS t (%s)", getRowHash(columnNames, columnTypes), statement, String.join(", ", columnNames));
+    }
+
+    /**
+     * Wraps a statement in a query that returns the row count and the sum of the row hashes of each bucket
+     * @param statement to checksum
+     * @param columnTypes JDBC types of the statement's result columns
+     * @param parentModulus of the buckets being split
+     * @param parentRemainders of the buckets being split
+     * @param modulus of the new buckets
+     * @return Bucket checksum query
+     */
+    public String getBucketChecksumQuery(String statement, List<Integer> columnTypes, long parentModulus, Collection<Long> parentRemainders, long modulus) {
+        List<String> columnNames = getColumnNames(columnTypes);
+
+        return String.format("SELECT MOD(row_hash, %d) AS bucket, COUNT(*) AS row_count, SUM(CAST(row_hash AS DECIMAL(38, 0))) AS checksum FROM (SELECT %s AS row_hash FROM (%s) AS t (%s)) AS h WHERE MOD(row_hash, %d) IN (%s) GROUP BY MOD(row_hash, %d)", modulus, getRowHash(columnNames, columnTypes), statement, String.join(", ", columnNames), parentModulus, joinRemainders(parentRemainders), modulus);
+    }
+
+    /**
+     * Wraps a statement in a query that only returns the rows in the given buckets
+     * @param statement to run
+     * @param columnTypes JDBC types of the statement's result columns
+     * @param modulus of the buckets
+     * @param remainders of the buckets to return
+     * @return Bucket query
+     */
+    public String getBucketQuery(String statement, List<Integer> columnTypes, long modulus, Collection<Long> remainders) {
+        List<String> columnNames = getColumnNames(columnTypes);
+        String columns = String.join(", ", columnNames);
+
+        return String.format("SELECT %s FROM (SELECT t.*, %s AS row_hash FROM (%s) AS t (%s)) AS h WHERE MOD(row_hash, %d) IN (%s)", columns, getRowHash(columnNames, columnTypes), statement, columns, modulus, joinRemainders(remainders));
+    }
+
+    /**
+     * Result columns are renamed since unnamed expressions can't be referenced from outside of the derived table
+     * @param columnTypes JDBC types of the statement's result columns
+     * @return Positional column names
+     */
+    private static List<String> getColumnNames(List<Integer> columnTypes) {
+        List<String> columnNames = new ArrayList<String>();
+        for (int i = 1; i <= columnTypes.size(); i++) {
+            columnNames.add("c" + i);
+        }
+        return columnNames;
+    }
+
+    private static String joinRemainders(Collection<Long> remainders) {
+        return remainders.stream().sorted().map(String::valueOf).collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Hashes the canonicalized columns of a row into an unsigned 32-bit integer. H2 has no MD5 function, so checksums
+     * can only be compared between H2 databases.
+     * @param columnNames of the statement's results
+     * @param columnTypes JDBC types of the statement's result columns
+     * @return Expression computing the row hash
+     */
+    private String getRowHash(List<String> columnNames, List<Integer> columnTypes) {
+        List<String> columns = new ArrayList<String>();
+        for (int i = 0; i < columnNames.size(); i++) {
+            columns.add(String.format("COALESCE(%s, '%s')", getCanonicalColumn(columnNames.get(i), columnTypes.get(i)), QueryVerifier.CHECKSUM_NULL_VALUE));
+        }
+        String row = String.join(" || '" + QueryVerifier.CHECKSUM_SEPARATOR + "' || ", columns);
+
+        return String.format("CAST(ORA_HASH(%s) AS BIGINT)", row);
+    }
+
+    /**
+     * Rounds a number half away from zero to its nearest multiple of the checksum tolerance, the same way as
+     * {@link ResultDiff#normalizeValue(Object, BigDecimal)}
+     * @param column to round
+     * @return Expression computing the number of multiples of the tolerance
+     */
+    private String getRoundedMultiple(String column) {
+        BigDecimal tolerance = QueryVerifier.getChecksumTolerance(checksumTolerance);
+        String multiples = String.format("(CAST(%s AS DECIMAL(38, %d)) / %s)", column, QueryVerifier.getChecksumScale(tolerance), tolerance.toPlainString());
+        return String.format("TRUNC(%s + SIGN(%s) * 0.5)", multiples, multiples);
+    }
+
+    /**
+     * Converts a column to a string which is formatted identically to the other data warehouse services
+     * @param column to canonicalize
+     * @param type JDBC type of the column
+     * @return Expression canonicalizing the column
+     */
+    private String getCanonicalColumn(String column, int type) {
+        switch (type) {
+            case Types.BOOLEAN:
+                return String.format("CAST(CAST(%s AS INT) AS VARCHAR)", column);
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+            case Types.FLOAT:
+            case Types.REAL:
+            case Types.DOUBLE:
+                // Numbers are compared as their nearest multiple of the tolerance, rounded half away from zero like
+                // in BigQuery
+                return String.format("CAST(CAST(%s AS DECIMAL(38, 0)) AS VARCHAR)", getRoundedMultiple(column));
+            case Types.DATE:
+                return String.format("FORMATDATETIME(%s, 'yyyy-MM-dd')", column);
+            case Types.TIME:
+                return String.format("FORMATDATETIME(%s, 'HH:mm:ss')", column);
+            case Types.TIMESTAMP:
+                return String.format("FORMATDATETIME(%s, 'yyyy-MM-dd HH:mm:ss')", column);
+            case Types.CHAR:
+                // Remove padding of fixed length strings
+                return String.format("RTRIM(%s)", column);
+            case Types.VARCHAR:
+                return column;
+            default:
+                return String.format("CAST(%s AS VARCHAR)", column);
+        }
+    }
+
+    /**
+     * Populates H2 tables based on the provided table data, loading several tables concurrently
+     */
+    private void populateTablesFromData() throws Exception {
+        new TableDataLoader(getName(), DEFAULT_MAX_CONNECTIONS).loadTables(data, this::populateTableFromData);
+    }
+
+    /**
+     * Loads the data file of a single table with H2's CSV reader, which reads the file in a single pass
+     * @param queryVerificationData of the table
+     */
+    private void populateTableFromData(QueryVerificationData queryVerificationData) {
+        String tableId = quoteIdentifier(queryVerificationData.datasetName()) + "." + quoteIdentifier(queryVerificationData.tableName());
+
+        try (JdbcConnectionPool.PooledConnection connection = pool.acquire()) {
+            // Data files have no header, so the columns are named after the columns of the table
+            List<String> columns = new ArrayList<String>();
+            ResultSetMetaData metadata = connection.prepareStatement("SELECT * FROM " + tableId).getMetaData();
+            for (int i = 1; i <= metadata.getColumnCount(); i++) {
+                columns.add(metadata.getColumnName(i));
+            }
+
+            // CSVREAD is evaluated while the statement is prepared, so its arguments can't be parameters
+            connection.executeUpdate(String.format("INSERT INTO %s SELECT * FROM CSVREAD(%s, %s, 'charset=UTF-8')", tableId, quoteString(queryVerificationData.path()), quoteString(String.join(",", columns))));
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Deletes tables after running queries
+     * @param table
+     */
+    private void deleteTable(String table) {
+        try (JdbcConnectionPool.PooledConnection connection = pool.acquire()) {
+            connection.executeUpdate("DROP TABLE " + table);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+}
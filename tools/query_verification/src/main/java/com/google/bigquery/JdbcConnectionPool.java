@@ -0,0 +1,210 @@
+package com.google.bigquery;
+
+import java.io.Closeable;
+import java.sql.*;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class to pool JDBC connections, so statements can run concurrently on separate connections while connections and
+ * prepared statements are reused instead of being opened for every statement.
+ */
+public class JdbcConnectionPool implements Closeable {
+
+    private static final int PREPARED_STATEMENT_CACHE_SIZE = 64;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int fetchSize;
+
+    // Limits the number of connections open at the same time
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idleConnections = new ConcurrentLinkedDeque<PooledConnection>();
+    private final AtomicInteger openedConnections = new AtomicInteger();
+
+    /**
+     * @param url JDBC URL of the database
+     * @param user to connect as
+     * @param password of the user
+     * @param maxConnections Maximum number of connections open at the same time
+     * @param fetchSize Number of rows fetched from the database at a time, or 0 for the driver's default
+     */
+    public JdbcConnectionPool(String url, String user, String password, int maxConnections, int fetchSize) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.fetchSize = fetchSize;
+        this.permits = new Semaphore(maxConnections, true);
+    }
+
+    /**
+     * Reuses an idle connection or opens a new one, waiting while the maximum number of connections are in use.
+     * The connection must be closed to return it to the pool.
+     * @return Connection for the exclusive use of the caller
+     * @throws SQLException if a new connection could not be opened
+     */
+    public PooledConnection acquire() throws SQLException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection.", e);
+        }
+
+        try {
+            PooledConnection connection;
+            while ((connection = idleConnections.pollFirst()) != null) {
+                if (!connection.connection.isClosed()) {
+                    return connection;
+                }
+            }
+
+            connection = new PooledConnection(DriverManager.getConnection(url, user, password));
+            openedConnections.incrementAndGet();
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return Number of connections opened by the pool so far
+     */
+    public int getOpenedConnections() {
+        return openedConnections.get();
+    }
+
+    /**
+     * Closes the idle connections. Connections still in use return to the pool, which opens new connections when needed.
+     */
+    @Override
+    public void close() {
+        PooledConnection connection;
+        while ((connection = idleConnections.pollFirst()) != null) {
+            connection.closeConnection();
+        }
+    }
+
+    private void release(PooledConnection connection) {
+        // Most recently used connections are reused first
+        idleConnections.addFirst(connection);
+        permits.release();
+    }
+
+    /**
+     * Class for a connection borrowed from the pool. It keeps one statement for unprepared SQL and caches the
+     * statements it prepares.
+     */
+    public class PooledConnection implements AutoCloseable {
+
+        private final Connection connection;
+        private Statement statement;
+
+        private final Map<String, PreparedStatement> preparedStatements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > PREPARED_STATEMENT_CACHE_SIZE) {
+                    closeStatement(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * @return Underlying JDBC connection, which must not be closed directly
+         */
+        public Connection getConnection() {
+            return connection;
+        }
+
+        /**
+         * Runs a query using the connection's reusable statement. The result set must be closed before the connection
+         * is used again.
+         * @param sql to run
+         * @return Results of the query
+         * @throws SQLException
+         */
+        public ResultSet executeQuery(String sql) throws SQLException {
+            return getStatement().executeQuery(sql);
+        }
+
+        /**
+         * Runs a DDL or DML statement using the connection's reusable statement
+         * @param sql to run
+         * @return Number of rows changed
+         * @throws SQLException
+         */
+        public int executeUpdate(String sql) throws SQLException {
+            return getStatement().executeUpdate(sql);
+        }
+
+        /**
+         * Prepares the SQL or returns the statement prepared for it before on this connection.
+         * The statement is owned by the connection and must not be closed.
+         * @param sql to prepare
+         * @return Prepared statement
+         * @throws SQLException
+         */
+        public PreparedStatement prepareStatement(String sql) throws SQLException {
+            PreparedStatement preparedStatement = preparedStatements.get(sql);
+            if (preparedStatement == null || preparedStatement.isClosed()) {
+                preparedStatement = connection.prepareStatement(sql);
+                if (fetchSize > 0) {
+                    preparedStatement.setFetchSize(fetchSize);
+                }
+                preparedStatements.put(sql, preparedStatement);
+            }
+            return preparedStatement;
+        }
+
+        /**
+         * Returns the connection to the pool
+         */
+        @Override
+        public void close() {
+            release(this);
+        }
+
+        private Statement getStatement() throws SQLException {
+            if (statement == null || statement.isClosed()) {
+                statement = connection.createStatement();
+                if (fetchSize > 0) {
+                    statement.setFetchSize(fetchSize);
+                }
+            }
+            return statement;
+        }
+
+        private void closeStatement(Statement statement) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+
+        private void closeConnection() {
+            preparedStatements.values().forEach(this::closeStatement);
+            preparedStatements.clear();
+            try {
+                // Closing the connection also closes its statement
+                connection.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.google.bigquery;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Class to match the rows of two streams of query results by the values of key columns, like a hash join which is
+ * computed while the results are read. Rows are held until a row with the same key is read from the other result,
+ * and matched rows are compared column by column in a {@link MismatchProfile} instead of being reported as an extra
+ * and a missing row. Only rows whose key isn't found in the other result are handed to the unordered comparison of
+ * {@link ResultDiff}, so they are reported as extra or missing rows.
+ */
+public class KeyedResultDiff extends ResultDiff {
+
+    private final List<Integer> keyColumns;
+    private final MismatchProfile profile;
+
+    // Unmatched rows of each result by their key, in the order they were read
+    private final Map<List<Object>, ArrayDeque<List<Object>>> migratedRows = new HashMap<List<Object>, ArrayDeque<List<Object>>>();
+    private final Map<List<Object>, ArrayDeque<List<Object>>> originalRows = new HashMap<List<Object>, ArrayDeque<List<Object>>>();
+
+    /**
+     * @param keyColumns Positions of the key columns, starting at 1
+     * @param tolerance Numbers are rounded to its nearest multiple before they are compared
+     * @param maxExamples Number of differing rows kept as examples
+     */
+    public KeyedResultDiff(List<Integer> keyColumns, BigDecimal tolerance, int maxExamples) {
+        super(tolerance);
+        this.keyColumns = keyColumns;
+        this.profile = new MismatchProfile(tolerance, maxExamples);
+    }
+
+    @Override
+    public synchronized void addMigratedRow(List<Object> row) {
+        addRow(row, migratedRows, originalRows, true);
+    }
+
+    @Override
+    public synchronized void addOriginalRow(List<Object> row) {
+        addRow(row, originalRows, migratedRows, false);
+    }
+
+    private void addRow(List<Object> row, Map<List<Object>, ArrayDeque<List<Object>>> rows, Map<List<Object>, ArrayDeque<List<Object>>> otherRows, boolean migrated) {
+        List<Object> key = getKey(row);
+
+        ArrayDeque<List<Object>> otherKeyRows = otherRows.get(key);
+        if (otherKeyRows != null) {
+            List<Object> otherRow = otherKeyRows.removeFirst();
+            if (otherKeyRows.isEmpty()) {
+                otherRows.remove(key);
+            }
+            profile.addMatchedRows(key, migrated ? row : otherRow, migrated ? otherRow : row);
+            return;
+        }
+
+        rows.computeIfAbsent(key, newKey -> new ArrayDeque<List<Object>>()).addLast(row);
+    }
+
+    /**
+     * Numbers are compared by value, so keys match even if one data warehouse returns an integer and the other a
+     * decimal
+     * @param row Values of a row
+     * @return Values of the key columns
+     */
+    private List<Object> getKey(List<Object> row) {
+        List<Object> key = new ArrayList<Object>(keyColumns.size());
+        for (int column : keyColumns) {
+            Object value = column <= row.size() ? row.get(column - 1) : null;
+            key.add(normalizeValue(value, BigDecimal.ZERO));
+        }
+        return key;
+    }
+
+    /**
+     * Hands the rows whose key wasn't matched to the unordered comparison before writing the differences
+     */
+    @Override
+    public synchronized void writeDifferences(CsvResultWriter extraWriter, CsvResultWriter missingWriter) throws IOException {
+        try {
+            for (ArrayDeque<List<Object>> keyRows : migratedRows.values()) {
+                for (List<Object> row : keyRows) {
+                    super.addMigratedRow(row);
+                }
+            }
+            for (ArrayDeque<List<Object>> keyRows : originalRows.values()) {
+                for (List<Object> row : keyRows) {
+                    super.addOriginalRow(row);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        migratedRows.clear();
+        originalRows.clear();
+
+        super.writeDifferences(extraWriter, missingWriter);
+    }
+
+    /**
+     * @return Profile of the rows matched by their key, which is complete once both results have been read
+     */
+    public synchronized MismatchProfile getProfile() {
+        return profile;
+    }
+
+}
@@ -2,6 +2,7 @@ package com.google.bigquery;
 
 import java.io.File;
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Paths;
@@ -15,11 +16,14 @@ public class Main {
 
     /**
      * usage: query_verification -q <PATH> <PATH> [-d <PATHS>] [-s <PATH> <PATH>]
-     *        [-h]
+     *        [-x <COLUMNS>] [-n <N>] [-b <COUNT>] [-p <N>] [-a <N>] [-g <GB>] [-e <DELTA>] [-t <HOURS>] [-k] [-c] [-z] [-l] [-r] [-o] [-h]
      *  -q,--query <PATH> <PATH>    First argument is the path to the migrated
      *                              query file. Second argument is the path to
      *                              the original query file and only required
-     *                              when data is provided.
+     *                              when data is provided. Two directories of
+     *                              query files, or a manifest ending in .csv
+     *                              with a migrated and an original query file on
+     *                              each line, are verified as a batch.
      *  -d,--data <PATHS>           Paths for table data in CSV format. File
      *                              names should be formatted as
      *                              "[dataset].[table].csv".
@@ -27,6 +31,72 @@ public class Main {
      *                              schema path. Second argument is the path to
      *                              the original schema query and is optional.
      *                              Referenced files should be in a JSON format.
+     *  -x,--keys <COLUMNS>         Match the rows of both results by the values
+     *                              of these comma-separated column positions,
+     *                              starting at 1. Rows with the same key are
+     *                              compared column by column, and the differing
+     *                              columns are profiled in the report instead
+     *                              of exporting the rows as extra and missing
+     *                              rows.
+     *  -n,--examples <N>           Number of differing rows kept as examples
+     *                              for each query with --keys. Defaults to 10.
+     *  -b,--buckets <COUNT>        Localize differences in queries with
+     *                              mismatching checksums by recursively
+     *                              splitting their results into COUNT
+     *                              buckets, and only fetch the rows in
+     *                              buckets whose checksums differ. Implies
+     *                              --checksum.
+     *  -p,--sample <N>             Compare row counts exactly, but only fetch
+     *                              and compare the rows whose row hash modulo
+     *                              N is 0 for queries with mismatching
+     *                              checksums. The total number of differences
+     *                              is estimated from the sample. Takes
+     *                              precedence over --buckets.
+     *  -a,--streams <N>            List the results of each BigQuery statement
+     *                              from its destination table as up to N row
+     *                              ranges concurrently instead of page by
+     *                              page. Rows are still listed as JSON through
+     *                              the REST API. Results of statements ending
+     *                              with an ORDER BY clause are read in a
+     *                              single range.
+     *  -g,--budget <GB>            Dry-run every migrated statement first and
+     *                              verify the cheapest statements first,
+     *                              running statements under 1 GB
+     *                              concurrently. Statements whose results
+     *                              would exceed a total of GB gigabytes
+     *                              processed by BigQuery are only compared by
+     *                              checksums. Estimated and actual bytes
+     *                              processed are reported.
+     *  -e,--tolerance <DELTA>      Numbers are rounded to the nearest multiple
+     *                              of DELTA before results are compared, or
+     *                              only compared by value if 0. Defaults to
+     *                              1E-10.
+     *  -t,--ttl <HOURS>            Hours cached dry-run results stay valid.
+     *                              Defaults to 24. Implies --cache.
+     *  -k,--cache                  Cache the original query results and the
+     *                              dry-run results on disk and replay them on
+     *                              later runs, so only changed statements are
+     *                              run against the data warehouses.
+     *  -c,--checksum               Compare checksums of the query results
+     *                              computed by each data warehouse first, and
+     *                              only fetch the results of queries whose
+     *                              checksums differ.
+     *  -z,--gzip                   Compress the exported CSV files with gzip.
+     *  -l,--local                  Run both queries against embedded H2
+     *                              databases instead of BigQuery and Teradata,
+     *                              to test or benchmark verification without
+     *                              access to the data warehouses. Queries
+     *                              should be written in SQL supported by H2.
+     *  -r,--resume                 Resume a data-aware verification which
+     *                              failed midway. Queries verified by the
+     *                              previous run with the same data, schemas
+     *                              and options are skipped, and tables it set
+     *                              up are reused if they still exist. Tables
+     *                              are kept if verification fails again.
+     *  -o,--sorted                 Compare the results of every statement as
+     *                              sorted streams in constant memory. Results
+     *                              of statements ending with an ORDER BY
+     *                              clause are always compared this way.
      *  -h,--help                   Print this help screen.
      *
      * @param args Command line arguments
@@ -44,12 +114,22 @@ public class Main {
         QueryVerificationSchema originalSchema = null;
 
         List<QueryVerificationData> data = new ArrayList<QueryVerificationData>();
+        List<QueryPair> batch = null;
 
         // Query input handling
         if (command.hasOption("q")) {
             String[] queryOptionValues = command.getOptionValues("q");
 
-            if (queryOptionValues.length >= 1) {
+            try {
+                batch = readBatch(queryOptionValues);
+            } catch (IOException | IllegalArgumentException e) {
+                System.out.println("Failed to read the batch of query files: " + e.getMessage());
+                return;
+            }
+
+            if (batch != null) {
+                System.out.printf("Verifying a batch of %d pairs of query files.\n", batch.size());
+            } else if (queryOptionValues.length >= 1) {
                 String migratedQueryPath = queryOptionValues[0];
                 String migratedQueryContents = getContentsOfFile(migratedQueryPath);
                 if (migratedQueryContents != null) {
@@ -57,7 +137,7 @@ public class Main {
                 }
             }
 
-            if (queryOptionValues.length >= 2) {
+            if (batch == null && queryOptionValues.length >= 2) {
                 String originalQueryPath = queryOptionValues[1];
                 String originalQueryContents = getContentsOfFile(originalQueryPath);
                 if (originalQueryContents != null) {
@@ -92,15 +172,167 @@ public class Main {
             String[] dataOptionValues = command.getOptionValues("d");
 
             for (String dataFilePath : dataOptionValues) {
-                String dataFileName = new File(dataFilePath).getName();
-                String dataContents = getContentsOfFile(dataFilePath);
+                File dataFile = new File(dataFilePath);
+                String dataFileName = dataFile.getName();
                 String[] dataTableId = dataFileName.split("\\.");
 
-                data.add(QueryVerificationData.create(dataTableId[0], dataTableId[1], dataFilePath, dataContents));
+                // Data files are only read while loading tables
+                if (!dataFile.isFile()) {
+                    System.out.println("File Not Found: " + dataFilePath);
+                    continue;
+                }
+
+                data.add(QueryVerificationData.create(dataTableId[0], dataTableId[1], dataFilePath));
+            }
+        }
+
+        int buckets = 0;
+        if (command.hasOption("b")) {
+            try {
+                buckets = Integer.parseInt(command.getOptionValue("b"));
+            } catch (NumberFormatException e) {
+                buckets = 0;
+            }
+
+            if (buckets < 2) {
+                System.out.println("Number of buckets should be an integer of at least 2.");
+                return;
+            }
+        }
+
+        int sampleModulus = 0;
+        if (command.hasOption("p")) {
+            try {
+                sampleModulus = Integer.parseInt(command.getOptionValue("p"));
+            } catch (NumberFormatException e) {
+                sampleModulus = 0;
+            }
+
+            if (sampleModulus < 2) {
+                System.out.println("Sample modulus should be an integer of at least 2.");
+                return;
+            }
+        }
+
+        int readStreams = 0;
+        if (command.hasOption("a")) {
+            try {
+                readStreams = Integer.parseInt(command.getOptionValue("a"));
+            } catch (NumberFormatException e) {
+                readStreams = 0;
+            }
+
+            if (readStreams < 1) {
+                System.out.println("Number of streams should be an integer of at least 1.");
+                return;
             }
         }
 
-        QueryVerifier queryVerifier = new QueryVerifier(migratedQuery, migratedSchema, originalQuery, originalSchema, data);
+        List<Integer> keyColumns = new ArrayList<Integer>();
+        if (command.hasOption("x")) {
+            try {
+                for (String column : command.getOptionValue("x").split(",")) {
+                    keyColumns.add(Integer.parseInt(column.trim()));
+                }
+            } catch (NumberFormatException e) {
+                keyColumns.add(0);
+            }
+
+            if (keyColumns.stream().anyMatch(column -> column < 1)) {
+                System.out.println("Key columns should be a comma-separated list of column positions starting at 1.");
+                return;
+            }
+        }
+
+        int maxExamples = MismatchProfile.DEFAULT_EXAMPLES;
+        if (command.hasOption("n")) {
+            try {
+                maxExamples = Integer.parseInt(command.getOptionValue("n"));
+            } catch (NumberFormatException e) {
+                maxExamples = -1;
+            }
+
+            if (maxExamples < 0) {
+                System.out.println("Number of examples should be a non-negative integer.");
+                return;
+            }
+        }
+
+        int cacheTtlHours = 24;
+        if (command.hasOption("t")) {
+            try {
+                cacheTtlHours = Integer.parseInt(command.getOptionValue("t"));
+            } catch (NumberFormatException e) {
+                cacheTtlHours = 0;
+            }
+
+            if (cacheTtlHours < 1) {
+                System.out.println("Cache TTL should be an integer of at least 1 hour.");
+                return;
+            }
+        }
+
+        BigDecimal tolerance = QueryVerifier.DEFAULT_TOLERANCE;
+        if (command.hasOption("e")) {
+            try {
+                tolerance = new BigDecimal(command.getOptionValue("e"));
+            } catch (NumberFormatException e) {
+                tolerance = BigDecimal.ONE.negate();
+            }
+
+            if (tolerance.signum() < 0) {
+                System.out.println("Tolerance should be a non-negative number.");
+                return;
+            }
+        }
+
+        long budgetBytes = 0;
+        if (command.hasOption("g")) {
+            try {
+                budgetBytes = new BigDecimal(command.getOptionValue("g")).multiply(BigDecimal.valueOf(1L << 30)).longValue();
+            } catch (NumberFormatException e) {
+                budgetBytes = 0;
+            }
+
+            if (budgetBytes <= 0) {
+                System.out.println("Budget should be a positive number of gigabytes.");
+                return;
+            }
+        }
+
+        if (batch != null && data.isEmpty()) {
+            System.out.println("Batch verification requires data.");
+            return;
+        }
+
+        if (command.hasOption("l") && ((originalQuery == null && batch == null) || data.isEmpty())) {
+            System.out.println("Local verification requires the original query and data.");
+            return;
+        }
+
+        QueryVerificationOptions options = QueryVerificationOptions.builder()
+                .setChecksum(command.hasOption("c") || command.hasOption("b"))
+                .setBuckets(buckets)
+                .setGzip(command.hasOption("z"))
+                .setCache(command.hasOption("k") || command.hasOption("t"))
+                .setCacheTtlHours(cacheTtlHours)
+                .setLocal(command.hasOption("l"))
+                .setSorted(command.hasOption("o"))
+                .setTolerance(tolerance)
+                .setBudgetBytes(budgetBytes)
+                .setResume(command.hasOption("r"))
+                .setSampleModulus(sampleModulus)
+                .setReadStreams(readStreams)
+                .setKeyColumns(keyColumns)
+                .setMaxExamples(maxExamples)
+                .build();
+
+        QueryVerifier queryVerifier;
+        if (batch != null) {
+            queryVerifier = new QueryVerifier(batch, migratedSchema, originalSchema, data, options);
+        } else {
+            queryVerifier = new QueryVerifier(migratedQuery, migratedSchema, originalQuery, originalSchema, data, options);
+        }
         queryVerifier.verify();
 
         System.exit(0);
@@ -155,7 +387,7 @@ public class Main {
                 .numberOfArgs(Option.UNLIMITED_VALUES) // Allows for 2 arguments without both being required
                 .valueSeparator(' ')
                 .argName("PATH> <PATH") // Appears as "<PATH> <PATH>"
-                .desc("First argument is the path to the migrated query file. Second argument is the path to the original query file and only required when data is provided.")
+                .desc("First argument is the path to the migrated query file. Second argument is the path to the original query file and only required when data is provided. Two directories of query files, or a manifest ending in .csv with a migrated and an original query file on each line, are verified as a batch.")
                 .build());
         options.addOption(Option.builder("s")
                 .longOpt("schema")
@@ -171,6 +403,78 @@ public class Main {
                 .argName("PATHS")
                 .desc("Paths for table data in CSV format. File names should be formatted as \"[dataset].[table].csv\".")
                 .build());
+        options.addOption(Option.builder("c")
+                .longOpt("checksum")
+                .desc("Compare checksums of the query results computed by each data warehouse first, and only fetch the results of queries whose checksums differ.")
+                .build());
+        options.addOption(Option.builder("b")
+                .longOpt("buckets")
+                .hasArg()
+                .argName("COUNT")
+                .desc("Localize differences in queries with mismatching checksums by recursively splitting their results into COUNT buckets, and only fetch the rows in buckets whose checksums differ. Implies --checksum.")
+                .build());
+        options.addOption(Option.builder("p")
+                .longOpt("sample")
+                .hasArg()
+                .argName("N")
+                .desc("Compare row counts exactly, but only fetch and compare the rows whose row hash modulo N is 0 for queries with mismatching checksums. The total number of differences is estimated from the sample. Takes precedence over --buckets.")
+                .build());
+        options.addOption(Option.builder("a")
+                .longOpt("streams")
+                .hasArg()
+                .argName("N")
+                .desc("List the results of each BigQuery statement from its destination table as up to N row ranges concurrently instead of page by page. Rows are still listed as JSON through the REST API. Results of statements ending with an ORDER BY clause are read in a single range.")
+                .build());
+        options.addOption(Option.builder("g")
+                .longOpt("budget")
+                .hasArg()
+                .argName("GB")
+                .desc("Dry-run every migrated statement first and verify the cheapest statements first, running statements under 1 GB concurrently. Statements whose results would exceed a total of GB gigabytes processed by BigQuery are only compared by checksums. Estimated and actual bytes processed are reported.")
+                .build());
+        options.addOption(Option.builder("k")
+                .longOpt("cache")
+                .desc("Cache the original query results and the dry-run results on disk and replay them on later runs, so only changed statements are run against the data warehouses.")
+                .build());
+        options.addOption(Option.builder("t")
+                .longOpt("ttl")
+                .hasArg()
+                .argName("HOURS")
+                .desc("Hours cached dry-run results stay valid. Defaults to 24. Implies --cache.")
+                .build());
+        options.addOption(Option.builder("o")
+                .longOpt("sorted")
+                .desc("Compare the results of every statement as sorted streams in constant memory. Results of statements ending with an ORDER BY clause are always compared this way.")
+                .build());
+        options.addOption(Option.builder("x")
+                .longOpt("keys")
+                .hasArg()
+                .argName("COLUMNS")
+                .desc("Match the rows of both results by the values of these comma-separated column positions, starting at 1. Rows with the same key are compared column by column, and the differing columns are profiled in the report instead of exporting the rows as extra and missing rows.")
+                .build());
+        options.addOption(Option.builder("n")
+                .longOpt("examples")
+                .hasArg()
+                .argName("N")
+                .desc("Number of differing rows kept as examples for each query with --keys. Defaults to 10.")
+                .build());
+        options.addOption(Option.builder("e")
+                .longOpt("tolerance")
+                .hasArg()
+                .argName("DELTA")
+                .desc("Numbers are rounded to the nearest multiple of DELTA before results are compared, or only compared by value if 0. Defaults to 1E-10.")
+                .build());
+        options.addOption(Option.builder("l")
+                .longOpt("local")
+                .desc("Run both queries against embedded H2 databases instead of BigQuery and Teradata, to test or benchmark verification without access to the data warehouses. Queries should be written in SQL supported by H2.")
+                .build());
+        options.addOption(Option.builder("r")
+                .longOpt("resume")
+                .desc("Resume a data-aware verification which failed midway. Queries verified by the previous run with the same data, schemas and options are skipped, and tables it set up are reused if they still exist. Tables are kept if verification fails again.")
+                .build());
+        options.addOption(Option.builder("z")
+                .longOpt("gzip")
+                .desc("Compress the exported CSV files with gzip.")
+                .build());
         options.addOption(Option.builder("h")
                 .longOpt("help")
                 .desc("Print this help screen.")
@@ -185,6 +489,21 @@ public class Main {
      * @param path The path to the file to be read
      * @return Text contents in file
      */
+    /**
+     * @param queryPaths Paths given to the query option
+     * @return Pairs of query files if the paths are two directories or a single manifest, or null otherwise
+     * @throws IOException if the query files can't be read
+     */
+    public static List<QueryPair> readBatch(String[] queryPaths) throws IOException {
+        if (queryPaths.length == 2 && Files.isDirectory(Paths.get(queryPaths[0])) && Files.isDirectory(Paths.get(queryPaths[1]))) {
+            return QueryPair.fromDirectories(Paths.get(queryPaths[0]), Paths.get(queryPaths[1]));
+        }
+        if (queryPaths.length == 1 && queryPaths[0].endsWith(".csv")) {
+            return QueryPair.fromManifest(Paths.get(queryPaths[0]));
+        }
+        return null;
+    }
+
     public static String getContentsOfFile(String path) {
         String contents = null;
         try {
@@ -0,0 +1,163 @@
+package com.google.bigquery;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Class to profile the differences between rows of both results which were matched by their key. Counts how many rows
+ * differ in each column and how often each pair of differing values occurs, and keeps the first differing rows as
+ * examples. Every count is updated as rows are matched, and the number of distinct value pairs counted per column is
+ * capped, so the profile takes bounded memory however many rows differ.
+ */
+public class MismatchProfile {
+
+    public static final int DEFAULT_EXAMPLES = 10;
+
+    // Distinct value pairs counted for each column, and the most frequent of them which are reported
+    private static final int MAX_HISTOGRAM_VALUES = 1000;
+    private static final int TOP_VALUES = 10;
+
+    private final BigDecimal tolerance;
+    private final int maxExamples;
+
+    private long matchedRows = 0;
+    private long mismatchingRows = 0;
+
+    // Statistics of every column by its index, for columns with at least one mismatch
+    private final Map<Integer, Long> columnMismatches = new TreeMap<Integer, Long>();
+    private final Map<Integer, Map<String, Long>> histograms = new HashMap<Integer, Map<String, Long>>();
+    private final Map<Integer, Long> otherValues = new HashMap<Integer, Long>();
+
+    private final List<JsonObject> examples = new ArrayList<JsonObject>();
+
+    /**
+     * @param tolerance Numbers are rounded to its nearest multiple before they are compared
+     * @param maxExamples Number of differing rows kept as examples
+     */
+    public MismatchProfile(BigDecimal tolerance, int maxExamples) {
+        this.tolerance = tolerance;
+        this.maxExamples = maxExamples;
+    }
+
+    /**
+     * Compares two rows with the same key column by column
+     * @param key Values of the key columns
+     * @param migratedRow Row from the migrated results
+     * @param originalRow Row from the original results
+     * @return Whether any column differs
+     */
+    public boolean addMatchedRows(List<Object> key, List<Object> migratedRow, List<Object> originalRow) {
+        matchedRows++;
+
+        List<Integer> differingColumns = new ArrayList<Integer>();
+        for (int i = 0; i < Math.max(migratedRow.size(), originalRow.size()); i++) {
+            Object migratedValue = i < migratedRow.size() ? migratedRow.get(i) : null;
+            Object originalValue = i < originalRow.size() ? originalRow.get(i) : null;
+            if (!SortedResultDiff.valuesMatch(migratedValue, originalValue, tolerance)) {
+                differingColumns.add(i);
+            }
+        }
+        if (differingColumns.isEmpty()) {
+            return false;
+        }
+
+        mismatchingRows++;
+        for (int column : differingColumns) {
+            columnMismatches.merge(column, 1L, Long::sum);
+
+            String values = toString(migratedRow, column) + " -> " + toString(originalRow, column);
+            Map<String, Long> histogram = histograms.computeIfAbsent(column, differingColumn -> new HashMap<String, Long>());
+            if (histogram.containsKey(values) || histogram.size() < MAX_HISTOGRAM_VALUES) {
+                histogram.merge(values, 1L, Long::sum);
+            } else {
+                otherValues.merge(column, 1L, Long::sum);
+            }
+        }
+
+        if (examples.size() < maxExamples) {
+            JsonObject example = new JsonObject();
+            example.add("key", toJson(QueryVerifier.toStringTypes(key)));
+            JsonArray columns = new JsonArray();
+            differingColumns.forEach(column -> columns.add(column + 1));
+            example.add("columns", columns);
+            example.add("migrated", toJson(QueryVerifier.toStringTypes(migratedRow)));
+            example.add("original", toJson(QueryVerifier.toStringTypes(originalRow)));
+            examples.add(example);
+        }
+        return true;
+    }
+
+    private static String toString(List<Object> row, int column) {
+        return column < row.size() ? QueryVerifier.toStringTypes(Collections.singletonList(row.get(column))).get(0) : "";
+    }
+
+    private static JsonArray toJson(List<String> values) {
+        JsonArray json = new JsonArray();
+        values.forEach(json::add);
+        return json;
+    }
+
+    /**
+     * @return Number of rows of the migrated results which were matched to an original row by their key
+     */
+    public long getMatchedRows() {
+        return matchedRows;
+    }
+
+    /**
+     * @return Number of matched rows with at least one differing column
+     */
+    public long getMismatchingRows() {
+        return mismatchingRows;
+    }
+
+    /**
+     * @return Number of differing rows for each column with differences, by the column's position starting at 1
+     */
+    public Map<Integer, Long> getColumnMismatches() {
+        Map<Integer, Long> mismatches = new LinkedHashMap<Integer, Long>();
+        columnMismatches.forEach((column, count) -> mismatches.put(column + 1, count));
+        return mismatches;
+    }
+
+    /**
+     * @return Profile with the row counts, and for every differing column the mismatch count and the most frequent
+     * pairs of migrated and original values, followed by the example rows
+     */
+    public JsonObject toJson() {
+        JsonArray columns = new JsonArray();
+        for (Map.Entry<Integer, Long> entry : columnMismatches.entrySet()) {
+            JsonObject column = new JsonObject();
+            column.addProperty("column", entry.getKey() + 1);
+            column.addProperty("mismatches", entry.getValue());
+
+            JsonArray values = new JsonArray();
+            histograms.get(entry.getKey()).entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                    .limit(TOP_VALUES)
+                    .forEach(value -> {
+                        JsonObject json = new JsonObject();
+                        json.addProperty("values", value.getKey());
+                        json.addProperty("count", value.getValue());
+                        values.add(json);
+                    });
+            column.add("topValues", values);
+            column.addProperty("otherValues", otherValues.getOrDefault(entry.getKey(), 0L));
+            columns.add(column);
+        }
+
+        JsonArray exampleArray = new JsonArray();
+        examples.forEach(exampleArray::add);
+
+        JsonObject json = new JsonObject();
+        json.addProperty("matchedRows", matchedRows);
+        json.addProperty("mismatchingRows", mismatchingRows);
+        json.add("columns", columns);
+        json.add("examples", exampleArray);
+        return json;
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.google.bigquery;
+
+import com.google.auto.value.AutoValue;
+
+import java.util.Set;
+
+/**
+ * Value class for the buckets of query results that contain every difference between two data warehouse services.
+ */
+@AutoValue
+public abstract class MismatchingBuckets {
+
+    public abstract long modulus();
+    public abstract Set<Long> remainders();
+    public abstract long rowCount();
+
+    public static MismatchingBuckets create(long modulus, Set<Long> remainders, long rowCount) {
+        return new AutoValue_MismatchingBuckets(modulus, remainders, rowCount);
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.google.bigquery;
+
+import com.google.cloud.bigquery.FieldValueList;
+import com.google.cloud.bigquery.Job;
+import com.google.cloud.bigquery.TableResult;
+
+/**
+ * Class to read query results page by page, which keeps the order of the results but only reads a single page at a
+ * time.
+ */
+public class PagedResultReader implements ResultReader {
+
+    @Override
+    public long read(Job job, boolean ordered, ResultRowConsumer consumer) throws InterruptedException {
+        // Parse query results while paging through them
+        TableResult queryResults = job.getQueryResults();
+        BigQueryRowDecoder decoder = BigQueryRowDecoder.compile(queryResults.getSchema().getFields());
+
+        long rows = 0;
+        for (FieldValueList values : queryResults.iterateAll()) {
+            consumer.accept(decoder.decodeRaw(values), decoder.decode(values));
+            rows++;
+        }
+        return rows;
+    }
+
+}
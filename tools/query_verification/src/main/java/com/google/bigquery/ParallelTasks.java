@@ -0,0 +1,71 @@
+package com.google.bigquery;
+
+import java.util.Collection;
+import java.util.concurrent.*;
+
+/**
+ * Class to run a task for every item of a collection on a bounded number of threads.
+ */
+public class ParallelTasks {
+
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    /**
+     * Interface for a task run for a single item.
+     */
+    @FunctionalInterface
+    public interface Task<T> {
+
+        void run(T item) throws Exception;
+
+    }
+
+    private ParallelTasks() {
+    }
+
+    /**
+     * Runs the task for every item and waits until all of them are done. Once a task fails, the remaining tasks are
+     * cancelled and the failure is rethrown.
+     * @param items to run the task for
+     * @param parallelism Maximum number of tasks running at the same time
+     * @param task to run
+     * @throws Exception thrown by the first failing task
+     */
+    public static <T> void runAll(Collection<T> items, int parallelism, Task<T> task) throws Exception {
+        if (items == null || items.isEmpty()) {
+            return;
+        }
+
+        // A single item doesn't need another thread
+        if (items.size() == 1) {
+            task.run(items.iterator().next());
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, items.size()));
+        try {
+            CompletionService<Void> completionService = new ExecutorCompletionService<Void>(executor);
+            for (T item : items) {
+                completionService.submit(() -> {
+                    task.run(item);
+                    return null;
+                });
+            }
+
+            for (int i = 0; i < items.size(); i++) {
+                try {
+                    completionService.take().get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Exception) {
+                        throw (Exception) cause;
+                    }
+                    throw (Error) cause;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.google.bigquery;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class to accumulate the time spent in each phase of a verification. Phases timed on several threads at once add up
+ * their time, and phases are reported in the order they were first timed.
+ */
+public class PhaseTimer {
+
+    /**
+     * Interface for the work done in a phase.
+     */
+    @FunctionalInterface
+    public interface Phase {
+
+        void run() throws Exception;
+
+    }
+
+    private final Map<String, Long> nanos = new LinkedHashMap<String, Long>();
+
+    /**
+     * Runs the phase and adds its time, even if it fails
+     * @param name of the phase
+     * @param phase to run
+     * @throws Exception thrown by the phase
+     */
+    public void time(String name, Phase phase) throws Exception {
+        long start = System.nanoTime();
+        try {
+            phase.run();
+        } finally {
+            add(name, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @param name of the phase
+     * @param elapsedNanos Time spent in the phase
+     */
+    public synchronized void add(String name, long elapsedNanos) {
+        nanos.merge(name, elapsedNanos, Long::sum);
+    }
+
+    /**
+     * @return Milliseconds spent in every phase so far
+     */
+    public synchronized Map<String, Long> getMillis() {
+        Map<String, Long> millis = new LinkedHashMap<String, Long>();
+        nanos.forEach((name, elapsedNanos) -> millis.put(name, TimeUnit.NANOSECONDS.toMillis(elapsedNanos)));
+        return millis;
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.google.bigquery;
+
+import com.google.auto.value.AutoValue;
+
+import javax.annotation.Nullable;
+import java.math.BigDecimal;
+
+/**
+ * Value class for query checksums. Contains the statement, errors (if any), the number of result rows and the sum
+ * of the row hashes.
+ */
+@AutoValue
+public abstract class QueryChecksum {
+
+    public abstract String statement();
+    @Nullable public abstract String error();
+    public abstract long rowCount();
+    @Nullable public abstract BigDecimal checksum();
+
+    public static QueryChecksum create(String statement, String error, long rowCount, BigDecimal checksum) {
+        return new AutoValue_QueryChecksum(statement, error, rowCount, checksum);
+    }
+
+    /**
+     * Checksums can only be trusted to match if neither warehouse returned an error while computing them
+     * @param other Checksum from the other data warehouse service
+     * @return Whether both results have the same row count and checksum
+     */
+    public boolean matches(QueryChecksum other) {
+        return error() == null && other.error() == null
+                && rowCount() == other.rowCount()
+                && checksum() != null && other.checksum() != null
+                && checksum().compareTo(other.checksum()) == 0;
+    }
+
+}
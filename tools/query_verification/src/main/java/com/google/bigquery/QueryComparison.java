@@ -0,0 +1,21 @@
+package com.google.bigquery;
+
+import com.google.auto.value.AutoValue;
+
+/**
+ * Value class for the comparison of a migrated and original statement. Contains the results of both statements and
+ * the number of rows extra or missing from migrated results.
+ */
+@AutoValue
+public abstract class QueryComparison {
+
+    public abstract QueryJobResults migratedResults();
+    public abstract QueryJobResults originalResults();
+    public abstract long extraResults();
+    public abstract long missingResults();
+
+    public static QueryComparison create(QueryJobResults migratedResults, QueryJobResults originalResults, long extraResults, long missingResults) {
+        return new AutoValue_QueryComparison(migratedResults, originalResults, extraResults, missingResults);
+    }
+
+}
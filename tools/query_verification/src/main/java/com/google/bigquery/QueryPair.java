@@ -0,0 +1,100 @@
+package com.google.bigquery;
+
+import com.google.auto.value.AutoValue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Value class for a migrated query file and the original query file it was converted from, which are verified as
+ * part of a batch.
+ */
+@AutoValue
+public abstract class QueryPair {
+
+    public abstract QueryVerificationQuery migratedQuery();
+    public abstract QueryVerificationQuery originalQuery();
+
+    public static QueryPair create(QueryVerificationQuery migratedQuery, QueryVerificationQuery originalQuery) {
+        return new AutoValue_QueryPair(migratedQuery, originalQuery);
+    }
+
+    /**
+     * Pairs every file in the migrated directory, including subdirectories, with the file at the same relative path
+     * in the original directory. Files without an original file are skipped.
+     * @param migratedDirectory Directory of the migrated query files
+     * @param originalDirectory Directory of the original query files
+     * @return Pairs ordered by the path of the migrated file
+     * @throws IOException if a directory or file can't be read
+     */
+    public static List<QueryPair> fromDirectories(Path migratedDirectory, Path originalDirectory) throws IOException {
+        List<Path> migratedPaths;
+        try (Stream<Path> paths = Files.walk(migratedDirectory)) {
+            migratedPaths = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+
+        List<QueryPair> pairs = new ArrayList<QueryPair>();
+        for (Path migratedPath : migratedPaths) {
+            Path originalPath = originalDirectory.resolve(migratedDirectory.relativize(migratedPath).toString());
+            if (!Files.isRegularFile(originalPath)) {
+                System.out.println("Skipping " + migratedPath + " since " + originalPath + " doesn't exist.");
+                continue;
+            }
+            pairs.add(read(migratedPath, originalPath));
+        }
+        return pairs;
+    }
+
+    /**
+     * Reads the pairs listed in a manifest, which has the path of a migrated and an original query file separated by
+     * a comma on each line. Relative paths are resolved against the manifest's directory. Empty lines and lines
+     * starting with # are ignored.
+     * @param manifest Path of the manifest
+     * @return Pairs in the order of the manifest
+     * @throws IOException if the manifest or a query file can't be read
+     * @throws IllegalArgumentException if a line doesn't list two paths
+     */
+    public static List<QueryPair> fromManifest(Path manifest) throws IOException, IllegalArgumentException {
+        Path directory = manifest.toAbsolutePath().getParent();
+
+        List<QueryPair> pairs = new ArrayList<QueryPair>();
+        List<String> lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            String[] paths = line.split(",");
+            if (paths.length != 2) {
+                throw new IllegalArgumentException(String.format("Line %d of %s should list a migrated and an original query file separated by a comma.", i + 1, manifest));
+            }
+            pairs.add(read(directory.resolve(paths[0].trim()), directory.resolve(paths[1].trim())));
+        }
+        return pairs;
+    }
+
+    private static QueryPair read(Path migratedPath, Path originalPath) throws IOException {
+        return create(
+                QueryVerificationQuery.create(new String(Files.readAllBytes(migratedPath), StandardCharsets.UTF_8), migratedPath.toString()),
+                QueryVerificationQuery.create(new String(Files.readAllBytes(originalPath), StandardCharsets.UTF_8), originalPath.toString()));
+    }
+
+    /**
+     * Combines the query files of every pair into a single query, which the data warehouses are set up for
+     * @param pairs to combine
+     * @param migrated Whether the migrated or the original query files are combined
+     * @return Query with the statements of every file
+     */
+    public static QueryVerificationQuery combine(List<QueryPair> pairs, boolean migrated) {
+        String query = pairs.stream().map(pair -> (migrated ? pair.migratedQuery() : pair.originalQuery()).query()).collect(Collectors.joining("\n;\n"));
+        return QueryVerificationQuery.create(query, String.format("batch of %d %s query files", pairs.size(), migrated ? "migrated" : "original"));
+    }
+
+}
@@ -0,0 +1,185 @@
+package com.google.bigquery;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Class to stream the results of a migrated and original statement concurrently. Rows flow from each data warehouse
+ * service through a bounded queue to a consumer which exports them to CSV and compares them, so the results are never
+ * held in memory as a whole.
+ */
+public class QueryResultPipeline implements Closeable {
+
+    // Number of rows buffered between reading the results and consuming them
+    private static final int QUEUE_CAPACITY = 1024;
+
+    // Marks the end of the results in a queue
+    private static final QueryResultRow END_OF_RESULTS = QueryResultRow.create(Collections.emptyList(), Collections.emptyList());
+
+    /**
+     * Interface for running a statement and handing its rows to a consumer.
+     */
+    @FunctionalInterface
+    public interface ResultSource {
+
+        QueryJobResults run(ResultRowConsumer consumer) throws Exception;
+
+    }
+
+    /**
+     * Interface for comparing a parsed row.
+     */
+    @FunctionalInterface
+    private interface RowConsumer {
+
+        void accept(List<Object> row) throws InterruptedException;
+
+    }
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final String migratedName;
+    private final String originalName;
+    private final boolean gzip;
+    private final PhaseTimer phaseTimer;
+
+    /**
+     * @param migratedName Name of the data warehouse service running the migrated statements
+     * @param originalName Name of the data warehouse service running the original statements
+     * @param gzip Whether to compress the exported CSV files
+     */
+    public QueryResultPipeline(String migratedName, String originalName, boolean gzip) {
+        this(migratedName, originalName, gzip, new PhaseTimer());
+    }
+
+    /**
+     * @param migratedName Name of the data warehouse service running the migrated statements
+     * @param originalName Name of the data warehouse service running the original statements
+     * @param gzip Whether to compress the exported CSV files
+     * @param phaseTimer Timer the time spent comparing and exporting rows is added to. Rows of both results are
+     * handled concurrently, so their time adds up.
+     */
+    public QueryResultPipeline(String migratedName, String originalName, boolean gzip, PhaseTimer phaseTimer) {
+        this.migratedName = migratedName;
+        this.originalName = originalName;
+        this.gzip = gzip;
+        this.phaseTimer = phaseTimer;
+    }
+
+    /**
+     * Runs both statements concurrently, exports their results and the differences between them to CSV files
+     * @param index Index of the statements in the query files
+     * @param migratedSource Runs the migrated statement
+     * @param originalSource Runs the original statement
+     * @return Results of both statements and the number of differences
+     * @throws Exception
+     */
+    public QueryComparison compare(int index, ResultSource migratedSource, ResultSource originalSource) throws Exception {
+        return compare(index, migratedSource, originalSource, new ResultDiff());
+    }
+
+    /**
+     * Runs both statements concurrently, exports their results and the differences found by the given diff to CSV files
+     * @param index Index of the statements in the query files
+     * @param migratedSource Runs the migrated statement
+     * @param originalSource Runs the original statement
+     * @param diff Comparison of the results, e.g. {@link SortedResultDiff} for ordered results
+     * @return Results of both statements and the number of differences
+     * @throws Exception
+     */
+    public QueryComparison compare(int index, ResultSource migratedSource, ResultSource originalSource, ResultDiff diff) throws Exception {
+        Future<QueryJobResults> migratedFuture = stream(migratedSource, new CsvResultWriter(migratedName, index, "", gzip), diff::addMigratedRow, diff::finishMigratedRows);
+        Future<QueryJobResults> originalFuture = stream(originalSource, new CsvResultWriter(originalName, index, "", gzip), diff::addOriginalRow, diff::finishOriginalRows);
+
+        QueryJobResults migratedResults = getResults(migratedFuture);
+        QueryJobResults originalResults = getResults(originalFuture);
+
+        try (CsvResultWriter extraWriter = new CsvResultWriter("diff", index, "extra", gzip);
+             CsvResultWriter missingWriter = new CsvResultWriter("diff", index, "missing", gzip)) {
+            phaseTimer.time("write differences", () -> diff.writeDifferences(extraWriter, missingWriter));
+        }
+
+        return QueryComparison.create(migratedResults, originalResults, diff.getExtraRows(), diff.getMissingRows());
+    }
+
+    /**
+     * Runs a statement on one thread while another thread exports and compares its rows
+     * @param source Runs the statement
+     * @param writer CSV writer for the raw rows
+     * @param diffConsumer Consumer comparing the parsed rows
+     * @param finish Called once every row has been compared
+     * @return Results of the statement, available once every row has been consumed
+     */
+    private Future<QueryJobResults> stream(ResultSource source, CsvResultWriter writer, RowConsumer diffConsumer, Runnable finish) {
+        BlockingQueue<QueryResultRow> queue = new ArrayBlockingQueue<QueryResultRow>(QUEUE_CAPACITY);
+
+        Future<Void> consumer = executor.submit(() -> {
+            // Time is added up locally, since every row is timed
+            long compareNanos = 0;
+            long exportNanos = 0;
+
+            try (CsvResultWriter csvWriter = writer) {
+                IOException writeException = null;
+
+                for (QueryResultRow row = queue.take(); row != END_OF_RESULTS; row = queue.take()) {
+                    long start = System.nanoTime();
+                    diffConsumer.accept(row.values());
+                    long compared = System.nanoTime();
+                    compareNanos += compared - start;
+
+                    // Keep draining the queue after a failed write so the statement isn't blocked
+                    if (writeException == null) {
+                        try {
+                            csvWriter.write(row.rawValues());
+                        } catch (IOException e) {
+                            writeException = e;
+                        }
+                        exportNanos += System.nanoTime() - compared;
+                    }
+                }
+
+                if (writeException != null) {
+                    throw writeException;
+                }
+            } finally {
+                // The other result may be waiting for this one
+                finish.run();
+
+                phaseTimer.add("compare rows", compareNanos);
+                phaseTimer.add("export results", exportNanos);
+            }
+            return null;
+        });
+
+        return executor.submit(() -> {
+            try {
+                return source.run((rawRow, row) -> queue.put(QueryResultRow.create(rawRow, row)));
+            } finally {
+                queue.put(END_OF_RESULTS);
+                consumer.get();
+            }
+        });
+    }
+
+    private static QueryJobResults getResults(Future<QueryJobResults> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            // Rethrow the exception thrown while running the statement or consuming its rows
+            Throwable cause = e.getCause() instanceof ExecutionException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+}
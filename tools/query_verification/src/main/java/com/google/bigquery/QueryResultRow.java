@@ -0,0 +1,20 @@
+package com.google.bigquery;
+
+import com.google.auto.value.AutoValue;
+
+import java.util.List;
+
+/**
+ * Value class for a single row of query results. Contains the raw values and the values parsed to Java objects.
+ */
+@AutoValue
+abstract class QueryResultRow {
+
+    public abstract List<String> rawValues();
+    public abstract List<Object> values();
+
+    public static QueryResultRow create(List<String> rawValues, List<Object> values) {
+        return new AutoValue_QueryResultRow(rawValues, values);
+    }
+
+}
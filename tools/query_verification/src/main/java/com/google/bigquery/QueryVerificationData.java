@@ -2,8 +2,15 @@ package com.google.bigquery;
 
 import com.google.auto.value.AutoValue;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
 /**
- * Value class for table data. Contains the table name and file of the data.
+ * Value class for table data. Contains the table name and file of the data. The file is read when the table is
+ * loaded, so its contents are never held in memory at once.
  */
 @AutoValue
 public abstract class QueryVerificationData {
@@ -11,10 +18,33 @@ public abstract class QueryVerificationData {
     public abstract String datasetName();
     public abstract String tableName();
     public abstract String path();
-    public abstract String contents();
 
-    public static QueryVerificationData create(String datasetName, String tableName, String path, String contents) {
-        return new AutoValue_QueryVerificationData(datasetName, tableName, path, contents);
+    public static QueryVerificationData create(String datasetName, String tableName, String path) {
+        return new AutoValue_QueryVerificationData(datasetName, tableName, path);
+    }
+
+    /**
+     * @return Size of the data file in bytes
+     * @throws IOException
+     */
+    public long size() throws IOException {
+        return Files.size(Paths.get(path()));
+    }
+
+    /**
+     * @return Stream of the data file's contents, which must be closed by the caller
+     * @throws IOException
+     */
+    public InputStream openStream() throws IOException {
+        return Files.newInputStream(Paths.get(path()));
+    }
+
+    /**
+     * @return Channel to read the data file's contents, which must be closed by the caller
+     * @throws IOException
+     */
+    public FileChannel openChannel() throws IOException {
+        return FileChannel.open(Paths.get(path()));
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,143 @@
+package com.google.bigquery;
+
+import com.google.auto.value.AutoValue;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Value class for the options that change how queries are verified.
+ */
+@AutoValue
+public abstract class QueryVerificationOptions {
+
+    /**
+     * @return Whether statements are compared by checksums first, so rows are only fetched when the checksums differ
+     */
+    public abstract boolean checksum();
+
+    /**
+     * @return Number of buckets results with mismatching checksums are recursively split into to localize the
+     * differences, or 0 to fetch the full results
+     */
+    public abstract int buckets();
+
+    /**
+     * @return Whether exported CSV files are compressed with gzip
+     */
+    public abstract boolean gzip();
+
+    /**
+     * @return Whether results of the original data warehouse are cached on disk and replayed on later runs
+     */
+    public abstract boolean cache();
+
+    /**
+     * @return Hours cached dry-run results stay valid
+     */
+    public abstract int cacheTtlHours();
+
+    /**
+     * @return Whether both queries are run against embedded databases instead of the data warehouse services
+     */
+    public abstract boolean local();
+
+    /**
+     * @return Whether results of every statement are compared as sorted streams, instead of only results of
+     * statements ending with an ORDER BY clause
+     */
+    public abstract boolean sorted();
+
+    /**
+     * @return Numbers are rounded to its nearest multiple before results are compared, or only compared by value if 0
+     */
+    public abstract BigDecimal tolerance();
+
+    /**
+     * @return Total bytes BQ may process for statements whose results are fetched, or 0 to verify statements in file
+     * order without estimating their cost
+     */
+    public abstract long budgetBytes();
+
+    /**
+     * @return Whether statements completed by a previous verification with the same inputs are skipped, and tables
+     * are kept when verification fails so they can be reused
+     */
+    public abstract boolean resume();
+
+    /**
+     * @return Modulus of the row hashes of the rows sampled from results with mismatching checksums, or 0 to fetch
+     * the results in full
+     */
+    public abstract int sampleModulus();
+
+    /**
+     * @return Maximum number of row ranges BQ results are listed in concurrently, or 0 to page through the results
+     */
+    public abstract int readStreams();
+
+    /**
+     * @return Positions of the columns rows are matched by, starting at 1, or an empty list to compare whole rows
+     */
+    public abstract List<Integer> keyColumns();
+
+    /**
+     * @return Number of differing rows kept as examples for each statement whose rows are matched by key columns
+     */
+    public abstract int maxExamples();
+
+    public static Builder builder() {
+        return new AutoValue_QueryVerificationOptions.Builder()
+                .setChecksum(false)
+                .setBuckets(0)
+                .setGzip(false)
+                .setCache(false)
+                .setCacheTtlHours(24)
+                .setLocal(false)
+                .setSorted(false)
+                .setTolerance(QueryVerifier.DEFAULT_TOLERANCE)
+                .setBudgetBytes(0)
+                .setResume(false)
+                .setSampleModulus(0)
+                .setReadStreams(0)
+                .setKeyColumns(Collections.emptyList())
+                .setMaxExamples(MismatchProfile.DEFAULT_EXAMPLES);
+    }
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+
+        public abstract Builder setChecksum(boolean checksum);
+
+        public abstract Builder setBuckets(int buckets);
+
+        public abstract Builder setGzip(boolean gzip);
+
+        public abstract Builder setCache(boolean cache);
+
+        public abstract Builder setCacheTtlHours(int cacheTtlHours);
+
+        public abstract Builder setLocal(boolean local);
+
+        public abstract Builder setSorted(boolean sorted);
+
+        public abstract Builder setTolerance(BigDecimal tolerance);
+
+        public abstract Builder setBudgetBytes(long budgetBytes);
+
+        public abstract Builder setResume(boolean resume);
+
+        public abstract Builder setSampleModulus(int sampleModulus);
+
+        public abstract Builder setReadStreams(int readStreams);
+
+        public abstract Builder setKeyColumns(List<Integer> keyColumns);
+
+        public abstract Builder setMaxExamples(int maxExamples);
+
+        public abstract QueryVerificationOptions build();
+
+    }
+
+}
@@ -1,14 +1,20 @@
 package com.google.bigquery;
 
+import com.google.cloud.bigquery.BigQuery;
+import com.google.cloud.bigquery.BigQueryOptions;
+
 import javax.annotation.Nullable;
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.math.BigDecimal;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -16,17 +22,186 @@ import java.util.stream.Collectors;
  */
 public class QueryVerifier {
 
-    private final BigQueryManager migratedInstance;
+    private final DataWarehouseManager migratedInstance;
     private final DataWarehouseManager originalInstance;
 
-    public static final int DECIMAL_PRECISION = 10;
+    private final QueryVerificationQuery migratedQuery;
+    private final QueryVerificationQuery originalQuery;
+
+    private final QueryVerificationOptions options;
+
+    // Inputs the tables are created from, which identify the checkpoint of a verification
+    private final QueryVerificationSchema migratedSchema;
+    private final QueryVerificationSchema originalSchema;
+    private final List<QueryVerificationData> data;
+
+    // Pairs of query files verified as a batch, or null if a single pair of query files is verified
+    private final List<QueryPair> batch;
+
+    // Pair of query files and number within the files of every statement of a batch
+    private final List<QueryPair> statementPairs = new ArrayList<QueryPair>();
+    private final List<Integer> statementNumbers = new ArrayList<Integer>();
+
+    // Statements compared by checksums, and the indexes of statements whose checksums differ but weren't fetched
+    private final AtomicInteger checksummedStatements = new AtomicInteger();
+    private final AtomicInteger matchingChecksums = new AtomicInteger();
+    private final Set<Integer> unfetchedMismatches = ConcurrentHashMap.newKeySet();
+
+    // Errors of checksums compared instead of fetching the results, which aren't errors of the statements themselves
+    private final Map<Integer, String> checksumErrors = new ConcurrentHashMap<Integer, String>();
+
+    // Comparisons of the sampled results of statements whose checksums differ
+    private final Map<Integer, SampleEstimate> samples = new ConcurrentHashMap<Integer, SampleEstimate>();
+
+    // Number of rows matched by key with differing columns, and their profiles unless they were verified previously
+    private final Map<Integer, Long> mismatchingRows = new ConcurrentHashMap<Integer, Long>();
+    private final Map<Integer, MismatchProfile> profiles = new ConcurrentHashMap<Integer, MismatchProfile>();
+
+    // Numbers are rounded to a multiple of the tolerance before comparing results, unless another one is configured
+    public static final BigDecimal DEFAULT_TOLERANCE = new BigDecimal("1E-10");
+
+    // Checksums round numbers to the scale of BigQuery's NUMERIC type if the tolerance is 0, since floating point values
+    // are formatted differently by each warehouse
+    public static final int CHECKSUM_NUMERIC_SCALE = 9;
+    // Numbers are first rounded to a few more decimal places than the checksum tolerance, so floating point values round
+    // the same way in every warehouse
+    public static final int CHECKSUM_GUARD_DIGITS = 2;
+    public static final String CHECKSUM_NULL_VALUE = "\\N";
+    public static final String CHECKSUM_SEPARATOR = "|";
+
+    // Buckets with mismatching checksums stop being split once they contain at most this many rows
+    public static final long DRILL_DOWN_MAX_ROWS = 1000;
+
+    // Statements exceeding the byte budget only checksum 1 in this many rows, unless results are sampled anyway
+    public static final int BUDGET_SAMPLE_MODULUS = 100;
+
+    private static final Pattern READ_ONLY_STATEMENT = Pattern.compile("^(\\s|--[^\\n]*(\\n|$)|/\\*.*?\\*/|\\()*(SELECT|SEL|WITH)\\b", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    // Names of the embedded databases used instead of BQ and TD for local verification
+    public static final String LOCAL_MIGRATED_NAME = "LocalMigrated";
+    public static final String LOCAL_ORIGINAL_NAME = "LocalOriginal";
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS zzz").withZone(ZoneId.systemDefault());
 
     public QueryVerifier(QueryVerificationQuery migratedQuery, @Nullable QueryVerificationSchema migratedSchema, @Nullable QueryVerificationQuery originalQuery, @Nullable QueryVerificationSchema originalSchema, @Nullable List<QueryVerificationData> data) {
-        migratedInstance = new BigQueryManager(migratedQuery, migratedSchema, data);
-        if (originalQuery == null) {
-            originalInstance = null;
+        this(migratedQuery, migratedSchema, originalQuery, originalSchema, data, QueryVerificationOptions.builder().build());
+    }
+
+    public QueryVerifier(QueryVerificationQuery migratedQuery, @Nullable QueryVerificationSchema migratedSchema, @Nullable QueryVerificationQuery originalQuery, @Nullable QueryVerificationSchema originalSchema, @Nullable List<QueryVerificationData> data, QueryVerificationOptions options) {
+        this(migratedQuery, migratedSchema, originalQuery, originalSchema, data, options, null);
+    }
+
+    /**
+     * Verifies a batch of query files against the same tables, which are only set up once for the whole batch
+     * @param batch Pairs of migrated and original query files
+     */
+    public QueryVerifier(List<QueryPair> batch, @Nullable QueryVerificationSchema migratedSchema, @Nullable QueryVerificationSchema originalSchema, List<QueryVerificationData> data, QueryVerificationOptions options) {
+        this(QueryPair.combine(batch, true), migratedSchema, QueryPair.combine(batch, false), originalSchema, data, options, batch);
+    }
+
+    private QueryVerifier(QueryVerificationQuery migratedQuery, @Nullable QueryVerificationSchema migratedSchema, @Nullable QueryVerificationQuery originalQuery, @Nullable QueryVerificationSchema originalSchema, @Nullable List<QueryVerificationData> data, QueryVerificationOptions options, @Nullable List<QueryPair> batch) {
+        this.migratedQuery = migratedQuery;
+        this.originalQuery = originalQuery;
+        this.options = options;
+        this.migratedSchema = migratedSchema;
+        this.data = data;
+        this.batch = batch;
+
+        if (options.local() && originalQuery != null) {
+            // Both queries are run against separate embedded databases, which have the same tables unless an original schema is provided
+            QueryVerificationSchema localOriginalSchema = originalSchema == null ? migratedSchema : originalSchema;
+            this.originalSchema = localOriginalSchema;
+            migratedInstance = new H2Manager(LOCAL_MIGRATED_NAME, migratedQuery, migratedSchema, data);
+            originalInstance = createOriginalInstance(new H2Manager(LOCAL_ORIGINAL_NAME, originalQuery, localOriginalSchema, data), originalQuery, localOriginalSchema, data, options);
         } else {
-            originalInstance = new TeradataManager(originalQuery, originalSchema, data);
+            this.originalSchema = originalSchema;
+            if (options.readStreams() > 0) {
+                BigQuery bigQuery = BigQueryOptions.getDefaultInstance().getService();
+                ResultReader resultReader = new StreamingResultReader(new TableDataStreamService(bigQuery), options.readStreams(), new PagedResultReader());
+                migratedInstance = new BigQueryManager(migratedQuery, migratedSchema, data, bigQuery, resultReader);
+            } else {
+                migratedInstance = new BigQueryManager(migratedQuery, migratedSchema, data);
+            }
+            if (originalQuery == null) {
+                originalInstance = null;
+            } else {
+                originalInstance = createOriginalInstance(new TeradataManager(originalQuery, originalSchema, data), originalQuery, originalSchema, data, options);
+            }
+        }
+        setChecksumTolerance();
+    }
+
+    /**
+     * Verifies queries against the provided data warehouse services
+     * @param migratedInstance Data warehouse service running the migrated query
+     * @param originalInstance Data warehouse service running the original query, or null for data-free verification
+     */
+    public QueryVerifier(DataWarehouseManager migratedInstance, @Nullable DataWarehouseManager originalInstance, QueryVerificationQuery migratedQuery, @Nullable QueryVerificationQuery originalQuery, QueryVerificationOptions options) {
+        this(migratedInstance, originalInstance, migratedQuery, originalQuery, options, null);
+    }
+
+    /**
+     * Verifies a batch of query files against the provided data warehouse services
+     * @param migratedInstance Data warehouse service running the migrated queries
+     * @param originalInstance Data warehouse service running the original queries
+     * @param batch Pairs of migrated and original query files
+     */
+    public QueryVerifier(DataWarehouseManager migratedInstance, DataWarehouseManager originalInstance, List<QueryPair> batch, QueryVerificationOptions options) {
+        this(migratedInstance, originalInstance, QueryPair.combine(batch, true), QueryPair.combine(batch, false), options, batch);
+    }
+
+    private QueryVerifier(DataWarehouseManager migratedInstance, @Nullable DataWarehouseManager originalInstance, QueryVerificationQuery migratedQuery, @Nullable QueryVerificationQuery originalQuery, QueryVerificationOptions options, @Nullable List<QueryPair> batch) {
+        this.migratedInstance = migratedInstance;
+        this.originalInstance = originalInstance;
+        this.migratedQuery = migratedQuery;
+        this.originalQuery = originalQuery;
+        this.options = options;
+        this.migratedSchema = null;
+        this.originalSchema = null;
+        this.data = null;
+        this.batch = batch;
+        setChecksumTolerance();
+    }
+
+    /**
+     * Rounds numbers in checksums to the same tolerance as the rows, so both comparisons agree on which results match
+     */
+    private void setChecksumTolerance() {
+        migratedInstance.setChecksumTolerance(options.tolerance());
+        if (originalInstance != null) {
+            originalInstance.setChecksumTolerance(options.tolerance());
+        }
+    }
+
+    /**
+     * @param tolerance Numbers are rounded to its nearest multiple before rows are compared, or only compared by value if it is 0
+     * @return Multiple which checksums round numbers to, so they match whenever the rows would
+     */
+    public static BigDecimal getChecksumTolerance(BigDecimal tolerance) {
+        return tolerance.signum() == 0 ? BigDecimal.ONE.scaleByPowerOfTen(-CHECKSUM_NUMERIC_SCALE) : tolerance;
+    }
+
+    /**
+     * @param checksumTolerance Multiple which checksums round numbers to
+     * @return Decimal places numbers are rounded to before they're rounded to the checksum tolerance
+     */
+    public static int getChecksumScale(BigDecimal checksumTolerance) {
+        return Math.max(checksumTolerance.scale(), 0) + CHECKSUM_GUARD_DIGITS;
+    }
+
+    /**
+     * Wraps the original data warehouse in an on-disk results cache if caching is enabled
+     */
+    private static DataWarehouseManager createOriginalInstance(DataWarehouseManager manager, QueryVerificationQuery originalQuery, QueryVerificationSchema originalSchema, List<QueryVerificationData> data, QueryVerificationOptions options) {
+        if (!options.cache()) {
+            return manager;
+        }
+
+        try {
+            return new CachedDataWarehouseManager(manager, originalQuery, originalSchema, data);
+        } catch (IOException e) {
+            System.err.println("Results cache is disabled since the data files could not be read: " + e.getMessage());
+            return manager;
         }
     }
 
@@ -50,10 +225,20 @@ public class QueryVerifier {
     /**
      * Verifies migrated query by checking for syntax and semantic errors.
      */
-    public void verifyDataFree() throws InterruptedException {
-        List<QueryJobResults> results = migratedInstance.dryRunQueries();
+    public void verifyDataFree() throws Exception {
+        if (!(migratedInstance instanceof BigQueryManager)) {
+            throw new IllegalArgumentException("Data-free verification requires BigQuery to dry run the migrated query.");
+        }
+
+        DryRunCache cache = options.cache() ? new DryRunCache(Duration.ofHours(options.cacheTtlHours())) : null;
+        List<QueryJobResults> results = ((BigQueryManager) migratedInstance).dryRunQueries(cache);
+
+        if (cache != null) {
+            cache.save();
+            System.out.printf("Dry-run cache: %d remote calls avoided, %d statements dry-run\n", cache.getHits(), cache.getMisses());
+        }
 
-        QueryErrors errors = QueryVerifier.classifyErrors(results);
+        QueryErrors errors = QueryVerifier.classifyErrors(results, migratedInstance.getDialect());
 
         // Summary
         System.out.println();
@@ -65,32 +250,663 @@ public class QueryVerifier {
      * Verifies migrated query by sending query jobs to BQ and TD to check for differences in the query results.
      */
     public void verifyDataAware() throws Exception {
-        List<QueryJobResults> migratedResults = migratedInstance.runQueries();
-        List<QueryJobResults> originalResults = originalInstance.runQueries();
+        List<QueryComparison> comparisons;
+        List<ScheduledStatement> plan = null;
+        List<String> migratedStatements = null;
+        VerificationReport report = new VerificationReport(migratedInstance, originalInstance);
+        PhaseTimer phaseTimer = report.getPhaseTimer();
+
+        VerificationCheckpoint checkpoint = VerificationCheckpoint.open(CsvResultWriter.getOutputDirectory().resolve(VerificationCheckpoint.FILE_NAME), getCheckpointFingerprint(), options.resume());
+        if (checkpoint.getCompletedCount() > 0) {
+            // Results and diffs of completed statements are kept
+            System.out.printf("Resuming verification, %d queries were completed by a previous verification.\n\n", checkpoint.getCompletedCount());
+        } else {
+            // Clear out results of previous verifications
+            CsvResultWriter.prepareOutputFolder(migratedInstance.getName(), "");
+            CsvResultWriter.prepareOutputFolder(originalInstance.getName(), "");
+            CsvResultWriter.prepareOutputFolder("diff", "missing");
+            CsvResultWriter.prepareOutputFolder("diff", "extra");
+        }
+
+        boolean completed = false;
+        boolean cleanedUp = false;
+        try {
+            // Both data warehouses are set up at the same time
+            List<DataWarehouseManager> reusedInstances = Collections.synchronizedList(new ArrayList<DataWarehouseManager>());
+            phaseTimer.time("setup", () -> ParallelTasks.runAll(Arrays.asList(migratedInstance, originalInstance), 2, instance -> {
+                if (setupTables(instance, checkpoint)) {
+                    reusedInstances.add(instance);
+                }
+            }));
+
+            try (QueryResultPipeline pipeline = new QueryResultPipeline(migratedInstance.getName(), originalInstance.getName(), options.gzip(), phaseTimer)) {
+                migratedStatements = new ArrayList<String>();
+                List<String> originalStatements = new ArrayList<String>();
+                addStatements(migratedStatements, originalStatements);
+                if (reusedInstances.size() < 2) {
+                    rerunModifyingStatements(checkpoint, reusedInstances, migratedStatements, originalStatements, phaseTimer);
+                }
+
+                QueryComparison[] results = new QueryComparison[migratedStatements.size()];
+                List<String> statements = migratedStatements;
 
-        QueryVerifier.exportToCsv(migratedResults, migratedInstance);
-        QueryVerifier.exportToCsv(originalResults, originalInstance);
+                if (options.budgetBytes() > 0) {
+                    List<ScheduledStatement> schedule = planExecution(migratedStatements, phaseTimer);
+                    plan = schedule;
 
-        List<ResultDifferences> resultDifferences = QueryVerifier.compareResults(migratedResults, originalResults);
-        QueryVerifier.exportToCsv(resultDifferences);
+                    // Statements are verified in the planned order, and each run of cheap statements concurrently
+                    phaseTimer.time("verification", () -> {
+                        List<ScheduledStatement> concurrentStatements = new ArrayList<ScheduledStatement>();
+                        for (int i = 0; i <= schedule.size(); i++) {
+                            ScheduledStatement statement = i < schedule.size() ? schedule.get(i) : null;
+                            if (statement != null && statement.mode() == ScheduledStatement.Mode.CONCURRENT) {
+                                concurrentStatements.add(statement);
+                                continue;
+                            }
 
-        QueryErrors migratedErrors = QueryVerifier.classifyErrors(migratedResults);
-        QueryErrors originalErrors = QueryVerifier.classifyErrors(originalResults);
+                            ParallelTasks.runAll(concurrentStatements, CostAwareScheduler.DEFAULT_PARALLELISM, concurrentStatement -> {
+                                results[concurrentStatement.index()] = verifyStatement(report, checkpoint, pipeline, concurrentStatement.index(), concurrentStatement.mode(), statements.get(concurrentStatement.index()), originalStatements.get(concurrentStatement.index()), options.checksum(), true);
+                            });
+                            concurrentStatements.clear();
+
+                            if (statement != null) {
+                                boolean withinBudget = statement.mode() == ScheduledStatement.Mode.SEQUENTIAL;
+                                results[statement.index()] = verifyStatement(report, checkpoint, pipeline, statement.index(), statement.mode(), statements.get(statement.index()), originalStatements.get(statement.index()), options.checksum() || !withinBudget, withinBudget);
+                            }
+                        }
+                    });
+                } else if (batch != null) {
+                    // Files of a batch are verified concurrently, sharing the tables and connections of each data warehouse,
+                    // while the statements of each file run in order since they may depend on each other. Files with
+                    // statements modifying the tables are verified on their own once the files before them are done,
+                    // so they don't change the tables under other files.
+                    Map<QueryPair, List<Integer>> fileIndexes = new LinkedHashMap<QueryPair, List<Integer>>();
+                    for (int i = 0; i < statements.size(); i++) {
+                        fileIndexes.computeIfAbsent(statementPairs.get(i), pair -> new ArrayList<Integer>()).add(i);
+                    }
+                    ParallelTasks.Task<List<Integer>> verifyFile = indexes -> {
+                        for (int i : indexes) {
+                            results[i] = verifyStatement(report, checkpoint, pipeline, i, null, statements.get(i), originalStatements.get(i), options.checksum(), true);
+                        }
+                    };
+                    phaseTimer.time("verification", () -> {
+                        List<List<Integer>> concurrentFiles = new ArrayList<List<Integer>>();
+                        for (List<Integer> indexes : fileIndexes.values()) {
+                            if (indexes.stream().allMatch(i -> isReadOnly(statements.get(i)) && isReadOnly(originalStatements.get(i)))) {
+                                concurrentFiles.add(indexes);
+                                continue;
+                            }
+
+                            ParallelTasks.runAll(concurrentFiles, CostAwareScheduler.DEFAULT_PARALLELISM, verifyFile);
+                            concurrentFiles.clear();
+                            verifyFile.run(indexes);
+                        }
+                        ParallelTasks.runAll(concurrentFiles, CostAwareScheduler.DEFAULT_PARALLELISM, verifyFile);
+                    });
+                } else {
+                    phaseTimer.time("verification", () -> {
+                        for (int i = 0; i < statements.size(); i++) {
+                            results[i] = verifyStatement(report, checkpoint, pipeline, i, null, statements.get(i), originalStatements.get(i), options.checksum(), true);
+                        }
+                    });
+                }
+
+                comparisons = Arrays.asList(results);
+            }
+            completed = true;
+        } finally {
+            if (completed || !options.resume()) {
+                // Tables are cleaned up even when setup or verification fails midway
+                cleanedUp = true;
+                phaseTimer.time("cleanup", () -> {
+                    try {
+                        originalInstance.cleanupTables();
+                    } finally {
+                        migratedInstance.cleanupTables();
+                    }
+                });
+            } else {
+                System.err.println("Tables were kept, so they can be reused when the verification is resumed with --resume.");
+            }
+
+            // Completed verifications can't be resumed, and neither can verifications whose tables are gone, since
+            // completed statements may have modified them
+            if (cleanedUp) {
+                checkpoint.delete();
+            } else {
+                checkpoint.close();
+            }
+
+            // The report also shows where the time went when verification fails
+            Path reportPath = CsvResultWriter.getOutputDirectory().resolve(VerificationReport.FILE_NAME);
+            try {
+                report.write(reportPath);
+            } catch (IOException e) {
+                System.err.println("Failed to write " + reportPath + ": " + e.getMessage());
+            }
+        }
+
+        QueryErrors migratedErrors = QueryVerifier.classifyErrors(comparisons.stream().map(QueryComparison::migratedResults).collect(Collectors.toList()), migratedInstance.getDialect());
+        QueryErrors originalErrors = QueryVerifier.classifyErrors(comparisons.stream().map(QueryComparison::originalResults).collect(Collectors.toList()), originalInstance.getDialect());
 
         // Summary
         System.out.printf("%s Summary\nQueries Run: %d, No Errors: %d (%.2f%%), Syntax Errors: %d, Semantic Errors: %d\n\n", migratedInstance.getName(), migratedErrors.totalQueries(), migratedErrors.noErrors(), migratedErrors.successRate(), migratedErrors.syntaxErrors(), migratedErrors.semanticErrors());
         System.out.printf("%s Summary\nQueries Run: %d, No Errors: %d (%.2f%%), Syntax Errors: %d, Semantic Errors: %d\n\n", originalInstance.getName(), originalErrors.totalQueries(), originalErrors.noErrors(), originalErrors.successRate(), originalErrors.syntaxErrors(), originalErrors.semanticErrors());
+        if (plan != null) {
+            printBytesProcessed(plan, migratedStatements);
+        }
+        if (batch != null) {
+            printBatchSummary(comparisons);
+        }
         System.out.println("Verification Summary");
-        for (int i = 0; i < resultDifferences.size(); i++) {
-            ResultDifferences differences = resultDifferences.get(i);
-            if (!differences.missingResults().isEmpty() || !differences.extraResults().isEmpty()) {
-                System.out.printf("Differences in query %d results: %d rows missing and %d extra rows in migrated query results.\n", i + 1, differences.missingResults().size(), differences.extraResults().size());
+        if (checksummedStatements.get() > 0) {
+            System.out.printf("Checksums matched for %d of %d queries, results were only fetched for the remaining queries.\n", matchingChecksums.get(), checksummedStatements.get());
+        }
+        for (int i = 0; i < comparisons.size(); i++) {
+            QueryComparison comparison = comparisons.get(i);
+            if (!samples.containsKey(i) && (comparison.missingResults() > 0 || comparison.extraResults() > 0)) {
+                System.out.printf("Differences in %s results: %d rows missing and %d extra rows in migrated query results.\n", describeQuery(i), comparison.missingResults(), comparison.extraResults());
             }
         }
-        System.out.println("Raw results and diffs have been exported to the \"query_verification_output\" folder.\n");
+        for (Map.Entry<Integer, SampleEstimate> entry : new TreeMap<Integer, SampleEstimate>(samples).entrySet()) {
+            printSampleEstimate(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<Integer, Long> entry : new TreeMap<Integer, Long>(mismatchingRows).entrySet()) {
+            printMismatchingRows(entry.getKey(), entry.getValue());
+        }
+        for (int index : new TreeSet<Integer>(unfetchedMismatches)) {
+            System.out.printf("Checksums of a 1 in %d sample of %s results differ, but the results weren't fetched since the query exceeds the byte budget.\n", getBudgetSampleModulus(), describeQuery(index));
+        }
+        for (Map.Entry<Integer, String> entry : new TreeMap<Integer, String>(checksumErrors).entrySet()) {
+            System.out.printf("Checksums of %s results couldn't be compared: %s\n", describeQuery(entry.getKey()), entry.getValue());
+        }
+        System.out.printf("Raw results and diffs have been exported to the \"%s\" folder.\n", CsvResultWriter.getOutputDirectory());
+        System.out.printf("Timings and job statistics of every query have been written to \"%s\".\n\n", CsvResultWriter.getOutputDirectory().resolve(VerificationReport.FILE_NAME));
         System.out.println("Data-Aware Verification Completed");
     }
 
+    /**
+     * Splits the query files into statements. Pairs of files in a batch with a different number of statements are
+     * skipped, while a single pair of files has to have the same number of statements.
+     * @param migratedStatements List the migrated statements are added to
+     * @param originalStatements List the original statements are added to
+     * @throws IllegalArgumentException if the number of statements of a single pair of files differs
+     */
+    private void addStatements(List<String> migratedStatements, List<String> originalStatements) throws IllegalArgumentException {
+        if (batch == null) {
+            migratedStatements.addAll(migratedInstance.getStatementsFromQuery());
+            originalStatements.addAll(originalInstance.getStatementsFromQuery());
+
+            if (migratedStatements.size() != originalStatements.size()) {
+                throw new IllegalArgumentException("Number of statements in migrated query file should be equal to the number of statements in the original query file.");
+            }
+            return;
+        }
+
+        for (QueryPair pair : batch) {
+            List<String> migratedFileStatements = StatementSplitter.splitToText(pair.migratedQuery().query(), migratedInstance.getDialect());
+            List<String> originalFileStatements = StatementSplitter.splitToText(pair.originalQuery().query(), originalInstance.getDialect());
+
+            if (migratedFileStatements.size() != originalFileStatements.size()) {
+                System.err.printf("Skipping %s, since it has %d statements while %s has %d statements.\n", pair.migratedQuery().path(), migratedFileStatements.size(), pair.originalQuery().path(), originalFileStatements.size());
+                continue;
+            }
+
+            for (int i = 0; i < migratedFileStatements.size(); i++) {
+                statementPairs.add(pair);
+                statementNumbers.add(i + 1);
+            }
+            migratedStatements.addAll(migratedFileStatements);
+            originalStatements.addAll(originalFileStatements);
+        }
+    }
+
+    /**
+     * @param index Index of the statement
+     * @return File of the migrated statement
+     */
+    private QueryVerificationQuery getMigratedQuery(int index) {
+        return batch == null ? migratedQuery : statementPairs.get(index).migratedQuery();
+    }
+
+    /**
+     * @param index Index of the statement
+     * @return File of the original statement
+     */
+    private QueryVerificationQuery getOriginalQuery(int index) {
+        return batch == null ? originalQuery : statementPairs.get(index).originalQuery();
+    }
+
+    /**
+     * Results of a batch refer to the combined query of the data warehouses, so they're attributed to the files of
+     * the statements instead
+     * @param index Index of the statements
+     * @param comparison Comparison of the results
+     * @return Comparison whose results refer to the files of the statements
+     */
+    private QueryComparison withQueryFiles(int index, QueryComparison comparison) {
+        if (batch == null) {
+            return comparison;
+        }
+
+        QueryJobResults migratedResults = comparison.migratedResults();
+        QueryJobResults originalResults = comparison.originalResults();
+        return QueryComparison.create(
+                QueryJobResults.create(migratedResults.statement(), getMigratedQuery(index), migratedResults.error(), migratedResults.results(), migratedResults.rawResults()),
+                QueryJobResults.create(originalResults.statement(), getOriginalQuery(index), originalResults.error(), originalResults.results(), originalResults.rawResults()),
+                comparison.extraResults(), comparison.missingResults());
+    }
+
+    /**
+     * @param index Index of the statement
+     * @return Description of the statement for the summary, which names its file in a batch
+     */
+    private String describeQuery(int index) {
+        if (batch == null) {
+            return String.format("query %d", index + 1);
+        }
+        return String.format("query %d (statement %d of %s)", index + 1, statementNumbers.get(index), statementPairs.get(index).migratedQuery().path());
+    }
+
+    /**
+     * Prints how many files of the batch were verified, and how many of them have differences or errors
+     * @param comparisons Comparisons of every statement
+     */
+    private void printBatchSummary(List<QueryComparison> comparisons) {
+        Set<QueryPair> differingFiles = new HashSet<QueryPair>();
+        Set<QueryPair> failingFiles = new HashSet<QueryPair>();
+        for (int i = 0; i < comparisons.size(); i++) {
+            QueryComparison comparison = comparisons.get(i);
+            if (comparison.extraResults() > 0 || comparison.missingResults() > 0 || mismatchingRows.containsKey(i)) {
+                differingFiles.add(statementPairs.get(i));
+            }
+            if (comparison.migratedResults().error() != null || comparison.originalResults().error() != null) {
+                failingFiles.add(statementPairs.get(i));
+            }
+        }
+
+        int verifiedFiles = new HashSet<QueryPair>(statementPairs).size();
+        System.out.printf("Batch Summary\nFiles Verified: %d of %d, Files With Differences: %d, Files With Errors: %d\n\n", verifiedFiles, batch.size(), differingFiles.size(), failingFiles.size());
+    }
+
+    /**
+     * Sets up the tables of a data warehouse, unless the tables set up by a previous verification still exist
+     * @param instance Data warehouse service to set up
+     * @param checkpoint Progress of the verification
+     * @return Whether the tables of the previous verification were reused
+     * @throws Exception
+     */
+    private static boolean setupTables(DataWarehouseManager instance, VerificationCheckpoint checkpoint) throws Exception {
+        boolean reused = checkpoint.isSetUp(instance.getName()) && instance.reuseTables();
+        if (reused) {
+            System.out.printf("Reusing the %s tables set up by a previous verification.\n", instance.getName());
+        } else {
+            instance.setupTables();
+        }
+        checkpoint.recordSetup(instance.getName());
+        return reused;
+    }
+
+    /**
+     * Makes a resumed verification run the completed statements which aren't read-only again once tables had to be
+     * set up from scratch, since the new tables lack their effects. Tables which were reused already have these
+     * effects, so they are set up from scratch as well before the statements run again.
+     * @param checkpoint Progress of the verification
+     * @param reusedInstances Data warehouse services whose tables were reused
+     * @param migratedStatements Statements run by BQ
+     * @param originalStatements Statements run by the original data warehouse service
+     * @param phaseTimer Timer the time setting up tables again is added to
+     * @throws Exception
+     */
+    private static void rerunModifyingStatements(VerificationCheckpoint checkpoint, List<DataWarehouseManager> reusedInstances, List<String> migratedStatements, List<String> originalStatements, PhaseTimer phaseTimer) throws Exception {
+        List<Integer> modifyingStatements = new ArrayList<Integer>();
+        for (int i = 0; i < migratedStatements.size(); i++) {
+            if (!isReadOnly(migratedStatements.get(i)) || !isReadOnly(originalStatements.get(i))) {
+                modifyingStatements.add(i);
+            }
+        }
+        if (checkpoint.forgetStatements(modifyingStatements) == 0) {
+            return;
+        }
+
+        System.out.println("Completed queries modifying the tables are run again, since the tables had to be set up again.");
+        phaseTimer.time("setup", () -> ParallelTasks.runAll(reusedInstances, 2, instance -> {
+            instance.cleanupTables();
+            instance.setupTables();
+        }));
+    }
+
+    /**
+     * @return Fingerprint of the data warehouses, schemas, data and options the checkpoint of a verification is valid for
+     * @throws IOException if a data file can't be accessed
+     */
+    private String getCheckpointFingerprint() throws IOException {
+        List<String> settings = Arrays.asList(migratedInstance.getName(), originalInstance.getName(),
+                migratedSchema == null ? null : migratedSchema.schema(), originalSchema == null ? null : originalSchema.schema(),
+                String.valueOf(options.checksum()), String.valueOf(options.buckets()), String.valueOf(options.gzip()),
+                String.valueOf(options.sorted()), options.tolerance().toPlainString(), String.valueOf(options.budgetBytes()), String.valueOf(options.sampleModulus()),
+                options.keyColumns().toString(), String.valueOf(options.maxExamples()));
+        return VerificationCheckpoint.getFingerprint(settings, data);
+    }
+
+    /**
+     * Compares the results of a migrated and original statement, unless they were compared by a previous verification,
+     * and adds the time it took to the report and the checkpoint
+     * @param report Report of the verification
+     * @param checkpoint Progress of the verification
+     * @param pipeline Pipeline streaming the results
+     * @param index Index of the statements in the query files
+     * @param mode How the statement was scheduled, or null if statements aren't scheduled by cost
+     * @param migratedStatement Statement run by BQ
+     * @param originalStatement Statement run by the original data warehouse service
+     * @param checksum Whether checksums are compared first
+     * @param fetchMismatches Whether results are fetched if the checksums differ
+     * @return Comparison of the results
+     * @throws Exception
+     */
+    private QueryComparison verifyStatement(VerificationReport report, VerificationCheckpoint checkpoint, QueryResultPipeline pipeline, int index, @Nullable ScheduledStatement.Mode mode, String migratedStatement, String originalStatement, boolean checksum, boolean fetchMismatches) throws Exception {
+        QueryComparison completedComparison = checkpoint.getCompleted(index, migratedStatement, getMigratedQuery(index), originalStatement, getOriginalQuery(index));
+        if (completedComparison != null) {
+            if (checkpoint.isUnfetched(index)) {
+                unfetchedMismatches.add(index);
+            }
+            SampleEstimate sample = checkpoint.getSample(index);
+            if (sample != null) {
+                samples.put(index, sample);
+            }
+            if (checkpoint.getMismatchingRows(index) > 0) {
+                mismatchingRows.put(index, checkpoint.getMismatchingRows(index));
+            }
+            String checksumError = checkpoint.getChecksumError(index);
+            if (checksumError != null) {
+                checksumErrors.put(index, checksumError);
+            }
+            return completedComparison;
+        }
+
+        long start = System.nanoTime();
+        QueryComparison comparison = withQueryFiles(index, compareStatement(pipeline, index, migratedStatement, originalStatement, checksum, fetchMismatches));
+        report.addStatement(index, mode, System.nanoTime() - start, comparison, profiles.get(index), checksumErrors.get(index));
+        checkpoint.recordStatement(index, comparison, unfetchedMismatches.contains(index), samples.get(index), mismatchingRows.getOrDefault(index, 0L), checksumErrors.get(index));
+        return comparison;
+    }
+
+    /**
+     * Compares the results of a migrated and original statement
+     * @param pipeline Pipeline streaming the results
+     * @param index Index of the statements in the query files
+     * @param migratedStatement Statement run by BQ
+     * @param originalStatement Statement run by the original data warehouse service
+     * @param checksum Whether checksums are compared first, which they always are when results are sampled
+     * @param fetchMismatches Whether results are fetched if the checksums differ. Otherwise, only the checksums of a
+     *                        sample of the results are compared.
+     * @return Comparison of the results
+     * @throws Exception
+     */
+    private QueryComparison compareStatement(QueryResultPipeline pipeline, int index, String migratedStatement, String originalStatement, boolean checksum, boolean fetchMismatches) throws Exception {
+        if (!fetchMismatches) {
+            return compareSampledChecksums(index, migratedStatement, originalStatement);
+        }
+
+        boolean sample = options.sampleModulus() > 1;
+        if (checksum || sample) {
+            checksummedStatements.incrementAndGet();
+            QueryChecksum migratedChecksum = migratedInstance.runChecksumQuery(migratedStatement);
+            QueryChecksum originalChecksum = originalInstance.runChecksumQuery(originalStatement);
+
+            if (migratedChecksum.matches(originalChecksum)) {
+                // Identical results don't need to be fetched
+                matchingChecksums.incrementAndGet();
+                return QueryComparison.create(QueryJobResults.create(migratedStatement, migratedQuery, null, null, null), QueryJobResults.create(originalStatement, originalQuery, null, null, null), 0, 0);
+            }
+
+            QueryComparison comparison = sample ? compareSample(pipeline, index, migratedChecksum, originalChecksum) : compareMismatchingBuckets(pipeline, index, migratedChecksum, originalChecksum);
+            if (comparison != null) {
+                return comparison;
+            }
+        }
+
+        // Fetch results to find the differences, or the errors which prevented the checksums
+        ResultDiff diff;
+        if (!options.keyColumns().isEmpty()) {
+            diff = new KeyedResultDiff(options.keyColumns(), options.tolerance(), options.maxExamples());
+        } else if (options.sorted() || (isOrdered(migratedStatement) && isOrdered(originalStatement))) {
+            diff = new SortedResultDiff(options.tolerance());
+        } else {
+            diff = new ResultDiff(options.tolerance());
+        }
+        QueryComparison comparison = pipeline.compare(index, consumer -> migratedInstance.runQuery(migratedStatement, consumer), consumer -> originalInstance.runQuery(originalStatement, consumer), diff);
+        addProfile(index, diff);
+        return comparison;
+    }
+
+    /**
+     * Compares the checksums of a sample of the results of a statement which exceeds the byte budget. Only the rows
+     * whose row hash modulo the sample modulus is 0 are hashed and aggregated, and the results are never fetched.
+     * Checksums which fail are reported separately, since the statements may not have failed themselves.
+     * @param index Index of the statements in the query files
+     * @param migratedStatement Statement run by BQ
+     * @param originalStatement Statement run by the original data warehouse service
+     * @return Comparison without errors or differences, which are reported by the summary instead
+     */
+    private QueryComparison compareSampledChecksums(int index, String migratedStatement, String originalStatement) {
+        QueryComparison comparison = QueryComparison.create(QueryJobResults.create(migratedStatement, migratedQuery, null, null, null), QueryJobResults.create(originalStatement, originalQuery, null, null, null), 0, 0);
+        checksummedStatements.incrementAndGet();
+
+        long modulus = getBudgetSampleModulus();
+        List<Long> remainders = Collections.singletonList(0L);
+        List<BucketChecksum> migratedChecksums;
+        List<BucketChecksum> originalChecksums;
+        try {
+            migratedChecksums = migratedInstance.runBucketChecksumQuery(migratedStatement, modulus, remainders, modulus);
+            originalChecksums = originalInstance.runBucketChecksumQuery(originalStatement, modulus, remainders, modulus);
+        } catch (Exception e) {
+            checksumErrors.put(index, String.valueOf(e.getMessage()));
+            return comparison;
+        }
+
+        // Only the sampled bucket is returned, unless it is empty
+        boolean matches = migratedChecksums.size() == originalChecksums.size()
+                && (migratedChecksums.isEmpty() || migratedChecksums.get(0).matches(originalChecksums.get(0)));
+        if (matches) {
+            matchingChecksums.incrementAndGet();
+        } else {
+            unfetchedMismatches.add(index);
+        }
+        return comparison;
+    }
+
+    /**
+     * @return Modulus of the sample whose checksums are compared for statements exceeding the byte budget
+     */
+    private long getBudgetSampleModulus() {
+        return options.sampleModulus() > 1 ? options.sampleModulus() : BUDGET_SAMPLE_MODULUS;
+    }
+
+    /**
+     * Keeps the profile of rows matched by key if any of them differ
+     * @param index Index of the statements in the query files
+     * @param diff Comparison of the results once both results have been read
+     */
+    private void addProfile(int index, ResultDiff diff) {
+        if (diff instanceof KeyedResultDiff) {
+            MismatchProfile profile = ((KeyedResultDiff) diff).getProfile();
+            if (profile.getMismatchingRows() > 0) {
+                mismatchingRows.put(index, profile.getMismatchingRows());
+                profiles.put(index, profile);
+            }
+        }
+    }
+
+    /**
+     * Prints how many rows matched by key differ, and in which columns
+     * @param index Index of the statements in the query files
+     * @param rows Number of matched rows with differing columns
+     */
+    private void printMismatchingRows(int index, long rows) {
+        MismatchProfile profile = profiles.get(index);
+        if (profile == null) {
+            System.out.printf("Differing values in %d rows matched by key in %s results.\n", rows, describeQuery(index));
+            return;
+        }
+
+        String columns = profile.getColumnMismatches().entrySet().stream().map(entry -> String.format("column %d (%d rows)", entry.getKey(), entry.getValue())).collect(Collectors.joining(", "));
+        System.out.printf("Differing values in %d of %d rows matched by key in %s results: %s.\n", rows, profile.getMatchedRows(), describeQuery(index), columns);
+    }
+
+    /**
+     * Estimates the bytes processed by every migrated statement concurrently and prints the resulting plan
+     * @param statements Migrated statements
+     * @param phaseTimer Timer the time spent estimating is added to
+     * @return Statements in the order they are verified
+     * @throws Exception
+     */
+    private List<ScheduledStatement> planExecution(List<String> statements, PhaseTimer phaseTimer) throws Exception {
+        Long[] estimatedBytes = new Long[statements.size()];
+        List<Integer> indexes = new ArrayList<Integer>();
+        for (int i = 0; i < statements.size(); i++) {
+            indexes.add(i);
+        }
+        phaseTimer.time("estimation", () -> ParallelTasks.runAll(indexes, ParallelTasks.DEFAULT_PARALLELISM, index -> estimatedBytes[index] = migratedInstance.estimateBytesProcessed(statements.get(index))));
+
+        List<Boolean> readOnly = statements.stream().map(QueryVerifier::isReadOnly).collect(Collectors.toList());
+        List<ScheduledStatement> plan = new CostAwareScheduler(options.budgetBytes(), CostAwareScheduler.DEFAULT_CHEAP_BYTES).plan(Arrays.asList(estimatedBytes), readOnly);
+
+        System.out.printf("Execution Plan (budget %s)\n", CostAwareScheduler.formatBytes(options.budgetBytes()));
+        for (ScheduledStatement statement : plan) {
+            String estimate = statement.estimatedBytes() == null ? "unknown" : CostAwareScheduler.formatBytes(statement.estimatedBytes());
+            System.out.printf("Query %d: %s estimated, %s\n", statement.index() + 1, estimate, statement.mode().name().toLowerCase());
+        }
+        System.out.println();
+
+        return plan;
+    }
+
+    /**
+     * Prints the exact row counts of a statement whose results were sampled, the differences in the sample and the
+     * estimated differences in the full results
+     * @param index Index of the statements in the query files
+     * @param sample Comparison of the sampled results
+     */
+    private void printSampleEstimate(int index, SampleEstimate sample) {
+        if (sample.migratedRowCount() != sample.originalRowCount()) {
+            System.out.printf("Row counts of %s results differ: %d rows in %s and %d rows in %s.\n", describeQuery(index), sample.migratedRowCount(), migratedInstance.getName(), sample.originalRowCount(), originalInstance.getName());
+        }
+        System.out.printf("Differences in a 1 in %d sample of %s results: %d rows missing and %d extra rows in migrated query results.\n", sample.modulus(), describeQuery(index), sample.sampledMissingRows(), sample.sampledExtraRows());
+        System.out.printf("Estimated differences in %s results: %d rows missing (at most %d) and %d extra rows (at most %d) with %.0f%% confidence.\n", describeQuery(index),
+                sample.estimatedMissingRows(), sample.missingRowsUpperBound(), sample.estimatedExtraRows(), sample.extraRowsUpperBound(), SampleEstimate.CONFIDENCE * 100);
+    }
+
+    /**
+     * Prints the estimated and actual bytes processed by every migrated statement
+     * @param plan Statements in the order they were verified
+     * @param statements Migrated statements
+     */
+    private void printBytesProcessed(List<ScheduledStatement> plan, List<String> statements) {
+        System.out.printf("%s Bytes Processed\n", migratedInstance.getName());
+
+        long totalEstimatedBytes = 0;
+        long totalBytes = 0;
+        for (ScheduledStatement statement : plan) {
+            Long bytes = migratedInstance.getBytesProcessed(statements.get(statement.index()));
+            String estimate = statement.estimatedBytes() == null ? "unknown" : CostAwareScheduler.formatBytes(statement.estimatedBytes());
+            System.out.printf("Query %d: %s estimated, %s processed (%s)\n", statement.index() + 1, estimate, bytes == null ? "unknown" : CostAwareScheduler.formatBytes(bytes), statement.mode().name().toLowerCase());
+
+            totalEstimatedBytes += statement.estimatedBytes() == null ? 0 : statement.estimatedBytes();
+            totalBytes += bytes == null ? 0 : bytes;
+        }
+        System.out.printf("Total: %s estimated, %s processed\n\n", CostAwareScheduler.formatBytes(totalEstimatedBytes), CostAwareScheduler.formatBytes(totalBytes));
+    }
+
+    /**
+     * Only compares the rows whose row hash modulo the sample modulus is 0. Both data warehouses compute the same
+     * canonical row hash, so they return the same logical subset of rows, and row counts are compared exactly through
+     * the checksums.
+     * @param pipeline Pipeline streaming the sampled rows
+     * @param index Index of the statements in the query files
+     * @param migratedChecksum Checksum of the results from BQ
+     * @param originalChecksum Checksum of the results from the original data warehouse service
+     * @return Comparison of the sampled rows, or null if the full results need to be fetched to report errors
+     * @throws Exception
+     */
+    @Nullable
+    private QueryComparison compareSample(QueryResultPipeline pipeline, int index, QueryChecksum migratedChecksum, QueryChecksum originalChecksum) throws Exception {
+        if (migratedChecksum.error() != null || originalChecksum.error() != null) {
+            return null;
+        }
+
+        long modulus = options.sampleModulus();
+        List<Long> remainders = Collections.singletonList(0L);
+        QueryComparison comparison = pipeline.compare(index,
+                consumer -> migratedInstance.runBucketQuery(migratedChecksum.statement(), modulus, remainders, consumer),
+                consumer -> originalInstance.runBucketQuery(originalChecksum.statement(), modulus, remainders, consumer),
+                new ResultDiff(options.tolerance()));
+
+        samples.put(index, SampleEstimate.create(modulus, migratedChecksum.rowCount(), originalChecksum.rowCount(), comparison.extraResults(), comparison.missingResults()));
+        return comparison;
+    }
+
+    /**
+     * Drills down into buckets of rows with mismatching checksums and only compares the rows in those buckets.
+     * @param pipeline Pipeline streaming the rows in the mismatching buckets
+     * @param index Index of the statements in the query files
+     * @param migratedChecksum Checksum of the results from BQ
+     * @param originalChecksum Checksum of the results from the original data warehouse service
+     * @return Comparison of the rows in mismatching buckets, or null if the full results need to be compared
+     * @throws Exception
+     */
+    @Nullable
+    private QueryComparison compareMismatchingBuckets(QueryResultPipeline pipeline, int index, QueryChecksum migratedChecksum, QueryChecksum originalChecksum) throws Exception {
+        if (options.buckets() < 2 || migratedChecksum.error() != null || originalChecksum.error() != null) {
+            return null;
+        }
+
+        // Small results are fetched directly
+        if (Math.max(migratedChecksum.rowCount(), originalChecksum.rowCount()) <= DRILL_DOWN_MAX_ROWS) {
+            return null;
+        }
+
+        MismatchingBuckets buckets;
+        try {
+            ChecksumDrillDown drillDown = new ChecksumDrillDown(migratedInstance, originalInstance, options.buckets(), DRILL_DOWN_MAX_ROWS);
+            buckets = drillDown.findMismatchingBuckets(migratedChecksum.statement(), originalChecksum.statement());
+        } catch (Exception e) {
+            System.err.printf("Unable to localize differences in query %d: %s\n", index + 1, e.getMessage());
+            return null;
+        }
+
+        if (buckets == null) {
+            return null;
+        }
+
+        System.out.printf("Differences in query %d were localized to %d of %d buckets with at most %d rows.\n", index + 1, buckets.remainders().size(), buckets.modulus(), buckets.rowCount());
+
+        // Rows with the same key but differing values are in mismatching buckets of both results, so they are fetched together
+        ResultDiff diff = options.keyColumns().isEmpty() ? new ResultDiff(options.tolerance()) : new KeyedResultDiff(options.keyColumns(), options.tolerance(), options.maxExamples());
+        QueryComparison comparison = pipeline.compare(index,
+                consumer -> migratedInstance.runBucketQuery(migratedChecksum.statement(), buckets.modulus(), buckets.remainders(), consumer),
+                consumer -> originalInstance.runBucketQuery(originalChecksum.statement(), buckets.modulus(), buckets.remainders(), consumer),
+                diff);
+        addProfile(index, diff);
+        return comparison;
+    }
+
+    /**
+     * @param statement to check
+     * @return Whether the statement is a query, which can be reordered since it doesn't modify data
+     */
+    public static boolean isReadOnly(String statement) {
+        return READ_ONLY_STATEMENT.matcher(statement).find();
+    }
+
+    /**
+     * @param statement to check
+     * @return Whether the statement ends with an ORDER BY clause, so its results are returned in order
+     */
+    public static boolean isOrdered(String statement) {
+        return !TeradataManager.removeOrderBy(statement).equals(statement);
+    }
+
     /**
      * Finds extra and missing results by locating the differences between the results.
      * @param migratedResults Parsed results returned from BQ
@@ -141,24 +957,38 @@ public class QueryVerifier {
      * @param row List of objects
      * @return List of strings
      */
-    private static List<String> toStringTypes(List<Object> row) {
+    static List<String> toStringTypes(List<Object> row) {
         return row.stream().map(object -> {
             if (object instanceof Date) {
                 // Format date objects
-                return new SimpleDateFormat("yyyy-MM-dd hh:mm:ss.SSSSSS zzz").format(object);
+                return DATE_FORMATTER.format(Instant.ofEpochMilli(((Date) object).getTime()));
             } else {
                 // All other types can use toString()
-                return object.toString();
+                return String.valueOf(object);
             }
         }).collect(Collectors.toList());
     }
 
     /**
-     * Counts and classifies the syntax/semantic errors returned from running queries.
+     * Counts and classifies the syntax/semantic errors returned from running BigQuery queries.
      * @param results List of results
      * @return Number of queries that had syntax errors, semantic errors, and no errors.
      */
     public static QueryErrors classifyErrors(List<QueryJobResults> results) {
+        return classifyErrors(results, StatementSplitter.Dialect.BIGQUERY);
+    }
+
+    /**
+     * Counts and classifies the syntax/semantic errors returned from running queries.
+     * @param results List of results
+     * @param dialect of the queries, used to locate statements in their files
+     * @return Number of queries that had syntax errors, semantic errors, and no errors.
+     */
+    public static QueryErrors classifyErrors(List<QueryJobResults> results, StatementSplitter.Dialect dialect) {
+        // Statements of each query file, and the index to continue searching from since results are in file order
+        Map<QueryVerificationQuery, List<SqlStatement>> statements = new HashMap<QueryVerificationQuery, List<SqlStatement>>();
+        Map<QueryVerificationQuery, Integer> cursors = new HashMap<QueryVerificationQuery, Integer>();
+
         int noErrors = 0;
         int syntaxErrors = 0;
         int semanticErrors = 0;
@@ -168,14 +998,20 @@ public class QueryVerifier {
             if (result.error() == null) {
                 noErrors++;
             } else {
-                String query = result.query().query();
-
                 // Locate line number of query in file
-                int index = query.indexOf(result.statement());
-                query = query.substring(0, index);
-                int lineNumber = query.length() - query.replace("\n", "").length() + 1;
+                List<SqlStatement> queryStatements = statements.computeIfAbsent(result.query(), query -> StatementSplitter.split(query.query(), dialect));
+                int cursor = cursors.getOrDefault(result.query(), 0);
+                int index = indexOfStatement(queryStatements, result.statement(), cursor);
+                if (index == -1) {
+                    index = indexOfStatement(queryStatements, result.statement(), 0);
+                }
 
-                System.err.printf("Error in query (line %d) from %s\n%s\n\n", lineNumber, result.query().path(), result.error());
+                if (index == -1) {
+                    System.err.printf("Error in query from %s\n%s\n\n", result.query().path(), result.error());
+                } else {
+                    cursors.put(result.query(), index + 1);
+                    System.err.printf("Error in query (line %d) from %s\n%s\n\n", queryStatements.get(index).line(), result.query().path(), result.error());
+                }
 
                 // Classify error as syntax or semantic
                 if (result.error().startsWith("Syntax error")) {
@@ -189,67 +1025,13 @@ public class QueryVerifier {
         return QueryErrors.create(results.size(), noErrors, syntaxErrors, semanticErrors);
     }
 
-    /**
-     * Exports query results to CSV files.
-     * @param results List of results
-     * @param instance Data warehouse service used
-     * @throws IOException
-     */
-    public static void exportToCsv(List<QueryJobResults> results, DataWarehouseManager instance) throws IOException {
-        exportToCsv(results.stream().map(QueryJobResults::rawResults).collect(Collectors.toList()), instance.getName(), "");
-    }
-
-    /**
-     * Exports diff results to CSV files.
-     * @param differences between original and migrated results
-     * @throws IOException
-     */
-    public static void exportToCsv(List<ResultDifferences> differences) throws IOException {
-        exportToCsv(differences.stream().map(ResultDifferences::missingResults).collect(Collectors.toList()), "diff", "missing");
-        exportToCsv(differences.stream().map(ResultDifferences::extraResults).collect(Collectors.toList()), "diff", "extra");
-    }
-
-    private static void exportToCsv(List<List<List<String>>> rawResults, String folderName, String fileNameSuffix) throws IOException {
-        Path csvOutputDirectory = Paths.get("query_verification_output", folderName);
-
-        if (csvOutputDirectory.toFile().exists()) {
-            // Clear out old output files in the same path
-            Files.walk(csvOutputDirectory).forEach(subPath -> {
-                // Delete files previously generated by query verification
-                if (subPath.getFileName().toString().matches("query\\d+" + fileNameSuffix + "\\.csv")) {
-                    subPath.toFile().delete();
-                }
-            });
-            if (csvOutputDirectory.toFile().length() == 0 ) {
-                Files.deleteIfExists(csvOutputDirectory);
-            }
-        }
-        Files.createDirectories(csvOutputDirectory);
-
-        for (int i = 0; i < rawResults.size(); i++) {
-            List<List<String>> queryResults = rawResults.get(i);
-
-            // Skip if results are empty
-            if (queryResults == null || queryResults.isEmpty()) {
-                continue;
+    private static int indexOfStatement(List<SqlStatement> statements, String statement, int fromIndex) {
+        for (int i = fromIndex; i < statements.size(); i++) {
+            if (statements.get(i).text().equals(statement)) {
+                return i;
             }
-
-            // Filepath for each query is "output/[data_warehouse_name]/query[id].csv"
-            File csvOutputFile = new File(String.format("%s/query%d%s.csv", csvOutputDirectory, i + 1, fileNameSuffix));
-            csvOutputFile.createNewFile();
-            FileWriter writer = new FileWriter(csvOutputFile);
-
-            // Convert list to csv row and write in file
-            queryResults.stream().map(row -> String.join(",", row)).forEach(row -> {
-                try {
-                    writer.write(row + System.lineSeparator());
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            });
-
-            writer.close();
         }
+        return -1;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,160 @@
+package com.google.bigquery;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class to find the differences between two streams of query results while they are read. Rows are counted
+ * positively for the migrated results and negatively for the original results, and are forgotten once their counts
+ * cancel out, so only rows which haven't been matched yet are held in memory.
+ *
+ * <p>Numbers are compared after rounding them to the nearest multiple of a tolerance, so values which are formatted or
+ * computed slightly differently by each data warehouse match, even if one is an integer and the other a decimal.
+ */
+public class ResultDiff {
+
+    /**
+     * Unmatched occurrences of the rows with the same normalized values.
+     */
+    private static class UnmatchedRow {
+
+        final List<Object> row;
+        final long count;
+
+        UnmatchedRow(List<Object> row, long count) {
+            this.row = row;
+            this.count = count;
+        }
+
+    }
+
+    // Unmatched rows by their normalized values, see normalizeRow(List, BigDecimal)
+    private final Map<List<Object>, UnmatchedRow> unmatchedRows = new ConcurrentHashMap<List<Object>, UnmatchedRow>();
+
+    protected final BigDecimal tolerance;
+
+    private long extraRows = 0;
+    private long missingRows = 0;
+
+    public ResultDiff() {
+        this(QueryVerifier.DEFAULT_TOLERANCE);
+    }
+
+    /**
+     * @param tolerance Numbers are rounded to its nearest multiple before they are compared, or only compared by value
+     *                  if it is 0
+     */
+    public ResultDiff(BigDecimal tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * @param row Parsed row from the migrated results
+     * @throws InterruptedException if interrupted while waiting for the original results
+     */
+    public void addMigratedRow(List<Object> row) throws InterruptedException {
+        addRow(row, 1);
+    }
+
+    /**
+     * @param row Parsed row from the original results
+     * @throws InterruptedException if interrupted while waiting for the migrated results
+     */
+    public void addOriginalRow(List<Object> row) throws InterruptedException {
+        addRow(row, -1);
+    }
+
+    /**
+     * Called once every migrated row has been added
+     */
+    public void finishMigratedRows() {
+    }
+
+    /**
+     * Called once every original row has been added
+     */
+    public void finishOriginalRows() {
+    }
+
+    private void addRow(List<Object> row, long count) {
+        // Remove the row once it has been seen as often in both results
+        unmatchedRows.merge(normalizeRow(row, tolerance), new UnmatchedRow(row, count), (previous, added) ->
+                previous.count + added.count == 0 ? null : new UnmatchedRow(previous.row, previous.count + added.count));
+    }
+
+    /**
+     * @param row Values of a row, which may contain nested rows
+     * @param tolerance Numbers are rounded to its nearest multiple, or only compared by value if it is 0
+     * @return Values which are equal for rows which match
+     */
+    public static List<Object> normalizeRow(List<?> row, BigDecimal tolerance) {
+        List<Object> normalizedRow = new ArrayList<Object>(row.size());
+        for (Object value : row) {
+            normalizedRow.add(normalizeValue(value, tolerance));
+        }
+        return normalizedRow;
+    }
+
+    /**
+     * @param value of a column
+     * @param tolerance Numbers are rounded to its nearest multiple, or only compared by value if it is 0
+     * @return Value which is equal for values which match
+     */
+    public static Object normalizeValue(Object value, BigDecimal tolerance) {
+        if (value instanceof Number) {
+            BigDecimal number = toBigDecimal((Number) value);
+            return tolerance.signum() == 0 ? number.stripTrailingZeros() : number.divide(tolerance, 0, RoundingMode.HALF_UP);
+        }
+        if (value instanceof List) {
+            return normalizeRow((List<?>) value, tolerance);
+        }
+        return value;
+    }
+
+    static BigDecimal toBigDecimal(Number number) {
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        }
+        if (number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte) {
+            return BigDecimal.valueOf(number.longValue());
+        }
+        return BigDecimal.valueOf(number.doubleValue());
+    }
+
+    /**
+     * Writes the unmatched rows, which should only be called after both results have been read
+     * @param extraWriter Writer for rows present in migrated query results, but not original query results
+     * @param missingWriter Writer for rows present in original query results, but not migrated query results
+     * @throws IOException
+     */
+    public void writeDifferences(CsvResultWriter extraWriter, CsvResultWriter missingWriter) throws IOException {
+        for (UnmatchedRow unmatchedRow : unmatchedRows.values()) {
+            List<String> row = QueryVerifier.toStringTypes(unmatchedRow.row);
+            long count = unmatchedRow.count;
+
+            for (long i = 0; i < Math.abs(count); i++) {
+                if (count > 0) {
+                    extraWriter.write(row);
+                    extraRows++;
+                } else {
+                    missingWriter.write(row);
+                    missingRows++;
+                }
+            }
+        }
+    }
+
+    public long getExtraRows() {
+        return extraRows;
+    }
+
+    public long getMissingRows() {
+        return missingRows;
+    }
+
+}
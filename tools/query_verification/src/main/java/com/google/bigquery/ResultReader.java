@@ -0,0 +1,20 @@
+package com.google.bigquery;
+
+import com.google.cloud.bigquery.Job;
+
+/**
+ * Interface for classes reading the results of completed BQ query jobs.
+ */
+public interface ResultReader {
+
+    /**
+     * Reads every row of the job's results and hands it to the consumer
+     * @param job Completed query job
+     * @param ordered Whether the rows have to be consumed in the order of the results
+     * @param consumer of the result rows
+     * @return Number of rows read
+     * @throws InterruptedException
+     */
+    long read(Job job, boolean ordered, ResultRowConsumer consumer) throws InterruptedException;
+
+}
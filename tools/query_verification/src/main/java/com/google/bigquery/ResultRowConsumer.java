@@ -0,0 +1,18 @@
+package com.google.bigquery;
+
+import java.util.List;
+
+/**
+ * Interface for classes consuming the rows of query results while they are read from a data warehouse service.
+ */
+@FunctionalInterface
+public interface ResultRowConsumer {
+
+    /**
+     * @param rawRow Values of the row as returned by the data warehouse service
+     * @param row Values of the row parsed to Java objects
+     * @throws InterruptedException if interrupted while waiting to hand off the row
+     */
+    void accept(List<String> rawRow, List<Object> row) throws InterruptedException;
+
+}
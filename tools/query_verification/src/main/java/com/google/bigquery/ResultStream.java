@@ -0,0 +1,52 @@
+package com.google.bigquery;
+
+import com.google.auto.value.AutoValue;
+import com.google.cloud.bigquery.Schema;
+import com.google.cloud.bigquery.TableId;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Value class for a stream of the rows of a table. Contains the table, its schema and the range of rows read by the
+ * stream.
+ */
+@AutoValue
+public abstract class ResultStream {
+
+    public abstract TableId table();
+    public abstract Schema schema();
+    public abstract long offset();
+    public abstract long rowCount();
+
+    public static ResultStream create(TableId table, Schema schema, long offset, long rowCount) {
+        return new AutoValue_ResultStream(table, schema, offset, rowCount);
+    }
+
+    /**
+     * Splits the rows of a table into streams of similar size, so that streams aren't smaller than minStreamRows
+     * @param table to read
+     * @param schema of the table
+     * @param totalRows Number of rows in the table
+     * @param maxStreams Maximum number of streams
+     * @param minStreamRows Minimum number of rows worth a separate stream
+     * @return Streams of disjoint rows in the order of the table, or an empty list if the table is empty
+     */
+    public static List<ResultStream> split(TableId table, Schema schema, long totalRows, int maxStreams, long minStreamRows) {
+        List<ResultStream> streams = new ArrayList<ResultStream>();
+        if (totalRows <= 0) {
+            return streams;
+        }
+
+        long streamCount = Math.max(1, Math.min(maxStreams, totalRows / Math.max(1, minStreamRows)));
+        long offset = 0;
+        for (long i = 0; i < streamCount; i++) {
+            // Earlier streams get one of the remaining rows each
+            long rowCount = totalRows / streamCount + (i < totalRows % streamCount ? 1 : 0);
+            streams.add(create(table, schema, offset, rowCount));
+            offset += rowCount;
+        }
+        return streams;
+    }
+
+}
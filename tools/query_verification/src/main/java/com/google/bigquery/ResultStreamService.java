@@ -0,0 +1,28 @@
+package com.google.bigquery;
+
+import com.google.cloud.bigquery.FieldValueList;
+import com.google.cloud.bigquery.TableId;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Interface for services reading the rows of a table in several streams, which can be read concurrently.
+ */
+public interface ResultStreamService {
+
+    /**
+     * Splits the rows of a table into streams
+     * @param table to read
+     * @param maxStreams Maximum number of streams
+     * @return Streams of disjoint rows in the order of the table
+     */
+    List<ResultStream> createStreams(TableId table, int maxStreams);
+
+    /**
+     * @param stream created by {@link #createStreams(TableId, int)}
+     * @return Rows of the stream in order, which are read lazily
+     */
+    Stream<FieldValueList> readStream(ResultStream stream);
+
+}
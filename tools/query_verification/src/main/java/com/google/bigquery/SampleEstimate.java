@@ -0,0 +1,62 @@
+package com.google.bigquery;
+
+import com.google.auto.value.AutoValue;
+
+/**
+ * Value class for the comparison of a sample of a statement's results. Rows are sampled when their row hash modulo
+ * the modulus is 0, so each differing row is sampled with a probability of 1 / modulus. Contains the exact row counts
+ * of both results and the number of rows extra or missing from the sampled migrated results.
+ */
+@AutoValue
+public abstract class SampleEstimate {
+
+    // Confidence of the upper bounds, and the matching quantile of the standard normal distribution
+    public static final double CONFIDENCE = 0.95;
+    private static final double Z = 1.96;
+
+    public abstract long modulus();
+    public abstract long migratedRowCount();
+    public abstract long originalRowCount();
+    public abstract long sampledExtraRows();
+    public abstract long sampledMissingRows();
+
+    public static SampleEstimate create(long modulus, long migratedRowCount, long originalRowCount, long sampledExtraRows, long sampledMissingRows) {
+        return new AutoValue_SampleEstimate(modulus, migratedRowCount, originalRowCount, sampledExtraRows, sampledMissingRows);
+    }
+
+    public long estimatedExtraRows() {
+        return sampledExtraRows() * modulus();
+    }
+
+    public long estimatedMissingRows() {
+        return sampledMissingRows() * modulus();
+    }
+
+    public long extraRowsUpperBound() {
+        return upperBound(sampledExtraRows(), modulus());
+    }
+
+    public long missingRowsUpperBound() {
+        return upperBound(sampledMissingRows(), modulus());
+    }
+
+    /**
+     * Approximates how many rows may differ in total given the differing rows found in the sample. Without sampled
+     * differences, this is the number of differing rows which would all go unsampled with a probability of
+     * 1 - {@link #CONFIDENCE}. Otherwise, the sampled count is treated as a Poisson variable with a normal
+     * approximation.
+     * @param sampledRows Number of differing rows in the sample
+     * @param modulus of the sample
+     * @return Upper bound of the total number of differing rows with {@link #CONFIDENCE} confidence
+     */
+    public static long upperBound(long sampledRows, long modulus) {
+        if (modulus <= 1) {
+            return sampledRows;
+        }
+        if (sampledRows == 0) {
+            return (long) Math.ceil(Math.log(1 - CONFIDENCE) / Math.log(1 - 1.0 / modulus));
+        }
+        return (long) Math.ceil((sampledRows + Z * Math.sqrt(sampledRows)) * modulus);
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.google.bigquery;
+
+import com.google.auto.value.AutoValue;
+
+import javax.annotation.Nullable;
+
+/**
+ * Value class for a statement in an execution plan. Contains the index of the statement in the query files, its
+ * estimated bytes processed (if known) and how it is compared.
+ */
+@AutoValue
+public abstract class ScheduledStatement {
+
+    /**
+     * How a statement is compared.
+     */
+    public enum Mode {
+        // Results are fetched while other cheap statements run
+        CONCURRENT,
+        // Results are fetched while no other statement runs
+        SEQUENTIAL,
+        // Only checksums of a sample of the results are compared, since the statement exceeds the byte budget
+        CHECKSUM
+    }
+
+    public abstract int index();
+    @Nullable public abstract Long estimatedBytes();
+    public abstract Mode mode();
+
+    public static ScheduledStatement create(int index, Long estimatedBytes, Mode mode) {
+        return new AutoValue_ScheduledStatement(index, estimatedBytes, mode);
+    }
+
+}
@@ -0,0 +1,151 @@
+package com.google.bigquery;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Class to find the differences between two streams of query results which are returned in the same order. Rows are
+ * matched while both results are read in lockstep, so matching results are compared in constant memory without
+ * hashing. Rows which aren't matched within a window of recent rows (e.g. rows with ties in their sort order, or
+ * long runs of differing rows) are handed to the unordered comparison of {@link ResultDiff}, so the differences are
+ * exact even if the order of the results isn't deterministic.
+ */
+public class SortedResultDiff extends ResultDiff {
+
+    // Number of unmatched rows of each result kept for matching before they are handed to the unordered comparison
+    public static final int DEFAULT_WINDOW = 1024;
+
+    private final int window;
+
+    // Unmatched rows of each result in the order they were read
+    private final ArrayDeque<List<Object>> migratedRows = new ArrayDeque<List<Object>>();
+    private final ArrayDeque<List<Object>> originalRows = new ArrayDeque<List<Object>>();
+
+    private boolean migratedFinished = false;
+    private boolean originalFinished = false;
+
+    /**
+     * @param tolerance Numbers are rounded to its nearest multiple before they are compared
+     */
+    public SortedResultDiff(BigDecimal tolerance) {
+        this(tolerance, DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param tolerance Numbers are rounded to its nearest multiple before they are compared
+     * @param window Number of unmatched rows of each result kept for matching
+     */
+    public SortedResultDiff(BigDecimal tolerance, int window) {
+        super(tolerance);
+        this.window = window;
+    }
+
+    @Override
+    public synchronized void addMigratedRow(List<Object> row) throws InterruptedException {
+        addRow(row, migratedRows, originalRows, true);
+    }
+
+    @Override
+    public synchronized void addOriginalRow(List<Object> row) throws InterruptedException {
+        addRow(row, originalRows, migratedRows, false);
+    }
+
+    private void addRow(List<Object> row, ArrayDeque<List<Object>> rows, ArrayDeque<List<Object>> otherRows, boolean migrated) throws InterruptedException {
+        // Wait while this result is a full window ahead of the other result, so neither result is buffered as a whole
+        while (rows.size() >= window && otherRows.size() < window && !(migrated ? originalFinished : migratedFinished)) {
+            wait();
+        }
+
+        // Rows of ordered results are usually matched by the oldest unmatched row of the other result
+        Iterator<List<Object>> otherIterator = otherRows.iterator();
+        while (otherIterator.hasNext()) {
+            if (rowsMatch(row, otherIterator.next())) {
+                otherIterator.remove();
+                notifyAll();
+                return;
+            }
+        }
+
+        rows.addLast(row);
+        if (rows.size() > window) {
+            // The oldest row can no longer be matched in order
+            addUnorderedRow(rows.removeFirst(), migrated);
+        }
+        notifyAll();
+    }
+
+    private void addUnorderedRow(List<Object> row, boolean migrated) throws InterruptedException {
+        if (migrated) {
+            super.addMigratedRow(row);
+        } else {
+            super.addOriginalRow(row);
+        }
+    }
+
+    @Override
+    public synchronized void finishMigratedRows() {
+        migratedFinished = true;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void finishOriginalRows() {
+        originalFinished = true;
+        notifyAll();
+    }
+
+    /**
+     * Hands the remaining unmatched rows to the unordered comparison before writing the differences
+     */
+    @Override
+    public synchronized void writeDifferences(CsvResultWriter extraWriter, CsvResultWriter missingWriter) throws IOException {
+        try {
+            while (!migratedRows.isEmpty()) {
+                addUnorderedRow(migratedRows.removeFirst(), true);
+            }
+            while (!originalRows.isEmpty()) {
+                addUnorderedRow(originalRows.removeFirst(), false);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+
+        super.writeDifferences(extraWriter, missingWriter);
+    }
+
+    /**
+     * Numbers match if they round to the same multiple of the tolerance, even if they are of different types. Other
+     * values have to be equal. Rows handed to the unordered comparison are compared the same way.
+     * @param row from one result
+     * @param otherRow from the other result
+     * @return Whether the rows match
+     */
+    public boolean rowsMatch(List<Object> row, List<Object> otherRow) {
+        if (row.size() != otherRow.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < row.size(); i++) {
+            if (!valuesMatch(row.get(i), otherRow.get(i), tolerance)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param value from one result
+     * @param otherValue from the other result
+     * @param tolerance Numbers are rounded to its nearest multiple, or only compared by value if it is 0
+     * @return Whether the values are numbers which round to the same multiple of the tolerance, or equal values
+     */
+    public static boolean valuesMatch(Object value, Object otherValue, BigDecimal tolerance) {
+        return Objects.equals(normalizeValue(value, tolerance), normalizeValue(otherValue, tolerance));
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.google.bigquery;
+
+import com.google.auto.value.AutoValue;
+
+/**
+ * Value class for a statement split from a SQL file. Contains the statement text without the terminating semicolon
+ * and its location in the file.
+ */
+@AutoValue
+public abstract class SqlStatement {
+
+    public abstract String text();
+
+    /**
+     * @return Character offset of the statement's first character in the file
+     */
+    public abstract long startOffset();
+
+    /**
+     * @return Character offset after the statement's last character in the file
+     */
+    public abstract long endOffset();
+
+    /**
+     * @return Line number, starting at 1, of the statement's first character in the file
+     */
+    public abstract int line();
+
+    public static SqlStatement create(String text, long startOffset, long endOffset, int line) {
+        return new AutoValue_SqlStatement(text, startOffset, endOffset, line);
+    }
+
+}
@@ -0,0 +1,370 @@
+package com.google.bigquery;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Class to split SQL into statements in a single pass over a reader. Semicolons only end a statement outside of
+ * quotes, comments and scripting blocks (e.g. BEGIN ... END or IF ... END IF), including the BEGIN ... END body of a
+ * CREATE or REPLACE PROCEDURE or FUNCTION statement. Statements are read lazily, so only
+ * the current statement is held in memory. Leading whitespace and comments are not part of a statement, and
+ * statements without any code are skipped.
+ */
+public class StatementSplitter implements Iterator<SqlStatement>, Closeable {
+
+    /**
+     * Lexical differences between the supported SQL dialects.
+     */
+    public enum Dialect {
+
+        BIGQUERY(true, true, false),
+        TERADATA(false, false, true),
+        STANDARD(false, false, false);
+
+        // Whether # starts a line comment
+        private final boolean hashComments;
+        // Whether backslashes escape characters in strings and triple quotes start strings
+        private final boolean escapesAndTripleQuotes;
+        // Whether # and $ can be part of identifiers
+        private final boolean hashAndDollarIdentifiers;
+
+        Dialect(boolean hashComments, boolean escapesAndTripleQuotes, boolean hashAndDollarIdentifiers) {
+            this.hashComments = hashComments;
+            this.escapesAndTripleQuotes = escapesAndTripleQuotes;
+            this.hashAndDollarIdentifiers = hashAndDollarIdentifiers;
+        }
+
+    }
+
+    // Keywords which start a block at the beginning of a statement, and may follow END to close it. CASE elsewhere
+    // starts an expression, which also ends with END.
+    private static final Set<String> BLOCK_KEYWORDS = new HashSet<String>(Arrays.asList("IF", "LOOP", "WHILE", "REPEAT", "FOR", "CASE"));
+
+    // Keywords after which a new statement begins, unless they are part of a CASE expression
+    private static final Set<String> STATEMENT_PREFIX_KEYWORDS = new HashSet<String>(Arrays.asList("THEN", "ELSE", "DO", "LOOP", "REPEAT"));
+
+    // Keywords starting statements which define a routine, whose body may be a BEGIN ... END block
+    private static final Set<String> ROUTINE_STATEMENT_KEYWORDS = new HashSet<String>(Arrays.asList("CREATE", "REPLACE"));
+    private static final Set<String> ROUTINE_KEYWORDS = new HashSet<String>(Arrays.asList("PROCEDURE", "FUNCTION"));
+
+    // Keywords after BEGIN which make it a statement instead of the start of a block
+    private static final Set<String> NON_BLOCK_BEGIN_KEYWORDS = new HashSet<String>(Arrays.asList("TRANSACTION", "QUERY", "ISOLATED", "LOGGING"));
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final Dialect dialect;
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+
+    // Location of the next character to read
+    private long offset = 0;
+    private int line = 1;
+
+    private SqlStatement next;
+    private boolean done = false;
+
+    public StatementSplitter(Reader reader, Dialect dialect) {
+        this.reader = reader;
+        this.dialect = dialect;
+    }
+
+    /**
+     * @param sql to split
+     * @param dialect of the SQL
+     * @return Every statement with its location
+     */
+    public static List<SqlStatement> split(String sql, Dialect dialect) {
+        List<SqlStatement> statements = new ArrayList<SqlStatement>();
+        new StatementSplitter(new StringReader(sql), dialect).forEachRemaining(statements::add);
+        return statements;
+    }
+
+    /**
+     * @param sql to split
+     * @param dialect of the SQL
+     * @return Text of every statement
+     */
+    public static List<String> splitToText(String sql, Dialect dialect) {
+        List<String> statements = new ArrayList<String>();
+        new StatementSplitter(new StringReader(sql), dialect).forEachRemaining(statement -> statements.add(statement.text()));
+        return statements;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            try {
+                next = readStatement();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            done = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public SqlStatement next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        SqlStatement statement = next;
+        next = null;
+        return statement;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Reads characters until a semicolon at the top level or the end of the input
+     * @return Next statement containing code, or null at the end of the input
+     */
+    private SqlStatement readStatement() throws IOException {
+        while (true) {
+            StringBuilder text = new StringBuilder();
+            long startOffset = -1;
+            int startLine = 0;
+
+            // Trailing whitespace and comments are trimmed from the end of the statement
+            int codeLength = 0;
+
+            // Open scripting blocks and CASE expressions, true for CASE expressions
+            Deque<Boolean> blocks = new ArrayDeque<Boolean>();
+            boolean statementStart = true;
+            // First keyword of the statement, and whether it is the header of a routine whose body hasn't started yet
+            String firstKeyword = null;
+            boolean routineHeader = false;
+            boolean afterBegin = false;
+            boolean afterEnd = false;
+            boolean afterDot = false;
+
+            int c;
+            while ((c = peek(0)) != -1) {
+                long tokenOffset = offset;
+                int tokenLine = line;
+
+                if (Character.isWhitespace(c)) {
+                    char whitespace = (char) read();
+                    if (startOffset != -1) {
+                        text.append(whitespace);
+                    }
+                    continue;
+                }
+
+                if (isCommentStart(c)) {
+                    String comment = readComment();
+                    if (startOffset != -1) {
+                        text.append(comment);
+                    }
+                    continue;
+                }
+
+                if (c == ';' && blocks.isEmpty()) {
+                    read();
+                    break;
+                }
+
+                if (startOffset == -1) {
+                    startOffset = tokenOffset;
+                    startLine = tokenLine;
+                }
+
+                String word = null;
+                if (c == '\'' || c == '"' || c == '`') {
+                    text.append(readQuoted());
+                } else if (isIdentifierPart(c)) {
+                    word = readWord();
+                    text.append(word);
+                } else {
+                    text.append((char) read());
+                }
+                codeLength = text.length();
+
+                // Track scripting blocks, so semicolons within them don't end the statement. Words directly followed by
+                // a parenthesis are function calls like IF(...) or REPEAT(...), and words after a dot are names.
+                String keyword = word == null || afterDot || peek(0) == '(' ? null : word.toUpperCase();
+                if (afterBegin) {
+                    afterBegin = false;
+                    if (keyword == null || !NON_BLOCK_BEGIN_KEYWORDS.contains(keyword)) {
+                        blocks.push(false);
+                    }
+                }
+
+                if (afterEnd && keyword != null && BLOCK_KEYWORDS.contains(keyword)) {
+                    // END IF, END LOOP, etc. close the block opened by the keyword
+                    afterEnd = false;
+                    statementStart = false;
+                    afterDot = false;
+                    continue;
+                }
+                afterEnd = false;
+
+                if (firstKeyword == null) {
+                    firstKeyword = keyword == null ? "" : keyword;
+                } else if (blocks.isEmpty() && ROUTINE_STATEMENT_KEYWORDS.contains(firstKeyword) && keyword != null && ROUTINE_KEYWORDS.contains(keyword)) {
+                    routineHeader = true;
+                } else if ("AS".equals(keyword)) {
+                    // Bodies after AS are expressions or queries, e.g. CREATE FUNCTION f() AS (...)
+                    routineHeader = false;
+                }
+
+                if ((statementStart || (routineHeader && blocks.isEmpty())) && "BEGIN".equals(keyword)) {
+                    afterBegin = true;
+                    routineHeader = false;
+                } else if (statementStart && keyword != null && BLOCK_KEYWORDS.contains(keyword)) {
+                    blocks.push(false);
+                } else if ("CASE".equals(keyword)) {
+                    blocks.push(true);
+                } else if ("END".equals(keyword) && !blocks.isEmpty()) {
+                    // Only the END of a scripting block may be followed by its keyword
+                    afterEnd = !blocks.pop();
+                }
+
+                boolean inCaseExpression = !blocks.isEmpty() && blocks.peek();
+                statementStart = c == ';' || afterBegin || (keyword != null && STATEMENT_PREFIX_KEYWORDS.contains(keyword) && !inCaseExpression);
+                afterDot = c == '.';
+            }
+
+            if (startOffset != -1) {
+                String statement = text.substring(0, codeLength);
+                return SqlStatement.create(statement, startOffset, startOffset + statement.length(), startLine);
+            }
+
+            if (c == -1) {
+                return null;
+            }
+            // Skip statements without code
+        }
+    }
+
+    private boolean isCommentStart(int c) {
+        return (c == '-' && peek(1) == '-')
+                || (c == '/' && peek(1) == '*')
+                || (c == '#' && dialect.hashComments);
+    }
+
+    private String readComment() throws IOException {
+        StringBuilder comment = new StringBuilder();
+        if (peek(0) == '/') {
+            // Block comment
+            comment.append((char) read()).append((char) read());
+            int c;
+            while ((c = read()) != -1) {
+                comment.append((char) c);
+                if (c == '*' && peek(0) == '/') {
+                    comment.append((char) read());
+                    break;
+                }
+            }
+        } else {
+            // Line comment
+            int c;
+            while ((c = peek(0)) != -1 && c != '\n') {
+                comment.append((char) read());
+            }
+        }
+        return comment.toString();
+    }
+
+    private String readQuoted() throws IOException {
+        StringBuilder quoted = new StringBuilder();
+        char quote = (char) read();
+        quoted.append(quote);
+
+        boolean tripleQuoted = dialect.escapesAndTripleQuotes && quote != '`' && peek(0) == quote && peek(1) == quote;
+        if (tripleQuoted) {
+            quoted.append((char) read()).append((char) read());
+        }
+
+        int c;
+        while ((c = read()) != -1) {
+            quoted.append((char) c);
+
+            if (c == '\\' && dialect.escapesAndTripleQuotes) {
+                int escaped = read();
+                if (escaped != -1) {
+                    quoted.append((char) escaped);
+                }
+            } else if (c == quote) {
+                if (tripleQuoted) {
+                    if (peek(0) == quote && peek(1) == quote) {
+                        quoted.append((char) read()).append((char) read());
+                        break;
+                    }
+                } else if (peek(0) == quote && !dialect.escapesAndTripleQuotes) {
+                    // Doubled quotes are escaped quotes
+                    quoted.append((char) read());
+                } else {
+                    break;
+                }
+            }
+        }
+        return quoted.toString();
+    }
+
+    private String readWord() throws IOException {
+        StringBuilder word = new StringBuilder();
+        while (isIdentifierPart(peek(0))) {
+            word.append((char) read());
+        }
+        return word.toString();
+    }
+
+    private boolean isIdentifierPart(int c) {
+        return c != -1 && (Character.isLetterOrDigit(c) || c == '_' || c == '@'
+                || (dialect.hashAndDollarIdentifiers && (c == '#' || c == '$')));
+    }
+
+    /**
+     * @param ahead Number of characters to look past the next one
+     * @return Character without consuming it, or -1 at the end of the input
+     */
+    private int peek(int ahead) {
+        try {
+            if (position + ahead >= limit) {
+                fill(ahead + 1);
+            }
+            return position + ahead < limit ? buffer[position + ahead] : -1;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int read() {
+        int c = peek(0);
+        if (c != -1) {
+            position++;
+            offset++;
+            if (c == '\n') {
+                line++;
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Moves the unread characters to the start of the buffer and reads until at least the requested number of
+     * characters are available or the input ends
+     */
+    private void fill(int required) throws IOException {
+        System.arraycopy(buffer, position, buffer, 0, limit - position);
+        limit -= position;
+        position = 0;
+
+        while (limit < required) {
+            int read = reader.read(buffer, limit, buffer.length - limit);
+            if (read == -1) {
+                return;
+            }
+            limit += read;
+        }
+    }
+
+}
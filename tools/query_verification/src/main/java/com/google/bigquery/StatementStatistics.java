@@ -0,0 +1,53 @@
+package com.google.bigquery;
+
+import com.google.auto.value.AutoValue;
+
+import javax.annotation.Nullable;
+
+/**
+ * Value class for the statistics of the jobs run for a statement. Contains the number of jobs, the time spent running
+ * them and reading their results, the number of rows read and, if reported by the data warehouse service, the bytes
+ * and slot time they used.
+ */
+@AutoValue
+public abstract class StatementStatistics {
+
+    public abstract int jobs();
+    public abstract long elapsedMillis();
+    public abstract long fetchMillis();
+    public abstract long rowsFetched();
+    @Nullable public abstract Long bytesProcessed();
+    @Nullable public abstract Long slotMillis();
+
+    public static StatementStatistics create(int jobs, long elapsedMillis, long fetchMillis, long rowsFetched, Long bytesProcessed, Long slotMillis) {
+        return new AutoValue_StatementStatistics(jobs, elapsedMillis, fetchMillis, rowsFetched, bytesProcessed, slotMillis);
+    }
+
+    /**
+     * @param elapsedMillis Time the job took to run
+     * @param fetchMillis Time spent reading the job's results
+     * @param rowsFetched Number of result rows read
+     * @return Statistics of a single job without bytes or slot time
+     */
+    public static StatementStatistics ofJob(long elapsedMillis, long fetchMillis, long rowsFetched) {
+        return create(1, elapsedMillis, fetchMillis, rowsFetched, null, null);
+    }
+
+    /**
+     * @param other Statistics of further jobs run for the same statement
+     * @return Combined statistics of both
+     */
+    public StatementStatistics plus(StatementStatistics other) {
+        return create(jobs() + other.jobs(), elapsedMillis() + other.elapsedMillis(), fetchMillis() + other.fetchMillis(), rowsFetched() + other.rowsFetched(),
+                sum(bytesProcessed(), other.bytesProcessed()), sum(slotMillis(), other.slotMillis()));
+    }
+
+    @Nullable
+    private static Long sum(@Nullable Long first, @Nullable Long second) {
+        if (first == null) {
+            return second;
+        }
+        return second == null ? first : first + second;
+    }
+
+}
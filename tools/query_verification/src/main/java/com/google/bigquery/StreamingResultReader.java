@@ -0,0 +1,101 @@
+package com.google.bigquery;
+
+import com.google.cloud.bigquery.*;
+
+import javax.annotation.Nullable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Class to read query results from the job's destination table in several streams at once. Rows are decoded on the
+ * thread reading their stream, and only handed to the consumer one at a time. Ordered results are read in a single
+ * stream. Results are read by the fallback reader when the destination table can't be streamed, e.g. because it is
+ * missing or access to it is denied.
+ */
+public class StreamingResultReader implements ResultReader {
+
+    private final ResultStreamService service;
+    private final int maxStreams;
+    private final ResultReader fallback;
+
+    /**
+     * @param service reading the streams of a table
+     * @param maxStreams Maximum number of streams read concurrently
+     * @param fallback Reader used when the destination table can't be streamed
+     */
+    public StreamingResultReader(ResultStreamService service, int maxStreams, ResultReader fallback) {
+        this.service = service;
+        this.maxStreams = maxStreams;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public long read(Job job, boolean ordered, ResultRowConsumer consumer) throws InterruptedException {
+        TableId destinationTable = null;
+        if (job.getConfiguration() instanceof QueryJobConfiguration) {
+            destinationTable = ((QueryJobConfiguration) job.getConfiguration()).getDestinationTable();
+        }
+
+        Long rows = readTable(destinationTable, ordered, consumer);
+        if (rows == null) {
+            return fallback.read(job, ordered, consumer);
+        }
+        return rows;
+    }
+
+    /**
+     * Reads every row of a table in streams. Once any row is consumed, failures are no longer handed to the fallback
+     * reader, so rows aren't consumed twice.
+     * @param table to read, or null if the results have no destination table
+     * @param ordered Whether the rows have to be consumed in the order of the table
+     * @param consumer of the rows
+     * @return Number of rows read, or null if the table can't be streamed
+     * @throws InterruptedException
+     */
+    @Nullable
+    public Long readTable(@Nullable TableId table, boolean ordered, ResultRowConsumer consumer) throws InterruptedException {
+        if (table == null) {
+            return null;
+        }
+
+        List<ResultStream> streams;
+        try {
+            streams = service.createStreams(table, ordered ? 1 : maxStreams);
+        } catch (BigQueryException e) {
+            System.err.println("Reading results page by page, as " + table + " can't be streamed: " + e.getMessage());
+            return null;
+        }
+        if (streams.isEmpty()) {
+            return 0L;
+        }
+
+        BigQueryRowDecoder decoder = BigQueryRowDecoder.compile(streams.get(0).schema().getFields());
+        AtomicLong rows = new AtomicLong();
+        try {
+            ParallelTasks.runAll(streams, maxStreams, stream -> {
+                try (Stream<FieldValueList> streamRows = service.readStream(stream)) {
+                    Iterator<FieldValueList> iterator = streamRows.iterator();
+                    while (iterator.hasNext()) {
+                        FieldValueList values = iterator.next();
+                        List<String> rawRow = decoder.decodeRaw(values);
+                        List<Object> row = decoder.decode(values);
+
+                        // Consumers don't have to be thread-safe
+                        synchronized (consumer) {
+                            consumer.accept(rawRow, row);
+                        }
+                        rows.incrementAndGet();
+                    }
+                }
+            });
+        } catch (InterruptedException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return rows.get();
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.google.bigquery;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+
+/**
+ * Class to load the data files of several tables concurrently, with a bounded number of tables loading at a time.
+ * The throughput of every table is reported once it is loaded.
+ */
+public class TableDataLoader {
+
+    // Data files are read in chunks of this size, so files larger than the heap can be loaded
+    public static final int CHUNK_SIZE = 1 << 20;
+
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * Interface for loading the data file of a single table.
+     */
+    @FunctionalInterface
+    public interface TableLoad {
+
+        /**
+         * @param data of the table to load
+         * @throws IOException if the file could not be read
+         * @throws InterruptedException
+         */
+        void load(QueryVerificationData data) throws IOException, InterruptedException;
+
+    }
+
+    private final String warehouseName;
+    private final int parallelism;
+
+    /**
+     * @param warehouseName Name of the data warehouse tables are loaded into
+     * @param parallelism Maximum number of tables loaded at the same time
+     */
+    public TableDataLoader(String warehouseName, int parallelism) {
+        this.warehouseName = warehouseName;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Loads every table and waits until all of them are loaded. Once a table fails to load, the remaining tables
+     * are cancelled.
+     * @param data of the tables to load
+     * @param load Loads a single table
+     * @throws Exception thrown while loading the first failing table
+     */
+    public void loadTables(List<QueryVerificationData> data, TableLoad load) throws Exception {
+        ParallelTasks.runAll(data, parallelism, tableData -> loadTable(tableData, load));
+    }
+
+    private void loadTable(QueryVerificationData data, TableLoad load) throws IOException, InterruptedException {
+        long size = data.size();
+        long start = System.nanoTime();
+
+        load.load(data);
+
+        double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+        System.out.printf("Loaded %s into %s: %,d bytes in %.2f s (%.2f MB/s)\n", data.path(), warehouseName, size, seconds, size / seconds / 1e6);
+    }
+
+    /**
+     * Copies the source to the target one chunk at a time
+     * @param source to read from
+     * @param target to write to
+     * @return Number of bytes copied
+     * @throws IOException
+     */
+    public static long copyInChunks(ReadableByteChannel source, WritableByteChannel target) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+
+        long bytes = 0;
+        while (source.read(buffer) != -1 || buffer.position() > 0) {
+            buffer.flip();
+            bytes += target.write(buffer);
+            buffer.compact();
+        }
+        return bytes;
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.google.bigquery;
+
+import com.google.cloud.bigquery.*;
+
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Class to read the rows of BQ tables in streams of row ranges, which are listed from the table's data page by page.
+ * Rows are listed as JSON through the tabledata.list REST API, so streams only parallelize paging through the table.
+ * A service reading columnar streams of the BigQuery Storage Read API could implement {@link ResultStreamService}
+ * instead, without changing {@link StreamingResultReader}.
+ */
+public class TableDataStreamService implements ResultStreamService {
+
+    // Streams of fewer rows aren't worth another request
+    public static final long MIN_STREAM_ROWS = 10000;
+    private static final long PAGE_SIZE = 20000;
+
+    private final BigQuery bigQuery;
+
+    public TableDataStreamService(BigQuery bigQuery) {
+        this.bigQuery = bigQuery;
+    }
+
+    @Override
+    public List<ResultStream> createStreams(TableId tableId, int maxStreams) {
+        Table table = bigQuery.getTable(tableId);
+        if (table == null) {
+            throw new BigQueryException(404, "Table " + tableId + " not found.");
+        }
+
+        long totalRows = table.getNumRows() == null ? 0 : table.getNumRows().longValue();
+        return ResultStream.split(tableId, table.getDefinition().getSchema(), totalRows, maxStreams, MIN_STREAM_ROWS);
+    }
+
+    @Override
+    public Stream<FieldValueList> readStream(ResultStream stream) {
+        // Pages aren't larger than the stream, so no rows of the next stream are fetched
+        TableResult rows = bigQuery.listTableData(stream.table(), stream.schema(),
+                BigQuery.TableDataListOption.startIndex(stream.offset()),
+                BigQuery.TableDataListOption.pageSize(Math.min(PAGE_SIZE, stream.rowCount())));
+        return StreamSupport.stream(rows.iterateAll().spliterator(), false).limit(stream.rowCount());
+    }
+
+}
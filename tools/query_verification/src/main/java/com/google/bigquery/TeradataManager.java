@@ -6,9 +6,12 @@ import com.google.gson.JsonParser;
 
 import java.io.*;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -20,8 +23,22 @@ public class TeradataManager implements DataWarehouseManager {
     private final QueryVerificationSchema schema;
     private final List<QueryVerificationData> data;
 
-    private Statement statementConnection;
-    private Connection csvConnection;
+    private static final int DEFAULT_MAX_CONNECTIONS = 4;
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+
+    // Connections for running statements and for uploading CSV files
+    private JdbcConnectionPool statementPool;
+    private JdbcConnectionPool csvPool;
+
+    // Tables are added as soon as they are created, so tables created before a failure are still cleaned up
+    private final List<String> tables = Collections.synchronizedList(new ArrayList<String>());
+
+    // Statistics of the statements run, timed through JDBC
+    private final Map<String, StatementStatistics> statistics = new ConcurrentHashMap<String, StatementStatistics>();
+    private final PhaseTimer phaseTimer = new PhaseTimer();
+
+    // Numbers are rounded to a multiple of the tolerance before rows are hashed
+    private volatile BigDecimal checksumTolerance = QueryVerifier.DEFAULT_TOLERANCE;
 
     public TeradataManager(QueryVerificationQuery query, QueryVerificationSchema schema, List<QueryVerificationData> data) {
         this.query = query;
@@ -29,76 +46,236 @@ public class TeradataManager implements DataWarehouseManager {
         this.data = data;
     }
 
+    /**
+     * Connects through the provided pools instead of the connection properties in config.json
+     * @param statementPool Connections for running statements
+     * @param csvPool Connections for uploading CSV files
+     */
+    public TeradataManager(QueryVerificationQuery query, QueryVerificationSchema schema, List<QueryVerificationData> data, JdbcConnectionPool statementPool, JdbcConnectionPool csvPool) {
+        this(query, schema, data);
+        this.statementPool = statementPool;
+        this.csvPool = csvPool;
+    }
+
     @Override
     public String getName() {
         return "Teradata";
     }
 
+    @Override
+    public void setupTables() throws Exception {
+        phaseTimer.time("connect", this::setupConnection);
+
+        phaseTimer.time("create tables", this::createTablesFromSchema);
+        phaseTimer.time("load tables", this::populateTablesFromData);
+    }
+
     /**
-     * Sends query jobs to TD
-     * @return List of query results
-     * @throws Exception
+     * Deletes the created tables concurrently and closes the connections
      */
     @Override
-    public List<QueryJobResults> runQueries() throws Exception {
+    public void cleanupTables() {
+        List<String> tablesToDelete;
+        synchronized (tables) {
+            tablesToDelete = new ArrayList<String>(tables);
+            tables.clear();
+        }
+
+        if (statementPool == null) {
+            // Connection was never set up
+            return;
+        }
+
+        try {
+            phaseTimer.time("delete tables", () -> ParallelTasks.runAll(tablesToDelete, ParallelTasks.DEFAULT_PARALLELISM, this::deleteTable));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        closeConnection();
+    }
+
+    @Override
+    public boolean reuseTables() throws Exception {
+        if (schema == null) {
+            return false;
+        }
         setupConnection();
 
-        List<String> tables = createTablesFromSchema();
-        populateTablesFromData();
+        List<String> tableNames = new ArrayList<String>();
+        if (schema.isInJsonFormat()) {
+            generateDdlStatementsFromJsonSchema().forEach(ddlStatement -> tableNames.addAll(getTablesFromDdlSchema(ddlStatement)));
+        } else {
+            tableNames.addAll(getTablesFromDdlSchema(schema.schema()));
+        }
 
-        // Create query jobs
-        List<String> statements = getStatementsFromQuery();
+        List<String> existingTables = Collections.synchronizedList(new ArrayList<String>());
+        ParallelTasks.runAll(tableNames, ParallelTasks.DEFAULT_PARALLELISM, table -> {
+            try (JdbcConnectionPool.PooledConnection connection = statementPool.acquire();
+                 ResultSet resultSet = connection.executeQuery("SELECT 1 FROM " + table + " WHERE 1 = 0;")) {
+                existingTables.add(table);
+            } catch (SQLException e) {
+                // Table doesn't exist
+            }
+        });
 
-        // Store results from every job
-        List<QueryJobResults> jobResults = new ArrayList<QueryJobResults>();
+        if (tableNames.isEmpty() || existingTables.size() < tableNames.size()) {
+            // Tables are created from scratch, but the connections stay open
+            ParallelTasks.runAll(existingTables, ParallelTasks.DEFAULT_PARALLELISM, this::deleteTable);
+            return false;
+        }
 
-        for (int i = 0; i < statements.size(); i++) {
-            String statement = statements.get(i);
+        tables.addAll(existingTables);
+        return true;
+    }
 
-            QueryJobResults jobResult;
-            try {
-                // Run query job
-                ResultSet resultSet = statementConnection.executeQuery(statement);
+    /**
+     * Sends a query job to TD
+     * @param statement to run
+     * @param consumer of the result rows
+     * @return Query results
+     * @throws InterruptedException
+     */
+    @Override
+    public QueryJobResults runQuery(String statement, ResultRowConsumer consumer) throws InterruptedException {
+        return runQuery(statement, statement, consumer);
+    }
 
-                // Parse and store query results
-                List<List<String>> rawResults = new ArrayList<List<String>>();
-                Set<List<Object>> results = new HashSet<List<Object>>();
-                ResultSetMetaData resultSetMetaData = resultSet.getMetaData();
+    /**
+     * Sends a query job to TD
+     * @param statement the results are stored for
+     * @param queryToRun query which is actually sent to TD
+     * @param consumer of the result rows
+     * @return Query results
+     * @throws InterruptedException
+     */
+    private QueryJobResults runQuery(String statement, String queryToRun, ResultRowConsumer consumer) throws InterruptedException {
+        QueryJobResults jobResult;
+        long start = System.nanoTime();
+        try (JdbcConnectionPool.PooledConnection connection = statementPool.acquire();
+             ResultSet resultSet = connection.executeQuery(queryToRun)) {
+            long fetchStart = System.nanoTime();
+
+            // Parse query results while reading them
+            TeradataRowDecoder decoder = TeradataRowDecoder.compile(resultSet.getMetaData());
+
+            long rows = 0;
+            while (resultSet.next()) {
+                consumer.accept(decoder.decodeRaw(resultSet), decoder.decode(resultSet));
+                rows++;
+            }
+            recordStatistics(statement, fetchStart - start, System.nanoTime() - fetchStart, rows);
 
-                while (resultSet.next()) {
-                    List<String> rowRawResults = new ArrayList<String>();
+            jobResult = QueryJobResults.create(statement, query, null, null, null);
+        } catch (SQLException e) {
+            // Print out errors returned from TD
+            jobResult = QueryJobResults.create(statement, query, e.getMessage(), null, null);
+        }
 
-                    // Result set columns start at 1 instead of 0
-                    for (int j = 1; j <= resultSetMetaData.getColumnCount(); j++) {
-                        rowRawResults.add(resultSet.getString(j));
-                    }
-                    rawResults.add(rowRawResults);
-                    results.add(parseResults(resultSet, resultSetMetaData));
-                }
+        return jobResult;
+    }
 
-                jobResult = QueryJobResults.create(statement, query, null, results, rawResults);
-            } catch (SQLException e) {
-                // Print out errors returned from TD
-                jobResult = QueryJobResults.create(statement, query, e.getMessage(), null, null);
+    /**
+     * Prepares the statement to find the column types of its results, then sends a checksum query job to TD
+     * @param statement to checksum
+     * @return Checksum of the query results
+     */
+    @Override
+    public QueryChecksum runChecksumQuery(String statement) {
+        try {
+            List<Integer> columnTypes = getResultColumnTypes(statement);
+
+            long start = System.nanoTime();
+            try (JdbcConnectionPool.PooledConnection connection = statementPool.acquire();
+                 ResultSet resultSet = connection.executeQuery(getChecksumQuery(statement, columnTypes))) {
+                recordStatistics(statement, System.nanoTime() - start, 0, 1);
+                resultSet.next();
+                return QueryChecksum.create(statement, null, resultSet.getLong(1), resultSet.getBigDecimal(2));
             }
+        } catch (SQLException | IllegalArgumentException e) {
+            return QueryChecksum.create(statement, e.getMessage(), 0, null);
+        }
+    }
 
-            // Store results
-            jobResults.add(jobResult);
+    @Override
+    public List<BucketChecksum> runBucketChecksumQuery(String statement, long parentModulus, Collection<Long> parentRemainders, long modulus) throws SQLException {
+        List<Integer> columnTypes = getResultColumnTypes(statement);
+
+        List<BucketChecksum> checksums = new ArrayList<BucketChecksum>();
+        long start = System.nanoTime();
+        try (JdbcConnectionPool.PooledConnection connection = statementPool.acquire();
+             ResultSet resultSet = connection.executeQuery(getBucketChecksumQuery(statement, columnTypes, parentModulus, parentRemainders, modulus))) {
+            long fetchStart = System.nanoTime();
+            while (resultSet.next()) {
+                checksums.add(BucketChecksum.create(resultSet.getLong(1), resultSet.getLong(2), resultSet.getBigDecimal(3)));
+            }
+            recordStatistics(statement, fetchStart - start, System.nanoTime() - fetchStart, checksums.size());
         }
+        return checksums;
+    }
 
-        // Clear tables created
-        tables.forEach(this::deleteTable);
+    @Override
+    public void setChecksumTolerance(BigDecimal tolerance) {
+        checksumTolerance = tolerance;
+    }
 
-        closeConnection();
+    @Override
+    public StatementStatistics getStatementStatistics(String statement) {
+        return statistics.get(statement);
+    }
 
-        return jobResults;
+    @Override
+    public Map<String, Long> getPhaseMillis() {
+        return phaseTimer.getMillis();
+    }
+
+    /**
+     * Adds the JDBC timings of a statement run to the statistics of its statement
+     * @param statement which was run
+     * @param executeNanos Time until the first results were returned
+     * @param fetchNanos Time spent reading the results
+     * @param rows Number of result rows read
+     */
+    private void recordStatistics(String statement, long executeNanos, long fetchNanos, long rows) {
+        statistics.merge(statement, StatementStatistics.ofJob(TimeUnit.NANOSECONDS.toMillis(executeNanos), TimeUnit.NANOSECONDS.toMillis(fetchNanos), rows), StatementStatistics::plus);
+    }
+
+    @Override
+    public QueryJobResults runBucketQuery(String statement, long modulus, Collection<Long> remainders, ResultRowConsumer consumer) throws SQLException, InterruptedException {
+        List<Integer> columnTypes = getResultColumnTypes(statement);
+        return runQuery(statement, getBucketQuery(statement, columnTypes, modulus, remainders), consumer);
+    }
+
+    /**
+     * Prepares the statement to find the column types of its results
+     * @param statement to prepare
+     * @return JDBC types of the statement's result columns
+     * @throws IllegalArgumentException if the statement has no results
+     */
+    private List<Integer> getResultColumnTypes(String statement) throws SQLException, IllegalArgumentException {
+        List<Integer> columnTypes = new ArrayList<Integer>();
+        try (JdbcConnectionPool.PooledConnection connection = statementPool.acquire()) {
+            // Prepared statements are cached by the connection, since each statement is checksummed more than once
+            ResultSetMetaData metadata = connection.prepareStatement(statement).getMetaData();
+
+            // Statements without results (e.g. DDL or DML) cannot be checksummed
+            if (metadata == null || metadata.getColumnCount() == 0) {
+                throw new IllegalArgumentException("Statement has no results to checksum.");
+            }
+
+            // Result set columns start at 1 instead of 0
+            for (int i = 1; i <= metadata.getColumnCount(); i++) {
+                columnTypes.add(metadata.getColumnType(i));
+            }
+        }
+        return columnTypes;
     }
 
     /**
      * Reads connection properties to TD database from config file
-     * @return databaseServerName, username, password
+     * @return databaseServerName, username, password and the optional maxConnections and fetchSize
      */
-    private String[] getConnectionPropertiesFromConfigFile() throws IOException {
+    private JsonObject getConnectionPropertiesFromConfigFile() throws IOException {
         InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream("config.json");
         String configContents = new BufferedReader(new InputStreamReader(inputStream)).lines().collect(Collectors.joining("\n"));
         inputStream.close();
@@ -106,85 +283,89 @@ public class TeradataManager implements DataWarehouseManager {
         JsonObject configJson = JsonParser.parseString(configContents).getAsJsonObject();
         JsonObject tdJsonObject = configJson.getAsJsonObject(getName().toLowerCase());
 
-        String[] connectionProperties = new String[3];
-        connectionProperties[0] = tdJsonObject.get("databaseServerName").getAsString();
-        connectionProperties[1] = tdJsonObject.get("username").getAsString();
-        connectionProperties[2] = tdJsonObject.get("password").getAsString();
-
-        if (connectionProperties[0].isEmpty()) {
+        if (tdJsonObject.get("databaseServerName").getAsString().isEmpty()) {
             throw new IllegalArgumentException("Please enter the " + getName() + " database server name and credentials in config.json");
         }
 
-        return connectionProperties;
+        return tdJsonObject;
     }
 
     /**
-     * Establishes a connection to the TD database
+     * Creates the connection pools to the TD database, unless they were provided, and checks that it can be reached
      */
     private void setupConnection() throws IOException {
-        try {
-            String[] connectionProperties = getConnectionPropertiesFromConfigFile();
-            String url = String.format("jdbc:teradata://%s/TMODE=ANSI,CHARSET=UTF8", connectionProperties[0]);
-            String user = connectionProperties[1];
-            String password = connectionProperties[2];
-
-            // Create connection for running queries
-            Connection connection = DriverManager.getConnection(url, user, password);
-            statementConnection = connection.createStatement();
+        if (statementPool == null || csvPool == null) {
+            JsonObject connectionProperties = getConnectionPropertiesFromConfigFile();
+            String url = String.format("jdbc:teradata://%s/TMODE=ANSI,CHARSET=UTF8", connectionProperties.get("databaseServerName").getAsString());
+            String user = connectionProperties.get("username").getAsString();
+            String password = connectionProperties.get("password").getAsString();
+            int maxConnections = connectionProperties.has("maxConnections") ? connectionProperties.get("maxConnections").getAsInt() : DEFAULT_MAX_CONNECTIONS;
+            int fetchSize = connectionProperties.has("fetchSize") ? connectionProperties.get("fetchSize").getAsInt() : DEFAULT_FETCH_SIZE;
+
+            statementPool = new JdbcConnectionPool(url, user, password, maxConnections, fetchSize);
+            csvPool = new JdbcConnectionPool(url + ",TYPE=FASTLOADCSV", user, password, maxConnections, 0);
+        }
 
-            // Create connection for uploading CSV files
-            csvConnection = DriverManager.getConnection(url + ",TYPE=FASTLOADCSV", user, password);
+        // Open the first connection now, so connection errors are reported before any statement is run
+        try (JdbcConnectionPool.PooledConnection connection = statementPool.acquire()) {
+            // The connection stays open in the pool
         } catch (SQLException throwables) {
             throwables.printStackTrace();
         }
     }
 
     /**
-     * Closes the connection to the TD database
+     * Closes the connections to the TD database
      */
     private void closeConnection() {
-        try {
-            statementConnection.close();
-        } catch (SQLException throwables) {
-            throwables.printStackTrace();
-        }
+        statementPool.close();
+        csvPool.close();
+    }
+
+    @Override
+    public StatementSplitter.Dialect getDialect() {
+        return StatementSplitter.Dialect.TERADATA;
     }
 
+    @Override
     public List<String> getStatementsFromQuery() {
-        // TODO Account for edge case where semicolon could be inside statement
-        return Arrays.stream(query.query().split(";")).map(String::trim).filter(statement -> !statement.isEmpty()).collect(Collectors.toList());
+        return StatementSplitter.splitToText(query.query(), getDialect());
     }
 
     /**
-     * Creates TD tables based on the provided schema
+     * Creates TD tables based on the provided schema. Tables from a JSON schema are created concurrently, while a DDL
+     * schema is sent as a single request.
      * @return List of newly created tables
      */
-    public List<String> createTablesFromSchema() throws IllegalArgumentException {
-        List<String> tables = new ArrayList<String>();
-
+    public List<String> createTablesFromSchema() throws Exception {
         if (schema != null) {
-            String ddlSchema;
+            List<String> ddlStatements;
             if (schema.isInJsonFormat()) {
                 // Schema is JSON
-                ddlSchema = String.join(";\n", generateDdlStatementsFromJsonSchema());
+                ddlStatements = generateDdlStatementsFromJsonSchema();
             } else {
                 // Schema is DDL
-                ddlSchema = schema.schema();
-            }
-            try {
-                statementConnection.executeUpdate(ddlSchema);
-            } catch (SQLException e) {
-                throw new IllegalArgumentException(schema.path() + " is not correctly formatted. " + e.getMessage());
+                ddlStatements = Collections.singletonList(schema.schema());
             }
 
-            tables = getTablesFromDdlSchema(ddlSchema);
+            ParallelTasks.runAll(ddlStatements, ParallelTasks.DEFAULT_PARALLELISM, ddlStatement -> {
+                try (JdbcConnectionPool.PooledConnection connection = statementPool.acquire()) {
+                    connection.executeUpdate(ddlStatement);
+                } catch (SQLException e) {
+                    throw new IllegalArgumentException(schema.path() + " is not correctly formatted. " + e.getMessage());
+                }
+
+                tables.addAll(getTablesFromDdlSchema(ddlStatement));
+            });
 
             if (tables.isEmpty()) {
                 throw new IllegalArgumentException(schema.path() + " is not correctly formatted.");
             }
         }
 
-        return tables;
+        synchronized (tables) {
+            return new ArrayList<String>(tables);
+        }
     }
 
     /**
@@ -245,11 +426,10 @@ public class TeradataManager implements DataWarehouseManager {
         List<String> tables = new ArrayList<String>();
 
         // Separate DDL schema into statements
-        // TODO Account for edge case where semicolon could be inside statement
-        String[] statements = schemaContents.split(";");
+        List<String> statements = StatementSplitter.splitToText(schemaContents, StatementSplitter.Dialect.TERADATA);
 
         for (String statement : statements) {
-            statement = statement.trim().replaceAll("\\s+", " ");
+            statement = statement.replaceAll("\\s+", " ");
 
             // Obtain table name
             if (statement.toUpperCase().startsWith("CREATE TABLE")) {
@@ -264,104 +444,235 @@ public class TeradataManager implements DataWarehouseManager {
     }
 
     /**
-     * Converts each value of query results to Java objects based on the field's type
-     * @param values from query results
-     * @param metadata from the schema of the results
-     * @return List of objects parsed from query results
+     * Wraps a statement in a query that returns the row count and the sum of the row hashes of its results.
+     * Values are canonicalized the same way as {@link BigQueryManager#getChecksumQuery(String, com.google.cloud.bigquery.FieldList)} so the
+     * checksums of both data warehouse services can be compared.
+     * @param statement to checksum
+     * @param columnTypes JDBC types of the statement's result columns
+     * @return Checksum query
      */
-    private List<Object> parseResults(ResultSet values, ResultSetMetaData metadata) throws SQLException {
-        List<Object> results = new ArrayList<Object>();
-
-        // Result set columns start at 1 instead of 0
-        for (int i = 1; i <= metadata.getColumnCount(); i++) {
-            Object result;
-            int type = metadata.getColumnType(i);
-
-            switch (type) {
-                case Types.BOOLEAN:
-                    result = values.getBoolean(i);
-                    break;
-                case Types.DECIMAL:
-                case Types.NUMERIC:
-                    result = values.getBigDecimal(i).setScale(QueryVerifier.DECIMAL_PRECISION, RoundingMode.FLOOR);
-                    break;
-                case Types.FLOAT:
-                    result = BigDecimal.valueOf(values.getFloat(i)).setScale(QueryVerifier.DECIMAL_PRECISION, RoundingMode.FLOOR);
-                    break;
-                case Types.DOUBLE:
-                    result = BigDecimal.valueOf(values.getDouble(i)).setScale(QueryVerifier.DECIMAL_PRECISION, RoundingMode.FLOOR);
-                    break;
-                case Types.SMALLINT:
-                case Types.BIGINT:
-                case Types.INTEGER:
-                    result = values.getLong(i);
-                    break;
-                // TODO Add support for Types.STRUCT
-                case Types.DATE:
-                case Types.TIME:
-                case Types.TIMESTAMP:
-                    result = values.getDate(i);
-                    break;
-                case Types.VARCHAR:
-                    result = values.getString(i);
-                    break;
-                default:
-                    // Handle unknown/unsupported types as String
-                    System.err.println("Warning: Unsupported type: " + metadata.getColumnTypeName(i));
-                    result = values.getString(i);
-            }
+    public String getChecksumQuery(String statement, List<Integer> columnTypes) {
+        List<String> columnNames = getColumnNames(columnTypes);
 
-            results.add(result);
-        }
+        // TD doesn't allow ORDER BY in derived tables, and the checksum doesn't depend on the order of the rows
+        return String.format("SELECT COUNT(*) AS row_count, COALESCE(SUM(CAST(%s AS DECIMAL(38, 0))), 0) AS checksum FROM (%s) AS t (%s)", getRowHash(columnNames, columnTypes), removeOrderBy(statement), String.join(", ", columnNames));
+    }
 
-        return results;
+    /**
+     * Wraps a statement in a query that returns the row count and the sum of the row hashes of each bucket
+     * @param statement to checksum
+     * @param columnTypes JDBC types of the statement's result columns
+     * @param parentModulus of the buckets being split
+     * @param parentRemainders of the buckets being split
+     * @param modulus of the new buckets
+     * @return Bucket checksum query
+     */
+    public String getBucketChecksumQuery(String statement, List<Integer> columnTypes, long parentModulus, Collection<Long> parentRemainders, long modulus) {
+        List<String> columnNames = getColumnNames(columnTypes);
+
+        return String.format("SELECT row_hash MOD %d AS bucket, COUNT(*) AS row_count, SUM(CAST(row_hash AS DECIMAL(38, 0))) AS checksum FROM (SELECT %s AS row_hash FROM (%s) AS t (%s)) AS h WHERE row_hash MOD %d IN (%s) GROUP BY 1", modulus, getRowHash(columnNames, columnTypes), removeOrderBy(statement), String.join(", ", columnNames), parentModulus, joinRemainders(parentRemainders));
     }
 
     /**
-     * Populates TD tables based on the provided table data.
+     * Wraps a statement in a query that only returns the rows in the given buckets
+     * @param statement to run
+     * @param columnTypes JDBC types of the statement's result columns
+     * @param modulus of the buckets
+     * @param remainders of the buckets to return
+     * @return Bucket query
      */
-    private void populateTablesFromData() {
-        for (QueryVerificationData queryVerificationData : data) {
-            String tableId = queryVerificationData.datasetName() + "." + queryVerificationData.tableName();
-
-            try {
-                // Clear out error tables
-                statementConnection.executeUpdate("DROP TABLE " + tableId + "_ERR_1;");
-                statementConnection.executeUpdate("DROP TABLE " + tableId + "_ERR_2;");
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
+    public String getBucketQuery(String statement, List<Integer> columnTypes, long modulus, Collection<Long> remainders) {
+        List<String> columnNames = getColumnNames(columnTypes);
+        String columns = String.join(", ", columnNames);
 
-            String csvContents = queryVerificationData.contents();
+        return String.format("SELECT %s FROM (SELECT t.*, %s AS row_hash FROM (%s) AS t (%s)) AS h WHERE row_hash MOD %d IN (%s)", columns, getRowHash(columnNames, columnTypes), removeOrderBy(statement), columns, modulus, joinRemainders(remainders));
+    }
 
-            // Identifies how many columns of data are provideed
-            String firstRow = csvContents.split("\n")[0];
-            int columns = firstRow.length() - firstRow.replace(",", "").length() + 1;
+    /**
+     * Result columns are renamed since unnamed expressions can't be referenced from outside of the derived table
+     * @param columnTypes JDBC types of the statement's result columns
+     * @return Positional column names
+     */
+    private static List<String> getColumnNames(List<Integer> columnTypes) {
+        List<String> columnNames = new ArrayList<String>();
+        for (int i = 1; i <= columnTypes.size(); i++) {
+            columnNames.add("c" + i);
+        }
+        return columnNames;
+    }
 
-            // Assemble placeholders (question marks) in the INSERT INTO statement for each column
-            String[] columnPlaceholders = new String[columns];
-            Arrays.fill(columnPlaceholders, "?");
-            String columnValues = String.join(",", columnPlaceholders);
+    private static String joinRemainders(Collection<Long> remainders) {
+        return remainders.stream().sorted().map(String::valueOf).collect(Collectors.joining(", "));
+    }
 
-            String insertIntoStatement = "INSERT INTO " + tableId + " VALUES(" + columnValues + ");";
+    /**
+     * Hashes the canonicalized columns of a row into a 32-bit integer
+     * @param columnNames of the statement's results
+     * @param columnTypes JDBC types of the statement's result columns
+     * @return Expression computing the row hash
+     */
+    private String getRowHash(List<String> columnNames, List<Integer> columnTypes) {
+        List<String> columns = new ArrayList<String>();
+        for (int i = 0; i < columnNames.size(); i++) {
+            columns.add(String.format("COALESCE(%s, '%s')", getCanonicalColumn(columnNames.get(i), columnTypes.get(i)), QueryVerifier.CHECKSUM_NULL_VALUE));
+        }
+        String row = String.join(" || '" + QueryVerifier.CHECKSUM_SEPARATOR + "' || ", columns);
+
+        // First 8 hex digits of the MD5 hash
+        return String.format("CAST(TO_NUMBER(SUBSTR(HASH_MD5(%s), 1, 8), 'XXXXXXXX') AS BIGINT)", row);
+    }
+
+    /**
+     * Rounds a number half away from zero to its nearest multiple of the checksum tolerance, the same way as
+     * {@link ResultDiff#normalizeValue(Object, BigDecimal)}
+     * @param column to round
+     * @return Expression computing the number of multiples of the tolerance
+     */
+    private String getRoundedMultiple(String column) {
+        BigDecimal tolerance = QueryVerifier.getChecksumTolerance(checksumTolerance);
+        String multiples = String.format("(CAST(%s AS DECIMAL(38, %d)) / %s)", column, QueryVerifier.getChecksumScale(tolerance), tolerance.toPlainString());
+        return String.format("TRUNC(%s + SIGN(%s) * 0.5)", multiples, multiples);
+    }
+
+    /**
+     * Converts a column to a string which is formatted identically on every data warehouse service
+     * @param column to canonicalize
+     * @param type JDBC type of the column
+     * @return Expression canonicalizing the column
+     */
+    private String getCanonicalColumn(String column, int type) {
+        switch (type) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+            case Types.FLOAT:
+            case Types.REAL:
+            case Types.DOUBLE:
+                // Numbers are compared as their nearest multiple of the tolerance, rounded half away from zero like
+                // in BigQuery. DECIMAL(38, 0) values are formatted with a trailing period
+                return String.format("TRIM(TRAILING '.' FROM TRIM(CAST(CAST(%s AS DECIMAL(38, 0)) AS VARCHAR(40))))", getRoundedMultiple(column));
+            case Types.DATE:
+                return String.format("CAST(CAST(%s AS FORMAT 'YYYY-MM-DD') AS VARCHAR(10))", column);
+            case Types.TIME:
+                return String.format("CAST(CAST(%s AS FORMAT 'HH:MI:SS') AS VARCHAR(8))", column);
+            case Types.TIMESTAMP:
+                return String.format("CAST(CAST(%s AS FORMAT 'YYYY-MM-DDBHH:MI:SS') AS VARCHAR(19))", column);
+            case Types.CHAR:
+                // Remove padding of fixed length strings
+                return String.format("TRIM(TRAILING FROM %s)", column);
+            case Types.VARCHAR:
+                return column;
+            default:
+                return String.format("CAST(%s AS VARCHAR(64000))", column);
+        }
+    }
 
-            // Workaround since Fastload CSV utility doesn't include first and last lines of CSV files
-            csvContents = columnValues + "\n" + csvContents;
-            if (!csvContents.endsWith("\n")) {
-                csvContents += "\n";
+    /**
+     * Removes the ORDER BY clause at the end of a statement, if there is one
+     * @param statement to remove the ORDER BY clause from
+     * @return Statement without the trailing ORDER BY clause
+     */
+    public static String removeOrderBy(String statement) {
+        int depth = 0;
+        int orderByIndex = -1;
+        char quote = 0;
+
+        for (int i = 0; i < statement.length(); i++) {
+            char character = statement.charAt(i);
+
+            if (quote != 0) {
+                // Skip over string literals and quoted identifiers
+                if (character == quote) {
+                    quote = 0;
+                }
+            } else if (character == '\'' || character == '"') {
+                quote = character;
+            } else if (character == '(') {
+                depth++;
+            } else if (character == ')') {
+                depth--;
+            } else if (depth == 0 && statement.regionMatches(true, i, "ORDER", 0, 5)
+                    && (i == 0 || !Character.isLetterOrDigit(statement.charAt(i - 1)))
+                    && statement.substring(i + 5).matches("(?is)\\s+BY\\s.*")) {
+                orderByIndex = i;
             }
+        }
 
-            // Run INSERT INTO statement
-            try {
-                PreparedStatement insertCsv = csvConnection.prepareStatement(insertIntoStatement);
-                InputStream inputStream = new ByteArrayInputStream(csvContents.getBytes());
-                insertCsv.setAsciiStream(1, inputStream, -1);
-                insertCsv.executeUpdate();
-                insertCsv.close();
-            } catch (SQLException e) {
-                e.printStackTrace();
+        return orderByIndex == -1 ? statement : statement.substring(0, orderByIndex).trim();
+    }
+
+    /**
+     * Populates TD tables based on the provided table data, loading several tables concurrently
+     */
+    private void populateTablesFromData() throws Exception {
+        new TableDataLoader(getName(), TableDataLoader.DEFAULT_PARALLELISM).loadTables(data, this::populateTableFromData);
+    }
+
+    /**
+     * Streams the data file of a single table into its TD table
+     * @param queryVerificationData of the table
+     */
+    private void populateTableFromData(QueryVerificationData queryVerificationData) throws IOException {
+        String tableId = queryVerificationData.datasetName() + "." + queryVerificationData.tableName();
+
+        try (JdbcConnectionPool.PooledConnection connection = statementPool.acquire()) {
+            // Clear out error tables
+            connection.executeUpdate("DROP TABLE " + tableId + "_ERR_1;");
+            connection.executeUpdate("DROP TABLE " + tableId + "_ERR_2;");
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        // Identifies how many columns of data are provided
+        String firstRow;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(queryVerificationData.openStream()))) {
+            firstRow = reader.readLine();
+        }
+        firstRow = firstRow == null ? "" : firstRow;
+        int columns = firstRow.length() - firstRow.replace(",", "").length() + 1;
+
+        // Assemble placeholders (question marks) in the INSERT INTO statement for each column
+        String[] columnPlaceholders = new String[columns];
+        Arrays.fill(columnPlaceholders, "?");
+        String columnValues = String.join(",", columnPlaceholders);
+
+        String insertIntoStatement = "INSERT INTO " + tableId + " VALUES(" + columnValues + ");";
+
+        // Run INSERT INTO statement
+        // Fastload statements are not cached, since each one loads a single CSV file
+        try (JdbcConnectionPool.PooledConnection connection = csvPool.acquire();
+             PreparedStatement insertCsv = connection.getConnection().prepareStatement(insertIntoStatement);
+             InputStream inputStream = openFastLoadStream(queryVerificationData, columnValues)) {
+            insertCsv.setAsciiStream(1, inputStream, -1);
+            insertCsv.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Workaround since Fastload CSV utility doesn't include first and last lines of CSV files. The file is read in
+     * chunks while a header line is added before it and a line break after it if necessary.
+     * @param queryVerificationData of the table
+     * @param header Line to skip
+     * @return Stream of the CSV file to load
+     */
+    private static InputStream openFastLoadStream(QueryVerificationData queryVerificationData, String header) throws IOException {
+        List<InputStream> streams = new ArrayList<InputStream>();
+        streams.add(new ByteArrayInputStream((header + "\n").getBytes()));
+        streams.add(new BufferedInputStream(queryVerificationData.openStream(), TableDataLoader.CHUNK_SIZE));
+
+        try (FileChannel channel = queryVerificationData.openChannel()) {
+            ByteBuffer lastByte = ByteBuffer.allocate(1);
+            if (channel.size() > 0 && channel.read(lastByte, channel.size() - 1) == 1 && lastByte.get(0) != '\n') {
+                streams.add(new ByteArrayInputStream("\n".getBytes()));
             }
         }
+
+        return new SequenceInputStream(Collections.enumeration(streams));
     }
 
     /**
@@ -370,8 +681,8 @@ public class TeradataManager implements DataWarehouseManager {
      */
     private void deleteTable(String table) {
         String dropStatement = "DROP TABLE " + table + ";";
-        try {
-            statementConnection.executeUpdate(dropStatement);
+        try (JdbcConnectionPool.PooledConnection connection = statementPool.acquire()) {
+            connection.executeUpdate(dropStatement);
         } catch (SQLException throwables) {
             throwables.printStackTrace();
         }
@@ -0,0 +1,118 @@
+package com.google.bigquery;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class to convert rows of TD query results to Java objects. The column count and the conversion of each column are
+ * read from the result set metadata once per query, instead of for every value.
+ */
+public class TeradataRowDecoder {
+
+    /**
+     * Interface for converting a single value of a column.
+     */
+    @FunctionalInterface
+    private interface ColumnDecoder {
+
+        Object decode(ResultSet values, int column) throws SQLException;
+
+    }
+
+    private final ColumnDecoder[] decoders;
+
+    private TeradataRowDecoder(ColumnDecoder[] decoders) {
+        this.decoders = decoders;
+    }
+
+    /**
+     * Chooses the conversion of every column based on the column's type
+     * @param metadata from the schema of the results
+     * @return Decoder for rows with the given columns
+     * @throws SQLException
+     */
+    public static TeradataRowDecoder compile(ResultSetMetaData metadata) throws SQLException {
+        ColumnDecoder[] decoders = new ColumnDecoder[metadata.getColumnCount()];
+
+        // Result set columns start at 1 instead of 0
+        for (int i = 1; i <= decoders.length; i++) {
+            decoders[i - 1] = compileColumn(metadata.getColumnType(i), metadata.getColumnTypeName(i));
+        }
+        return new TeradataRowDecoder(decoders);
+    }
+
+    private static ColumnDecoder compileColumn(int type, String typeName) {
+        switch (type) {
+            case Types.BOOLEAN:
+                return (values, column) -> {
+                    boolean value = values.getBoolean(column);
+                    return values.wasNull() ? null : value;
+                };
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return (values, column) -> values.getBigDecimal(column);
+            case Types.FLOAT:
+                return (values, column) -> {
+                    float value = values.getFloat(column);
+                    return values.wasNull() ? null : BigDecimal.valueOf(value);
+                };
+            case Types.DOUBLE:
+                return (values, column) -> {
+                    double value = values.getDouble(column);
+                    return values.wasNull() ? null : BigDecimal.valueOf(value);
+                };
+            case Types.SMALLINT:
+            case Types.BIGINT:
+            case Types.INTEGER:
+                return (values, column) -> {
+                    long value = values.getLong(column);
+                    return values.wasNull() ? null : value;
+                };
+            // TODO Add support for Types.STRUCT
+            case Types.DATE:
+            case Types.TIME:
+            case Types.TIMESTAMP:
+                return ResultSet::getDate;
+            case Types.VARCHAR:
+                return ResultSet::getString;
+            default:
+                // Handle unknown/unsupported types as String
+                System.err.println("Warning: Unsupported type: " + typeName);
+                return ResultSet::getString;
+        }
+    }
+
+    /**
+     * Converts each value of the current row to Java objects
+     * @param values Result set positioned at the row
+     * @return List of objects parsed from query results
+     * @throws SQLException
+     */
+    public List<Object> decode(ResultSet values) throws SQLException {
+        List<Object> results = new ArrayList<Object>(decoders.length);
+        for (int i = 0; i < decoders.length; i++) {
+            results.add(decoders[i].decode(values, i + 1));
+        }
+        return results;
+    }
+
+    /**
+     * Converts each value of the current row to the string returned by TD
+     * @param values Result set positioned at the row
+     * @return List of raw values
+     * @throws SQLException
+     */
+    public List<String> decodeRaw(ResultSet values) throws SQLException {
+        List<String> rawResults = new ArrayList<String>(decoders.length);
+        for (int i = 1; i <= decoders.length; i++) {
+            rawResults.add(values.getString(i));
+        }
+        return rawResults;
+    }
+
+}
@@ -0,0 +1,323 @@
+package com.google.bigquery;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import javax.annotation.Nullable;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Class to record the progress of a data-aware verification, so a verification which failed midway can be resumed.
+ * Progress is appended to a journal with one JSON entry per line as soon as the tables of a data warehouse are set up
+ * or a statement is verified. The first entry holds a fingerprint of the inputs, and the journal is only resumed by a
+ * verification with the same fingerprint. Completed statements are identified by their index and a hash of both
+ * statements, so statements which changed since are verified again. Only the progress of previous verifications is
+ * looked up, while new progress is only appended. A resumed journal is first rewritten with the entries which could be
+ * read, so new entries aren't appended to a partially written line.
+ */
+public class VerificationCheckpoint implements Closeable {
+
+    public static final String FILE_NAME = "checkpoint.jsonl";
+
+    private static final Gson GSON = new Gson();
+
+    /**
+     * Journal entry, which is either the fingerprint, a data warehouse whose tables were set up, a verified statement or
+     * a statement which has to be verified again
+     */
+    private static class Entry {
+        String fingerprint;
+        String setup;
+        Integer forgotten;
+        Integer query;
+        String migratedHash;
+        String originalHash;
+        String migratedError;
+        String originalError;
+        long extraRows;
+        long missingRows;
+        boolean unfetched;
+        Long sampleModulus;
+        long migratedRows;
+        long originalRows;
+        long mismatchingRows;
+        String checksumError;
+    }
+
+    private final Path file;
+    private final BufferedWriter writer;
+    private final Set<String> setupWarehouses = new HashSet<String>();
+    private final Map<Integer, Entry> completedStatements = new HashMap<Integer, Entry>();
+
+    private VerificationCheckpoint(Path file, BufferedWriter writer) {
+        this.file = file;
+        this.writer = writer;
+    }
+
+    /**
+     * Opens the journal of a verification
+     * @param file of the journal
+     * @param fingerprint of the verification's inputs, see {@link #getFingerprint(List, List)}
+     * @param resume Whether the progress of a previous verification with the same fingerprint is loaded. Otherwise,
+     * or if the fingerprint differs, the journal starts over.
+     * @return Journal which new progress is appended to
+     * @throws IOException
+     */
+    public static VerificationCheckpoint open(Path file, String fingerprint, boolean resume) throws IOException {
+        List<Entry> entries = resume ? load(file) : Collections.emptyList();
+        boolean resumed = !entries.isEmpty() && fingerprint.equals(entries.get(0).fingerprint);
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        if (resumed) {
+            rewrite(file, entries);
+            VerificationCheckpoint checkpoint = new VerificationCheckpoint(file, Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.APPEND));
+            for (Entry entry : entries.subList(1, entries.size())) {
+                checkpoint.apply(entry);
+            }
+            return checkpoint;
+        }
+
+        VerificationCheckpoint checkpoint = new VerificationCheckpoint(file, Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+        Entry header = new Entry();
+        header.fingerprint = fingerprint;
+        checkpoint.append(header);
+        return checkpoint;
+    }
+
+    /**
+     * Reads every entry of the journal. Reading stops at the first unreadable entry, e.g. a line which was only
+     * partially written when the previous verification was killed.
+     */
+    private static List<Entry> load(Path file) throws IOException {
+        List<Entry> entries = new ArrayList<Entry>();
+        if (!Files.isRegularFile(file)) {
+            return entries;
+        }
+
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            try {
+                Entry entry = GSON.fromJson(line, Entry.class);
+                if (entry == null) {
+                    break;
+                }
+                entries.add(entry);
+            } catch (JsonParseException e) {
+                System.err.println("Ignoring the rest of " + file + " after an unreadable entry: " + e.getMessage());
+                break;
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Replaces the journal with the entries which could be read, dropping an unreadable rest of the journal. The
+     * entries are written to a temporary file first, so the journal isn't lost if the rewrite is interrupted.
+     */
+    private static void rewrite(Path file, List<Entry> entries) throws IOException {
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+            for (Entry entry : entries) {
+                writer.write(GSON.toJson(entry));
+                writer.newLine();
+            }
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void apply(Entry entry) {
+        if (entry.setup != null) {
+            setupWarehouses.add(entry.setup);
+        } else if (entry.forgotten != null) {
+            completedStatements.remove(entry.forgotten);
+        } else if (entry.query != null) {
+            completedStatements.put(entry.query, entry);
+        }
+    }
+
+    private synchronized void append(Entry entry) throws IOException {
+        writer.write(GSON.toJson(entry));
+        writer.newLine();
+        writer.flush();
+    }
+
+    /**
+     * @return Number of statements completed by previous verifications
+     */
+    public synchronized int getCompletedCount() {
+        return completedStatements.size();
+    }
+
+    /**
+     * @param warehouseName Name of the data warehouse
+     * @return Whether the tables of the data warehouse were set up by a previous verification
+     */
+    public synchronized boolean isSetUp(String warehouseName) {
+        return setupWarehouses.contains(warehouseName);
+    }
+
+    /**
+     * @param warehouseName Name of the data warehouse whose tables are set up
+     * @throws IOException
+     */
+    public void recordSetup(String warehouseName) throws IOException {
+        Entry entry = new Entry();
+        entry.setup = warehouseName;
+        append(entry);
+    }
+
+    /**
+     * Forgets completed statements, so they are verified again even if they didn't change
+     * @param indexes Indexes of the statements in the query files
+     * @return Number of completed statements which were forgotten
+     * @throws IOException
+     */
+    public int forgetStatements(Collection<Integer> indexes) throws IOException {
+        int forgotten = 0;
+        for (int index : indexes) {
+            synchronized (this) {
+                if (completedStatements.remove(index) == null) {
+                    continue;
+                }
+            }
+            Entry entry = new Entry();
+            entry.forgotten = index;
+            append(entry);
+            forgotten++;
+        }
+        return forgotten;
+    }
+
+    /**
+     * @param index Index of the statements in the query files
+     * @param migratedStatement Statement run by BQ
+     * @param migratedQuery File of the migrated statement
+     * @param originalStatement Statement run by the original data warehouse service
+     * @param originalQuery File of the original statement
+     * @return Comparison of the statements if they were already verified, or null
+     */
+    @Nullable
+    public synchronized QueryComparison getCompleted(int index, String migratedStatement, QueryVerificationQuery migratedQuery, String originalStatement, QueryVerificationQuery originalQuery) {
+        Entry entry = getEntry(index, migratedStatement, originalStatement);
+        if (entry == null) {
+            return null;
+        }
+        return QueryComparison.create(QueryJobResults.create(migratedStatement, migratedQuery, entry.migratedError, null, null), QueryJobResults.create(originalStatement, originalQuery, entry.originalError, null, null), entry.extraRows, entry.missingRows);
+    }
+
+    /**
+     * @param index Index of a statement for which {@link #getCompleted} isn't null
+     * @return Whether checksums of the statement differed, but its results weren't fetched
+     */
+    public synchronized boolean isUnfetched(int index) {
+        Entry entry = completedStatements.get(index);
+        return entry != null && entry.unfetched;
+    }
+
+    /**
+     * @param index Index of a statement for which {@link #getCompleted} isn't null
+     * @return Comparison of the sampled results, or null if the results weren't sampled
+     */
+    @Nullable
+    public synchronized SampleEstimate getSample(int index) {
+        Entry entry = completedStatements.get(index);
+        if (entry == null || entry.sampleModulus == null) {
+            return null;
+        }
+        return SampleEstimate.create(entry.sampleModulus, entry.migratedRows, entry.originalRows, entry.extraRows, entry.missingRows);
+    }
+
+    /**
+     * @param index Index of a statement for which {@link #getCompleted} isn't null
+     * @return Number of rows matched by key with differing columns
+     */
+    public synchronized long getMismatchingRows(int index) {
+        Entry entry = completedStatements.get(index);
+        return entry == null ? 0 : entry.mismatchingRows;
+    }
+
+    /**
+     * @param index Index of a statement for which {@link #getCompleted} isn't null
+     * @return Error of the checksums compared instead of fetching the results, or null
+     */
+    @Nullable
+    public synchronized String getChecksumError(int index) {
+        Entry entry = completedStatements.get(index);
+        return entry == null ? null : entry.checksumError;
+    }
+
+    @Nullable
+    private Entry getEntry(int index, String migratedStatement, String originalStatement) {
+        Entry entry = completedStatements.get(index);
+        if (entry == null || !Fingerprints.hash(migratedStatement).equals(entry.migratedHash) || !Fingerprints.hash(originalStatement).equals(entry.originalHash)) {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Records a verified statement once its results and differences are written
+     * @param index Index of the statements in the query files
+     * @param comparison Comparison of the results
+     * @param unfetched Whether checksums of the statement differed, but its results weren't fetched
+     * @param sample Comparison of the sampled results, or null if the results weren't sampled
+     * @param mismatchingRows Number of rows matched by key with differing columns
+     * @param checksumError Error of the checksums compared instead of fetching the results, or null
+     * @throws IOException
+     */
+    public void recordStatement(int index, QueryComparison comparison, boolean unfetched, @Nullable SampleEstimate sample, long mismatchingRows, @Nullable String checksumError) throws IOException {
+        Entry entry = new Entry();
+        entry.query = index;
+        entry.migratedHash = Fingerprints.hash(comparison.migratedResults().statement());
+        entry.originalHash = Fingerprints.hash(comparison.originalResults().statement());
+        entry.migratedError = comparison.migratedResults().error();
+        entry.originalError = comparison.originalResults().error();
+        entry.extraRows = comparison.extraResults();
+        entry.missingRows = comparison.missingResults();
+        entry.unfetched = unfetched;
+        entry.mismatchingRows = mismatchingRows;
+        entry.checksumError = checksumError;
+        if (sample != null) {
+            entry.sampleModulus = sample.modulus();
+            entry.migratedRows = sample.migratedRowCount();
+            entry.originalRows = sample.originalRowCount();
+        }
+        append(entry);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Closes and deletes the journal once the verification has completed
+     * @throws IOException
+     */
+    public void delete() throws IOException {
+        close();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Hashes what the results of a verification depend on besides the statements. Data files are identified by their
+     * path, size and last modification time, so large files don't have to be read.
+     * @param settings Names of the data warehouses, contents of the schema files and options, which may be null
+     * @param data Table data, or null
+     * @return Fingerprint of the verification
+     * @throws IOException if a data file can't be accessed
+     */
+    public static String getFingerprint(List<String> settings, @Nullable List<QueryVerificationData> data) throws IOException {
+        List<String> parts = new ArrayList<String>(settings);
+        parts.addAll(Fingerprints.describeDataFiles(data));
+        return Fingerprints.hash(parts.toArray(new String[0]));
+    }
+
+}
@@ -0,0 +1,195 @@
+package com.google.bigquery;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class to collect the time spent in each phase of a data-aware verification and the statistics of every statement,
+ * so they can be written to a JSON report. Statistics of each statement are taken from the data warehouse managers
+ * once the statement is verified.
+ */
+public class VerificationReport {
+
+    public static final String FILE_NAME = "report.json";
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().serializeNulls().create();
+
+    private final DataWarehouseManager migratedInstance;
+    private final DataWarehouseManager originalInstance;
+
+    private final PhaseTimer phaseTimer = new PhaseTimer();
+
+    // Statements in file order, and the statistics of every statement added up for each data warehouse
+    private final Map<Integer, JsonObject> statements = new TreeMap<Integer, JsonObject>();
+    private final Map<String, StatementStatistics> totals = new LinkedHashMap<String, StatementStatistics>();
+
+    /**
+     * @param migratedInstance Data warehouse service running the migrated query
+     * @param originalInstance Data warehouse service running the original query
+     */
+    public VerificationReport(DataWarehouseManager migratedInstance, DataWarehouseManager originalInstance) {
+        this.migratedInstance = migratedInstance;
+        this.originalInstance = originalInstance;
+    }
+
+    /**
+     * @return Timer for the phases of the verification
+     */
+    public PhaseTimer getPhaseTimer() {
+        return phaseTimer;
+    }
+
+    /**
+     * Adds a verified statement along with the statistics of the jobs both data warehouses ran for it
+     * @param index Index of the statement in the query files
+     * @param mode How the statement was scheduled, or null if statements weren't scheduled by cost
+     * @param elapsedNanos Time spent verifying the statement
+     * @param comparison Comparison of the results
+     * @param profile Profile of the rows matched by key with differing columns, or null
+     * @param checksumError Error of the checksums compared instead of fetching the results, or null
+     */
+    public synchronized void addStatement(int index, @Nullable ScheduledStatement.Mode mode, long elapsedNanos, QueryComparison comparison, @Nullable MismatchProfile profile, @Nullable String checksumError) {
+        JsonObject statement = new JsonObject();
+        statement.addProperty("query", index + 1);
+        statement.addProperty("mode", mode == null ? null : mode.name().toLowerCase());
+        statement.addProperty("elapsedMillis", TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        statement.addProperty("extraRows", comparison.extraResults());
+        statement.addProperty("missingRows", comparison.missingResults());
+        statement.addProperty("mismatchingRows", profile == null ? 0 : profile.getMismatchingRows());
+        statement.addProperty("checksumError", checksumError);
+        statement.add("migrated", toJson(migratedInstance, comparison.migratedResults()));
+        statement.add("original", toJson(originalInstance, comparison.originalResults()));
+        if (profile != null) {
+            statement.add("profile", profile.toJson());
+        }
+
+        statements.put(index, statement);
+    }
+
+    /**
+     * @param manager which ran the statement
+     * @param results of the statement
+     * @return Name of the data warehouse, error and job statistics of the statement
+     */
+    private JsonObject toJson(DataWarehouseManager manager, QueryJobResults results) {
+        JsonObject json = new JsonObject();
+        json.addProperty("warehouse", manager.getName());
+        json.addProperty("file", results.query() == null ? null : results.query().path());
+        json.addProperty("error", results.error());
+
+        // Results replayed from a cache have no statistics
+        StatementStatistics statistics = manager.getStatementStatistics(results.statement());
+        if (statistics != null) {
+            totals.merge(manager.getName(), statistics, StatementStatistics::plus);
+        }
+        json.add("statistics", toJson(statistics));
+        return json;
+    }
+
+    @Nullable
+    private static JsonObject toJson(@Nullable StatementStatistics statistics) {
+        if (statistics == null) {
+            return null;
+        }
+
+        JsonObject json = new JsonObject();
+        json.addProperty("jobs", statistics.jobs());
+        json.addProperty("elapsedMillis", statistics.elapsedMillis());
+        json.addProperty("fetchMillis", statistics.fetchMillis());
+        json.addProperty("rowsFetched", statistics.rowsFetched());
+        json.addProperty("bytesProcessed", statistics.bytesProcessed());
+        json.addProperty("slotMillis", statistics.slotMillis());
+        return json;
+    }
+
+    private static JsonObject toJson(Map<String, Long> phaseMillis) {
+        JsonObject json = new JsonObject();
+        phaseMillis.forEach(json::addProperty);
+        return json;
+    }
+
+    /**
+     * Counts the statements of each pair of query files, and the statements with differences or errors
+     * @return Files in the order of their first statement
+     */
+    private JsonArray getFiles() {
+        Map<String, JsonObject> files = new LinkedHashMap<String, JsonObject>();
+        for (JsonObject statement : statements.values()) {
+            JsonObject migrated = statement.getAsJsonObject("migrated");
+            JsonObject original = statement.getAsJsonObject("original");
+            String migratedFile = migrated.get("file").isJsonNull() ? null : migrated.get("file").getAsString();
+
+            JsonObject file = files.computeIfAbsent(migratedFile, key -> {
+                JsonObject json = new JsonObject();
+                json.add("migrated", migrated.get("file"));
+                json.add("original", original.get("file"));
+                json.addProperty("statements", 0);
+                json.addProperty("statementsWithDifferences", 0);
+                json.addProperty("statementsWithErrors", 0);
+                return json;
+            });
+
+            increment(file, "statements");
+            if (statement.get("extraRows").getAsLong() > 0 || statement.get("missingRows").getAsLong() > 0 || statement.get("mismatchingRows").getAsLong() > 0) {
+                increment(file, "statementsWithDifferences");
+            }
+            if (!migrated.get("error").isJsonNull() || !original.get("error").isJsonNull()) {
+                increment(file, "statementsWithErrors");
+            }
+        }
+
+        JsonArray fileArray = new JsonArray();
+        files.values().forEach(fileArray::add);
+        return fileArray;
+    }
+
+    private static void increment(JsonObject json, String property) {
+        json.addProperty(property, json.get(property).getAsInt() + 1);
+    }
+
+    /**
+     * @return Report with the phases of the verification, the phases and total statistics of each data warehouse,
+     * the statement counts of each pair of query files and the statistics of every statement
+     */
+    public synchronized JsonObject toJson() {
+        JsonObject warehouses = new JsonObject();
+        for (DataWarehouseManager manager : new DataWarehouseManager[] {migratedInstance, originalInstance}) {
+            JsonObject warehouse = new JsonObject();
+            warehouse.add("phases", toJson(manager.getPhaseMillis()));
+            warehouse.add("totals", toJson(totals.get(manager.getName())));
+            warehouses.add(manager.getName(), warehouse);
+        }
+
+        JsonArray statementArray = new JsonArray();
+        statements.values().forEach(statementArray::add);
+
+        JsonObject report = new JsonObject();
+        report.add("phases", toJson(phaseTimer.getMillis()));
+        report.add("warehouses", warehouses);
+        report.add("files", getFiles());
+        report.add("statements", statementArray);
+        return report;
+    }
+
+    /**
+     * Writes the report as JSON
+     * @param path of the report file
+     * @throws IOException
+     */
+    public void write(Path path) throws IOException {
+        Files.write(path, GSON.toJson(toJson()).getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -4,7 +4,6 @@ import com.google.cloud.bigquery.*;
 import org.junit.Test;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.text.*;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -136,6 +135,29 @@ public class BigQueryManagerTest {
         assertEquals(queries.get(2), "SELECT column2 FROM table2");
     }
 
+    @Test
+    public void testGetChecksumQuery() {
+        FieldList fields = FieldList.of(Field.of("id", StandardSQLTypeName.INT64), Field.of("name", StandardSQLTypeName.STRING));
+        String checksumQuery = new BigQueryManager(null, null, null, null).getChecksumQuery("SELECT id, name FROM dataset.table", fields);
+
+        assertEquals(checksumQuery, "SELECT COUNT(*) AS row_count, COALESCE(SUM(CAST(CAST(CONCAT('0x', SUBSTR(TO_HEX(MD5(" +
+                "CONCAT(COALESCE(CAST(ROUND(ROUND(CAST(row_columns.c0 AS BIGNUMERIC), 12) / BIGNUMERIC '0.0000000001') AS STRING), '\\\\N'), '|', COALESCE(row_columns.c1, '\\\\N'))" +
+                ")), 1, 8)) AS INT64) AS NUMERIC)), 0) AS checksum FROM (SELECT CAST(t AS STRUCT<c0 INT64, c1 STRING>) AS row_columns FROM (SELECT id, name FROM dataset.table) AS t)");
+    }
+
+    @Test
+    public void testGetBucketQueryWithUnnamedColumns() {
+        // Unnamed columns are reported as f0_, f1_, ... but can't be referenced by these names
+        FieldList fields = FieldList.of(Field.of("f0_", StandardSQLTypeName.INT64),
+                Field.newBuilder("f1_", StandardSQLTypeName.STRUCT, Field.of("a", StandardSQLTypeName.STRING)).setMode(Field.Mode.REPEATED).build());
+        String bucketQuery = new BigQueryManager(null, null, null, null).getBucketQuery("SELECT COUNT(*), ARRAY_AGG(STRUCT(a)) FROM dataset.table", fields, 4, Arrays.asList(3L, 1L));
+
+        assertTrue(bucketQuery.startsWith("SELECT * EXCEPT (row_columns, row_hash) FROM (SELECT *, CAST(CONCAT('0x', SUBSTR(TO_HEX(MD5(CONCAT(" +
+                "COALESCE(CAST(ROUND(ROUND(CAST(row_columns.c0 AS BIGNUMERIC), 12) / BIGNUMERIC '0.0000000001') AS STRING), '\\\\N'), '|', COALESCE(TO_JSON_STRING(row_columns.c1), '\\\\N'))"));
+        assertTrue(bucketQuery.endsWith("SELECT t.*, CAST(t AS STRUCT<c0 INT64, c1 ARRAY<STRUCT<`a` STRING>>>) AS row_columns " +
+                "FROM (SELECT COUNT(*), ARRAY_AGG(STRUCT(a)) FROM dataset.table) AS t)) WHERE MOD(row_hash, 4) IN (1, 3)"));
+    }
+
     @Test
     public void testParseResults() throws ParseException {
         BigQueryManager bigQueryManager = new BigQueryManager(null, null, null, null);
@@ -151,9 +173,9 @@ public class BigQueryManagerTest {
         types.put(StandardSQLTypeName.TIMESTAMP, "2020-01-01 12:00:00.000000 UTC");
         types.put(StandardSQLTypeName.STRING, "value");
 
-        Date date = new SimpleDateFormat("yyyy-MM-dd hh:mm:ss.SSSSSS zzz").parse("2020-01-01 12:00:00.000000 UTC");
+        Date date = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSSSSS zzz").parse("2020-01-01 12:00:00.000000 UTC");
         SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-        SimpleDateFormat timeFormat = new SimpleDateFormat("hh:mm:ss.SSSSSS");
+        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.SSSSSS");
 
         // Test individual data types
 
@@ -164,9 +186,9 @@ public class BigQueryManagerTest {
 
         assertEquals(results.size(), 9);
         assertEquals(results.get(0), true);
-        assertEquals(results.get(1), BigDecimal.valueOf(2.25f).setScale(QueryVerifier.DECIMAL_PRECISION, RoundingMode.FLOOR));
+        assertEquals(results.get(1), BigDecimal.valueOf(2.25f));
         assertEquals(results.get(2), 10L);
-        assertEquals(results.get(3), new BigDecimal("3.333333333").setScale(QueryVerifier.DECIMAL_PRECISION, RoundingMode.FLOOR));
+        assertEquals(results.get(3), new BigDecimal("3.333333333"));
         assertEquals(dateFormat.format(results.get(4)), dateFormat.format(date));
         assertEquals(results.get(5), date);
         assertEquals(timeFormat.format(results.get(6)), timeFormat.format(date));
@@ -183,4 +205,15 @@ public class BigQueryManagerTest {
         assertEquals(structResults.get(0), results);
     }
 
+    @Test
+    public void testParseResultsWithNullsAndEpochTimestamps() {
+        FieldList fields = FieldList.of(Field.of("int", StandardSQLTypeName.INT64), Field.of("timestamp", StandardSQLTypeName.TIMESTAMP));
+        FieldValueList values = FieldValueList.of(Arrays.asList(FieldValue.of(FieldValue.Attribute.PRIMITIVE, null), FieldValue.of(FieldValue.Attribute.PRIMITIVE, "1.5778368E9")));
+
+        BigQueryRowDecoder decoder = BigQueryRowDecoder.compile(fields);
+
+        assertEquals(decoder.decode(values), Arrays.asList(null, new Date(1577836800000L)));
+        assertEquals(decoder.decodeRaw(values), Arrays.asList(null, "1.5778368E9"));
+    }
+
 }
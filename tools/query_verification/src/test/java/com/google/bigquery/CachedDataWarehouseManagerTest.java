@@ -0,0 +1,223 @@
+package com.google.bigquery;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class CachedDataWarehouseManagerTest {
+
+    /**
+     * Data warehouse returning a fixed row for every statement and counting the calls it receives. Statements fail
+     * while failures are left.
+     */
+    static class FakeManager implements DataWarehouseManager {
+
+        int setups = 0;
+        int queries = 0;
+        int failures = 0;
+
+        @Override
+        public String getName() {
+            return "Fake";
+        }
+
+        @Override
+        public StatementSplitter.Dialect getDialect() {
+            return StatementSplitter.Dialect.STANDARD;
+        }
+
+        @Override
+        public void setupTables() {
+            setups++;
+        }
+
+        @Override
+        public void cleanupTables() {
+        }
+
+        @Override
+        public List<String> getStatementsFromQuery() {
+            return Arrays.asList("SELECT 1", "SELECT 2");
+        }
+
+        @Override
+        public QueryJobResults runQuery(String statement, ResultRowConsumer consumer) throws InterruptedException {
+            queries++;
+            if (statement.equals("SELECT invalid")) {
+                return QueryJobResults.create(statement, null, "Syntax error", null, null);
+            }
+            if (failures > 0) {
+                failures--;
+                // Rows read before the failure
+                consumer.accept(Arrays.asList("partial"), Arrays.asList("partial"));
+                return QueryJobResults.create(statement, null, "Connection reset", null, null);
+            }
+            consumer.accept(Arrays.asList(statement, null), Arrays.asList(statement, null, 1L, new BigDecimal("2.50"), new Date(0)));
+            return QueryJobResults.create(statement, null, null, null, null);
+        }
+
+        @Override
+        public QueryChecksum runChecksumQuery(String statement) {
+            queries++;
+            if (failures > 0) {
+                failures--;
+                return QueryChecksum.create(statement, "Connection reset", 0, null);
+            }
+            return QueryChecksum.create(statement, null, 1, BigDecimal.TEN);
+        }
+
+        @Override
+        public List<BucketChecksum> runBucketChecksumQuery(String statement, long parentModulus, Collection<Long> parentRemainders, long modulus) {
+            queries++;
+            return Arrays.asList(BucketChecksum.create(1, 1, BigDecimal.TEN));
+        }
+
+        @Override
+        public QueryJobResults runBucketQuery(String statement, long modulus, Collection<Long> remainders, ResultRowConsumer consumer) throws InterruptedException {
+            return runQuery(statement, consumer);
+        }
+
+    }
+
+    Path cacheFolder;
+
+    @Before
+    public void setup() throws IOException {
+        cacheFolder = Files.createTempDirectory("cache");
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        for (File file : cacheFolder.toFile().listFiles()) {
+            file.delete();
+        }
+        Files.delete(cacheFolder);
+    }
+
+    List<List<Object>> runQuery(DataWarehouseManager manager, String statement) throws Exception {
+        List<List<Object>> rows = new ArrayList<List<Object>>();
+        manager.runQuery(statement, (rawRow, row) -> rows.add(row));
+        return rows;
+    }
+
+    @Test
+    public void testResultsAreReplayed() throws Exception {
+        QueryVerificationSchema schema = QueryVerificationSchema.create("CREATE TABLE dataset.table (a INT64)", "");
+
+        FakeManager firstRunManager = new FakeManager();
+        CachedDataWarehouseManager firstRun = new CachedDataWarehouseManager(firstRunManager, null, schema, null, cacheFolder);
+        List<List<Object>> rows = runQuery(firstRun, "SELECT 1");
+        assertNotNull(firstRun.runQuery("SELECT invalid", (rawRow, row) -> {}).error());
+        firstRun.runChecksumQuery("SELECT 1");
+        firstRun.cleanupTables();
+
+        assertEquals(firstRunManager.setups, 1);
+        assertEquals(firstRunManager.queries, 3);
+
+        // Unchanged statements are replayed without setting up tables
+        FakeManager secondRunManager = new FakeManager();
+        CachedDataWarehouseManager secondRun = new CachedDataWarehouseManager(secondRunManager, null, schema, null, cacheFolder);
+        assertEquals(runQuery(secondRun, "SELECT 1"), rows);
+        assertEquals(secondRun.runChecksumQuery("SELECT 1").checksum(), BigDecimal.TEN);
+
+        assertEquals(secondRunManager.setups, 0);
+        assertEquals(secondRunManager.queries, 0);
+        assertEquals(secondRun.getHits(), 2);
+
+        // Failed statements aren't cached
+        assertEquals(secondRun.runQuery("SELECT invalid", (rawRow, row) -> {}).error(), "Syntax error");
+        assertEquals(secondRunManager.setups, 1);
+        assertEquals(secondRunManager.queries, 1);
+
+        // Changed statements are run
+        runQuery(secondRun, "SELECT 2");
+        assertEquals(secondRunManager.queries, 2);
+        assertEquals(secondRun.getMisses(), 2);
+
+        // Checksums rounded to another tolerance are run
+        secondRun.setChecksumTolerance(BigDecimal.ONE);
+        secondRun.runChecksumQuery("SELECT 1");
+        assertEquals(secondRunManager.queries, 3);
+        assertEquals(secondRun.getMisses(), 3);
+
+        // Changed schemas invalidate the cache
+        FakeManager thirdRunManager = new FakeManager();
+        CachedDataWarehouseManager thirdRun = new CachedDataWarehouseManager(thirdRunManager, null, QueryVerificationSchema.create("CREATE TABLE dataset.table (a STRING)", ""), null, cacheFolder);
+        runQuery(thirdRun, "SELECT 1");
+        assertEquals(thirdRunManager.queries, 1);
+    }
+
+    @Test
+    public void testFailuresAreRetried() throws Exception {
+        FakeManager manager = new FakeManager();
+        manager.failures = 2;
+        CachedDataWarehouseManager cachedManager = new CachedDataWarehouseManager(manager, null, null, null, cacheFolder);
+
+        // The failure and its partial rows are handed on, but not cached
+        List<List<Object>> rows = new ArrayList<List<Object>>();
+        assertEquals(cachedManager.runQuery("SELECT 1", (rawRow, row) -> rows.add(row)).error(), "Connection reset");
+        assertEquals(rows, Arrays.asList(Arrays.asList("partial")));
+        assertEquals(cachedManager.runChecksumQuery("SELECT 1").error(), "Connection reset");
+
+        // Once the statements succeed, their results are cached
+        assertEquals(runQuery(cachedManager, "SELECT 1").size(), 1);
+        assertNull(cachedManager.runChecksumQuery("SELECT 1").error());
+        assertEquals(runQuery(cachedManager, "SELECT 1").get(0).get(0), "SELECT 1");
+        assertEquals(cachedManager.runChecksumQuery("SELECT 1").checksum(), BigDecimal.TEN);
+
+        assertEquals(manager.queries, 4);
+        assertEquals(cachedManager.getHits(), 2);
+        assertEquals(cachedManager.getMisses(), 4);
+    }
+
+    @Test
+    public void testModifyingStatementsAlwaysRun() throws Exception {
+        FakeManager firstRunManager = new FakeManager();
+        CachedDataWarehouseManager firstRun = new CachedDataWarehouseManager(firstRunManager, null, null, null, cacheFolder);
+        runQuery(firstRun, "INSERT INTO dataset.table VALUES (1)");
+        List<List<Object>> rows = runQuery(firstRun, "SELECT 1");
+        assertEquals(firstRunManager.queries, 2);
+
+        // The INSERT runs again before the SELECT is replayed, so the tables have its effects
+        FakeManager secondRunManager = new FakeManager();
+        CachedDataWarehouseManager secondRun = new CachedDataWarehouseManager(secondRunManager, null, null, null, cacheFolder);
+        runQuery(secondRun, "INSERT INTO dataset.table VALUES (1)");
+        assertEquals(runQuery(secondRun, "SELECT 1"), rows);
+        assertEquals(secondRunManager.setups, 1);
+        assertEquals(secondRunManager.queries, 1);
+        assertEquals(secondRun.getHits(), 1);
+
+        // A changed INSERT invalidates the results of the SELECT after it
+        FakeManager thirdRunManager = new FakeManager();
+        CachedDataWarehouseManager thirdRun = new CachedDataWarehouseManager(thirdRunManager, null, null, null, cacheFolder);
+        runQuery(thirdRun, "INSERT INTO dataset.table VALUES (2)");
+        runQuery(thirdRun, "SELECT 1");
+        assertEquals(thirdRunManager.queries, 2);
+        assertEquals(thirdRun.getHits(), 0);
+    }
+
+    @Test
+    public void testBinaryRowFormat() throws Exception {
+        List<String> rawRow = Arrays.asList("a", null, "-5");
+        List<Object> row = Arrays.asList("a", null, -5L, Long.MAX_VALUE, true, new BigDecimal("-123.4560000000"), new Date(1577880000000L), Optional.empty(), Arrays.asList(1L, "b"));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryRowFormat.writeRow(new DataOutputStream(bytes), rawRow, row);
+
+        List<Object> readRow = new ArrayList<Object>();
+        BinaryRowFormat.readRow(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), (readRawRow, values) -> {
+            assertEquals(readRawRow, rawRow);
+            readRow.addAll(values);
+        });
+        assertEquals(readRow, row);
+    }
+
+}
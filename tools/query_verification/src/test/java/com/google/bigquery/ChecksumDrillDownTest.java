@@ -0,0 +1,102 @@
+package com.google.bigquery;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.*;
+
+public class ChecksumDrillDownTest {
+
+    @Test
+    public void testFindMismatchingBuckets() throws Exception {
+        List<Long> originalRowHashes = LongStream.range(0, 100000).map(i -> i * 7919 % (1L << 32)).boxed().collect(Collectors.toList());
+        List<Long> migratedRowHashes = new ArrayList<Long>(originalRowHashes);
+        migratedRowHashes.set(1234, 4321L);
+
+        ChecksumDrillDown drillDown = new ChecksumDrillDown(new FakeManager(migratedRowHashes), new FakeManager(originalRowHashes), 16, 100);
+        MismatchingBuckets buckets = drillDown.findMismatchingBuckets("", "");
+
+        assertNotNull(buckets);
+        assertTrue(buckets.rowCount() <= 100);
+        assertEquals(buckets.remainders().size(), 2);
+        assertTrue(buckets.remainders().contains(4321L % buckets.modulus()));
+        assertTrue(buckets.remainders().contains(originalRowHashes.get(1234) % buckets.modulus()));
+    }
+
+    @Test
+    public void testFindMismatchingBucketsWithMostlyDifferentResults() throws Exception {
+        List<Long> originalRowHashes = LongStream.range(0, 10000).boxed().collect(Collectors.toList());
+        List<Long> migratedRowHashes = LongStream.range(10000, 20000).boxed().collect(Collectors.toList());
+
+        ChecksumDrillDown drillDown = new ChecksumDrillDown(new FakeManager(migratedRowHashes), new FakeManager(originalRowHashes), 16, 100);
+
+        assertNull(drillDown.findMismatchingBuckets("", ""));
+    }
+
+    /**
+     * Computes bucket checksums from precomputed row hashes instead of sending queries
+     */
+    private static class FakeManager implements DataWarehouseManager {
+
+        private final List<Long> rowHashes;
+
+        FakeManager(List<Long> rowHashes) {
+            this.rowHashes = rowHashes;
+        }
+
+        @Override
+        public String getName() {
+            return "Fake";
+        }
+
+        @Override
+        public StatementSplitter.Dialect getDialect() {
+            return StatementSplitter.Dialect.STANDARD;
+        }
+
+        @Override
+        public void setupTables() {
+        }
+
+        @Override
+        public void cleanupTables() {
+        }
+
+        @Override
+        public List<String> getStatementsFromQuery() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public QueryJobResults runQuery(String statement, ResultRowConsumer consumer) {
+            return null;
+        }
+
+        @Override
+        public QueryChecksum runChecksumQuery(String statement) {
+            return null;
+        }
+
+        @Override
+        public List<BucketChecksum> runBucketChecksumQuery(String statement, long parentModulus, Collection<Long> parentRemainders, long modulus) {
+            Map<Long, List<Long>> buckets = rowHashes.stream()
+                    .filter(rowHash -> parentRemainders.contains(rowHash % parentModulus))
+                    .collect(Collectors.groupingBy(rowHash -> rowHash % modulus));
+
+            return buckets.entrySet().stream()
+                    .map(bucket -> BucketChecksum.create(bucket.getKey(), bucket.getValue().size(), BigDecimal.valueOf(bucket.getValue().stream().mapToLong(Long::longValue).sum())))
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public QueryJobResults runBucketQuery(String statement, long modulus, Collection<Long> remainders, ResultRowConsumer consumer) {
+            return null;
+        }
+
+    }
+
+}
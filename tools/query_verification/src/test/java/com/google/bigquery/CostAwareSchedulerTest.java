@@ -0,0 +1,122 @@
+package com.google.bigquery;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class CostAwareSchedulerTest {
+
+    @Rule
+    public final VerificationFixture fixture = new VerificationFixture();
+
+    @Test
+    public void testPlan() {
+        CostAwareScheduler scheduler = new CostAwareScheduler(1000, 100);
+
+        List<ScheduledStatement> plan = scheduler.plan(Arrays.asList(600L, 50L, null, 300L, 200L, 10L), Collections.nCopies(6, true));
+
+        assertEquals(Arrays.asList(
+                ScheduledStatement.create(2, null, ScheduledStatement.Mode.CONCURRENT),
+                ScheduledStatement.create(5, 10L, ScheduledStatement.Mode.CONCURRENT),
+                ScheduledStatement.create(1, 50L, ScheduledStatement.Mode.CONCURRENT),
+                ScheduledStatement.create(4, 200L, ScheduledStatement.Mode.SEQUENTIAL),
+                ScheduledStatement.create(3, 300L, ScheduledStatement.Mode.SEQUENTIAL),
+                ScheduledStatement.create(0, 600L, ScheduledStatement.Mode.CHECKSUM)), plan);
+    }
+
+    @Test
+    public void testPlanKeepsModifyingStatementsInPlace() {
+        CostAwareScheduler scheduler = new CostAwareScheduler(1000, 100);
+
+        // Read-only statements aren't moved across the statements which modify data, which run even beyond the budget
+        List<ScheduledStatement> plan = scheduler.plan(Arrays.asList(300L, 50L, 200L, 600L, 10L, 20L), Arrays.asList(true, true, false, true, false, true));
+
+        assertEquals(Arrays.asList(
+                ScheduledStatement.create(1, 50L, ScheduledStatement.Mode.CONCURRENT),
+                ScheduledStatement.create(0, 300L, ScheduledStatement.Mode.SEQUENTIAL),
+                ScheduledStatement.create(2, 200L, ScheduledStatement.Mode.SEQUENTIAL),
+                ScheduledStatement.create(3, 600L, ScheduledStatement.Mode.CHECKSUM),
+                ScheduledStatement.create(4, 10L, ScheduledStatement.Mode.SEQUENTIAL),
+                ScheduledStatement.create(5, 20L, ScheduledStatement.Mode.CONCURRENT)), plan);
+    }
+
+    @Test
+    public void testFormatBytes() {
+        assertEquals("512 B", CostAwareScheduler.formatBytes(512));
+        assertEquals("1.50 KB", CostAwareScheduler.formatBytes(1536));
+        assertEquals("2.00 TB", CostAwareScheduler.formatBytes(2L << 40));
+    }
+
+    /**
+     * Embedded database reporting fixed estimates, since H2 can't estimate bytes processed
+     */
+    static class EstimatingManager extends H2Manager {
+
+        private final Map<String, Long> estimates;
+
+        EstimatingManager(String name, QueryVerificationQuery query, QueryVerificationSchema schema, List<QueryVerificationData> data, Map<String, Long> estimates) {
+            super(name, query, schema, data);
+            this.estimates = estimates;
+        }
+
+        @Override
+        public Long estimateBytesProcessed(String statement) {
+            return estimates.get(statement);
+        }
+
+    }
+
+    @Test
+    public void testVerifyWithinBudget() throws Exception {
+        // The most expensive statement differs, but exceeds the budget
+        String cheap = "SELECT id FROM dataset.values_table";
+        String heavy = "SELECT name FROM dataset.values_table";
+        String expensive = "SELECT id, name FROM dataset.values_table";
+        Map<String, Long> estimates = new HashMap<String, Long>();
+        estimates.put(cheap, 10L);
+        estimates.put(heavy, CostAwareScheduler.DEFAULT_CHEAP_BYTES + 1);
+        estimates.put(expensive, CostAwareScheduler.DEFAULT_CHEAP_BYTES * 2);
+
+        QueryVerificationQuery migratedQuery = QueryVerificationQuery.create(String.join(";\n", expensive, heavy, cheap), "migrated.sql");
+        QueryVerificationQuery originalQuery = QueryVerificationQuery.create(String.join(";\n", expensive + " WHERE id < 3", heavy, cheap), "original.sql");
+        QueryVerificationOptions options = QueryVerificationOptions.builder().setBudgetBytes(CostAwareScheduler.DEFAULT_CHEAP_BYTES * 2).build();
+
+        new QueryVerifier(new EstimatingManager("migrated", migratedQuery, fixture.getSchema(), fixture.getData(), estimates), fixture.createManager("original", originalQuery), migratedQuery, originalQuery, options).verifyDataAware();
+
+        // Results of the expensive statement are never fetched
+        assertFalse(fixture.exists("migrated/query1.csv"));
+        assertFalse(fixture.exists("diff/query1extra.csv"));
+        assertEquals(3, fixture.readLines("migrated/query2.csv").size());
+        assertEquals(3, fixture.readLines("migrated/query3.csv").size());
+    }
+
+    @Test
+    public void testVerifyChecksumErrorsSeparately() throws Exception {
+        // The checksum of the expensive statement fails, since the statement refers to a missing column
+        String cheap = "SELECT id FROM dataset.values_table";
+        String expensive = "SELECT missing FROM dataset.values_table";
+        Map<String, Long> estimates = new HashMap<String, Long>();
+        estimates.put(cheap, 10L);
+        estimates.put(expensive, CostAwareScheduler.DEFAULT_CHEAP_BYTES * 2);
+
+        QueryVerificationQuery migratedQuery = QueryVerificationQuery.create(String.join(";\n", cheap, expensive), "migrated.sql");
+        QueryVerificationQuery originalQuery = QueryVerificationQuery.create(String.join(";\n", cheap, cheap), "original.sql");
+        QueryVerificationOptions options = QueryVerificationOptions.builder().setBudgetBytes(CostAwareScheduler.DEFAULT_CHEAP_BYTES).build();
+
+        new QueryVerifier(new EstimatingManager("migrated", migratedQuery, fixture.getSchema(), fixture.getData(), estimates), fixture.createManager("original", originalQuery), migratedQuery, originalQuery, options).verifyDataAware();
+
+        // Failing checksums aren't reported as errors of the statement
+        JsonArray statements = fixture.readReport().getAsJsonArray("statements");
+        assertTrue(statements.get(0).getAsJsonObject().get("checksumError").isJsonNull());
+        JsonObject expensiveStatement = statements.get(1).getAsJsonObject();
+        assertEquals("checksum", expensiveStatement.get("mode").getAsString());
+        assertFalse(expensiveStatement.get("checksumError").isJsonNull());
+        assertTrue(expensiveStatement.getAsJsonObject("migrated").get("error").isJsonNull());
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.google.bigquery;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.Assert.*;
+
+public class DryRunCacheTest {
+
+    final Duration ttl = Duration.ofHours(24);
+    final Instant now = Instant.parse("2020-01-01T00:00:00Z");
+
+    Path cacheFile;
+
+    @Before
+    public void setup() throws IOException {
+        cacheFile = Files.createTempFile("dry_runs", ".json");
+        Files.delete(cacheFile);
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(cacheFile);
+    }
+
+    DryRunCache openCache(Instant instant) {
+        return new DryRunCache(cacheFile, ttl, Clock.fixed(instant, ZoneOffset.UTC));
+    }
+
+    @Test
+    public void testEntriesPersistUntilExpired() throws IOException {
+        String validKey = DryRunCache.getKey("project", "schema", "SELECT 1");
+        String invalidKey = DryRunCache.getKey("project", "schema", "SELEC 1");
+
+        DryRunCache cache = openCache(now);
+        assertFalse(cache.contains(validKey));
+        cache.put(validKey, null);
+        cache.put(invalidKey, "Syntax error");
+        cache.save();
+
+        DryRunCache nextRun = openCache(now.plus(Duration.ofHours(1)));
+        assertTrue(nextRun.contains(validKey));
+        assertNull(nextRun.getError(validKey));
+        assertTrue(nextRun.contains(invalidKey));
+        assertEquals(nextRun.getError(invalidKey), "Syntax error");
+        assertEquals(nextRun.getHits(), 2);
+
+        DryRunCache expiredRun = openCache(now.plus(ttl));
+        assertFalse(expiredRun.contains(validKey));
+        assertEquals(expiredRun.getMisses(), 1);
+    }
+
+    @Test
+    public void testKeysDependOnSchemaAndProject() {
+        String key = DryRunCache.getKey("project", "schema", "SELECT 1");
+
+        assertEquals(DryRunCache.getKey("project", "schema", "SELECT 1"), key);
+        assertNotEquals(DryRunCache.getKey("project", "other schema", "SELECT 1"), key);
+        assertNotEquals(DryRunCache.getKey("other project", "schema", "SELECT 1"), key);
+        assertNotEquals(DryRunCache.getKey("project", null, "SELECT 1"), key);
+    }
+
+    @Test
+    public void testUnreadableCacheIsIgnored() throws IOException {
+        Files.write(cacheFile, "not json".getBytes());
+
+        DryRunCache cache = openCache(now);
+        assertFalse(cache.contains(DryRunCache.getKey("project", "schema", "SELECT 1")));
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.google.bigquery;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class H2ManagerTest {
+
+    final String jsonSchema = "[{\"fields\": [{\"name\": \"id\", \"type\": \"INT64\", \"mode\": \"REQUIRED\"}, {\"name\": \"name\", \"type\": \"STRING\"}], " +
+            "\"tableReference\": {\"datasetId\": \"dataset\", \"tableId\": \"table\"}}]";
+
+    Path dataFolder;
+    List<QueryVerificationData> data;
+
+    @Rule
+    public final VerificationFixture fixture = new VerificationFixture();
+
+    @Before
+    public void setup() throws IOException {
+        dataFolder = Files.createTempDirectory("h2");
+        Path dataFile = dataFolder.resolve("dataset.table.csv");
+        Files.write(dataFile, "1,a\n2,b\n3,\n4,\"d,e\"".getBytes(StandardCharsets.UTF_8));
+        data = Collections.singletonList(QueryVerificationData.create("dataset", "table", dataFile.toString()));
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        Files.walk(dataFolder).sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+
+    H2Manager createManager(String query, String schema) {
+        return new H2Manager("H2", QueryVerificationQuery.create(query, "query.sql"), QueryVerificationSchema.create(schema, "schema.json"), data);
+    }
+
+    @Test
+    public void testGenerateDdlStatementsFromJsonSchema() {
+        List<String> ddlStatements = createManager("", jsonSchema).generateDdlStatementsFromJsonSchema();
+
+        assertEquals(Collections.singletonList("CREATE TABLE \"DATASET\".\"TABLE\" (\"ID\" BIGINT NOT NULL, \"NAME\" VARCHAR)"), ddlStatements);
+    }
+
+    @Test
+    public void testRunQueries() throws Exception {
+        H2Manager manager = createManager("SELECT id, name FROM dataset.\"TABLE\" WHERE id > 1; SELECT missing FROM dataset.\"TABLE\";", jsonSchema);
+
+        List<QueryJobResults> results = manager.runQueries();
+
+        assertEquals(2, results.size());
+        assertNull(results.get(0).error());
+        assertEquals(new HashSet<List<Object>>(Arrays.asList(Arrays.asList(2L, "b"), Arrays.asList(3L, null), Arrays.asList(4L, "d,e"))), results.get(0).results());
+        assertNotNull(results.get(1).error());
+    }
+
+    @Test
+    public void testChecksums() throws Exception {
+        // Tables can also be created from DDL
+        List<QueryVerificationData> valuesData = Collections.singletonList(QueryVerificationData.create("dataset", "values_table", data.get(0).path()));
+        H2Manager manager = new H2Manager("H2", QueryVerificationQuery.create("", "query.sql"), QueryVerificationSchema.create("CREATE TABLE dataset.values_table (id BIGINT, name VARCHAR(10));", "schema.sql"), valuesData);
+
+        manager.setupTables();
+        try {
+            QueryChecksum checksum = manager.runChecksumQuery("SELECT name, id FROM dataset.values_table ORDER BY id");
+            QueryChecksum reorderedChecksum = manager.runChecksumQuery("SELECT name, id FROM dataset.values_table ORDER BY id DESC");
+            assertNull(checksum.error());
+            assertEquals(4, checksum.rowCount());
+            assertTrue(checksum.matches(reorderedChecksum));
+
+            // Buckets partition the rows
+            List<BucketChecksum> buckets = manager.runBucketChecksumQuery("SELECT name, id FROM dataset.values_table", 1, Collections.singletonList(0L), 3);
+            assertEquals(4, buckets.stream().mapToLong(BucketChecksum::rowCount).sum());
+
+            List<Long> remainders = new ArrayList<Long>();
+            buckets.forEach(bucket -> remainders.add(bucket.remainder()));
+            List<List<Object>> rows = new ArrayList<List<Object>>();
+            manager.runBucketQuery("SELECT name, id FROM dataset.values_table", 3, remainders, (rawRow, row) -> rows.add(row));
+            assertEquals(4, rows.size());
+
+            // Numbers differing within the tolerance only match if they round to the same multiple, like the rows
+            QueryChecksum roundedChecksum = manager.runChecksumQuery("SELECT CAST(1.23456 AS DECIMAL(10, 5)) AS value");
+            assertNull(roundedChecksum.error());
+            assertFalse(roundedChecksum.matches(manager.runChecksumQuery("SELECT CAST(1.2346 AS DECIMAL(10, 4)) AS value")));
+
+            manager.setChecksumTolerance(new BigDecimal("0.001"));
+            roundedChecksum = manager.runChecksumQuery("SELECT CAST(1.23456 AS DECIMAL(10, 5)) AS value");
+            assertTrue(roundedChecksum.matches(manager.runChecksumQuery("SELECT CAST(1.2345 AS DECIMAL(10, 4)) AS value")));
+            assertFalse(roundedChecksum.matches(manager.runChecksumQuery("SELECT CAST(1.2344 AS DECIMAL(10, 4)) AS value")));
+            assertTrue(manager.runChecksumQuery("SELECT CAST(-1.2345 AS DECIMAL(10, 4)) AS value").matches(manager.runChecksumQuery("SELECT CAST(-1.2346 AS DOUBLE) AS value")));
+            assertFalse(manager.runChecksumQuery("SELECT CAST(-1.2345 AS DECIMAL(10, 4)) AS value").matches(manager.runChecksumQuery("SELECT CAST(-1.2344 AS DOUBLE) AS value")));
+
+            // Numbers are only compared at the scale of NUMERIC if the tolerance is 0
+            manager.setChecksumTolerance(BigDecimal.ZERO);
+            assertTrue(manager.runChecksumQuery("SELECT CAST(1.5 AS DOUBLE) AS value").matches(manager.runChecksumQuery("SELECT CAST(1.50 AS DECIMAL(10, 2)) AS value")));
+            assertFalse(manager.runChecksumQuery("SELECT CAST(1.5 AS DOUBLE) AS value").matches(manager.runChecksumQuery("SELECT CAST(1.500000001 AS DECIMAL(10, 9)) AS value")));
+
+            assertNotNull(manager.runChecksumQuery("CREATE TABLE dataset.other (id BIGINT)").error());
+        } finally {
+            manager.cleanupTables();
+        }
+    }
+
+    @Test
+    public void testVerifyLocally() throws Exception {
+        QueryVerificationQuery migratedQuery = QueryVerificationQuery.create("SELECT id, name FROM dataset.\"TABLE\";", "migrated.sql");
+        QueryVerificationQuery originalQuery = QueryVerificationQuery.create("SELECT id, name FROM dataset.\"TABLE\" WHERE id < 4;", "original.sql");
+        QueryVerificationSchema schema = QueryVerificationSchema.create(jsonSchema, "schema.json");
+        QueryVerificationOptions options = QueryVerificationOptions.builder().setLocal(true).build();
+
+        new QueryVerifier(migratedQuery, schema, originalQuery, null, data, options).verifyDataAware();
+
+        assertEquals(4, fixture.readLines(QueryVerifier.LOCAL_MIGRATED_NAME + "/query1.csv").size());
+        assertEquals(3, fixture.readLines(QueryVerifier.LOCAL_ORIGINAL_NAME + "/query1.csv").size());
+        assertEquals(1, fixture.readLines("diff/query1extra.csv").size());
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.google.bigquery;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class JdbcConnectionPoolTest {
+
+    final String url = "jdbc:h2:mem:pool;DB_CLOSE_DELAY=-1";
+
+    JdbcConnectionPool pool;
+
+    @Before
+    public void setup() throws SQLException {
+        pool = new JdbcConnectionPool(url, "", "", 2, 100);
+        try (JdbcConnectionPool.PooledConnection connection = pool.acquire()) {
+            connection.executeUpdate("CREATE TABLE numbers (n BIGINT)");
+            connection.executeUpdate("INSERT INTO numbers SELECT X FROM SYSTEM_RANGE(1, 1000)");
+        }
+    }
+
+    @After
+    public void cleanup() throws SQLException {
+        try (JdbcConnectionPool.PooledConnection connection = pool.acquire()) {
+            connection.executeUpdate("DROP TABLE numbers");
+        }
+        pool.close();
+    }
+
+    @Test
+    public void testConnectionsAreReused() throws SQLException {
+        for (int i = 0; i < 5; i++) {
+            try (JdbcConnectionPool.PooledConnection connection = pool.acquire();
+                 ResultSet resultSet = connection.executeQuery("SELECT COUNT(*) FROM numbers")) {
+                assertTrue(resultSet.next());
+                assertEquals(resultSet.getLong(1), 1000L);
+                assertEquals(resultSet.getStatement().getFetchSize(), 100);
+            }
+        }
+
+        assertEquals(pool.getOpenedConnections(), 1);
+    }
+
+    @Test
+    public void testPreparedStatementsAreCached() throws SQLException {
+        try (JdbcConnectionPool.PooledConnection connection = pool.acquire()) {
+            PreparedStatement preparedStatement = connection.prepareStatement("SELECT n FROM numbers WHERE n = ?");
+
+            assertSame(connection.prepareStatement("SELECT n FROM numbers WHERE n = ?"), preparedStatement);
+            assertEquals(preparedStatement.getMetaData().getColumnCount(), 1);
+        }
+    }
+
+    @Test
+    public void testConcurrentQueries() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Long>> sums = new ArrayList<Future<Long>>();
+            for (int i = 0; i < 20; i++) {
+                sums.add(executor.submit(() -> {
+                    try (JdbcConnectionPool.PooledConnection connection = pool.acquire();
+                         ResultSet resultSet = connection.executeQuery("SELECT SUM(n) FROM numbers")) {
+                        resultSet.next();
+                        return resultSet.getLong(1);
+                    }
+                }));
+            }
+
+            for (Future<Long> sum : sums) {
+                assertEquals((long) sum.get(), 500500L);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Connections are limited to the size of the pool
+        assertTrue(pool.getOpenedConnections() <= 2);
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.google.bigquery;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class KeyedResultDiffTest {
+
+    @Rule
+    public final VerificationFixture fixture = new VerificationFixture();
+
+    @Test
+    public void testProfileMatchedRows() throws Exception {
+        KeyedResultDiff diff = new KeyedResultDiff(Collections.singletonList(1), new BigDecimal("0.01"), 2);
+
+        // Keys match by value, whichever result a row is read from first
+        for (long i = 1; i <= 5; i++) {
+            diff.addMigratedRow(Arrays.asList(i, "name" + i, BigDecimal.valueOf(i).add(new BigDecimal("0.004"))));
+        }
+        diff.addMigratedRow(Arrays.asList(6L, "extra", BigDecimal.ZERO));
+        for (long i = 5; i >= 1; i--) {
+            diff.addOriginalRow(Arrays.asList(new BigDecimal(i + ".0"), i % 2 == 0 ? "other" : "name" + i, BigDecimal.valueOf(i)));
+        }
+        diff.addOriginalRow(Arrays.asList(7L, "missing", BigDecimal.ZERO));
+
+        CsvResultWriter.prepareOutputFolder("diff", "");
+        try (CsvResultWriter extraWriter = new CsvResultWriter("diff", 0, "extra", false);
+             CsvResultWriter missingWriter = new CsvResultWriter("diff", 0, "missing", false)) {
+            diff.writeDifferences(extraWriter, missingWriter);
+        }
+
+        // Only rows whose key wasn't matched are extra or missing
+        assertEquals(1, diff.getExtraRows());
+        assertEquals(1, diff.getMissingRows());
+
+        MismatchProfile profile = diff.getProfile();
+        assertEquals(5, profile.getMatchedRows());
+        assertEquals(2, profile.getMismatchingRows());
+        assertEquals(Collections.singletonMap(2, 2L), profile.getColumnMismatches());
+
+        JsonObject json = profile.toJson();
+        JsonObject column = json.getAsJsonArray("columns").get(0).getAsJsonObject();
+        assertEquals(2, column.get("column").getAsInt());
+        assertEquals(2, column.getAsJsonArray("topValues").size());
+        assertEquals("name2 -> other", column.getAsJsonArray("topValues").get(0).getAsJsonObject().get("values").getAsString());
+        assertEquals(2, json.getAsJsonArray("examples").size());
+    }
+
+    @Test
+    public void testVerifyWithKeys() throws Exception {
+        fixture.setData("1,a,10\n2,b,20\n3,c,30\n4,d,40", "CREATE TABLE dataset.values_table (id BIGINT, name VARCHAR(10), amount INT);");
+
+        fixture.verify("SELECT id, name, amount + 1 FROM dataset.values_table WHERE id < 4", "SELECT id, name, amount FROM dataset.values_table WHERE id > 1",
+                QueryVerificationOptions.builder().setKeyColumns(Collections.singletonList(1)).build());
+
+        assertEquals(Collections.singletonList("1,a,11"), fixture.readLines("diff/query1extra.csv"));
+        assertEquals(Collections.singletonList("4,d,40"), fixture.readLines("diff/query1missing.csv"));
+
+        JsonObject statement = fixture.readReport().getAsJsonArray("statements").get(0).getAsJsonObject();
+        assertEquals(2, statement.get("mismatchingRows").getAsLong());
+
+        JsonObject profile = statement.getAsJsonObject("profile");
+        assertEquals(2, profile.get("matchedRows").getAsLong());
+        JsonArray columns = profile.getAsJsonArray("columns");
+        assertEquals(1, columns.size());
+        assertEquals(3, columns.get(0).getAsJsonObject().get("column").getAsInt());
+        assertEquals(2, columns.get(0).getAsJsonObject().get("mismatches").getAsLong());
+    }
+
+}
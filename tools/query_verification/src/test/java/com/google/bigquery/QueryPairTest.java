@@ -0,0 +1,181 @@
+package com.google.bigquery;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class QueryPairTest {
+
+    @Rule
+    public final VerificationFixture fixture = new VerificationFixture();
+
+    private static void write(Path path, String contents) throws Exception {
+        Files.createDirectories(path.getParent());
+        Files.write(path, contents.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testReadBatch() throws Exception {
+        Path folder = Files.createTempDirectory("batch");
+        try {
+            write(folder.resolve("migrated/a.sql"), "SELECT 1");
+            write(folder.resolve("migrated/nested/b.sql"), "SELECT 2");
+            write(folder.resolve("migrated/unpaired.sql"), "SELECT 3");
+            write(folder.resolve("original/a.sql"), "SEL 1");
+            write(folder.resolve("original/nested/b.sql"), "SEL 2");
+
+            List<QueryPair> pairs = QueryPair.fromDirectories(folder.resolve("migrated"), folder.resolve("original"));
+            assertEquals(2, pairs.size());
+            assertEquals("SELECT 1", pairs.get(0).migratedQuery().query());
+            assertEquals("SEL 1", pairs.get(0).originalQuery().query());
+            assertEquals(folder.resolve("original/nested/b.sql").toString(), pairs.get(1).originalQuery().path());
+
+            write(folder.resolve("manifest.csv"), "# migrated, original\nmigrated/nested/b.sql, original/nested/b.sql\n\nmigrated/a.sql,original/a.sql\n");
+            pairs = QueryPair.fromManifest(folder.resolve("manifest.csv"));
+            assertEquals(2, pairs.size());
+            assertEquals("SELECT 2", pairs.get(0).migratedQuery().query());
+            assertEquals("SEL 1", pairs.get(1).originalQuery().query());
+            assertEquals(pairs, Main.readBatch(new String[] {folder.resolve("manifest.csv").toString()}));
+            assertNull(Main.readBatch(new String[] {folder.resolve("migrated/a.sql").toString(), folder.resolve("original/a.sql").toString()}));
+
+            write(folder.resolve("invalid.csv"), "migrated/a.sql");
+            try {
+                QueryPair.fromManifest(folder.resolve("invalid.csv"));
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().startsWith("Line 1 of"));
+            }
+        } finally {
+            VerificationFixture.deleteFolder(folder);
+        }
+    }
+
+    @Test
+    public void testVerifyBatch() throws Exception {
+        List<QueryPair> batch = Arrays.asList(
+                QueryPair.create(QueryVerificationQuery.create("SELECT id FROM dataset.values_table;\nSELECT name FROM dataset.values_table", "first.sql"),
+                        QueryVerificationQuery.create("SELECT id FROM dataset.values_table;\nSELECT name FROM dataset.values_table WHERE id > 1", "first_original.sql")),
+                QueryPair.create(QueryVerificationQuery.create("SELECT 1;\nSELECT 2", "skipped.sql"),
+                        QueryVerificationQuery.create("SELECT 1", "skipped_original.sql")),
+                QueryPair.create(QueryVerificationQuery.create("SELECT COUNT(*) FROM dataset.values_table", "second.sql"),
+                        QueryVerificationQuery.create("SELECT COUNT(*) FROM dataset.missing_table", "second_original.sql")));
+
+        H2Manager migratedManager = fixture.createManager("migrated", QueryPair.combine(batch, true));
+        H2Manager originalManager = fixture.createManager("original", QueryPair.combine(batch, false));
+        new QueryVerifier(migratedManager, originalManager, batch, QueryVerificationOptions.builder().build()).verifyDataAware();
+
+        // Statements are numbered across the files which were verified
+        assertEquals(1, fixture.readLines("diff/query2extra.csv").size());
+        assertEquals(1, fixture.readLines("migrated/query3.csv").size());
+        assertFalse(fixture.exists("migrated/query4.csv"));
+
+        JsonObject report = fixture.readReport();
+        JsonArray files = report.getAsJsonArray("files");
+        assertEquals(2, files.size());
+
+        JsonObject first = files.get(0).getAsJsonObject();
+        assertEquals("first.sql", first.get("migrated").getAsString());
+        assertEquals("first_original.sql", first.get("original").getAsString());
+        assertEquals(2, first.get("statements").getAsInt());
+        assertEquals(1, first.get("statementsWithDifferences").getAsInt());
+        assertEquals(0, first.get("statementsWithErrors").getAsInt());
+
+        JsonObject second = files.get(1).getAsJsonObject();
+        assertEquals("second.sql", second.get("migrated").getAsString());
+        assertEquals(1, second.get("statementsWithErrors").getAsInt());
+    }
+
+    @Test
+    public void testVerifyBatchInFileOrder() throws Exception {
+        List<QueryPair> batch = new ArrayList<QueryPair>();
+        for (int file = 0; file < 8; file++) {
+            List<String> statements = new ArrayList<String>();
+            for (int statement = 0; statement < 4; statement++) {
+                statements.add(String.format("SELECT id, %d AS file, %d AS statement FROM dataset.values_table", file, statement));
+            }
+            QueryVerificationQuery query = QueryVerificationQuery.create(String.join(";\n", statements), "file" + file + ".sql");
+            batch.add(QueryPair.create(query, query));
+        }
+
+        VerificationCheckpointTest.FailingManager migratedManager = new VerificationCheckpointTest.FailingManager("migrated", QueryPair.combine(batch, true), fixture.getSchema(), fixture.getData());
+        new QueryVerifier(migratedManager, fixture.createManager("original", QueryPair.combine(batch, false)), batch, QueryVerificationOptions.builder().build()).verifyDataAware();
+
+        // Files run concurrently, but the statements of each file run in order
+        assertEquals(32, migratedManager.statementsRun.size());
+        for (int file = 0; file < 8; file++) {
+            int previousPosition = -1;
+            for (int statement = 0; statement < 4; statement++) {
+                int position = migratedManager.statementsRun.indexOf(String.format("SELECT id, %d AS file, %d AS statement FROM dataset.values_table", file, statement));
+                assertTrue(position > previousPosition);
+                previousPosition = position;
+            }
+        }
+    }
+
+    /**
+     * Embedded database which records whether a statement modifying the tables ran at the same time as another one
+     */
+    static class OverlapManager extends H2Manager {
+
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicBoolean overlapped = new AtomicBoolean();
+        final AtomicBoolean modifying = new AtomicBoolean();
+
+        OverlapManager(String name, QueryVerificationQuery query, QueryVerificationSchema schema, List<QueryVerificationData> data) {
+            super(name, query, schema, data);
+        }
+
+        @Override
+        public QueryJobResults runQuery(String statement, ResultRowConsumer consumer) throws InterruptedException {
+            boolean readOnly = QueryVerifier.isReadOnly(statement);
+            if (running.getAndIncrement() > 0 && !readOnly || modifying.get()) {
+                overlapped.set(true);
+            }
+            if (!readOnly) {
+                modifying.set(true);
+            }
+            try {
+                // Gives other files time to run at the same time
+                Thread.sleep(50);
+                return super.runQuery(statement, consumer);
+            } finally {
+                if (!readOnly) {
+                    modifying.set(false);
+                }
+                running.decrementAndGet();
+            }
+        }
+
+    }
+
+    @Test
+    public void testVerifyBatchModifyingFileOnItsOwn() throws Exception {
+        List<QueryPair> batch = new ArrayList<QueryPair>();
+        for (int file = 0; file < 5; file++) {
+            // VALUES isn't recognized as read-only, like a statement modifying the tables, but runs as a query in H2
+            String statements = file == 2 ? "VALUES (1);\nVALUES (2)" : String.format("SELECT id, %d AS file FROM dataset.values_table;\nSELECT name FROM dataset.values_table", file);
+            QueryVerificationQuery query = QueryVerificationQuery.create(statements, "file" + file + ".sql");
+            batch.add(QueryPair.create(query, query));
+        }
+
+        OverlapManager migratedManager = new OverlapManager("migrated", QueryPair.combine(batch, true), fixture.getSchema(), fixture.getData());
+        new QueryVerifier(migratedManager, fixture.createManager("original", QueryPair.combine(batch, false)), batch, QueryVerificationOptions.builder().build()).verifyDataAware();
+
+        // Reading files still run concurrently, but never while the modifying file runs
+        assertFalse(migratedManager.overlapped.get());
+        assertEquals(10, fixture.readReport().getAsJsonArray("statements").size());
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.google.bigquery;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class QueryResultPipelineTest {
+
+    @Rule
+    public final VerificationFixture fixture = new VerificationFixture();
+
+    @Test
+    public void testCompare() throws Exception {
+        CsvResultWriter.prepareOutputFolder("migrated", "");
+        CsvResultWriter.prepareOutputFolder("original", "");
+        CsvResultWriter.prepareOutputFolder("diff", "extra");
+
+        QueryComparison comparison;
+        try (QueryResultPipeline pipeline = new QueryResultPipeline("migrated", "original", false)) {
+            // More rows than fit in the queue between reading and consuming results
+            comparison = pipeline.compare(0, consumer -> {
+                for (long i = 0; i < 10000; i++) {
+                    consumer.accept(Arrays.asList(String.valueOf(i)), Arrays.asList(i == 42 ? -1L : i));
+                }
+                return QueryJobResults.create("", null, null, null, null);
+            }, consumer -> {
+                // Original results are returned in a different order
+                for (long i = 9999; i >= 0; i--) {
+                    consumer.accept(Arrays.asList(String.valueOf(i)), Arrays.asList(i));
+                }
+                return QueryJobResults.create("", null, null, null, null);
+            });
+        }
+
+        assertEquals(comparison.extraResults(), 1);
+        assertEquals(comparison.missingResults(), 1);
+        assertEquals(fixture.readLines("migrated/query1.csv").size(), 10000);
+        assertEquals(fixture.readLines("diff/query1extra.csv"), Arrays.asList("-1"));
+        assertEquals(fixture.readLines("diff/query1missing.csv"), Arrays.asList("42"));
+    }
+
+    @Test
+    public void testCompareWithErrorAndGzip() throws Exception {
+        CsvResultWriter.prepareOutputFolder("migrated", "");
+        CsvResultWriter.prepareOutputFolder("original", "");
+        CsvResultWriter.prepareOutputFolder("diff", "missing");
+
+        QueryComparison comparison;
+        try (QueryResultPipeline pipeline = new QueryResultPipeline("migrated", "original", true)) {
+            comparison = pipeline.compare(0,
+                    consumer -> QueryJobResults.create("", null, "Syntax error", null, null),
+                    consumer -> {
+                        consumer.accept(Arrays.asList("value"), Arrays.asList("value"));
+                        return QueryJobResults.create("", null, null, null, null);
+                    });
+        }
+
+        assertEquals(comparison.migratedResults().error(), "Syntax error");
+        assertEquals(comparison.missingResults(), 1);
+        assertFalse(fixture.exists("migrated/query1.csv.gz"));
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(fixture.getOutputPath().resolve("original/query1.csv.gz"))), StandardCharsets.UTF_8))) {
+            assertEquals(reader.readLine(), "value");
+        }
+    }
+
+}
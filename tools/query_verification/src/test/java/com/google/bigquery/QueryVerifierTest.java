@@ -3,6 +3,7 @@ package com.google.bigquery;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.*;
 
 import static org.junit.Assert.*;
@@ -117,6 +118,16 @@ public class QueryVerifierTest {
         assertTrue(differences.get(0).missingResults().isEmpty());
     }
 
+    @Test
+    public void testChecksumsMatch() {
+        QueryChecksum checksum = QueryChecksum.create("", null, 3L, new BigDecimal("123456"));
+
+        assertTrue(checksum.matches(QueryChecksum.create("", null, 3L, new BigDecimal("123456.0"))));
+        assertFalse(checksum.matches(QueryChecksum.create("", null, 4L, new BigDecimal("123456"))));
+        assertFalse(checksum.matches(QueryChecksum.create("", null, 3L, new BigDecimal("123457"))));
+        assertFalse(checksum.matches(QueryChecksum.create("", "Syntax Error", 0L, null)));
+    }
+
     private List<QueryJobResults> quickGenerateResults(Set<List<Object>> resultSet) {
         QueryJobResults queryJobResults = QueryJobResults.create("", null, null, resultSet, null);
 
@@ -126,4 +137,22 @@ public class QueryVerifierTest {
         return results;
     }
 
+    @Test
+    public void testIsOrdered() {
+        assertTrue(QueryVerifier.isOrdered("SELECT a FROM t ORDER BY a DESC"));
+        assertTrue(QueryVerifier.isOrdered("SELECT a FROM t ORDER BY a LIMIT 10"));
+        assertFalse(QueryVerifier.isOrdered("SELECT a FROM (SELECT a FROM t ORDER BY a) s"));
+        assertFalse(QueryVerifier.isOrdered("SELECT 'ORDER BY a' FROM t"));
+    }
+
+    @Test
+    public void testIsReadOnly() {
+        assertTrue(QueryVerifier.isReadOnly("SELECT a FROM t"));
+        assertTrue(QueryVerifier.isReadOnly("-- comment\n/* SELECT */ (select a FROM t) UNION ALL (SELECT b FROM u)"));
+        assertTrue(QueryVerifier.isReadOnly("WITH s AS (SELECT a FROM t) SELECT a FROM s"));
+        assertFalse(QueryVerifier.isReadOnly("INSERT INTO t SELECT a FROM u"));
+        assertFalse(QueryVerifier.isReadOnly("CREATE TABLE t AS SELECT a FROM u"));
+        assertFalse(QueryVerifier.isReadOnly("SELECTED"));
+    }
+
 }
@@ -0,0 +1,210 @@
+package com.google.bigquery;
+
+import com.google.cloud.bigquery.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark comparing the precompiled row decoders to parsing every value by looking up its type.
+ * Run with: mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test -Dexec.args="-cp %classpath com.google.bigquery.RowDecoderBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowDecoderBenchmark {
+
+    private static final int ROWS = 10000;
+
+    // Scale the previous conversions truncated decimals to
+    private static final int LEGACY_DECIMAL_PRECISION = 10;
+
+    private FieldList fields;
+    private List<FieldValueList> bigQueryRows;
+    private CachedRowSet teradataRows;
+
+    @Setup
+    public void setup() throws SQLException {
+        fields = FieldList.of(
+                Field.of("id", StandardSQLTypeName.INT64),
+                Field.of("name", StandardSQLTypeName.STRING),
+                Field.of("price", StandardSQLTypeName.NUMERIC),
+                Field.of("ratio", StandardSQLTypeName.FLOAT64),
+                Field.of("active", StandardSQLTypeName.BOOL),
+                Field.of("day", StandardSQLTypeName.DATE),
+                Field.of("updated", StandardSQLTypeName.DATETIME));
+
+        bigQueryRows = new ArrayList<FieldValueList>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            bigQueryRows.add(FieldValueList.of(Arrays.asList(
+                    FieldValue.of(FieldValue.Attribute.PRIMITIVE, String.valueOf(i)),
+                    FieldValue.of(FieldValue.Attribute.PRIMITIVE, "name" + i),
+                    FieldValue.of(FieldValue.Attribute.PRIMITIVE, i + ".125"),
+                    FieldValue.of(FieldValue.Attribute.PRIMITIVE, String.valueOf(i / 3.0)),
+                    FieldValue.of(FieldValue.Attribute.PRIMITIVE, String.valueOf(i % 2 == 0)),
+                    FieldValue.of(FieldValue.Attribute.PRIMITIVE, "2020-01-01"),
+                    FieldValue.of(FieldValue.Attribute.PRIMITIVE, "2020-01-01T12:00:00.000000")), fields));
+        }
+
+        int[] types = {Types.BIGINT, Types.VARCHAR, Types.DECIMAL, Types.DOUBLE, Types.BOOLEAN, Types.DATE};
+        RowSetMetaDataImpl metadata = new RowSetMetaDataImpl();
+        metadata.setColumnCount(types.length);
+        for (int i = 1; i <= types.length; i++) {
+            metadata.setColumnType(i, types[i - 1]);
+            metadata.setColumnName(i, "c" + i);
+        }
+
+        teradataRows = RowSetProvider.newFactory().createCachedRowSet();
+        teradataRows.setMetaData(metadata);
+        for (int i = 0; i < ROWS; i++) {
+            teradataRows.moveToInsertRow();
+            teradataRows.updateLong(1, i);
+            teradataRows.updateString(2, "name" + i);
+            teradataRows.updateBigDecimal(3, new BigDecimal(i + ".125"));
+            teradataRows.updateDouble(4, i / 3.0);
+            teradataRows.updateBoolean(5, i % 2 == 0);
+            teradataRows.updateDate(6, java.sql.Date.valueOf("2020-01-01"));
+            teradataRows.insertRow();
+        }
+        teradataRows.moveToCurrentRow();
+    }
+
+    @Benchmark
+    public void bigQueryLegacyParse(Blackhole blackhole) {
+        for (FieldValueList values : bigQueryRows) {
+            blackhole.consume(legacyParseResults(values, fields));
+        }
+    }
+
+    @Benchmark
+    public void bigQueryRowDecoder(Blackhole blackhole) {
+        BigQueryRowDecoder decoder = BigQueryRowDecoder.compile(fields);
+        for (FieldValueList values : bigQueryRows) {
+            blackhole.consume(decoder.decodeRaw(values));
+            blackhole.consume(decoder.decode(values));
+        }
+    }
+
+    @Benchmark
+    public void teradataLegacyParse(Blackhole blackhole) throws SQLException {
+        teradataRows.beforeFirst();
+        ResultSetMetaData metadata = teradataRows.getMetaData();
+        while (teradataRows.next()) {
+            List<String> rawResults = new ArrayList<String>();
+            for (int i = 1; i <= metadata.getColumnCount(); i++) {
+                rawResults.add(teradataRows.getString(i));
+            }
+            blackhole.consume(rawResults);
+            blackhole.consume(legacyParseResults(teradataRows, metadata));
+        }
+    }
+
+    @Benchmark
+    public void teradataRowDecoder(Blackhole blackhole) throws SQLException {
+        teradataRows.beforeFirst();
+        TeradataRowDecoder decoder = TeradataRowDecoder.compile(teradataRows.getMetaData());
+        while (teradataRows.next()) {
+            blackhole.consume(decoder.decodeRaw(teradataRows));
+            blackhole.consume(decoder.decode(teradataRows));
+        }
+    }
+
+    /**
+     * Previous BQ conversion, which looks up the type and creates a date format for every value
+     */
+    private static List<Object> legacyParseResults(FieldValueList values, FieldList fields) {
+        List<Object> results = new ArrayList<Object>();
+        for (int i = 0; i < values.size(); i++) {
+            FieldValue value = values.get(i);
+            StandardSQLTypeName type = fields.get(i).getType().getStandardType();
+
+            Object result;
+            try {
+                switch (type) {
+                    case BOOL:
+                        result = value.getBooleanValue();
+                        break;
+                    case FLOAT64:
+                        result = BigDecimal.valueOf(value.getDoubleValue()).setScale(LEGACY_DECIMAL_PRECISION, RoundingMode.FLOOR);
+                        break;
+                    case INT64:
+                        result = value.getLongValue();
+                        break;
+                    case NUMERIC:
+                        result = value.getNumericValue().setScale(LEGACY_DECIMAL_PRECISION, RoundingMode.FLOOR);
+                        break;
+                    case DATE:
+                        result = new SimpleDateFormat("yyyy-MM-dd").parse(value.getStringValue());
+                        break;
+                    case DATETIME:
+                        result = new SimpleDateFormat("yyyy-MM-dd'T'hh:mm:ss.SSSSSS").parse(value.getStringValue());
+                        break;
+                    default:
+                        result = value.getStringValue();
+                }
+            } catch (ParseException e) {
+                result = Optional.empty();
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Previous TD conversion, which reads the column count and type from the metadata for every value
+     */
+    private static List<Object> legacyParseResults(ResultSet values, ResultSetMetaData metadata) throws SQLException {
+        List<Object> results = new ArrayList<Object>();
+        for (int i = 1; i <= metadata.getColumnCount(); i++) {
+            Object result;
+            switch (metadata.getColumnType(i)) {
+                case Types.BOOLEAN:
+                    result = values.getBoolean(i);
+                    break;
+                case Types.DECIMAL:
+                    result = values.getBigDecimal(i).setScale(LEGACY_DECIMAL_PRECISION, RoundingMode.FLOOR);
+                    break;
+                case Types.DOUBLE:
+                    result = BigDecimal.valueOf(values.getDouble(i)).setScale(LEGACY_DECIMAL_PRECISION, RoundingMode.FLOOR);
+                    break;
+                case Types.BIGINT:
+                    result = values.getLong(i);
+                    break;
+                case Types.DATE:
+                    result = values.getDate(i);
+                    break;
+                default:
+                    result = values.getString(i);
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RowDecoderBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
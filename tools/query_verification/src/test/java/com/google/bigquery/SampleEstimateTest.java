@@ -0,0 +1,50 @@
+package com.google.bigquery;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SampleEstimateTest {
+
+    @Rule
+    public final VerificationFixture fixture = new VerificationFixture();
+
+    @Test
+    public void testUpperBound() {
+        assertEquals(299, SampleEstimate.upperBound(0, 100));
+        assertEquals(80, SampleEstimate.upperBound(4, 10));
+        assertEquals(3, SampleEstimate.upperBound(3, 1));
+
+        SampleEstimate sample = SampleEstimate.create(10, 1000, 960, 4, 0);
+        assertEquals(40, sample.estimatedExtraRows());
+        assertEquals(80, sample.extraRowsUpperBound());
+        assertEquals(0, sample.estimatedMissingRows());
+        assertEquals(29, sample.missingRowsUpperBound());
+    }
+
+    @Test
+    public void testVerifySample() throws Exception {
+        StringBuilder rows = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            rows.append(i).append(",name").append(i).append('\n');
+        }
+        fixture.setData(rows.toString(), VerificationFixture.SCHEMA);
+
+        // Every tenth row is missing from the original results
+        fixture.verify("SELECT id, name FROM dataset.values_table", "SELECT id, name FROM dataset.values_table WHERE MOD(id, 10) <> 3", QueryVerificationOptions.builder().setSampleModulus(4).build());
+
+        // Both databases return the same subset of rows, so only the extra rows differ
+        List<String> sampledRows = fixture.readLines("migrated/query1.csv");
+        List<String> extraRows = fixture.readLines("diff/query1extra.csv");
+        assertTrue(sampledRows.size() > 100 && sampledRows.size() < 500);
+        assertEquals(sampledRows.size() - extraRows.size(), fixture.readLines("original/query1.csv").size());
+        assertFalse(fixture.exists("diff/query1missing.csv"));
+        for (String row : extraRows) {
+            assertEquals(3, Long.parseLong(row.split(",")[0]) % 10);
+        }
+    }
+
+}
@@ -0,0 +1,133 @@
+package com.google.bigquery;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SortedResultDiffTest {
+
+    @Rule
+    public final VerificationFixture fixture = new VerificationFixture();
+
+    void writeDifferences(ResultDiff diff) throws IOException {
+        CsvResultWriter.prepareOutputFolder("diff", "");
+        try (CsvResultWriter extraWriter = new CsvResultWriter("diff", 0, "extra", false);
+             CsvResultWriter missingWriter = new CsvResultWriter("diff", 0, "missing", false)) {
+            diff.writeDifferences(extraWriter, missingWriter);
+        }
+    }
+
+    @Test
+    public void testRowsMatchWithinTolerance() {
+        SortedResultDiff diff = new SortedResultDiff(new BigDecimal("0.001"));
+
+        assertTrue(diff.rowsMatch(Arrays.asList(1L, new BigDecimal("2.5000"), "a"), Arrays.asList(new BigDecimal("1.0004"), new BigDecimal("2.5"), "a")));
+        assertTrue(diff.rowsMatch(Arrays.asList(null, 1.25), Arrays.asList(null, new BigDecimal("1.2504"))));
+        assertFalse(diff.rowsMatch(Arrays.asList(1L), Arrays.asList(1.002)));
+        assertFalse(diff.rowsMatch(Arrays.asList(1.2504), Arrays.asList(1.2506)));
+        assertFalse(diff.rowsMatch(Arrays.asList("a"), Arrays.asList("b")));
+        assertFalse(diff.rowsMatch(Arrays.asList(1L), Arrays.asList(1L, 2L)));
+    }
+
+    @Test
+    public void testOrderedDifferences() throws Exception {
+        SortedResultDiff diff = new SortedResultDiff(BigDecimal.ZERO, 4);
+
+        // Rows 3 and 4 are tied and returned in a different order, row 6 is missing and a run of extra rows exceeds the window
+        // Results are added concurrently, since a result can't be more than a window ahead of the other
+        Thread original = new Thread(() -> {
+            try {
+                for (long i : new long[] {1, 2, 3, 4, 5, 6, 7, 100, 101, 102, 103, 104, 105, 8, 9}) {
+                    diff.addOriginalRow(Collections.singletonList(i == 6 ? -6L : i));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                diff.finishOriginalRows();
+            }
+        });
+        original.start();
+
+        for (long i : new long[] {1, 2, 4, 3, 5, 7, 8, 9}) {
+            diff.addMigratedRow(Collections.singletonList(i));
+        }
+        diff.finishMigratedRows();
+        original.join();
+        writeDifferences(diff);
+
+        assertEquals(0, diff.getExtraRows());
+        assertEquals(7, diff.getMissingRows());
+        List<String> missingRows = fixture.readLines("diff/query1missing.csv");
+        Collections.sort(missingRows);
+        assertEquals(Arrays.asList("-6", "100", "101", "102", "103", "104", "105"), missingRows);
+    }
+
+    @Test
+    public void testToleranceBeyondWindow() throws Exception {
+        SortedResultDiff diff = new SortedResultDiff(new BigDecimal("0.01"), 2);
+
+        // The results are in a different order, so the rows are matched by the unordered comparison
+        Thread original = new Thread(() -> {
+            try {
+                for (long i = 9; i >= 0; i--) {
+                    diff.addOriginalRow(Arrays.asList(i, BigDecimal.valueOf(i)));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                diff.finishOriginalRows();
+            }
+        });
+        original.start();
+
+        for (long i = 0; i < 10; i++) {
+            diff.addMigratedRow(Arrays.asList(i, i == 5 ? 5.02 : i + 0.004));
+        }
+        diff.finishMigratedRows();
+        original.join();
+        writeDifferences(diff);
+
+        assertEquals(1, diff.getExtraRows());
+        assertEquals(1, diff.getMissingRows());
+        assertEquals(Collections.singletonList("5,5.02"), fixture.readLines("diff/query1extra.csv"));
+        assertEquals(Collections.singletonList("5,5"), fixture.readLines("diff/query1missing.csv"));
+    }
+
+    @Test
+    public void testCompareInLockstep() throws Exception {
+        CsvResultWriter.prepareOutputFolder("migrated", "");
+        CsvResultWriter.prepareOutputFolder("original", "");
+        CsvResultWriter.prepareOutputFolder("diff", "");
+
+        SortedResultDiff diff = new SortedResultDiff(new BigDecimal("0.01"), 16);
+        QueryComparison comparison;
+        try (QueryResultPipeline pipeline = new QueryResultPipeline("migrated", "original", false)) {
+            // Far more rows than fit in the window, so neither result can be read ahead of the other
+            comparison = pipeline.compare(0, consumer -> {
+                for (long i = 0; i < 100000; i++) {
+                    consumer.accept(Arrays.asList(String.valueOf(i)), Arrays.asList(i, BigDecimal.valueOf(i).add(new BigDecimal("0.004"))));
+                }
+                return QueryJobResults.create("", null, null, null, null);
+            }, consumer -> {
+                for (long i = 0; i < 100000; i++) {
+                    if (i != 500) {
+                        consumer.accept(Arrays.asList(String.valueOf(i)), Arrays.asList(i, BigDecimal.valueOf(i)));
+                    }
+                }
+                return QueryJobResults.create("", null, null, null, null);
+            }, diff);
+        }
+
+        assertEquals(1, comparison.extraResults());
+        assertEquals(0, comparison.missingResults());
+        assertEquals(Collections.singletonList("500,500.004"), fixture.readLines("diff/query1extra.csv"));
+    }
+
+}
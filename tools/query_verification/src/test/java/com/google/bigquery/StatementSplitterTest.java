@@ -0,0 +1,165 @@
+package com.google.bigquery;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StatementSplitterTest {
+
+    @Test
+    public void testSplitStatements() {
+        List<String> statements = StatementSplitter.splitToText("SELECT 1;\n  SELECT 2  ;;\n\nSELECT 3", StatementSplitter.Dialect.BIGQUERY);
+
+        assertEquals(Arrays.asList("SELECT 1", "SELECT 2", "SELECT 3"), statements);
+    }
+
+    @Test
+    public void testSemicolonsInQuotesAndComments() {
+        String sql = "SELECT 'a;b', \"c;d\", `e;f` -- g;h\n" +
+                "FROM t /* i;j */ WHERE x = 'it\\'s;';\n" +
+                "# k;l\n" +
+                "SELECT '''m;\n'n''';";
+
+        List<String> statements = StatementSplitter.splitToText(sql, StatementSplitter.Dialect.BIGQUERY);
+
+        assertEquals(Arrays.asList(
+                "SELECT 'a;b', \"c;d\", `e;f` -- g;h\nFROM t /* i;j */ WHERE x = 'it\\'s;'",
+                "SELECT '''m;\n'n'''"), statements);
+    }
+
+    @Test
+    public void testCommentOnlyStatementsAreSkipped() {
+        List<String> statements = StatementSplitter.splitToText("-- header\n/* block */;\nSELECT 1; -- trailing", StatementSplitter.Dialect.BIGQUERY);
+
+        assertEquals(Collections.singletonList("SELECT 1"), statements);
+    }
+
+    @Test
+    public void testScriptingBlocks() {
+        String sql = "BEGIN\n" +
+                "  DECLARE x INT64 DEFAULT 1;\n" +
+                "  IF x > 0 THEN\n" +
+                "    SELECT CASE WHEN x = 1 THEN 'one' ELSE 'other' END;\n" +
+                "  END IF;\n" +
+                "  WHILE x < 3 DO\n" +
+                "    SET x = x + 1;\n" +
+                "  END WHILE;\n" +
+                "END;\n" +
+                "SELECT IF(x, 1, 2), t.end FROM t;";
+
+        List<String> statements = StatementSplitter.splitToText(sql, StatementSplitter.Dialect.BIGQUERY);
+
+        assertEquals(2, statements.size());
+        assertTrue(statements.get(0).startsWith("BEGIN"));
+        assertTrue(statements.get(0).endsWith("END WHILE;\nEND"));
+        assertEquals("SELECT IF(x, 1, 2), t.end FROM t", statements.get(1));
+    }
+
+    @Test
+    public void testKeywordsInExpressions() {
+        // Keywords only start statements and blocks outside of CASE expressions, and not as function names or columns
+        List<String> statements = StatementSplitter.splitToText(
+                "SELECT CASE WHEN a THEN IF(b, 1, 2) ELSE 0 END FROM t; SELECT 1;\n" +
+                "SELECT CASE WHEN a THEN REPEAT('x', 2) ELSE LOOP END FROM t; SELECT 2;\n" +
+                "SELECT begin FROM t; SELECT 3;\n" +
+                "SELECT t.if, t.begin, t.case FROM t; SELECT 4;", StatementSplitter.Dialect.BIGQUERY);
+
+        assertEquals(Arrays.asList(
+                "SELECT CASE WHEN a THEN IF(b, 1, 2) ELSE 0 END FROM t", "SELECT 1",
+                "SELECT CASE WHEN a THEN REPEAT('x', 2) ELSE LOOP END FROM t", "SELECT 2",
+                "SELECT begin FROM t", "SELECT 3",
+                "SELECT t.if, t.begin, t.case FROM t", "SELECT 4"), statements);
+    }
+
+    @Test
+    public void testNestedBlocks() {
+        String sql = "IF (x > 1) THEN\n" +
+                "  CASE WHEN x = 2 THEN SELECT CASE WHEN y THEN IF(z, 1, 2) END; ELSE REPEAT SET x = x - 1; UNTIL x = 0 END REPEAT; END CASE;\n" +
+                "ELSE\n" +
+                "  BEGIN SELECT 1; END;\n" +
+                "END IF;\n" +
+                "SELECT 2;";
+
+        List<String> statements = StatementSplitter.splitToText(sql, StatementSplitter.Dialect.BIGQUERY);
+
+        assertEquals(2, statements.size());
+        assertTrue(statements.get(0).endsWith("END IF"));
+        assertEquals("SELECT 2", statements.get(1));
+    }
+
+    @Test
+    public void testProcedureBodies() {
+        List<String> statements = StatementSplitter.splitToText(
+                "CREATE PROCEDURE ds.p() BEGIN SELECT 1; SELECT 2; END; SELECT 3;\n" +
+                "CREATE OR REPLACE PROCEDURE ds.q(x INT64) BEGIN IF x > 0 THEN SELECT x; END IF; END; SELECT 4;\n" +
+                "CREATE TEMP FUNCTION f() AS ((SELECT begin FROM t)); SELECT 5", StatementSplitter.Dialect.BIGQUERY);
+
+        assertEquals(Arrays.asList(
+                "CREATE PROCEDURE ds.p() BEGIN SELECT 1; SELECT 2; END", "SELECT 3",
+                "CREATE OR REPLACE PROCEDURE ds.q(x INT64) BEGIN IF x > 0 THEN SELECT x; END IF; END", "SELECT 4",
+                "CREATE TEMP FUNCTION f() AS ((SELECT begin FROM t))", "SELECT 5"), statements);
+
+        statements = StatementSplitter.splitToText(
+                "REPLACE PROCEDURE p(IN x INTEGER) BEGIN UPDATE t SET a = x; DELETE FROM u; END;\n" +
+                "CREATE PROCEDURE q() SQL SECURITY OWNER BEGIN SEL 1; END;\n" +
+                "SEL 2;", StatementSplitter.Dialect.TERADATA);
+
+        assertEquals(Arrays.asList(
+                "REPLACE PROCEDURE p(IN x INTEGER) BEGIN UPDATE t SET a = x; DELETE FROM u; END",
+                "CREATE PROCEDURE q() SQL SECURITY OWNER BEGIN SEL 1; END", "SEL 2"), statements);
+    }
+
+    @Test
+    public void testBeginTransactionIsStatement() {
+        List<String> statements = StatementSplitter.splitToText("BEGIN TRANSACTION; INSERT INTO t VALUES (1); COMMIT TRANSACTION;", StatementSplitter.Dialect.BIGQUERY);
+
+        assertEquals(Arrays.asList("BEGIN TRANSACTION", "INSERT INTO t VALUES (1)", "COMMIT TRANSACTION"), statements);
+    }
+
+    @Test
+    public void testOffsetsAndLines() {
+        String sql = "-- comment\nSELECT 1;\n\n  SELECT\n2;";
+
+        List<SqlStatement> statements = StatementSplitter.split(sql, StatementSplitter.Dialect.BIGQUERY);
+
+        assertEquals(2, statements.size());
+        assertEquals(SqlStatement.create("SELECT 1", 11, 19, 2), statements.get(0));
+        assertEquals(SqlStatement.create("SELECT\n2", 24, 32, 4), statements.get(1));
+        assertEquals("SELECT\n2", sql.substring(24, 32));
+    }
+
+    @Test
+    public void testTeradataDialect() {
+        String sql = "SELECT col#1, amount$ FROM t WHERE name = 'it''s;\\';\nSELECT '''a''';";
+
+        List<String> statements = StatementSplitter.splitToText(sql, StatementSplitter.Dialect.TERADATA);
+
+        assertEquals(Arrays.asList("SELECT col#1, amount$ FROM t WHERE name = 'it''s;\\'", "SELECT '''a'''"), statements);
+    }
+
+    @Test
+    public void testReadsAcrossBufferBoundaries() throws IOException {
+        StringBuilder sql = new StringBuilder();
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 2000; i++) {
+            String statement = "SELECT '" + i + ";' /* ; */ AS value";
+            expected.add(statement);
+            sql.append(statement).append(";\n");
+        }
+
+        List<String> statements = new ArrayList<String>();
+        try (StatementSplitter splitter = new StatementSplitter(new StringReader(sql.toString()), StatementSplitter.Dialect.BIGQUERY)) {
+            splitter.forEachRemaining(statement -> statements.add(statement.text()));
+        }
+
+        assertEquals(expected, statements);
+    }
+
+}
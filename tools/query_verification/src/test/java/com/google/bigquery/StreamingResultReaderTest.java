@@ -0,0 +1,122 @@
+package com.google.bigquery;
+
+import com.google.cloud.bigquery.*;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class StreamingResultReaderTest {
+
+    private static final TableId TABLE = TableId.of("dataset", "results");
+    private static final Schema SCHEMA = Schema.of(Field.of("id", LegacySQLTypeName.INTEGER), Field.of("name", LegacySQLTypeName.STRING));
+
+    /**
+     * In-process stream server holding the rows of a single table. Every stream waits until all streams are read, so
+     * reading them one after another times out.
+     */
+    static class FakeStreamService implements ResultStreamService {
+
+        private final List<FieldValueList> rows = new ArrayList<FieldValueList>();
+        private CountDownLatch openStreams;
+        int maxStreams;
+
+        FakeStreamService(int rowCount) {
+            for (int i = 0; i < rowCount; i++) {
+                rows.add(FieldValueList.of(Arrays.asList(
+                        FieldValue.of(FieldValue.Attribute.PRIMITIVE, String.valueOf(i)),
+                        FieldValue.of(FieldValue.Attribute.PRIMITIVE, "name" + i)), SCHEMA.getFields()));
+            }
+        }
+
+        @Override
+        public List<ResultStream> createStreams(TableId table, int maxStreams) {
+            if (!table.equals(TABLE)) {
+                throw new BigQueryException(403, "Access Denied: Table " + table);
+            }
+
+            this.maxStreams = maxStreams;
+            List<ResultStream> streams = ResultStream.split(table, SCHEMA, rows.size(), maxStreams, 1);
+            openStreams = new CountDownLatch(streams.size());
+            return streams;
+        }
+
+        @Override
+        public Stream<FieldValueList> readStream(ResultStream stream) {
+            openStreams.countDown();
+            try {
+                assertTrue(openStreams.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return rows.subList((int) stream.offset(), (int) (stream.offset() + stream.rowCount())).stream();
+        }
+
+    }
+
+    @Test
+    public void testSplit() {
+        List<ResultStream> streams = ResultStream.split(TABLE, SCHEMA, 10, 4, 1);
+        assertEquals(4, streams.size());
+        assertEquals(ResultStream.create(TABLE, SCHEMA, 0, 3), streams.get(0));
+        assertEquals(ResultStream.create(TABLE, SCHEMA, 3, 3), streams.get(1));
+        assertEquals(ResultStream.create(TABLE, SCHEMA, 6, 2), streams.get(2));
+        assertEquals(ResultStream.create(TABLE, SCHEMA, 8, 2), streams.get(3));
+
+        // Small tables are read in fewer streams
+        assertEquals(2, ResultStream.split(TABLE, SCHEMA, 10, 4, 5).size());
+        assertEquals(1, ResultStream.split(TABLE, SCHEMA, 3, 4, 5).size());
+        assertTrue(ResultStream.split(TABLE, SCHEMA, 0, 4, 5).isEmpty());
+    }
+
+    @Test
+    public void testReadStreams() throws Exception {
+        FakeStreamService service = new FakeStreamService(1000);
+        StreamingResultReader reader = new StreamingResultReader(service, 4, new PagedResultReader());
+
+        Set<Long> ids = new HashSet<Long>();
+        List<String> firstRow = new ArrayList<String>();
+        long rows = reader.readTable(TABLE, false, (rawRow, row) -> {
+            assertTrue(ids.add((Long) row.get(0)));
+            assertEquals("name" + row.get(0), row.get(1));
+            if (firstRow.isEmpty()) {
+                firstRow.addAll(rawRow);
+            }
+        });
+
+        assertEquals(4, service.maxStreams);
+        assertEquals(1000, rows);
+        assertEquals(1000, ids.size());
+        assertEquals(2, firstRow.size());
+    }
+
+    @Test
+    public void testReadOrderedStream() throws Exception {
+        FakeStreamService service = new FakeStreamService(100);
+        StreamingResultReader reader = new StreamingResultReader(service, 4, new PagedResultReader());
+
+        List<Object> ids = new ArrayList<Object>();
+        assertEquals(Long.valueOf(100), reader.readTable(TABLE, true, (rawRow, row) -> ids.add(row.get(0))));
+
+        assertEquals(1, service.maxStreams);
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals((long) i, ids.get(i));
+        }
+    }
+
+    @Test
+    public void testFallback() throws Exception {
+        StreamingResultReader reader = new StreamingResultReader(new FakeStreamService(10), 4, new PagedResultReader());
+        ResultRowConsumer consumer = (rawRow, row) -> fail();
+
+        // Results which can't be streamed are left to the fallback reader
+        assertNull(reader.readTable(null, false, consumer));
+        assertNull(reader.readTable(TableId.of("dataset", "other_results"), false, consumer));
+        assertEquals(Long.valueOf(0), new StreamingResultReader(new FakeStreamService(0), 4, new PagedResultReader()).readTable(TABLE, false, consumer));
+    }
+
+}
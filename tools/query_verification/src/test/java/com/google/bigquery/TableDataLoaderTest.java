@@ -0,0 +1,84 @@
+package com.google.bigquery;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TableDataLoaderTest {
+
+    File dataFile;
+
+    @Before
+    public void setup() throws IOException {
+        // Larger than a single chunk
+        byte[] contents = new byte[TableDataLoader.CHUNK_SIZE * 3 + 12345];
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = (byte) ('a' + i % 26);
+        }
+
+        dataFile = File.createTempFile("dataset.table", ".csv");
+        Files.write(dataFile.toPath(), contents);
+    }
+
+    @After
+    public void cleanup() {
+        dataFile.delete();
+    }
+
+    @Test
+    public void testCopyInChunks() throws IOException {
+        QueryVerificationData data = QueryVerificationData.create("dataset", "table", dataFile.getPath());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        try (FileChannel channel = data.openChannel()) {
+            assertEquals(TableDataLoader.copyInChunks(channel, Channels.newChannel(outputStream)), data.size());
+        }
+        assertArrayEquals(outputStream.toByteArray(), Files.readAllBytes(dataFile.toPath()));
+    }
+
+    @Test
+    public void testLoadTablesConcurrently() throws Exception {
+        List<QueryVerificationData> data = new ArrayList<QueryVerificationData>();
+        for (int i = 0; i < 8; i++) {
+            data.add(QueryVerificationData.create("dataset", "table" + i, dataFile.getPath()));
+        }
+
+        AtomicInteger loading = new AtomicInteger();
+        AtomicInteger maxLoading = new AtomicInteger();
+        AtomicInteger loaded = new AtomicInteger();
+
+        new TableDataLoader("Test", 3).loadTables(data, tableData -> {
+            maxLoading.accumulateAndGet(loading.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            loading.decrementAndGet();
+            loaded.incrementAndGet();
+        });
+
+        assertEquals(loaded.get(), 8);
+        assertTrue(maxLoading.get() > 1);
+        assertTrue(maxLoading.get() <= 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadTablesFailure() throws Exception {
+        List<QueryVerificationData> data = Arrays.asList(QueryVerificationData.create("dataset", "table", dataFile.getPath()));
+
+        new TableDataLoader("Test", 2).loadTables(data, tableData -> {
+            throw new IllegalArgumentException(tableData.tableName() + " has no provided schema.");
+        });
+    }
+
+}
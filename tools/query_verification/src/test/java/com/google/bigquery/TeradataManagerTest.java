@@ -2,6 +2,16 @@ package com.google.bigquery;
 
 import org.junit.Test;
 
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -31,4 +41,110 @@ public class TeradataManagerTest {
         assertEquals(ddlStatements.get(0), "dataset.table");
     }
 
+    @Test
+    public void testRemoveOrderBy() {
+        assertEquals(TeradataManager.removeOrderBy("SELECT a FROM t ORDER BY a DESC"), "SELECT a FROM t");
+        assertEquals(TeradataManager.removeOrderBy("SELECT a FROM (SELECT TOP 1 a FROM t ORDER BY a) s"), "SELECT a FROM (SELECT TOP 1 a FROM t ORDER BY a) s");
+        assertEquals(TeradataManager.removeOrderBy("SELECT 'ORDER BY a' FROM t"), "SELECT 'ORDER BY a' FROM t");
+        assertEquals(TeradataManager.removeOrderBy("SELECT border_by FROM t"), "SELECT border_by FROM t");
+    }
+
+    @Test
+    public void testGetChecksumQuery() {
+        String checksumQuery = new TeradataManager(null, null, null).getChecksumQuery("SELECT a FROM t ORDER BY a", Arrays.asList(Types.VARCHAR));
+
+        assertEquals(checksumQuery, "SELECT COUNT(*) AS row_count, COALESCE(SUM(CAST(CAST(TO_NUMBER(SUBSTR(HASH_MD5(COALESCE(c1, '\\N')), 1, 8), 'XXXXXXXX') AS BIGINT) AS DECIMAL(38, 0))), 0) AS checksum FROM (SELECT a FROM t) AS t (c1)");
+
+        // Numbers are rounded half away from zero to a multiple of the tolerance, like the rows
+        TeradataManager manager = new TeradataManager(null, null, null);
+        manager.setChecksumTolerance(new BigDecimal("0.0001"));
+        checksumQuery = manager.getChecksumQuery("SELECT 1.23456 AS a", Arrays.asList(Types.DECIMAL));
+        assertTrue(checksumQuery.contains("TRUNC((CAST(c1 AS DECIMAL(38, 6)) / 0.0001) + SIGN((CAST(c1 AS DECIMAL(38, 6)) / 0.0001)) * 0.5)"));
+    }
+
+    @Test
+    public void testRowDecoder() throws SQLException {
+        RowSetMetaDataImpl metadata = new RowSetMetaDataImpl();
+        metadata.setColumnCount(3);
+        metadata.setColumnType(1, Types.BIGINT);
+        metadata.setColumnType(2, Types.DECIMAL);
+        metadata.setColumnType(3, Types.VARCHAR);
+
+        CachedRowSet rows = RowSetProvider.newFactory().createCachedRowSet();
+        rows.setMetaData(metadata);
+        rows.moveToInsertRow();
+        rows.updateLong(1, 10L);
+        rows.updateBigDecimal(2, new BigDecimal("3.5"));
+        rows.updateString(3, "value");
+        rows.insertRow();
+        rows.moveToInsertRow();
+        rows.updateNull(1);
+        rows.updateNull(2);
+        rows.updateNull(3);
+        rows.insertRow();
+        rows.moveToCurrentRow();
+        rows.beforeFirst();
+
+        TeradataRowDecoder decoder = TeradataRowDecoder.compile(rows.getMetaData());
+
+        assertTrue(rows.next());
+        assertEquals(decoder.decode(rows), Arrays.asList(10L, new BigDecimal("3.5"), "value"));
+        assertEquals(decoder.decodeRaw(rows), Arrays.asList("10", "3.5", "value"));
+
+        assertTrue(rows.next());
+        assertEquals(decoder.decode(rows), Arrays.asList(null, null, null));
+    }
+
+    @Test
+    public void testRunQueryWithConnectionPool() throws Exception {
+        // Embedded database standing in for TD
+        JdbcConnectionPool pool = new JdbcConnectionPool("jdbc:h2:mem:teradata;DB_CLOSE_DELAY=-1", "", "", 2, 10);
+        try (JdbcConnectionPool.PooledConnection connection = pool.acquire()) {
+            connection.executeUpdate("CREATE SCHEMA dataset");
+        }
+
+        QueryVerificationQuery query = QueryVerificationQuery.create("SELECT stringField, integerField FROM dataset.values_table", "");
+        QueryVerificationSchema schema = QueryVerificationSchema.create("CREATE TABLE dataset.values_table (stringField VARCHAR(255), integerField BIGINT)", "");
+        TeradataManager teradataManager = new TeradataManager(query, schema, new ArrayList<QueryVerificationData>(), pool, pool);
+
+        teradataManager.setupTables();
+        try (JdbcConnectionPool.PooledConnection connection = pool.acquire()) {
+            connection.executeUpdate("INSERT INTO dataset.values_table VALUES ('a', 1), ('b', NULL)");
+        }
+
+        List<List<Object>> rows = new ArrayList<List<Object>>();
+        QueryJobResults jobResults = teradataManager.runQuery(query.query(), (rawRow, row) -> rows.add(row));
+        teradataManager.cleanupTables();
+
+        assertNull(jobResults.error());
+        assertEquals(rows, Arrays.asList(Arrays.asList("a", 1L), Arrays.asList("b", null)));
+        assertNotNull(teradataManager.runQuery("SELECT * FROM dataset.values_table", (rawRow, row) -> {}).error());
+    }
+
+    @Test
+    public void testCleanupAfterFailedSetup() throws Exception {
+        JdbcConnectionPool pool = new JdbcConnectionPool("jdbc:h2:mem:cleanup;DB_CLOSE_DELAY=-1", "", "", 2, 10);
+        try (JdbcConnectionPool.PooledConnection connection = pool.acquire()) {
+            connection.executeUpdate("CREATE SCHEMA dataset");
+        }
+
+        // Table is created, but its data file doesn't exist
+        QueryVerificationSchema schema = QueryVerificationSchema.create("CREATE TABLE dataset.cleanup_table (stringField VARCHAR(255))", "");
+        List<QueryVerificationData> data = Arrays.asList(QueryVerificationData.create("dataset", "cleanup_table", resourcesPath + "missing.csv"));
+        TeradataManager teradataManager = new TeradataManager(null, schema, data, pool, pool);
+
+        try {
+            teradataManager.setupTables();
+            fail();
+        } catch (IOException e) {
+            teradataManager.cleanupTables();
+        }
+
+        try (JdbcConnectionPool.PooledConnection connection = pool.acquire();
+             ResultSet resultSet = connection.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = 'CLEANUP_TABLE'")) {
+            resultSet.next();
+            assertEquals(resultSet.getLong(1), 0L);
+        }
+    }
+
 }
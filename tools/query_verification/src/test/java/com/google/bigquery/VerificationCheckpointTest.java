@@ -0,0 +1,184 @@
+package com.google.bigquery;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class VerificationCheckpointTest {
+
+    @Rule
+    public final VerificationFixture fixture = new VerificationFixture();
+
+    private static final QueryVerificationQuery MIGRATED_QUERY = QueryVerificationQuery.create("SELECT 1;\nSELECT 2", "migrated.sql");
+    private static final QueryVerificationQuery ORIGINAL_QUERY = QueryVerificationQuery.create("SELECT 1;\nSELECT 2", "original.sql");
+
+    @Test
+    public void testResume() throws Exception {
+        Path file = Files.createTempDirectory("checkpoint").resolve(VerificationCheckpoint.FILE_NAME);
+
+        try (VerificationCheckpoint checkpoint = VerificationCheckpoint.open(file, "fingerprint", true)) {
+            assertEquals(0, checkpoint.getCompletedCount());
+            checkpoint.recordSetup("BigQuery");
+            checkpoint.recordStatement(0, QueryComparison.create(QueryJobResults.create("SELECT 1", MIGRATED_QUERY, null, null, null), QueryJobResults.create("SELECT 1", ORIGINAL_QUERY, "Error", null, null), 2, 3), true, null, 4, "Checksum error");
+        }
+
+        try (VerificationCheckpoint checkpoint = VerificationCheckpoint.open(file, "fingerprint", true)) {
+            assertEquals(1, checkpoint.getCompletedCount());
+            assertTrue(checkpoint.isSetUp("BigQuery"));
+            assertFalse(checkpoint.isSetUp("Teradata"));
+
+            QueryComparison comparison = checkpoint.getCompleted(0, "SELECT 1", MIGRATED_QUERY, "SELECT 1", ORIGINAL_QUERY);
+            assertNotNull(comparison);
+            assertNull(comparison.migratedResults().error());
+            assertEquals("Error", comparison.originalResults().error());
+            assertEquals(2, comparison.extraResults());
+            assertEquals(3, comparison.missingResults());
+            assertTrue(checkpoint.isUnfetched(0));
+            assertEquals(4, checkpoint.getMismatchingRows(0));
+            assertEquals("Checksum error", checkpoint.getChecksumError(0));
+
+            // Changed statements are verified again
+            assertNull(checkpoint.getCompleted(0, "SELECT 10", MIGRATED_QUERY, "SELECT 1", ORIGINAL_QUERY));
+            assertNull(checkpoint.getCompleted(1, "SELECT 2", MIGRATED_QUERY, "SELECT 2", ORIGINAL_QUERY));
+        }
+
+        // A partially written entry is ignored, and entries recorded after it can be read once resumed again
+        Files.write(file, "{\"query\":1,\"migra".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        try (VerificationCheckpoint checkpoint = VerificationCheckpoint.open(file, "fingerprint", true)) {
+            assertEquals(1, checkpoint.getCompletedCount());
+            for (int i = 1; i <= 2; i++) {
+                checkpoint.recordStatement(i, QueryComparison.create(QueryJobResults.create("SELECT " + (i + 1), MIGRATED_QUERY, null, null, null), QueryJobResults.create("SELECT " + (i + 1), ORIGINAL_QUERY, null, null, null), 0, 0), false, null, 0, null);
+            }
+        }
+        try (VerificationCheckpoint checkpoint = VerificationCheckpoint.open(file, "fingerprint", true)) {
+            assertEquals(3, checkpoint.getCompletedCount());
+            assertNotNull(checkpoint.getCompleted(2, "SELECT 3", MIGRATED_QUERY, "SELECT 3", ORIGINAL_QUERY));
+
+            // Only completed statements are forgotten
+            assertEquals(1, checkpoint.forgetStatements(Arrays.asList(2, 5)));
+        }
+        try (VerificationCheckpoint checkpoint = VerificationCheckpoint.open(file, "fingerprint", true)) {
+            assertEquals(2, checkpoint.getCompletedCount());
+            assertNull(checkpoint.getCompleted(2, "SELECT 3", MIGRATED_QUERY, "SELECT 3", ORIGINAL_QUERY));
+        }
+
+        try (VerificationCheckpoint checkpoint = VerificationCheckpoint.open(file, "other fingerprint", true)) {
+            assertEquals(0, checkpoint.getCompletedCount());
+            assertFalse(checkpoint.isSetUp("BigQuery"));
+        }
+
+        VerificationCheckpoint.open(file, "fingerprint", false).delete();
+        assertFalse(file.toFile().exists());
+        Files.delete(file.getParent());
+    }
+
+    /**
+     * Embedded database which fails to run a statement once, like a data warehouse running out of quota
+     */
+    static class FailingManager extends H2Manager {
+
+        private final Set<String> failingStatements;
+        final List<String> statementsRun = Collections.synchronizedList(new ArrayList<String>());
+
+        FailingManager(String name, QueryVerificationQuery query, QueryVerificationSchema schema, List<QueryVerificationData> data, String... failingStatements) {
+            super(name, query, schema, data);
+            this.failingStatements = new HashSet<String>(Arrays.asList(failingStatements));
+        }
+
+        @Override
+        public QueryJobResults runQuery(String statement, ResultRowConsumer consumer) throws InterruptedException {
+            if (failingStatements.contains(statement)) {
+                throw new IllegalStateException("Quota exceeded");
+            }
+            statementsRun.add(statement);
+            return super.runQuery(statement, consumer);
+        }
+
+    }
+
+    @Test
+    public void testResumeVerification() throws Exception {
+        String first = "SELECT id FROM dataset.values_table";
+        String second = "SELECT name FROM dataset.values_table";
+        QueryVerificationQuery migratedQuery = QueryVerificationQuery.create(first + ";\n" + second, "migrated.sql");
+        QueryVerificationQuery originalQuery = QueryVerificationQuery.create(first + " WHERE id < 3;\n" + second, "original.sql");
+        QueryVerificationOptions options = QueryVerificationOptions.builder().setResume(true).build();
+
+        FailingManager failingManager = new FailingManager("migrated", migratedQuery, fixture.getSchema(), fixture.getData(), second);
+        H2Manager originalManager = fixture.createManager("original", originalQuery);
+        try {
+            new QueryVerifier(failingManager, originalManager, migratedQuery, originalQuery, options).verifyDataAware();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("Quota exceeded", e.getMessage());
+        } finally {
+            // Tables are kept for the resumed verification, but can't outlive the embedded databases
+            failingManager.cleanupTables();
+            originalManager.cleanupTables();
+        }
+        assertTrue(fixture.exists(VerificationCheckpoint.FILE_NAME));
+
+        FailingManager resumedManager = new FailingManager("migrated", migratedQuery, fixture.getSchema(), fixture.getData());
+        new QueryVerifier(resumedManager, fixture.createManager("original", originalQuery), migratedQuery, originalQuery, options).verifyDataAware();
+
+        // Only the failed statement is run again, and the differences of the first statement are kept
+        assertEquals(Collections.singletonList(second), resumedManager.statementsRun);
+        assertEquals(1, fixture.readLines("diff/query1extra.csv").size());
+        assertFalse(fixture.exists(VerificationCheckpoint.FILE_NAME));
+    }
+
+    @Test
+    public void testFailedVerificationWithoutResume() throws Exception {
+        String first = "SELECT id FROM dataset.values_table";
+        String second = "SELECT name FROM dataset.values_table";
+        QueryVerificationQuery query = QueryVerificationQuery.create(first + ";\n" + second, "migrated.sql");
+
+        FailingManager failingManager = new FailingManager("migrated", query, fixture.getSchema(), fixture.getData(), second);
+        try {
+            new QueryVerifier(failingManager, fixture.createManager("original", query), query, query, QueryVerificationOptions.builder().build()).verifyDataAware();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("Quota exceeded", e.getMessage());
+        }
+
+        // The tables are deleted, so a later resumed verification can't skip statements which modified them
+        assertFalse(fixture.exists(VerificationCheckpoint.FILE_NAME));
+    }
+
+    @Test
+    public void testResumeRerunsModifyingStatements() throws Exception {
+        // VALUES isn't recognized as read-only, like a statement modifying the tables, but runs as a query in H2
+        String first = "VALUES (1)";
+        String second = "SELECT id FROM dataset.values_table";
+        String third = "SELECT name FROM dataset.values_table";
+        QueryVerificationQuery query = QueryVerificationQuery.create(first + ";\n" + second + ";\n" + third, "migrated.sql");
+        QueryVerificationOptions options = QueryVerificationOptions.builder().setResume(true).build();
+
+        FailingManager failingManager = new FailingManager("migrated", query, fixture.getSchema(), fixture.getData(), third);
+        H2Manager originalManager = fixture.createManager("original", query);
+        try {
+            new QueryVerifier(failingManager, originalManager, query, query, options).verifyDataAware();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("Quota exceeded", e.getMessage());
+        } finally {
+            // The tables are gone when the verification is resumed
+            failingManager.cleanupTables();
+            originalManager.cleanupTables();
+        }
+
+        FailingManager resumedManager = new FailingManager("migrated", query, fixture.getSchema(), fixture.getData());
+        new QueryVerifier(resumedManager, fixture.createManager("original", query), query, query, options).verifyDataAware();
+
+        // The statement modifying the tables runs again against the new tables, while the completed SELECT is skipped
+        assertEquals(Arrays.asList(first, third), resumedManager.statementsRun);
+    }
+
+}
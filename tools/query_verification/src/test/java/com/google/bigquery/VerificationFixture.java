@@ -0,0 +1,138 @@
+package com.google.bigquery;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.rules.ExternalResource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Test rule which points the output directory at a temporary folder, so tests don't delete the output of actual
+ * verifications, and provides a table for data-aware verifications against embedded databases. The table has three
+ * rows unless other data is written with {@link #setData(String, String)}. Both folders are deleted after each test.
+ */
+class VerificationFixture extends ExternalResource {
+
+    static final String SCHEMA = "CREATE TABLE dataset.values_table (id BIGINT, name VARCHAR(10));";
+    static final String ROWS = "1,a\n2,b\n3,c";
+
+    private Path outputPath;
+    private Path dataFolder;
+    private String previousOutputDirectory;
+
+    private List<QueryVerificationData> data;
+    private QueryVerificationSchema schema;
+
+    @Override
+    protected void before() throws IOException {
+        outputPath = Files.createTempDirectory("output");
+        dataFolder = Files.createTempDirectory("data");
+        previousOutputDirectory = System.setProperty(CsvResultWriter.OUTPUT_DIRECTORY_PROPERTY, outputPath.toString());
+        setData(ROWS, SCHEMA);
+    }
+
+    @Override
+    protected void after() {
+        if (previousOutputDirectory == null) {
+            System.clearProperty(CsvResultWriter.OUTPUT_DIRECTORY_PROPERTY);
+        } else {
+            System.setProperty(CsvResultWriter.OUTPUT_DIRECTORY_PROPERTY, previousOutputDirectory);
+        }
+
+        try {
+            deleteFolder(outputPath);
+            deleteFolder(dataFolder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Replaces the data of the table dataset.values_table
+     * @param rows CSV rows of the table
+     * @param schema DDL creating the table
+     * @throws IOException
+     */
+    void setData(String rows, String schema) throws IOException {
+        Path dataFile = dataFolder.resolve("dataset.values_table.csv");
+        Files.write(dataFile, rows.getBytes(StandardCharsets.UTF_8));
+        this.data = Collections.singletonList(QueryVerificationData.create("dataset", "values_table", dataFile.toString()));
+        this.schema = QueryVerificationSchema.create(schema, "schema.sql");
+    }
+
+    Path getOutputPath() {
+        return outputPath;
+    }
+
+    List<QueryVerificationData> getData() {
+        return data;
+    }
+
+    QueryVerificationSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * @param name of the data warehouse
+     * @param query File whose statements are run
+     * @return Embedded database with the table of the fixture
+     */
+    H2Manager createManager(String name, QueryVerificationQuery query) {
+        return new H2Manager(name, query, schema, data);
+    }
+
+    /**
+     * Verifies a migrated and original query file against separate embedded databases named "migrated" and "original"
+     * @param migratedStatements Statements of the migrated query file
+     * @param originalStatements Statements of the original query file
+     * @param options of the verification
+     * @throws Exception
+     */
+    void verify(String migratedStatements, String originalStatements, QueryVerificationOptions options) throws Exception {
+        QueryVerificationQuery migratedQuery = QueryVerificationQuery.create(migratedStatements, "migrated.sql");
+        QueryVerificationQuery originalQuery = QueryVerificationQuery.create(originalStatements, "original.sql");
+        new QueryVerifier(createManager("migrated", migratedQuery), createManager("original", originalQuery), migratedQuery, originalQuery, options).verifyDataAware();
+    }
+
+    /**
+     * @param fileName Path of the file in the output directory
+     * @return Lines of the file
+     * @throws IOException
+     */
+    List<String> readLines(String fileName) throws IOException {
+        return Files.readAllLines(outputPath.resolve(fileName), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param fileName Path of the file in the output directory
+     * @return Whether the file was written
+     */
+    boolean exists(String fileName) {
+        return outputPath.resolve(fileName).toFile().exists();
+    }
+
+    /**
+     * @return Report written by the last verification
+     * @throws IOException
+     */
+    JsonObject readReport() throws IOException {
+        return JsonParser.parseString(new String(Files.readAllBytes(outputPath.resolve(VerificationReport.FILE_NAME)), StandardCharsets.UTF_8)).getAsJsonObject();
+    }
+
+    static void deleteFolder(Path folder) throws IOException {
+        if (folder.toFile().exists()) {
+            try (Stream<Path> paths = Files.walk(folder)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+}
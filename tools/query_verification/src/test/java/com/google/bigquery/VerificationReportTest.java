@@ -0,0 +1,51 @@
+package com.google.bigquery;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class VerificationReportTest {
+
+    @Rule
+    public final VerificationFixture fixture = new VerificationFixture();
+
+    @Test
+    public void testStatisticsPlus() {
+        StatementStatistics jdbcStatistics = StatementStatistics.ofJob(10, 5, 3);
+        StatementStatistics jobStatistics = StatementStatistics.create(1, 20, 0, 1, 2048L, 300L);
+
+        assertEquals(StatementStatistics.create(2, 30, 5, 4, 2048L, 300L), jdbcStatistics.plus(jobStatistics));
+        assertEquals(StatementStatistics.create(2, 20, 10, 6, null, null), jdbcStatistics.plus(jdbcStatistics));
+    }
+
+    @Test
+    public void testReportWritten() throws Exception {
+        fixture.verify("SELECT id FROM dataset.values_table;\nSELECT name FROM dataset.values_table",
+                "SELECT id FROM dataset.values_table WHERE id < 3;\nSELECT name FROM dataset.values_table", QueryVerificationOptions.builder().build());
+        JsonObject report = fixture.readReport();
+
+        JsonObject phases = report.getAsJsonObject("phases");
+        assertTrue(phases.has("setup"));
+        assertTrue(phases.has("verification"));
+        assertTrue(phases.has("cleanup"));
+        assertTrue(report.getAsJsonObject("warehouses").getAsJsonObject("original").getAsJsonObject("phases").has("load tables"));
+
+        JsonArray statements = report.getAsJsonArray("statements");
+        assertEquals(2, statements.size());
+
+        JsonObject first = statements.get(0).getAsJsonObject();
+        assertEquals(1, first.get("query").getAsInt());
+        assertEquals(1, first.get("extraRows").getAsLong());
+        assertEquals(3, first.getAsJsonObject("migrated").getAsJsonObject("statistics").get("rowsFetched").getAsLong());
+        assertEquals(2, first.getAsJsonObject("original").getAsJsonObject("statistics").get("rowsFetched").getAsLong());
+        assertTrue(first.getAsJsonObject("migrated").getAsJsonObject("statistics").get("bytesProcessed").isJsonNull());
+
+        JsonObject totals = report.getAsJsonObject("warehouses").getAsJsonObject("migrated").getAsJsonObject("totals");
+        assertEquals(2, totals.get("jobs").getAsInt());
+        assertEquals(6, totals.get("rowsFetched").getAsLong());
+    }
+
+}